@@ -22,18 +22,38 @@
  */
 package com.github.lukesky19.skylib.api.database;
 
+import com.github.lukesky19.skylib.api.database.accounting.ResourceAccounting;
 import com.github.lukesky19.skylib.api.database.connection.AbstractConnectionManager;
+import com.github.lukesky19.skylib.api.database.maintenance.MaintenanceScheduler;
+import com.github.lukesky19.skylib.api.database.maintenance.MaintenanceSettings;
+import com.github.lukesky19.skylib.api.database.queue.AbstractQueueManager;
 import com.github.lukesky19.skylib.api.database.queue.QueueManager;
+import com.github.lukesky19.skylib.api.database.queue.util.ShutdownReport;
+import com.github.lukesky19.skylib.api.database.queue.util.StatementJournal;
+import com.github.lukesky19.skylib.api.database.statement.SqlStatement;
+import com.github.lukesky19.skylib.api.database.warmup.WarmupPlan;
+import com.github.lukesky19.skylib.api.database.warmup.WarmupReport;
+import com.github.lukesky19.skylib.internal.ThreadPoolManager;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.*;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
-import java.util.concurrent.CompletableFuture;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class manages access to a database. Also provides the ability to backup a database.
@@ -42,6 +62,7 @@ public class AbstractDatabaseManager {
     private final @NotNull AbstractConnectionManager connectionManager;
     private final @NotNull QueueManager queueManager;
     private @Nullable CompletableFuture<Void> backupTask;
+    private @Nullable MaintenanceScheduler maintenanceScheduler;
 
     /**
      * Constructor
@@ -102,28 +123,204 @@ public class AbstractDatabaseManager {
         return backupTask;
     }
 
+    /**
+     * Starts running ANALYZE, PRAGMA optimize and incremental vacuum while the database queue is idle. See {@link MaintenanceScheduler}.
+     * Maintenance is stopped automatically when the plugin is disabled using {@link #handlePluginDisable(long, TimeUnit, Path)}.
+     * @param settings The {@link MaintenanceSettings}.
+     * @throws IllegalStateException If the queue manager does not extend {@link AbstractQueueManager}, so its metrics cannot be read.
+     */
+    public synchronized void startMaintenance(@NotNull MaintenanceSettings settings) {
+        if(!(queueManager instanceof AbstractQueueManager abstractQueueManager)) {
+            throw new IllegalStateException("Idle maintenance requires a queue manager that extends AbstractQueueManager.");
+        }
+
+        stopMaintenance();
+        maintenanceScheduler = new MaintenanceScheduler(connectionManager, abstractQueueManager, settings);
+        maintenanceScheduler.start();
+    }
+
+    /**
+     * Stops running idle maintenance. A maintenance step that is already queued is allowed to finish.
+     */
+    public synchronized void stopMaintenance() {
+        if(maintenanceScheduler != null) {
+            maintenanceScheduler.stop();
+            maintenanceScheduler = null;
+        }
+    }
+
     /**
      * Shuts down the queue and then closes any connections to the database.
      * If a backup is occurring, it will wait until that is complete and the backlog of scheduled tasks are complete.
+     * The queue is given 60 seconds to finish any submitted tasks. Tasks that have not started by then are cancelled.
      * @return A {@link CompletableFuture} of type {@link Void} that can be used to know when the operation is complete.
      */
     public @NotNull CompletableFuture<Void> handlePluginDisable() {
-        if(backupTask != null) {
-            return backupTask.thenCompose(v1 -> {
-                // Wait for all queued tasks to complete and the queue to shut down.
-                return queueManager.shutdownQueue().thenCompose(v2 -> {
-                    // Then close connections
+        return handlePluginDisable(60, TimeUnit.SECONDS, null).thenApply(report -> null);
+    }
+
+    /**
+     * Shuts down the queue in order and then closes any connections to the database. Idle maintenance is stopped first.
+     * If a backup is occurring, it will wait for the backup until the deadline. Then the queue stops accepting tasks,
+     * flushes any held tasks, and drains the submitted tasks for the remaining time until the deadline.
+     * Write tasks that have not started by the deadline are written to the journal file (if provided).
+     * Use {@link #replayJournal(Path)} on the next startup to execute them.
+     * The connections to the database are always closed, even if the shutdown fails, and the plugin's usage in {@link ResourceAccounting} is cleared.
+     * @param timeout The maximum time to wait for the backup and the submitted tasks to finish.
+     * @param timeUnit The {@link TimeUnit} of the timeout.
+     * @param journalPath The {@link Path} of the journal file to write cancelled write tasks to. Optional.
+     * @return A {@link CompletableFuture} containing a {@link ShutdownReport} of what was completed, cancelled, and journaled.
+     */
+    public @NotNull CompletableFuture<ShutdownReport> handlePluginDisable(long timeout, @NotNull TimeUnit timeUnit, @Nullable Path journalPath) {
+        long deadline = System.nanoTime() + timeUnit.toNanos(timeout);
+        stopMaintenance();
+
+        CompletableFuture<Void> currentBackupTask = backupTask;
+        CompletableFuture<Void> backupComplete = currentBackupTask == null
+                ? CompletableFuture.completedFuture(null)
+                : currentBackupTask.handle((v, t) -> (Void) null).completeOnTimeout(null, timeout, timeUnit);
+
+        return backupComplete
+                .thenCompose(v -> queueManager.shutdownQueue(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS, journalPath))
+                .whenComplete((report, throwable) -> {
                     connectionManager.closeConnections();
-                    return null;
+                    ResourceAccounting.reset(connectionManager.getPlugin().getName());
                 });
-            });
-        } else {
-            // Wait for all queued tasks to complete and the queue to shut down.
-            return queueManager.shutdownQueue().thenCompose(v2 -> {
-                // Then close connections
-                connectionManager.closeConnections();
-                return null;
-            });
+    }
+
+    /**
+     * Warms up the database so that the first operations after startup are not slow.
+     * In parallel on the shared {@link ThreadPoolManager} executor, it fills the pool to its minimum number of idle connections,
+     * compiles the plan's statements on every one of those connections, which loads the schema into each connection and reports invalid sql early,
+     * and reads the plan's hot tables and indexes so that their pages are cached. Anything that fails to warm up is reported rather than failing the warmup.
+     * Call this in your plugin's onEnable and wait for the returned {@link CompletableFuture} (or check it when players log in) so that warmup completes before players join.
+     * @param plan The {@link WarmupPlan} describing the hot statements, tables and indexes.
+     * @return A {@link CompletableFuture} containing a {@link WarmupReport}.
+     */
+    public @NotNull CompletableFuture<WarmupReport> warmup(@NotNull WarmupPlan plan) {
+        long startTime = System.nanoTime();
+        int connectionCount = Math.max(1, connectionManager.getMinimumIdle());
+        Executor executor = ThreadPoolManager.getThreadPoolExecutor();
+
+        Set<String> errors = ConcurrentHashMap.newKeySet();
+        AtomicInteger statementsChecked = new AtomicInteger();
+        AtomicInteger tablesPrimed = new AtomicInteger();
+        // Every connection is held until all tasks have finished, so the pool has to open new connections rather than hand out the same one.
+        Queue<Connection> openedConnections = new ConcurrentLinkedQueue<>();
+
+        CompletableFuture<?>[] futures = new CompletableFuture[connectionCount];
+        for(int i = 0; i < connectionCount; i++) {
+            int connectionIndex = i;
+            futures[i] = CompletableFuture.runAsync(() -> {
+                Connection connection;
+                try {
+                    connection = connectionManager.getConnection();
+                    openedConnections.add(connection);
+                } catch (RuntimeException e) {
+                    errors.add("Failed to open a connection: " + e.getMessage());
+                    return;
+                }
+
+                for(String sql : plan.getStatements()) {
+                    // SQLite compiles the statement when it is prepared, which also loads the schema into the connection.
+                    try(PreparedStatement statement = connection.prepareStatement(sql)) {
+                        statement.clearParameters();
+                        statementsChecked.incrementAndGet();
+                    } catch (SQLException e) {
+                        errors.add("Failed to compile \"" + sql + "\": " + e.getMessage());
+                    }
+                }
+
+                // The tables are split between the connections so they are read in parallel.
+                List<WarmupPlan.HotTable> tables = plan.getTables();
+                for(int j = connectionIndex; j < tables.size(); j += connectionCount) {
+                    String sql = tables.get(j).toPrimeSql();
+                    try(Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery(sql)) {
+                        while(resultSet.next()) {
+                            resultSet.getLong(1);
+                        }
+
+                        tablesPrimed.incrementAndGet();
+                    } catch (SQLException e) {
+                        errors.add("Failed to read \"" + sql + "\": " + e.getMessage());
+                    }
+                }
+            }, executor);
+        }
+
+        return CompletableFuture.allOf(futures)
+                .handle((v, throwable) -> {
+                    int connectionsOpened = openedConnections.size();
+                    for(Connection connection : openedConnections) {
+                        try {
+                            connection.close();
+                        } catch (SQLException e) {
+                            errors.add("Failed to close a connection: " + e.getMessage());
+                        }
+                    }
+
+                    return new WarmupReport(
+                            connectionsOpened,
+                            statementsChecked.get(),
+                            tablesPrimed.get(),
+                            new ArrayList<>(errors),
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+                });
+    }
+
+    /**
+     * Replays the write transactions stored in a journal file written during a previous shutdown.
+     * Each journaled transaction is queued using {@link QueueManager#queueStatementTransaction(List)}.
+     * The journal file is deleted once all transactions have been executed successfully.
+     * If any transaction fails, the journal file is rewritten to contain only the failed transactions, so transactions that were committed are not replayed again,
+     * and the returned {@link CompletableFuture} completes exceptionally.
+     * @param journalPath The {@link Path} of the journal file.
+     * @return A {@link CompletableFuture} containing the number of transactions replayed.
+     */
+    public @NotNull CompletableFuture<Integer> replayJournal(@NotNull Path journalPath) {
+        if(!Files.exists(journalPath)) return CompletableFuture.completedFuture(0);
+
+        List<List<SqlStatement>> transactions;
+        try {
+            transactions = StatementJournal.read(journalPath);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
         }
+
+        List<CompletableFuture<List<Integer>>> futures = transactions.stream()
+                .map(queueManager::queueStatementTransaction)
+                .toList();
+
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).handle((v, throwable) -> {
+            List<List<SqlStatement>> failedTransactions = new ArrayList<>();
+            Throwable failure = null;
+            for(int i = 0; i < futures.size(); i++) {
+                CompletableFuture<List<Integer>> future = futures.get(i);
+                if(future.isCompletedExceptionally()) {
+                    failedTransactions.add(transactions.get(i));
+                    if(failure == null) failure = future.handle((result, e) -> e).join();
+                }
+            }
+
+            try {
+                if(failedTransactions.isEmpty()) {
+                    Files.deleteIfExists(journalPath);
+                } else {
+                    // Write the failed transactions to a temporary file first, so a crash while rewriting cannot lose them.
+                    Path tempPath = journalPath.resolveSibling(journalPath.getFileName() + ".tmp");
+                    Files.deleteIfExists(tempPath);
+                    StatementJournal.write(tempPath, failedTransactions);
+                    Files.move(tempPath, journalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to update journal file: " + e.getMessage(), e);
+            }
+
+            if(failure != null) {
+                throw new CompletionException(failedTransactions.size() + " of " + transactions.size() + " journaled transactions failed to replay.", failure);
+            }
+
+            return transactions.size();
+        });
     }
 }
@@ -0,0 +1,312 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.accounting;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * This class attributes the database resources used by the queue managers to the plugin that submitted the tasks.
+ * Work SkyLib runs for a plugin outside its queue, i.e., periodic tasks on the shared executor and row mapping, is attributed using {@link #wrap(String, Runnable)} and {@link #wrapContinuation(String, Function)}.
+ * Usage is kept in 5 second buckets for the last 15 minutes, so it can be queried for any rolling window up to 15 minutes.
+ */
+public final class ResourceAccounting {
+    private static final long BUCKET_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final int BUCKETS = 180;
+    private static final long START_TIME = System.nanoTime();
+    private static final @NotNull ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+    private static final boolean CPU_TIME_SUPPORTED = isCpuTimeSupported();
+    private static final @NotNull Map<String, Account> accounts = new ConcurrentHashMap<>();
+    private static final @NotNull ThreadLocal<long[]> connectionAcquireTime = ThreadLocal.withInitial(() -> new long[] {-1});
+
+    /**
+     * All methods in this class are static so this constructor will throw a runtime exception if used.
+     * @throws RuntimeException if the constructor is used.
+     */
+    public ResourceAccounting() {
+        throw new RuntimeException("This class cannot be instanced. Use the static references to methods instead.");
+    }
+
+    /**
+     * Get the maximum window that usage can be queried for.
+     * @return The maximum window in nanoseconds.
+     */
+    public static long getMaxWindowNanos() {
+        return BUCKET_NANOS * BUCKETS;
+    }
+
+    /**
+     * Records a database task that has finished running.
+     * @param pluginName The name of the plugin that submitted the task.
+     * @param cpuNanos The CPU time in nanoseconds the task used.
+     * @param wallNanos The wall clock time in nanoseconds the task took to run.
+     * @param rows The number of rows the task affected.
+     * @param connectionHoldNanos The time in nanoseconds the task held a database connection.
+     */
+    public static void record(@NotNull String pluginName, long cpuNanos, long wallNanos, long rows, long connectionHoldNanos) {
+        record(pluginName, 1, cpuNanos, wallNanos, rows, connectionHoldNanos);
+    }
+
+    /**
+     * Wraps a task that is not run by a queue manager, i.e., a periodic task on the shared executor, so that its usage is attributed to a plugin.
+     * Each time the task runs, it is recorded with its CPU time, wall clock time and connection hold time.
+     * @param pluginName The name of the plugin the task runs for.
+     * @param runnable The {@link Runnable} to wrap.
+     * @return A {@link Runnable} that runs the task and records its usage.
+     */
+    public static @NotNull Runnable wrap(@NotNull String pluginName, @NotNull Runnable runnable) {
+        return () -> {
+            long startTime = System.nanoTime();
+            long startCpuTime = getCurrentThreadCpuTime();
+            // Clear a connection mark left behind by code that obtained a connection outside a task.
+            takeConnectionHoldTime();
+            try {
+                runnable.run();
+            } finally {
+                long cpuTime = startCpuTime == -1 ? 0 : getCurrentThreadCpuTime() - startCpuTime;
+                record(pluginName, 1, cpuTime, System.nanoTime() - startTime, 0, takeConnectionHoldTime());
+            }
+        };
+    }
+
+    /**
+     * Wraps a function that continues a task already recorded by a queue manager on another thread, i.e., mapping the rows it read.
+     * Its CPU and wall clock time are added to the plugin's usage without counting another task.
+     * @param pluginName The name of the plugin the task belongs to.
+     * @param function The {@link Function} to wrap.
+     * @return A {@link Function} that applies the provided function and records its usage.
+     * @param <T> The type of the input to the function.
+     * @param <R> The type of the result of the function.
+     */
+    public static <T, R> @NotNull Function<T, R> wrapContinuation(@NotNull String pluginName, @NotNull Function<T, R> function) {
+        return input -> {
+            long startTime = System.nanoTime();
+            long startCpuTime = getCurrentThreadCpuTime();
+            try {
+                return function.apply(input);
+            } finally {
+                long cpuTime = startCpuTime == -1 ? 0 : getCurrentThreadCpuTime() - startCpuTime;
+                record(pluginName, 0, cpuTime, System.nanoTime() - startTime, 0, 0);
+            }
+        };
+    }
+
+    /**
+     * Get the resources used by a plugin over a rolling window.
+     * @param pluginName The name of the plugin.
+     * @param window The length of the window. Windows longer than 15 minutes are limited to 15 minutes.
+     * @param timeUnit The {@link TimeUnit} of the window.
+     * @return A {@link ResourceUsage}, which is empty if the plugin has not run any tasks.
+     */
+    public static @NotNull ResourceUsage getUsage(@NotNull String pluginName, long window, @NotNull TimeUnit timeUnit) {
+        Account account = accounts.get(pluginName);
+        if(account == null) return new ResourceUsage(pluginName, 0, 0, 0, 0, 0);
+
+        return account.sum(pluginName, currentBucket(), windowBuckets(window, timeUnit));
+    }
+
+    /**
+     * Get the resources used by every plugin over a rolling window, sorted by wall clock time with the highest first.
+     * @param window The length of the window. Windows longer than 15 minutes are limited to 15 minutes.
+     * @param timeUnit The {@link TimeUnit} of the window.
+     * @return A {@link List} of {@link ResourceUsage}. Plugins that ran no tasks during the window are not included.
+     */
+    public static @NotNull List<@NotNull ResourceUsage> getUsage(long window, @NotNull TimeUnit timeUnit) {
+        long currentBucket = currentBucket();
+        int windowBuckets = windowBuckets(window, timeUnit);
+
+        List<ResourceUsage> usages = new ArrayList<>();
+        accounts.forEach((pluginName, account) -> {
+            ResourceUsage usage = account.sum(pluginName, currentBucket, windowBuckets);
+            if(usage.tasks() > 0) usages.add(usage);
+        });
+
+        usages.sort(Comparator.comparingLong(ResourceUsage::wallNanos).reversed());
+        return usages;
+    }
+
+    /**
+     * Get the CPU time of the current thread.
+     * @return The CPU time in nanoseconds, or -1 if the JVM does not support measuring thread CPU time.
+     */
+    public static long getCurrentThreadCpuTime() {
+        return CPU_TIME_SUPPORTED ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : -1;
+    }
+
+    /**
+     * Marks that the current thread obtained a database connection. Only the first connection obtained by a task is tracked.
+     * Called by SkyLib when a connection is obtained. You should not need to call this.
+     */
+    public static void markConnectionAcquired() {
+        long[] acquireTime = connectionAcquireTime.get();
+        if(acquireTime[0] == -1) acquireTime[0] = System.nanoTime();
+    }
+
+    /**
+     * Get the time the current thread has held a database connection since it was marked by {@link #markConnectionAcquired()}, and clear the mark.
+     * Called by SkyLib when a task finishes, after it has closed its connection. You should not need to call this.
+     * @return The time in nanoseconds, or 0 if no connection was obtained.
+     */
+    public static long takeConnectionHoldTime() {
+        long[] acquireTime = connectionAcquireTime.get();
+        if(acquireTime[0] == -1) return 0;
+
+        long holdTime = System.nanoTime() - acquireTime[0];
+        acquireTime[0] = -1;
+        return holdTime;
+    }
+
+    /**
+     * Clears all recorded usage of a plugin, i.e., when it is disabled.
+     * @param pluginName The name of the plugin.
+     */
+    public static void reset(@NotNull String pluginName) {
+        accounts.remove(pluginName);
+    }
+
+    /**
+     * Adds usage to a plugin's current time bucket.
+     * @param pluginName The name of the plugin.
+     * @param taskCount The number of tasks the usage is for.
+     * @param cpuNanos The CPU time in nanoseconds.
+     * @param wallNanos The wall clock time in nanoseconds.
+     * @param rows The number of rows affected.
+     * @param connectionHoldNanos The connection hold time in nanoseconds.
+     */
+    private static void record(@NotNull String pluginName, int taskCount, long cpuNanos, long wallNanos, long rows, long connectionHoldNanos) {
+        accounts.computeIfAbsent(pluginName, name -> new Account()).add(currentBucket(), taskCount,
+                Math.max(0, cpuNanos), Math.max(0, wallNanos), Math.max(0, rows), Math.max(0, connectionHoldNanos));
+    }
+
+    /**
+     * Get the index of the current time bucket.
+     * @return The index of the current time bucket.
+     */
+    private static long currentBucket() {
+        return (System.nanoTime() - START_TIME) / BUCKET_NANOS;
+    }
+
+    /**
+     * Get the number of time buckets covering a window, limited to the number of buckets kept.
+     * @param window The length of the window.
+     * @param timeUnit The {@link TimeUnit} of the window.
+     * @return The number of buckets.
+     */
+    private static int windowBuckets(long window, @NotNull TimeUnit timeUnit) {
+        long buckets = (timeUnit.toNanos(window) + BUCKET_NANOS - 1) / BUCKET_NANOS;
+        return (int) Math.max(1, Math.min(BUCKETS, buckets));
+    }
+
+    /**
+     * Checks if the JVM can measure the CPU time of the current thread, enabling it if needed.
+     * @return true if supported, otherwise false.
+     */
+    private static boolean isCpuTimeSupported() {
+        try {
+            if(!THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported()) return false;
+            if(!THREAD_MX_BEAN.isThreadCpuTimeEnabled()) THREAD_MX_BEAN.setThreadCpuTimeEnabled(true);
+            return true;
+        } catch (UnsupportedOperationException | SecurityException e) {
+            return false;
+        }
+    }
+
+    /**
+     * The usage of a single plugin, stored in a ring of time buckets.
+     */
+    private static final class Account {
+        private final long[] bucketIds = new long[BUCKETS];
+        private final long[] tasks = new long[BUCKETS];
+        private final long[] cpuNanos = new long[BUCKETS];
+        private final long[] wallNanos = new long[BUCKETS];
+        private final long[] rows = new long[BUCKETS];
+        private final long[] connectionHoldNanos = new long[BUCKETS];
+
+        private Account() {
+            Arrays.fill(bucketIds, -1);
+        }
+
+        /**
+         * Adds a task's usage to a time bucket, clearing the bucket first if it holds usage from an older time.
+         * @param bucket The index of the time bucket.
+         * @param taskCount The number of tasks the usage is for.
+         * @param cpu The CPU time in nanoseconds.
+         * @param wall The wall clock time in nanoseconds.
+         * @param rowCount The number of rows affected.
+         * @param hold The connection hold time in nanoseconds.
+         */
+        private synchronized void add(long bucket, int taskCount, long cpu, long wall, long rowCount, long hold) {
+            int index = (int) (bucket % BUCKETS);
+            if(bucketIds[index] != bucket) {
+                bucketIds[index] = bucket;
+                tasks[index] = 0;
+                cpuNanos[index] = 0;
+                wallNanos[index] = 0;
+                rows[index] = 0;
+                connectionHoldNanos[index] = 0;
+            }
+
+            tasks[index] += taskCount;
+            cpuNanos[index] += cpu;
+            wallNanos[index] += wall;
+            rows[index] += rowCount;
+            connectionHoldNanos[index] += hold;
+        }
+
+        /**
+         * Sums the usage of the time buckets within a window.
+         * @param pluginName The name of the plugin.
+         * @param currentBucket The index of the current time bucket.
+         * @param windowBuckets The number of buckets in the window.
+         * @return A {@link ResourceUsage}.
+         */
+        private synchronized @NotNull ResourceUsage sum(@NotNull String pluginName, long currentBucket, int windowBuckets) {
+            long taskSum = 0;
+            long cpuSum = 0;
+            long wallSum = 0;
+            long rowSum = 0;
+            long holdSum = 0;
+            for(int i = 0; i < BUCKETS; i++) {
+                if(bucketIds[i] > currentBucket - windowBuckets && bucketIds[i] <= currentBucket) {
+                    taskSum += tasks[i];
+                    cpuSum += cpuNanos[i];
+                    wallSum += wallNanos[i];
+                    rowSum += rows[i];
+                    holdSum += connectionHoldNanos[i];
+                }
+            }
+
+            return new ResourceUsage(pluginName, taskSum, cpuSum, wallSum, rowSum, holdSum);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.accounting;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The database resources used by a plugin over a window of time.
+ * @param pluginName The name of the plugin.
+ * @param tasks The number of database tasks that ran.
+ * @param cpuNanos The CPU time in nanoseconds the tasks used. 0 if the JVM does not support measuring thread CPU time.
+ * @param wallNanos The wall clock time in nanoseconds the tasks took to run.
+ * @param rows The number of rows affected by write tasks.
+ * @param connectionHoldNanos The time in nanoseconds the tasks held a database connection.
+ */
+public record ResourceUsage(
+        @NotNull String pluginName,
+        long tasks,
+        long cpuNanos,
+        long wallNanos,
+        long rows,
+        long connectionHoldNanos) {}
@@ -0,0 +1,556 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.advisor;
+
+import com.github.lukesky19.skylib.api.adventure.AdventureUtil;
+import com.github.lukesky19.skylib.api.database.accounting.ResourceAccounting;
+import com.github.lukesky19.skylib.api.database.connection.AbstractConnectionManager;
+import com.github.lukesky19.skylib.internal.ThreadPoolManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Suggests indexes based on the query shapes recorded by a {@link QueryShapeStats} under real load.
+ * Each run reads the plan of the shapes with the most total time using EXPLAIN QUERY PLAN and finds full table scans
+ * and temporary b-trees used for sorting. For each, it builds an index from the columns the shape compares for equality,
+ * followed by one column compared by range or, for sorts, the ORDER BY columns. Suggestions already covered by an existing index are dropped.
+ * Suggestions are ranked by the total time spent in the shapes that would use them, which is the estimated impact of creating the index.
+ * The columns are found by matching patterns in the sql rather than parsing it, so suggestions should be reviewed before they are applied.
+ */
+public class IndexAdvisor {
+    /**
+     * The default maximum number of shapes whose plan is read in each run.
+     */
+    public static final int DEFAULT_MAX_SHAPES_PER_RUN = 100;
+    // The number of suggestions logged after each scheduled run.
+    private static final int LOGGED_SUGGESTIONS = 5;
+    private static final Pattern EXPLAINABLE = Pattern.compile("^\\s*(?:select|with|update|delete)\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern FULL_SCAN = Pattern.compile("^SCAN (?:TABLE )?(\"[^\"]+\"|[\\w.]+)(?: AS (\\w+))?$");
+    private static final Pattern TABLE_REFERENCE = Pattern.compile("\\b(?:from|join|update|into)\\s+(\"[^\"]+\"|[\\w.]+)(?:\\s+(?:as\\s+)?(\\w+))?");
+    private static final Pattern WHERE_CLAUSE = Pattern.compile("\\bwhere\\b(.*?)(?=\\bgroup\\s+by\\b|\\border\\s+by\\b|\\blimit\\b|\\bhaving\\b|\\breturning\\b|\\bwindow\\b|$)");
+    private static final Pattern ON_CLAUSE = Pattern.compile("\\bon\\b(.*?)(?=\\b(?:join|left|inner|cross|natural|where|group|order|limit)\\b|$)");
+    private static final Pattern ORDER_BY_CLAUSE = Pattern.compile("\\border\\s+by\\b(.*?)(?=\\blimit\\b|\\breturning\\b|$)");
+    private static final Pattern EQUALITY_LEFT = Pattern.compile("(\"[^\"]+\"|[\\w.]+)\\s*(?:==?|\\bis\\b(?!\\s+not\\b)|\\bin\\b)");
+    private static final Pattern EQUALITY_RIGHT = Pattern.compile("(?<![<>!=])==?\\s*(\"[^\"]+\"|[a-z_][\\w.]*)");
+    private static final Pattern RANGE = Pattern.compile("(\"[^\"]+\"|[\\w.]+)\\s*(?:<=|>=|<(?!>)|>|\\bbetween\\b|\\blike\\b|\\bglob\\b)");
+    private static final Set<String> KEYWORDS = Set.of(
+            "where", "join", "inner", "left", "right", "full", "cross", "natural", "on", "using", "set", "order", "group",
+            "limit", "having", "union", "except", "intersect", "values", "returning", "indexed", "not", "window", "and", "or");
+
+    private final @NotNull AbstractConnectionManager connectionManager;
+    private final @NotNull QueryShapeStats queryShapeStats;
+    private int maxShapesPerRun = DEFAULT_MAX_SHAPES_PER_RUN;
+    private @Nullable ScheduledFuture<?> analyzeTask;
+    private volatile @Nullable IndexReport lastReport;
+
+    /**
+     * Constructor
+     * @param connectionManager The {@link AbstractConnectionManager} of the database the shapes were executed on.
+     * @param queryShapeStats The {@link QueryShapeStats} the queue records its shapes to.
+     */
+    public IndexAdvisor(@NotNull AbstractConnectionManager connectionManager, @NotNull QueryShapeStats queryShapeStats) {
+        this.connectionManager = connectionManager;
+        this.queryShapeStats = queryShapeStats;
+    }
+
+    /**
+     * Sets the maximum number of shapes whose plan is read in each run. The shapes with the most total time are read first.
+     * @param maxShapesPerRun The maximum number of shapes.
+     * @return This {@link IndexAdvisor}.
+     * @throws IllegalArgumentException If the maximum is less than 1.
+     */
+    public @NotNull IndexAdvisor setMaxShapesPerRun(int maxShapesPerRun) {
+        if(maxShapesPerRun < 1) throw new IllegalArgumentException("The maximum number of shapes must be at least 1.");
+
+        this.maxShapesPerRun = maxShapesPerRun;
+        return this;
+    }
+
+    /**
+     * Starts running the advisor periodically. The top suggestions of each run are logged and the report is available from {@link #getLastReport()}.
+     * @param intervalMinutes How often, in minutes, the advisor runs.
+     * @throws IllegalArgumentException If the interval is less than 1.
+     */
+    public synchronized void start(long intervalMinutes) {
+        if(intervalMinutes < 1) throw new IllegalArgumentException("The interval must be at least 1 minute.");
+        if(analyzeTask != null) return;
+
+        analyzeTask = ThreadPoolManager.getThreadPoolExecutor().scheduleAtFixedRate(ResourceAccounting.wrap(connectionManager.getPlugin().getName(), () -> {
+            IndexReport report = run();
+            lastReport = report;
+            log(report);
+        }), intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Stops running the advisor periodically.
+     */
+    public synchronized void stop() {
+        if(analyzeTask != null) {
+            analyzeTask.cancel(false);
+            analyzeTask = null;
+        }
+    }
+
+    /**
+     * Get the report of the last run.
+     * @return The last {@link IndexReport}, or null if the advisor has not run yet.
+     */
+    public @Nullable IndexReport getLastReport() {
+        return lastReport;
+    }
+
+    /**
+     * Runs the advisor once on a separate thread.
+     * @return A {@link CompletableFuture} containing the {@link IndexReport}.
+     */
+    public @NotNull CompletableFuture<IndexReport> analyze() {
+        CompletableFuture<IndexReport> future = new CompletableFuture<>();
+        ThreadPoolManager.getThreadPoolExecutor().execute(ResourceAccounting.wrap(connectionManager.getPlugin().getName(), () -> {
+            try {
+                IndexReport report = run();
+                lastReport = report;
+                future.complete(report);
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        }));
+
+        return future;
+    }
+
+    /**
+     * Reads the plans of the recorded shapes and builds the {@link IndexReport}.
+     * @return The {@link IndexReport}.
+     */
+    private @NotNull IndexReport run() {
+        long startTime = System.nanoTime();
+        List<QueryShape> shapes = queryShapeStats.getShapes();
+        long totalNanos = 0;
+        for(QueryShape shape : shapes) {
+            totalNanos += shape.totalNanos();
+        }
+
+        List<String> errors = new ArrayList<>();
+        List<QueryShape> unindexedScans = new ArrayList<>();
+        Map<String, SuggestionBuilder> builders = new LinkedHashMap<>();
+        Map<String, TableInfo> tables = new HashMap<>();
+        int shapesExplained = 0;
+
+        try(Connection connection = connectionManager.getConnection()) {
+            for(QueryShape shape : shapes) {
+                if(shapesExplained >= maxShapesPerRun) break;
+                if(!EXPLAINABLE.matcher(shape.shape()).lookingAt()) continue;
+
+                List<String> details = new ArrayList<>();
+                try(PreparedStatement statement = connection.prepareStatement("EXPLAIN QUERY PLAN " + shape.shape());
+                    ResultSet resultSet = statement.executeQuery()) {
+                    while(resultSet.next()) {
+                        details.add(resultSet.getString(4));
+                    }
+                } catch (SQLException e) {
+                    errors.add("Failed to explain \"" + shape.shape() + "\": " + e.getMessage());
+                    continue;
+                }
+
+                shapesExplained++;
+                try {
+                    adviseShape(connection, shape, details, tables, builders, unindexedScans);
+                } catch (SQLException e) {
+                    errors.add("Failed to read the schema for \"" + shape.shape() + "\": " + e.getMessage());
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            errors.add("Failed to read query plans: " + e.getMessage());
+        }
+
+        List<IndexSuggestion> suggestions = new ArrayList<>();
+        for(SuggestionBuilder builder : builders.values()) {
+            suggestions.add(builder.build(totalNanos));
+        }
+
+        suggestions.sort(Comparator.comparingLong(IndexSuggestion::totalNanos).reversed());
+
+        return new IndexReport(suggestions, unindexedScans, shapesExplained, errors, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+    }
+
+    /**
+     * Finds the full table scans and temporary sorts in the plan of a shape and adds a suggestion for each table that could use an index.
+     * @param connection The {@link Connection} used to read the schema.
+     * @param shape The {@link QueryShape}.
+     * @param details The detail column of each row of the shape's plan.
+     * @param tables The schema of the tables read so far in this run.
+     * @param builders The suggestions so far, by table and columns.
+     * @param unindexedScans The shapes that scan a table but for which no index could be suggested.
+     * @throws SQLException If the schema could not be read.
+     */
+    private void adviseShape(
+            @NotNull Connection connection,
+            @NotNull QueryShape shape,
+            @NotNull List<String> details,
+            @NotNull Map<String, TableInfo> tables,
+            @NotNull Map<String, SuggestionBuilder> builders,
+            @NotNull List<QueryShape> unindexedScans) throws SQLException {
+        String sql = shape.shape().toLowerCase(Locale.ROOT);
+        Map<String, String> references = parseTableReferences(sql);
+        boolean tempSort = false;
+        Set<String> scannedTables = new LinkedHashSet<>();
+
+        for(String detail : details) {
+            if(detail == null) continue;
+            if(detail.startsWith("USE TEMP B-TREE FOR ORDER BY")) tempSort = true;
+
+            Matcher matcher = FULL_SCAN.matcher(detail);
+            if(matcher.matches()) {
+                String name = unquote(matcher.group(2) != null ? matcher.group(2) : matcher.group(1)).toLowerCase(Locale.ROOT);
+                scannedTables.add(references.getOrDefault(name, unquote(matcher.group(1)).toLowerCase(Locale.ROOT)));
+            }
+        }
+
+        Set<String> referencedTables = new HashSet<>(references.values());
+        // A sort can only be attributed to a table if the shape reads a single table.
+        boolean sortOnly = scannedTables.isEmpty() && tempSort && referencedTables.size() == 1;
+        if(sortOnly) scannedTables.addAll(referencedTables);
+
+        for(String table : scannedTables) {
+            TableInfo tableInfo = tables.get(table);
+            if(tableInfo == null) {
+                tableInfo = TableInfo.read(connection, table);
+                tables.put(table, tableInfo);
+            }
+
+            // Subqueries, views and common table expressions have no columns of their own to index.
+            if(tableInfo.columns().isEmpty()) continue;
+
+            List<String> columns = chooseColumns(sql, table, references, tableInfo, tempSort && referencedTables.size() == 1);
+            if(columns.isEmpty()) {
+                if(!sortOnly) unindexedScans.add(shape);
+                continue;
+            }
+
+            if(tableInfo.hasIndexOn(columns)) continue;
+
+            String key = table + "(" + String.join(",", columns).toLowerCase(Locale.ROOT) + ")";
+            String tableName = tableInfo.name();
+            SuggestionBuilder builder = builders.computeIfAbsent(key, k -> new SuggestionBuilder(tableName, columns));
+            builder.add(shape, sortOnly ? "temporary b-tree for ORDER BY" : (tempSort ? "full table scan and temporary b-tree for ORDER BY" : "full table scan"));
+        }
+    }
+
+    /**
+     * Chooses the columns of an index for a table: the columns compared for equality, then one column compared by range,
+     * or, if there is no range and the shape sorts using a temporary b-tree, the ORDER BY columns.
+     * @param sql The lower case shape.
+     * @param table The lower case name of the table.
+     * @param references The names and aliases of the tables referenced by the shape.
+     * @param tableInfo The {@link TableInfo} of the table.
+     * @param includeOrderBy Whether to append the ORDER BY columns.
+     * @return The columns, with the case used in the schema. Empty if no column of the table is compared.
+     */
+    private static @NotNull List<String> chooseColumns(
+            @NotNull String sql,
+            @NotNull String table,
+            @NotNull Map<String, String> references,
+            @NotNull TableInfo tableInfo,
+            boolean includeOrderBy) {
+        StringBuilder conditions = new StringBuilder();
+        Matcher whereMatcher = WHERE_CLAUSE.matcher(sql);
+        if(whereMatcher.find()) conditions.append(whereMatcher.group(1)).append(' ');
+        Matcher onMatcher = ON_CLAUSE.matcher(sql);
+        while(onMatcher.find()) {
+            conditions.append(onMatcher.group(1)).append(' ');
+        }
+
+        Set<String> columns = new LinkedHashSet<>();
+        Matcher equalityMatcher = EQUALITY_LEFT.matcher(conditions);
+        while(equalityMatcher.find()) {
+            addColumn(columns, equalityMatcher.group(1), table, references, tableInfo);
+        }
+
+        equalityMatcher = EQUALITY_RIGHT.matcher(conditions);
+        while(equalityMatcher.find()) {
+            addColumn(columns, equalityMatcher.group(1), table, references, tableInfo);
+        }
+
+        Set<String> rangeColumns = new LinkedHashSet<>();
+        Matcher rangeMatcher = RANGE.matcher(conditions);
+        while(rangeMatcher.find()) {
+            addColumn(rangeColumns, rangeMatcher.group(1), table, references, tableInfo);
+        }
+
+        rangeColumns.removeAll(columns);
+        if(!rangeColumns.isEmpty()) {
+            columns.add(rangeColumns.iterator().next());
+        } else if(includeOrderBy) {
+            Matcher orderMatcher = ORDER_BY_CLAUSE.matcher(sql);
+            if(orderMatcher.find()) {
+                Set<String> orderColumns = new LinkedHashSet<>();
+                for(String term : orderMatcher.group(1).split(",")) {
+                    String reference = term.trim().split("\\s+")[0];
+                    // Only sorts by plain columns of the table can be served by an index.
+                    if(!addColumn(orderColumns, reference, table, references, tableInfo)) {
+                        orderColumns.clear();
+                        break;
+                    }
+                }
+
+                orderColumns.removeAll(columns);
+                columns.addAll(orderColumns);
+            }
+        }
+
+        return new ArrayList<>(columns);
+    }
+
+    /**
+     * Adds a column reference to a set if it refers to a column of the table.
+     * @param columns The set of columns.
+     * @param reference The column reference, which may be qualified by a table name or alias.
+     * @param table The lower case name of the table.
+     * @param references The names and aliases of the tables referenced by the shape.
+     * @param tableInfo The {@link TableInfo} of the table.
+     * @return true if the reference is a column of the table.
+     */
+    private static boolean addColumn(
+            @NotNull Set<String> columns,
+            @NotNull String reference,
+            @NotNull String table,
+            @NotNull Map<String, String> references,
+            @NotNull TableInfo tableInfo) {
+        String column = unquote(reference);
+        int dot = column.lastIndexOf('.');
+        if(dot != -1) {
+            String qualifier = unquote(column.substring(0, dot));
+            if(!table.equals(references.getOrDefault(qualifier, qualifier))) return false;
+            column = unquote(column.substring(dot + 1));
+        }
+
+        String name = tableInfo.columns().get(column);
+        if(name == null) return false;
+
+        columns.add(name);
+        return true;
+    }
+
+    /**
+     * Reads the tables referenced after FROM, JOIN, UPDATE and INTO, with their aliases.
+     * @param sql The lower case shape.
+     * @return A {@link Map} of each table name and alias to the table name.
+     */
+    private static @NotNull Map<String, String> parseTableReferences(@NotNull String sql) {
+        Map<String, String> references = new HashMap<>();
+        Matcher matcher = TABLE_REFERENCE.matcher(sql);
+        while(matcher.find()) {
+            String name = unquote(matcher.group(1));
+            int dot = name.lastIndexOf('.');
+            // Remove the schema name, i.e., main.
+            if(dot != -1) name = unquote(name.substring(dot + 1));
+            if(name.startsWith("(") || KEYWORDS.contains(name)) continue;
+
+            references.put(name, name);
+            String alias = matcher.group(2);
+            if(alias != null && !KEYWORDS.contains(alias)) references.put(alias, name);
+        }
+
+        return references;
+    }
+
+    /**
+     * Removes the double quotes from an identifier.
+     * @param identifier The identifier.
+     * @return The identifier without quotes.
+     */
+    private static @NotNull String unquote(@NotNull String identifier) {
+        if(identifier.length() >= 2 && identifier.startsWith("\"") && identifier.endsWith("\"")) {
+            return identifier.substring(1, identifier.length() - 1).replace("\"\"", "\"");
+        }
+
+        return identifier;
+    }
+
+    /**
+     * Quotes an identifier using double quotes.
+     * @param identifier The identifier.
+     * @return The quoted identifier.
+     */
+    private static @NotNull String quote(@NotNull String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * Logs the top suggestions of a report.
+     * @param report The {@link IndexReport}.
+     */
+    private void log(@NotNull IndexReport report) {
+        List<IndexSuggestion> suggestions = report.suggestions();
+        if(suggestions.isEmpty()) return;
+
+        connectionManager.getPlugin().getComponentLogger().info(AdventureUtil.serialize("The index advisor found " + suggestions.size()
+                + " possible indexes after explaining " + report.shapesExplained() + " query shapes. The top suggestions are:"));
+        for(int i = 0; i < Math.min(LOGGED_SUGGESTIONS, suggestions.size()); i++) {
+            IndexSuggestion suggestion = suggestions.get(i);
+            connectionManager.getPlugin().getComponentLogger().info(AdventureUtil.serialize((i + 1) + ". " + suggestion.createIndexSql() + " ("
+                    + String.format(Locale.ROOT, "%.1f", suggestion.share() * 100) + "% of query time, " + suggestion.count() + " executions, "
+                    + String.join(", ", suggestion.reasons()) + ")"));
+        }
+    }
+
+    /**
+     * The columns and indexes of a table.
+     * @param name The name of the table.
+     * @param columns The columns of the table, by their lower case name.
+     * @param indexes The lower case columns of each index of the table, in order.
+     */
+    private record TableInfo(@NotNull String name, @NotNull Map<String, String> columns, @NotNull List<List<String>> indexes) {
+        /**
+         * Reads the columns and indexes of a table.
+         * @param connection The {@link Connection}.
+         * @param table The lower case name of the table.
+         * @return The {@link TableInfo}. The columns are empty if the table does not exist.
+         * @throws SQLException If the schema could not be read.
+         */
+        private static @NotNull TableInfo read(@NotNull Connection connection, @NotNull String table) throws SQLException {
+            Map<String, String> columns = new HashMap<>();
+            for(String column : readNames(connection, "PRAGMA table_info(" + quote(table) + ")")) {
+                columns.put(column.toLowerCase(Locale.ROOT), column);
+            }
+
+            List<List<String>> indexes = new ArrayList<>();
+            for(String index : readNames(connection, "PRAGMA index_list(" + quote(table) + ")")) {
+                List<String> indexColumns = new ArrayList<>();
+                for(String column : readNames(connection, "PRAGMA index_info(" + quote(index) + ")")) {
+                    indexColumns.add(column.toLowerCase(Locale.ROOT));
+                }
+
+                indexes.add(indexColumns);
+            }
+
+            return new TableInfo(table, columns, indexes);
+        }
+
+        /**
+         * Reads the name column of a PRAGMA.
+         * @param connection The {@link Connection}.
+         * @param sql The PRAGMA.
+         * @return The names.
+         * @throws SQLException If the PRAGMA could not be read.
+         */
+        private static @NotNull List<String> readNames(@NotNull Connection connection, @NotNull String sql) throws SQLException {
+            List<String> names = new ArrayList<>();
+            try(PreparedStatement statement = connection.prepareStatement(sql); ResultSet resultSet = statement.executeQuery()) {
+                while(resultSet.next()) {
+                    String name = resultSet.getString("name");
+                    if(name != null) names.add(name);
+                }
+            }
+
+            return names;
+        }
+
+        /**
+         * Checks if an existing index starts with the columns, in any order.
+         * @param indexColumns The columns.
+         * @return true if an index starts with the columns.
+         */
+        private boolean hasIndexOn(@NotNull List<String> indexColumns) {
+            Set<String> wanted = new HashSet<>();
+            for(String column : indexColumns) {
+                wanted.add(column.toLowerCase(Locale.ROOT));
+            }
+
+            for(List<String> index : indexes) {
+                if(index.size() >= wanted.size() && new HashSet<>(index.subList(0, wanted.size())).equals(wanted)) return true;
+            }
+
+            return false;
+        }
+    }
+
+    /**
+     * Accumulates the shapes that would use a suggested index.
+     */
+    private static final class SuggestionBuilder {
+        private final @NotNull String table;
+        private final @NotNull List<String> columns;
+        private final @NotNull Set<String> reasons = new LinkedHashSet<>();
+        private final @NotNull List<QueryShape> shapes = new ArrayList<>();
+        private long count;
+        private long totalNanos;
+
+        /**
+         * Constructor
+         * @param table The name of the table.
+         * @param columns The columns of the index.
+         */
+        private SuggestionBuilder(@NotNull String table, @NotNull List<String> columns) {
+            this.table = table;
+            this.columns = List.copyOf(columns);
+        }
+
+        /**
+         * Adds a shape that would use the index.
+         * @param shape The {@link QueryShape}.
+         * @param reason Why the shape needs the index.
+         */
+        private void add(@NotNull QueryShape shape, @NotNull String reason) {
+            reasons.add(reason);
+            shapes.add(shape);
+            count += shape.count();
+            totalNanos += shape.totalNanos();
+        }
+
+        /**
+         * Creates the {@link IndexSuggestion}.
+         * @param allNanos The total time in nanoseconds of all recorded shapes.
+         * @return The {@link IndexSuggestion}.
+         */
+        private @NotNull IndexSuggestion build(long allNanos) {
+            String indexName = ("idx_" + table + "_" + String.join("_", columns)).replaceAll("\\W", "_").toLowerCase(Locale.ROOT);
+            List<String> quotedColumns = columns.stream().map(IndexAdvisor::quote).toList();
+            String createIndexSql = "CREATE INDEX IF NOT EXISTS " + quote(indexName) + " ON " + quote(table) + " (" + String.join(", ", quotedColumns) + ")";
+
+            return new IndexSuggestion(table, columns, createIndexSql, List.copyOf(reasons), List.copyOf(shapes), count, totalNanos,
+                    allNanos == 0 ? 0 : totalNanos / (double) allNanos);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.advisor;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * The result of an {@link IndexAdvisor} run.
+ * @param suggestions The {@link IndexSuggestion}s, ranked by their estimated impact with the highest first.
+ * @param unindexedScans The {@link QueryShape}s that scan a whole table but for which no index could be suggested, i.e., because they have no usable WHERE clause.
+ * @param shapesExplained The number of query shapes whose plan was read.
+ * @param errors A {@link List} of error messages for shapes whose plan could not be read. The run continues past errors.
+ * @param durationMillis The time in milliseconds the run took.
+ */
+public record IndexReport(
+        @NotNull List<@NotNull IndexSuggestion> suggestions,
+        @NotNull List<@NotNull QueryShape> unindexedScans,
+        int shapesExplained,
+        @NotNull List<@NotNull String> errors,
+        long durationMillis) {}
@@ -0,0 +1,48 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.advisor;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * An index suggested by an {@link IndexAdvisor}, with the query shapes it would speed up.
+ * @param table The name of the table.
+ * @param columns The columns of the index, in order.
+ * @param createIndexSql The CREATE INDEX statement that creates the index.
+ * @param reasons Why the index is suggested, i.e., the full table scans and temporary sorts it would avoid.
+ * @param shapes The {@link QueryShape}s that would use the index.
+ * @param count The total number of executions of the shapes.
+ * @param totalNanos The total time in nanoseconds spent executing the shapes. This is the estimated impact of the index.
+ * @param share The fraction of all recorded query time spent executing the shapes, between 0 and 1.
+ */
+public record IndexSuggestion(
+        @NotNull String table,
+        @NotNull List<@NotNull String> columns,
+        @NotNull String createIndexSql,
+        @NotNull List<@NotNull String> reasons,
+        @NotNull List<@NotNull QueryShape> shapes,
+        long count,
+        long totalNanos,
+        double share) {}
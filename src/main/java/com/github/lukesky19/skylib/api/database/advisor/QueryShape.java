@@ -0,0 +1,42 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.advisor;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The aggregated executions of a normalized query shape.
+ * @param shape The normalized sql, with literals replaced by placeholders. See {@link QueryShapeStats#normalize(String)}.
+ * @param count The number of times the shape was executed.
+ * @param totalNanos The total time in nanoseconds spent executing the shape.
+ * @param maxNanos The longest time in nanoseconds a single execution of the shape took.
+ */
+public record QueryShape(@NotNull String shape, long count, long totalNanos, long maxNanos) {
+    /**
+     * Get the mean time an execution of the shape took.
+     * @return The mean time in nanoseconds, or 0 if the shape was not executed.
+     */
+    public long meanNanos() {
+        return count == 0 ? 0 : totalNanos / count;
+    }
+}
@@ -0,0 +1,210 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.advisor;
+
+import com.github.lukesky19.skylib.api.database.queue.AbstractQueueManager;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * This class aggregates the sql executed by a queue into normalized query shapes, with their frequency and total time.
+ * Statements that only differ in their literal values or in the number of values in an IN list or VALUES clause share a shape.
+ * Enable it using {@link AbstractQueueManager#setQueryShapeStats(QueryShapeStats)}. Recording is safe to call from any thread.
+ */
+public class QueryShapeStats {
+    /**
+     * The default maximum number of distinct shapes that are tracked.
+     */
+    public static final int DEFAULT_MAX_SHAPES = 1000;
+    private static final int MAX_CACHED_STATEMENTS = 1024;
+    private static final Pattern BLOB_LITERAL = Pattern.compile("[xX]'[0-9a-fA-F]*'");
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.\"`\\]])-?\\d+(?:\\.\\d+)?(?:[eE][+-]?\\d+)?(?![\\w\"`])");
+    private static final Pattern PLACEHOLDER_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern PLACEHOLDER_ROWS = Pattern.compile("\\(\\?\\)(?:\\s*,\\s*\\(\\?\\))+");
+    private static final Pattern NUMBERED_PLACEHOLDER = Pattern.compile("[?:@$]\\w+|\\?\\d*");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final int maxShapes;
+    private final @NotNull Map<String, Accumulator> shapes = new ConcurrentHashMap<>();
+    private final @NotNull Map<String, String> normalizedStatements = new ConcurrentHashMap<>();
+    private final @NotNull LongAdder droppedExecutions = new LongAdder();
+
+    /**
+     * Constructor that tracks up to {@link #DEFAULT_MAX_SHAPES} shapes.
+     */
+    public QueryShapeStats() {
+        this(DEFAULT_MAX_SHAPES);
+    }
+
+    /**
+     * Constructor
+     * @param maxShapes The maximum number of distinct shapes that are tracked. Executions of new shapes beyond this are counted as dropped.
+     * @throws IllegalArgumentException If the maximum is less than 1.
+     */
+    public QueryShapeStats(int maxShapes) {
+        if(maxShapes < 1) throw new IllegalArgumentException("The maximum number of shapes must be at least 1.");
+
+        this.maxShapes = maxShapes;
+    }
+
+    /**
+     * Records a task that executed the provided statements. The task's time is split between the statements.
+     * @param sqlList The sql of each statement the task executed.
+     * @param runNanos The time in nanoseconds the task took to run.
+     */
+    public void record(@NotNull List<@NotNull String> sqlList, long runNanos) {
+        if(sqlList.isEmpty()) return;
+        if(sqlList.size() == 1) {
+            record(sqlList.get(0), runNanos);
+            return;
+        }
+
+        // Bulk tasks usually repeat one statement, so each shape is recorded once with its share of the time.
+        Map<String, Integer> occurrences = new HashMap<>();
+        for(String sql : sqlList) {
+            occurrences.merge(normalize(sql), 1, Integer::sum);
+        }
+
+        long time = Math.max(0, runNanos);
+        occurrences.forEach((shape, times) -> recordShape(shape, time * times / sqlList.size()));
+    }
+
+    /**
+     * Records a single execution of a statement.
+     * @param sql The sql of the statement.
+     * @param runNanos The time in nanoseconds the statement took to run.
+     */
+    public void record(@NotNull String sql, long runNanos) {
+        recordShape(normalize(sql), Math.max(0, runNanos));
+    }
+
+    /**
+     * Get the recorded shapes, sorted by total time with the highest first.
+     * @return A {@link List} of {@link QueryShape}s.
+     */
+    public @NotNull List<@NotNull QueryShape> getShapes() {
+        List<QueryShape> list = new ArrayList<>();
+        shapes.forEach((shape, accumulator) -> list.add(accumulator.toQueryShape(shape)));
+
+        list.sort(Comparator.comparingLong(QueryShape::totalNanos).reversed());
+        return list;
+    }
+
+    /**
+     * Get the number of executions that were not recorded because the maximum number of shapes was reached.
+     * @return The number of dropped executions.
+     */
+    public long getDroppedExecutions() {
+        return droppedExecutions.sum();
+    }
+
+    /**
+     * Clears all recorded shapes.
+     */
+    public void reset() {
+        shapes.clear();
+        droppedExecutions.reset();
+    }
+
+    /**
+     * Normalizes a sql statement into its shape. Literals and named or numbered parameters are replaced by ?,
+     * lists of placeholders and rows of placeholders are collapsed into one, and whitespace is collapsed.
+     * @param sql The sql statement.
+     * @return The shape of the statement.
+     */
+    public @NotNull String normalize(@NotNull String sql) {
+        String cached = normalizedStatements.get(sql);
+        if(cached != null) return cached;
+
+        String shape = BLOB_LITERAL.matcher(sql).replaceAll("?");
+        shape = STRING_LITERAL.matcher(shape).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = NUMBERED_PLACEHOLDER.matcher(shape).replaceAll("?");
+        shape = WHITESPACE.matcher(shape).replaceAll(" ").trim();
+        shape = PLACEHOLDER_LIST.matcher(shape).replaceAll("(?)");
+        shape = PLACEHOLDER_ROWS.matcher(shape).replaceAll("(?)");
+        if(shape.endsWith(";")) shape = shape.substring(0, shape.length() - 1).trim();
+
+        if(normalizedStatements.size() >= MAX_CACHED_STATEMENTS) normalizedStatements.clear();
+        normalizedStatements.put(sql, shape);
+
+        return shape;
+    }
+
+    /**
+     * Adds an execution to a shape, unless the shape is new and the maximum number of shapes has been reached.
+     * @param shape The shape.
+     * @param runNanos The time in nanoseconds the execution took.
+     */
+    private void recordShape(@NotNull String shape, long runNanos) {
+        Accumulator accumulator = shapes.get(shape);
+        if(accumulator == null) {
+            if(shapes.size() >= maxShapes) {
+                droppedExecutions.increment();
+                return;
+            }
+
+            accumulator = shapes.computeIfAbsent(shape, key -> new Accumulator());
+        }
+
+        accumulator.add(runNanos);
+    }
+
+    /**
+     * The lock-free totals of a single shape.
+     */
+    private static final class Accumulator {
+        private final @NotNull LongAdder count = new LongAdder();
+        private final @NotNull LongAdder totalNanos = new LongAdder();
+        private final @NotNull AtomicLong maxNanos = new AtomicLong();
+
+        /**
+         * Adds an execution.
+         * @param runNanos The time in nanoseconds the execution took.
+         */
+        private void add(long runNanos) {
+            count.increment();
+            totalNanos.add(runNanos);
+            maxNanos.accumulateAndGet(runNanos, Math::max);
+        }
+
+        /**
+         * Creates a {@link QueryShape} of the current totals.
+         * @param shape The shape.
+         * @return A {@link QueryShape}.
+         */
+        private @NotNull QueryShape toQueryShape(@NotNull String shape) {
+            return new QueryShape(shape, count.sum(), totalNanos.sum(), maxNanos.get());
+        }
+    }
+}
@@ -0,0 +1,233 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.bloom;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A Bloom filter that answers whether a key might have been added, or was definitely not added.
+ * Keys are hashed into two 64-bit values which are combined to derive each bit index (Kirsch-Mitzenmacher double hashing).
+ * {@link UUID}s and {@link Number}s are hashed from their value, and any other key from its {@link Object#toString()}, so hashes are stable across restarts.
+ * Adding and checking keys is lock-free and safe to call from any thread.
+ */
+public class BloomFilter {
+    private static final int FORMAT_VERSION = 1;
+    private static final int MAX_WORDS = Integer.MAX_VALUE - 8;
+
+    private final @NotNull AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+    private final @NotNull LongAdder insertions = new LongAdder();
+
+    /**
+     * Constructor
+     * @param words The number of 64-bit words of the bit array.
+     * @param hashCount The number of bits set per key.
+     */
+    private BloomFilter(int words, int hashCount) {
+        this.words = new AtomicLongArray(words);
+        this.bitCount = (long) words * Long.SIZE;
+        this.hashCount = hashCount;
+    }
+
+    /**
+     * Creates a BloomFilter sized for the expected number of keys and false positive rate.
+     * @param expectedKeys The expected number of keys.
+     * @param falsePositiveRate The desired false positive rate between 0 and 1, i.e., 0.01.
+     * @return A new, empty BloomFilter.
+     * @throws IllegalArgumentException If the false positive rate is not between 0 and 1.
+     */
+    public static @NotNull BloomFilter create(long expectedKeys, double falsePositiveRate) {
+        if(falsePositiveRate <= 0 || falsePositiveRate >= 1) throw new IllegalArgumentException("The false positive rate must be between 0 and 1.");
+
+        long keys = Math.max(1, expectedKeys);
+        long bits = (long) Math.ceil(-keys * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(MAX_WORDS, Math.max(1, (bits + Long.SIZE - 1) / Long.SIZE));
+        int hashes = (int) Math.max(1, Math.min(30, Math.round((double) words * Long.SIZE / keys * Math.log(2))));
+
+        return new BloomFilter(words, hashes);
+    }
+
+    /**
+     * Adds a key.
+     * @param key The key to add.
+     */
+    public void add(@NotNull Object key) {
+        long hash1 = hash(key);
+        long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L) | 1;
+
+        for(int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(hash1 + i * hash2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+
+            long current;
+            do {
+                current = words.get(word);
+                if((current & mask) != 0) break;
+            } while(!words.compareAndSet(word, current, current | mask));
+        }
+
+        insertions.increment();
+    }
+
+    /**
+     * Checks if a key might have been added.
+     * @param key The key to check.
+     * @return false if the key was definitely not added, true if it might have been added.
+     */
+    public boolean mightContain(@NotNull Object key) {
+        long hash1 = hash(key);
+        long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L) | 1;
+
+        for(int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(hash1 + i * hash2, bitCount);
+            if((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Get the number of bits in the filter.
+     * @return The number of bits.
+     */
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    /**
+     * Get the number of bits set per key.
+     * @return The number of hash functions.
+     */
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    /**
+     * Get the number of keys added, counting duplicates.
+     * @return The number of insertions.
+     */
+    public long getInsertions() {
+        return insertions.sum();
+    }
+
+    /**
+     * Estimates the current false positive rate from the number of insertions.
+     * @return The estimated false positive rate between 0 and 1.
+     */
+    public double getExpectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-hashCount * (double) insertions.sum() / bitCount), hashCount);
+    }
+
+    /**
+     * Writes the filter to the provided {@link DataOutput}.
+     * @param output The {@link DataOutput} to write to.
+     * @throws IOException If the filter could not be written.
+     */
+    public void writeTo(@NotNull DataOutput output) throws IOException {
+        output.writeByte(FORMAT_VERSION);
+        output.writeInt(hashCount);
+        output.writeLong(insertions.sum());
+        output.writeInt(words.length());
+        for(int i = 0; i < words.length(); i++) {
+            output.writeLong(words.get(i));
+        }
+    }
+
+    /**
+     * Reads a filter written by {@link #writeTo(DataOutput)}.
+     * @param input The {@link DataInput} to read from.
+     * @return The BloomFilter.
+     * @throws IOException If the filter could not be read or was written in an unsupported format.
+     */
+    public static @NotNull BloomFilter readFrom(@NotNull DataInput input) throws IOException {
+        return readFrom(input, Long.MAX_VALUE);
+    }
+
+    /**
+     * Reads a filter written by {@link #writeTo(DataOutput)}, checking its size against the number of bytes available before allocating it,
+     * so a corrupt size cannot allocate more memory than the input could hold.
+     * @param input The {@link DataInput} to read from.
+     * @param availableBytes The number of bytes that can be read from the input, i.e., the length of the file.
+     * @return The BloomFilter.
+     * @throws IOException If the filter could not be read, was written in an unsupported format, or is larger than the available bytes.
+     */
+    public static @NotNull BloomFilter readFrom(@NotNull DataInput input, long availableBytes) throws IOException {
+        int version = input.readByte();
+        if(version != FORMAT_VERSION) throw new IOException("Unsupported bloom filter format version " + version + ".");
+
+        int hashCount = input.readInt();
+        long insertions = input.readLong();
+        int wordCount = input.readInt();
+        if(hashCount < 1 || hashCount > 30 || wordCount < 1 || wordCount > MAX_WORDS) throw new IOException("The bloom filter is corrupt.");
+        // The header is 1 + 4 + 8 + 4 bytes, followed by the words.
+        if((long) wordCount * Long.BYTES > availableBytes - 17) throw new IOException("The bloom filter is larger than its file.");
+
+        BloomFilter filter = new BloomFilter(wordCount, hashCount);
+        for(int i = 0; i < wordCount; i++) {
+            filter.words.set(i, input.readLong());
+        }
+        filter.insertions.add(insertions);
+
+        return filter;
+    }
+
+    /**
+     * Hashes a key to a 64-bit value that is stable across restarts.
+     * @param key The key.
+     * @return The hash.
+     */
+    private static long hash(@NotNull Object key) {
+        if(key instanceof UUID uuid) return mix(uuid.getMostSignificantBits() ^ mix(uuid.getLeastSignificantBits()));
+        if(key instanceof Long || key instanceof Integer || key instanceof Short || key instanceof Byte) return mix(((Number) key).longValue());
+
+        // 64-bit FNV-1a over the UTF-8 bytes.
+        long hash = 0xCBF29CE484222325L;
+        for(byte b : key.toString().getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001B3L;
+        }
+
+        return mix(hash);
+    }
+
+    /**
+     * Mixes the bits of a 64-bit value (the finalizer of SplitMix64).
+     * @param value The value.
+     * @return The mixed value.
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
@@ -0,0 +1,380 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.bloom;
+
+import com.github.lukesky19.skylib.api.database.event.ChangeDispatcher;
+import com.github.lukesky19.skylib.api.database.event.ChangeEvent;
+import com.github.lukesky19.skylib.api.database.event.ChangeOperation;
+import com.github.lukesky19.skylib.api.database.parameter.Parameter;
+import com.github.lukesky19.skylib.api.database.queue.QueueManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Tracks which keys of a table exist using a {@link BloomFilter}, so reads for keys that definitely have no rows,
+ * i.e., players joining for the first time, complete immediately without using a connection.
+ * The filter is built from the key column when loaded. Afterward, the index observes every write queued by SkyLib's queue managers using {@link ChangeDispatcher#addWriteObserver(Consumer)}:
+ * the key of an insert or upsert into the table is added if the writer provided one (it must be of type {@link K}), and an insert or upsert without a key
+ * makes every key be treated as possibly existing until the index is loaded again. Rows inserted without a queue manager must be added using {@link #add(Object)}.
+ * Call {@link #close()} when the index is no longer used, i.e., when your plugin is disabled.
+ * The filter can optionally be saved to a file and reused on the next start if the table has not changed. See {@link #setPersistence(Path, String)}.
+ * Until the index is loaded, every key is treated as possibly existing.
+ * @param <K> The type of the key. Keys loaded from the database must be equal to the keys checked, i.e., convert uuid strings to {@link java.util.UUID}s.
+ */
+public class ExistenceIndex<K> {
+    private static final int MAGIC = 0x534B4246;
+
+    private final @NotNull QueueManager queueManager;
+    private final @NotNull String keySql;
+    private final @NotNull String table;
+    private final @NotNull Function<ResultSet, K> keyMapper;
+    private final long expectedKeys;
+    private final double falsePositiveRate;
+    private final @NotNull Set<Object> addedDuringLoad = ConcurrentHashMap.newKeySet();
+    private final @NotNull Object loadLock = new Object();
+    private final @NotNull Consumer<@NotNull List<@NotNull ChangeEvent>> writeObserver = this::observeWrites;
+    private volatile @Nullable BloomFilter filter;
+    private volatile boolean loading = false;
+    private volatile boolean untrackedInserts = false;
+    private @Nullable Path file;
+    private @Nullable String fingerprintSql;
+
+    /**
+     * Constructor
+     * @param queueManager The {@link QueueManager} used to load the keys and queue reads and inserts.
+     * @param keySql The sql statement that selects the key of every row, i.e., "SELECT uuid FROM player_data".
+     * @param table The name of the table the keys are selected from, i.e., "player_data". Writes to it are observed to keep the index up to date.
+     * @param keyMapper The function that maps the current row of the {@link ResultSet} to its key. It must not move the cursor.
+     * @param expectedKeys The expected number of keys. The filter is sized for at least twice the number of keys loaded to leave room for inserts.
+     * @param falsePositiveRate The desired false positive rate between 0 and 1, i.e., 0.01.
+     * @throws IllegalArgumentException If the false positive rate is not between 0 and 1.
+     */
+    public ExistenceIndex(
+            @NotNull QueueManager queueManager,
+            @NotNull String keySql,
+            @NotNull String table,
+            @NotNull Function<ResultSet, K> keyMapper,
+            long expectedKeys,
+            double falsePositiveRate) {
+        if(falsePositiveRate <= 0 || falsePositiveRate >= 1) throw new IllegalArgumentException("The false positive rate must be between 0 and 1.");
+
+        this.queueManager = queueManager;
+        this.keySql = keySql;
+        this.table = table.toLowerCase(Locale.ROOT);
+        this.keyMapper = keyMapper;
+        this.expectedKeys = expectedKeys;
+        this.falsePositiveRate = falsePositiveRate;
+
+        ChangeDispatcher.addWriteObserver(writeObserver);
+    }
+
+    /**
+     * Sets the file the filter is saved to by {@link #save()} and reused from by {@link #load()}.
+     * The saved filter is only reused if the fingerprint sql statement returns the same value as when it was saved,
+     * so it should change whenever rows are inserted, i.e., "SELECT COUNT(*) || ':' || IFNULL(MAX(rowid), 0) FROM player_data".
+     * @param file The {@link Path} of the file, or null to disable persistence.
+     * @param fingerprintSql The sql statement that selects a single value identifying the table's contents, or null to disable persistence.
+     */
+    public void setPersistence(@Nullable Path file, @Nullable String fingerprintSql) {
+        this.file = file;
+        this.fingerprintSql = fingerprintSql;
+    }
+
+    /**
+     * Loads the index, reusing the saved filter if the table has not changed since it was saved, or building it from the key column otherwise.
+     * Keys added while the index is loading are kept.
+     * @return A {@link CompletableFuture} containing true if the saved filter was reused, or false if the filter was built from the database.
+     */
+    public @NotNull CompletableFuture<Boolean> load() {
+        synchronized(loadLock) {
+            addedDuringLoad.clear();
+            loading = true;
+            // Inserts without a key queued from now on set this again, as the load may not see them.
+            untrackedInserts = false;
+        }
+
+        Path path = file;
+        String sql = fingerprintSql;
+        CompletableFuture<BloomFilter> saved = path == null || sql == null || !Files.exists(path)
+                ? CompletableFuture.completedFuture(null)
+                : queueManager.queueReadTransaction(sql, this::readFingerprint)
+                        .thenApply(fingerprint -> readFile(path, fingerprint))
+                        // Fall back to building the filter if the fingerprint could not be read.
+                        .exceptionally(throwable -> null);
+
+        return saved.thenCompose(savedFilter -> {
+            if(savedFilter != null) {
+                install(savedFilter);
+                return CompletableFuture.completedFuture(true);
+            }
+
+            return queueManager.queueReadTransaction(keySql, this::buildFilter).thenApply(builtFilter -> {
+                install(builtFilter);
+                return false;
+            });
+        }).whenComplete((result, throwable) -> {
+            if(throwable != null) {
+                synchronized(loadLock) {
+                    loading = false;
+                    addedDuringLoad.clear();
+                }
+            }
+        });
+    }
+
+    /**
+     * Saves the filter to the file set using {@link #setPersistence(Path, String)}, along with the current fingerprint of the table.
+     * Call this after every insert has been written, i.e., after the queue is empty when shutting down.
+     * @return A {@link CompletableFuture} that completes once the file is written. Completes immediately if persistence is disabled or the index is not loaded.
+     */
+    public @NotNull CompletableFuture<Void> save() {
+        Path path = file;
+        String sql = fingerprintSql;
+        BloomFilter current = filter;
+        if(path == null || sql == null || current == null) return CompletableFuture.completedFuture(null);
+
+        return queueManager.queueReadTransaction(sql, this::readFingerprint).thenAccept(fingerprint -> {
+            try {
+                writeFile(path, fingerprint, current);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Checks if a key might have rows.
+     * @param key The key.
+     * @return false if the key definitely has no rows, true if it might, or if the index is not loaded or rows were inserted without a key since it was loaded.
+     */
+    public boolean mightExist(@NotNull K key) {
+        BloomFilter current = filter;
+        return current == null || untrackedInserts || current.mightContain(key);
+    }
+
+    /**
+     * Adds a key whose rows were inserted elsewhere.
+     * @param key The key.
+     */
+    public void add(@NotNull K key) {
+        addKey(key);
+    }
+
+    /**
+     * Stops observing writes to the table. The index can still be used, but rows inserted afterward must be added using {@link #add(Object)}.
+     */
+    public void close() {
+        ChangeDispatcher.removeWriteObserver(writeObserver);
+    }
+
+    /**
+     * Adds a key to the index and queues the sql statement that inserts its rows.
+     * The key is added before the statement is queued so that reads queued afterward are never skipped.
+     * @param key The key.
+     * @param sql The sql statement that inserts rows for the key.
+     * @param params A {@link List} of {@link Parameter} that are used to replace parameters in the sql statement.
+     * @return A {@link CompletableFuture} containing the number of rows updated.
+     */
+    public @NotNull CompletableFuture<Integer> queueInsert(@NotNull K key, @NotNull String sql, @NotNull List<Parameter<?>> params) {
+        add(key);
+        return queueManager.queueWriteTransaction(sql, params);
+    }
+
+    /**
+     * Queues a sql statement to read the rows of a key, completing immediately with the empty result if the key definitely has no rows.
+     * @param key The key.
+     * @param sql The sql statement as a {@link String}.
+     * @param params A {@link List} of {@link Parameter} that are used to replace parameters in the sql statement.
+     * @param mapper The function to map the {@link ResultSet} to the value {@link T}.
+     * @param emptyResult The supplier of the value {@link T} for a key that has no rows, i.e., what the mapper returns for an empty {@link ResultSet}.
+     * @return A {@link CompletableFuture} containing the object {@link T}.
+     * @param <T> The object {@link T} created using the data from {@link ResultSet}.
+     */
+    public <T> @NotNull CompletableFuture<T> queueReadTransaction(
+            @NotNull K key,
+            @NotNull String sql,
+            @NotNull List<Parameter<?>> params,
+            @NotNull Function<ResultSet, T> mapper,
+            @NotNull Supplier<T> emptyResult) {
+        if(!mightExist(key)) return CompletableFuture.completedFuture(emptyResult.get());
+
+        return queueManager.queueReadTransaction(sql, params, mapper);
+    }
+
+    /**
+     * Get the current {@link BloomFilter}.
+     * @return The {@link BloomFilter}, or null if the index is not loaded.
+     */
+    public @Nullable BloomFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Adds a key to the filter, and to the keys added during the load if the index is loading.
+     * @param key The key.
+     */
+    private void addKey(@NotNull Object key) {
+        synchronized(loadLock) {
+            if(loading) addedDuringLoad.add(key);
+
+            BloomFilter current = filter;
+            if(current != null) current.add(key);
+        }
+    }
+
+    /**
+     * Adds the keys of inserts and upserts into the table, or treats every key as possibly existing if an insert or upsert has no key.
+     * @param events The {@link ChangeEvent}s of a queued write.
+     */
+    private void observeWrites(@NotNull List<@NotNull ChangeEvent> events) {
+        for(ChangeEvent event : events) {
+            if(!event.table().equals(table)) continue;
+            if(event.operation() != ChangeOperation.INSERT && event.operation() != ChangeOperation.UPSERT) continue;
+
+            Object key = event.key();
+            if(key != null) {
+                addKey(key);
+            } else {
+                untrackedInserts = true;
+            }
+        }
+    }
+
+    /**
+     * Replaces the filter with a loaded one, adding the keys that were added while it was loading.
+     * @param loaded The loaded {@link BloomFilter}.
+     */
+    private void install(@NotNull BloomFilter loaded) {
+        synchronized(loadLock) {
+            addedDuringLoad.forEach(loaded::add);
+            filter = loaded;
+            loading = false;
+            addedDuringLoad.clear();
+        }
+    }
+
+    /**
+     * Builds a {@link BloomFilter} from every key of the {@link ResultSet}.
+     * @param resultSet The {@link ResultSet} of the key sql statement.
+     * @return The {@link BloomFilter}.
+     * @throws RuntimeException If an {@link SQLException} occurs.
+     */
+    private @NotNull BloomFilter buildFilter(@NotNull ResultSet resultSet) {
+        List<K> keys = new ArrayList<>();
+        try {
+            while(resultSet.next()) {
+                K key = keyMapper.apply(resultSet);
+                if(key != null) keys.add(key);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+
+        BloomFilter built = BloomFilter.create(Math.max(expectedKeys, keys.size() * 2L), falsePositiveRate);
+        keys.forEach(built::add);
+
+        return built;
+    }
+
+    /**
+     * Reads the fingerprint of the table.
+     * @param resultSet The {@link ResultSet} of the fingerprint sql statement.
+     * @return The fingerprint, or an empty {@link String} if there are no rows.
+     * @throws RuntimeException If an {@link SQLException} occurs.
+     */
+    private @NotNull String readFingerprint(@NotNull ResultSet resultSet) {
+        try {
+            if(!resultSet.next()) return "";
+
+            String fingerprint = resultSet.getString(1);
+            return fingerprint == null ? "" : fingerprint;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Reads the saved filter if its fingerprint matches the table's current fingerprint.
+     * @param path The {@link Path} of the file.
+     * @param fingerprint The current fingerprint of the table.
+     * @return The saved {@link BloomFilter}, or null if the file is missing, unreadable, corrupt, or out of date.
+     */
+    private @Nullable BloomFilter readFile(@NotNull Path path, @NotNull String fingerprint) {
+        try(DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            long length = Files.size(path);
+            if(input.readInt() != MAGIC) return null;
+
+            if(!input.readUTF().equals(fingerprint)) return null;
+
+            // The filter cannot be larger than the file, so a corrupt size is rejected before it is allocated.
+            return BloomFilter.readFrom(input, length);
+        } catch (IOException | RuntimeException e) {
+            // Any failure to read the file means the filter is rebuilt from the database.
+            return null;
+        }
+    }
+
+    /**
+     * Writes the filter and fingerprint to a temporary file and moves it over the file, so a crash never leaves a partial file.
+     * @param path The {@link Path} of the file.
+     * @param fingerprint The current fingerprint of the table.
+     * @param current The {@link BloomFilter} to write.
+     * @throws IOException If the file could not be written.
+     */
+    private void writeFile(@NotNull Path path, @NotNull String fingerprint, @NotNull BloomFilter current) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if(parent != null && !Files.exists(parent)) {
+            Files.createDirectories(parent);
+        }
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try(DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            output.writeInt(MAGIC);
+            output.writeUTF(fingerprint);
+            current.writeTo(output);
+        }
+
+        try {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.codec;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes and decodes values using a compact, length-prefixed and varint-based binary format for storage as a BLOB.
+ * Every encoded value starts with a format version byte so that the format can be changed later without breaking stored data.
+ * Encoding uses a per-thread reusable {@link BinaryWriter}, so only the final byte array is allocated.
+ */
+public final class BinaryCodec {
+    /**
+     * The current version of the binary format.
+     */
+    public static final int FORMAT_VERSION = 1;
+
+    static final int TAG_NULL = 0;
+    static final int TAG_FALSE = 1;
+    static final int TAG_TRUE = 2;
+    static final int TAG_INT = 3;
+    static final int TAG_LONG = 4;
+    static final int TAG_DOUBLE = 5;
+    static final int TAG_FLOAT = 6;
+    static final int TAG_STRING = 7;
+    static final int TAG_UUID = 8;
+    static final int TAG_BYTES = 9;
+    static final int TAG_LIST = 10;
+    static final int TAG_MAP = 11;
+
+    // Writers that grew past this size are not kept, so a single huge value does not pin memory on a thread forever.
+    private static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+    private static final @NotNull ThreadLocal<BinaryWriter> WRITER = ThreadLocal.withInitial(BinaryWriter::new);
+
+    /**
+     * All methods in this class are static so this constructor will throw a runtime exception if used.
+     * @throws RuntimeException if the constructor is used.
+     */
+    public BinaryCodec() {
+        throw new RuntimeException("This class cannot be instanced. Use the static references to methods instead.");
+    }
+
+    /**
+     * Encodes a value. See {@link BinaryWriter#writeValue(Object)} for the supported types.
+     * @param value The value to encode.
+     * @return The encoded bytes.
+     * @throws IllegalArgumentException if the value contains an unsupported type.
+     */
+    public static byte @NotNull [] encode(@Nullable Object value) {
+        BinaryWriter writer = WRITER.get().reset();
+        try {
+            writer.writeByte(FORMAT_VERSION).writeValue(value);
+            return writer.toByteArray();
+        } finally {
+            if(writer.capacity() > MAX_RETAINED_CAPACITY) WRITER.remove();
+        }
+    }
+
+    /**
+     * Decodes a value encoded by {@link #encode(Object)}.
+     * @param bytes The encoded bytes.
+     * @return The decoded value.
+     * @throws IllegalStateException if the bytes are malformed or use an unknown format version.
+     */
+    public static @Nullable Object decode(byte @NotNull [] bytes) {
+        BinaryReader reader = new BinaryReader(bytes);
+        int version = reader.readByte();
+        if(version != FORMAT_VERSION) throw new IllegalStateException("Unknown binary format version: " + version);
+
+        return reader.readValue();
+    }
+
+    /**
+     * Decodes a {@link List} encoded by {@link #encode(Object)}.
+     * @param bytes The encoded bytes.
+     * @return The decoded {@link List}.
+     * @throws IllegalStateException if the bytes are malformed or do not contain a {@link List}.
+     */
+    public static @NotNull List<Object> decodeList(byte @NotNull [] bytes) {
+        Object value = decode(bytes);
+        if(!(value instanceof List<?>)) throw new IllegalStateException("The encoded value is not a list.");
+
+        @SuppressWarnings("unchecked")
+        List<Object> list = (List<Object>) value;
+        return list;
+    }
+
+    /**
+     * Decodes a {@link Map} encoded by {@link #encode(Object)}.
+     * @param bytes The encoded bytes.
+     * @return The decoded {@link Map}.
+     * @throws IllegalStateException if the bytes are malformed or do not contain a {@link Map}.
+     */
+    public static @NotNull Map<Object, Object> decodeMap(byte @NotNull [] bytes) {
+        Object value = decode(bytes);
+        if(!(value instanceof Map<?, ?>)) throw new IllegalStateException("The encoded value is not a map.");
+
+        @SuppressWarnings("unchecked")
+        Map<Object, Object> map = (Map<Object, Object>) value;
+        return map;
+    }
+}
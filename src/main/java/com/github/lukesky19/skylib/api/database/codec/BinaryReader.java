@@ -0,0 +1,257 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.codec;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Decodes values written by a {@link BinaryWriter}. It is not thread-safe.
+ */
+public class BinaryReader {
+    private final byte @NotNull [] buffer;
+    private final int limit;
+    private int position;
+
+    /**
+     * Constructor
+     * @param buffer The bytes to read.
+     */
+    public BinaryReader(byte @NotNull [] buffer) {
+        this(buffer, 0, buffer.length);
+    }
+
+    /**
+     * Constructor
+     * @param buffer The bytes to read.
+     * @param offset The offset of the first byte to read.
+     * @param length The number of bytes that can be read.
+     */
+    public BinaryReader(byte @NotNull [] buffer, int offset, int length) {
+        if(offset < 0 || length < 0 || offset + length > buffer.length) throw new IndexOutOfBoundsException("Invalid offset or length for the buffer.");
+
+        this.buffer = buffer;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+    /**
+     * Get the number of bytes that have not been read yet.
+     * @return The number of bytes remaining.
+     */
+    public int remaining() {
+        return limit - position;
+    }
+
+    /**
+     * Reads a single byte.
+     * @return The byte as an unsigned int.
+     */
+    public int readByte() {
+        require(1);
+        return buffer[position++] & 0xFF;
+    }
+
+    /**
+     * Reads an unsigned varint.
+     * @return The value read.
+     */
+    public int readVarInt() {
+        int value = 0;
+        for(int shift = 0; shift < 35; shift += 7) {
+            int b = readByte();
+            value |= (b & 0x7F) << shift;
+            if((b & 0x80) == 0) return value;
+        }
+
+        throw new IllegalStateException("Malformed varint.");
+    }
+
+    /**
+     * Reads an unsigned varlong.
+     * @return The value read.
+     */
+    public long readVarLong() {
+        long value = 0;
+        for(int shift = 0; shift < 70; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if((b & 0x80) == 0) return value;
+        }
+
+        throw new IllegalStateException("Malformed varlong.");
+    }
+
+    /**
+     * Reads a zig-zag encoded signed varint.
+     * @return The value read.
+     */
+    public int readSignedVarInt() {
+        int value = readVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Reads a zig-zag encoded signed varlong.
+     * @return The value read.
+     */
+    public long readSignedVarLong() {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Reads a fixed-width 4 byte int.
+     * @return The value read.
+     */
+    public int readFixedInt() {
+        require(4);
+        int value = 0;
+        for(int i = 0; i < 4; i++) {
+            value = (value << 8) | (buffer[position++] & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * Reads a fixed-width 8 byte long.
+     * @return The value read.
+     */
+    public long readFixedLong() {
+        require(8);
+        long value = 0;
+        for(int i = 0; i < 8; i++) {
+            value = (value << 8) | (buffer[position++] & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * Reads a double written as 8 bytes.
+     * @return The value read.
+     */
+    public double readDouble() {
+        return Double.longBitsToDouble(readFixedLong());
+    }
+
+    /**
+     * Reads a length-prefixed UTF-8 {@link String}.
+     * @return The {@link String} read.
+     */
+    public @NotNull String readString() {
+        int length = readLength();
+        String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    /**
+     * Reads a length-prefixed byte array.
+     * @return The bytes read.
+     */
+    public byte @NotNull [] readBytes() {
+        int length = readLength();
+        byte[] bytes = Arrays.copyOfRange(buffer, position, position + length);
+        position += length;
+        return bytes;
+    }
+
+    /**
+     * Reads a tagged value written by {@link BinaryWriter#writeValue(Object)}.
+     * Collections are read as {@link ArrayList}s and maps are read as {@link LinkedHashMap}s to preserve their order.
+     * @return The value read.
+     */
+    public @Nullable Object readValue() {
+        int tag = readByte();
+        switch(tag) {
+            case BinaryCodec.TAG_NULL -> {
+                return null;
+            }
+            case BinaryCodec.TAG_FALSE -> {
+                return false;
+            }
+            case BinaryCodec.TAG_TRUE -> {
+                return true;
+            }
+            case BinaryCodec.TAG_INT -> {
+                return readSignedVarInt();
+            }
+            case BinaryCodec.TAG_LONG -> {
+                return readSignedVarLong();
+            }
+            case BinaryCodec.TAG_DOUBLE -> {
+                return readDouble();
+            }
+            case BinaryCodec.TAG_FLOAT -> {
+                return Float.intBitsToFloat(readFixedInt());
+            }
+            case BinaryCodec.TAG_STRING -> {
+                return readString();
+            }
+            case BinaryCodec.TAG_UUID -> {
+                return new UUID(readFixedLong(), readFixedLong());
+            }
+            case BinaryCodec.TAG_BYTES -> {
+                return readBytes();
+            }
+            case BinaryCodec.TAG_LIST -> {
+                int size = readLength();
+                List<Object> list = new ArrayList<>(size);
+                for(int i = 0; i < size; i++) {
+                    list.add(readValue());
+                }
+                return list;
+            }
+            case BinaryCodec.TAG_MAP -> {
+                int size = readLength();
+                Map<Object, Object> map = new LinkedHashMap<>((int) (size / 0.75f) + 1);
+                for(int i = 0; i < size; i++) {
+                    map.put(readValue(), readValue());
+                }
+                return map;
+            }
+            default -> throw new IllegalStateException("Unknown binary value tag: " + tag);
+        }
+    }
+
+    /**
+     * Reads a length prefix and checks that it does not exceed the remaining bytes, so corrupt data cannot cause huge allocations.
+     * @return The length read.
+     */
+    private int readLength() {
+        int length = readVarInt();
+        if(length < 0 || length > remaining()) throw new IllegalStateException("Length prefix " + length + " exceeds the remaining " + remaining() + " bytes.");
+        return length;
+    }
+
+    /**
+     * Checks that at least the given number of bytes can be read.
+     * @param bytes The number of bytes that will be read.
+     */
+    private void require(int bytes) {
+        if(remaining() < bytes) throw new IllegalStateException("Unexpected end of binary data.");
+    }
+}
@@ -0,0 +1,277 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.codec;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Encodes values into a reusable, growable byte buffer using the compact binary format read by {@link BinaryReader}.
+ * Integers are written as (zig-zag) varints and strings, byte arrays, lists and maps are length-prefixed.
+ * A BinaryWriter can be {@link #reset()} and reused to avoid allocating a new buffer for every value. It is not thread-safe.
+ */
+public class BinaryWriter {
+    private byte[] buffer;
+    private int position = 0;
+
+    /**
+     * Constructor
+     * Creates a BinaryWriter with an initial capacity of 256 bytes.
+     */
+    public BinaryWriter() {
+        this(256);
+    }
+
+    /**
+     * Constructor
+     * @param initialCapacity The initial capacity of the buffer in bytes.
+     */
+    public BinaryWriter(int initialCapacity) {
+        buffer = new byte[Math.max(16, initialCapacity)];
+    }
+
+    /**
+     * Discards everything written so that the buffer can be reused.
+     * @return This BinaryWriter.
+     */
+    public @NotNull BinaryWriter reset() {
+        position = 0;
+        return this;
+    }
+
+    /**
+     * Get the number of bytes written.
+     * @return The number of bytes written.
+     */
+    public int size() {
+        return position;
+    }
+
+    /**
+     * Get the current capacity of the buffer.
+     * @return The capacity of the buffer in bytes.
+     */
+    public int capacity() {
+        return buffer.length;
+    }
+
+    /**
+     * Get a copy of the bytes written.
+     * @return A byte array containing the bytes written.
+     */
+    public byte @NotNull [] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+
+    /**
+     * Writes a single byte.
+     * @param value The byte to write.
+     * @return This BinaryWriter.
+     */
+    public @NotNull BinaryWriter writeByte(int value) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) value;
+        return this;
+    }
+
+    /**
+     * Writes bytes without a length prefix.
+     * @param bytes The bytes to write.
+     * @param offset The offset of the first byte to write.
+     * @param length The number of bytes to write.
+     * @return This BinaryWriter.
+     */
+    public @NotNull BinaryWriter writeRawBytes(byte @NotNull [] bytes, int offset, int length) {
+        ensureCapacity(length);
+        System.arraycopy(bytes, offset, buffer, position, length);
+        position += length;
+        return this;
+    }
+
+    /**
+     * Writes an unsigned varint. Values less than 128 take a single byte.
+     * @param value The value to write, treated as unsigned.
+     * @return This BinaryWriter.
+     */
+    public @NotNull BinaryWriter writeVarInt(int value) {
+        ensureCapacity(5);
+        while((value & ~0x7F) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return this;
+    }
+
+    /**
+     * Writes an unsigned varlong.
+     * @param value The value to write, treated as unsigned.
+     * @return This BinaryWriter.
+     */
+    public @NotNull BinaryWriter writeVarLong(long value) {
+        ensureCapacity(10);
+        while((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return this;
+    }
+
+    /**
+     * Writes a signed int as a zig-zag varint, so that small negative values also take few bytes.
+     * @param value The value to write.
+     * @return This BinaryWriter.
+     */
+    public @NotNull BinaryWriter writeSignedVarInt(int value) {
+        return writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    /**
+     * Writes a signed long as a zig-zag varlong, so that small negative values also take few bytes.
+     * @param value The value to write.
+     * @return This BinaryWriter.
+     */
+    public @NotNull BinaryWriter writeSignedVarLong(long value) {
+        return writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Writes a fixed-width 4 byte int.
+     * @param value The value to write.
+     * @return This BinaryWriter.
+     */
+    public @NotNull BinaryWriter writeFixedInt(int value) {
+        ensureCapacity(4);
+        for(int shift = 24; shift >= 0; shift -= 8) {
+            buffer[position++] = (byte) (value >>> shift);
+        }
+        return this;
+    }
+
+    /**
+     * Writes a fixed-width 8 byte long.
+     * @param value The value to write.
+     * @return This BinaryWriter.
+     */
+    public @NotNull BinaryWriter writeFixedLong(long value) {
+        ensureCapacity(8);
+        for(int shift = 56; shift >= 0; shift -= 8) {
+            buffer[position++] = (byte) (value >>> shift);
+        }
+        return this;
+    }
+
+    /**
+     * Writes a double as 8 bytes.
+     * @param value The value to write.
+     * @return This BinaryWriter.
+     */
+    public @NotNull BinaryWriter writeDouble(double value) {
+        return writeFixedLong(Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * Writes a length-prefixed UTF-8 {@link String}.
+     * @param value The {@link String} to write.
+     * @return This BinaryWriter.
+     */
+    public @NotNull BinaryWriter writeString(@NotNull String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length);
+        return writeRawBytes(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Writes a length-prefixed byte array.
+     * @param bytes The bytes to write.
+     * @return This BinaryWriter.
+     */
+    public @NotNull BinaryWriter writeBytes(byte @NotNull [] bytes) {
+        writeVarInt(bytes.length);
+        return writeRawBytes(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Writes a tagged value that can be read back with {@link BinaryReader#readValue()}.
+     * Supported types are null, {@link Boolean}, {@link Byte}, {@link Short}, {@link Integer}, {@link Long}, {@link Float}, {@link Double},
+     * {@link String}, {@link UUID}, byte arrays, {@link Collection}s and {@link Map}s of supported types.
+     * @param value The value to write.
+     * @return This BinaryWriter.
+     * @throws IllegalArgumentException if the value, or a value inside a {@link Collection} or {@link Map}, is not a supported type.
+     */
+    public @NotNull BinaryWriter writeValue(@Nullable Object value) {
+        if(value == null) {
+            return writeByte(BinaryCodec.TAG_NULL);
+        } else if(value instanceof Boolean bool) {
+            return writeByte(bool ? BinaryCodec.TAG_TRUE : BinaryCodec.TAG_FALSE);
+        } else if(value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return writeByte(BinaryCodec.TAG_INT).writeSignedVarInt(((Number) value).intValue());
+        } else if(value instanceof Long longValue) {
+            return writeByte(BinaryCodec.TAG_LONG).writeSignedVarLong(longValue);
+        } else if(value instanceof Double doubleValue) {
+            return writeByte(BinaryCodec.TAG_DOUBLE).writeDouble(doubleValue);
+        } else if(value instanceof Float floatValue) {
+            return writeByte(BinaryCodec.TAG_FLOAT).writeFixedInt(Float.floatToRawIntBits(floatValue));
+        } else if(value instanceof String string) {
+            return writeByte(BinaryCodec.TAG_STRING).writeString(string);
+        } else if(value instanceof UUID uuid) {
+            return writeByte(BinaryCodec.TAG_UUID).writeFixedLong(uuid.getMostSignificantBits()).writeFixedLong(uuid.getLeastSignificantBits());
+        } else if(value instanceof byte[] bytes) {
+            return writeByte(BinaryCodec.TAG_BYTES).writeBytes(bytes);
+        } else if(value instanceof Collection<?> collection) {
+            writeByte(BinaryCodec.TAG_LIST).writeVarInt(collection.size());
+            for(Object element : collection) {
+                writeValue(element);
+            }
+            return this;
+        } else if(value instanceof Map<?, ?> map) {
+            writeByte(BinaryCodec.TAG_MAP).writeVarInt(map.size());
+            for(Map.Entry<?, ?> entry : map.entrySet()) {
+                writeValue(entry.getKey());
+                writeValue(entry.getValue());
+            }
+            return this;
+        }
+
+        throw new IllegalArgumentException("Unsupported type for binary encoding: " + value.getClass().getName());
+    }
+
+    /**
+     * Grows the buffer if needed so that at least the given number of bytes can be written.
+     * @param bytes The number of bytes that will be written.
+     */
+    private void ensureCapacity(int bytes) {
+        int required = position + bytes;
+        if(required < 0) throw new IllegalStateException("BinaryWriter buffer exceeded the maximum array size.");
+        if(required > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(required, buffer.length << 1));
+        }
+    }
+}
@@ -0,0 +1,280 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.codec;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses values for storage in a BLOB column. Every stored value starts with a format byte: values below the size threshold,
+ * or that do not shrink, are stored uncompressed after the format byte, and larger values are compressed with deflate at its fastest level,
+ * optionally using a {@link CompressionDictionary}. Compressed values also store their original length.
+ * Compression uses a per-thread reusable {@link Deflater} and {@link Inflater}.
+ */
+public final class CompressionCodec {
+    /**
+     * The format byte of a value stored uncompressed.
+     */
+    public static final int FORMAT_RAW = 0;
+    /**
+     * The format byte of a value compressed with deflate.
+     */
+    public static final int FORMAT_DEFLATE = 1;
+    /**
+     * The format byte of a value compressed with deflate using a {@link CompressionDictionary}.
+     */
+    public static final int FORMAT_DEFLATE_DICTIONARY = 2;
+    /**
+     * The default size in bytes below which values are stored uncompressed, as small values rarely shrink.
+     */
+    public static final int DEFAULT_THRESHOLD = 256;
+    /**
+     * The maximum original length accepted when decompressing, which protects against corrupt or malicious values.
+     * Larger values are stored uncompressed, so every compressed value can be decompressed.
+     */
+    public static final int MAX_DECOMPRESSED_LENGTH = 64 * 1024 * 1024;
+
+    private static final @NotNull ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED, true));
+    private static final @NotNull ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(() -> new Inflater(true));
+
+    /**
+     * All methods in this class are static so this constructor will throw a runtime exception if used.
+     * @throws RuntimeException if the constructor is used.
+     */
+    public CompressionCodec() {
+        throw new RuntimeException("This class cannot be instanced. Use the static references to methods instead.");
+    }
+
+    /**
+     * Compresses a value if it is at least {@link #DEFAULT_THRESHOLD} bytes.
+     * @param data The value.
+     * @return The stored bytes.
+     */
+    public static byte @NotNull [] compress(byte @NotNull [] data) {
+        return compress(data, DEFAULT_THRESHOLD, null);
+    }
+
+    /**
+     * Compresses a value if it is at least the threshold and shrinks when compressed.
+     * Values larger than {@link #MAX_DECOMPRESSED_LENGTH} are stored uncompressed.
+     * @param data The value.
+     * @param threshold The size in bytes below which the value is stored uncompressed.
+     * @param dictionary The {@link CompressionDictionary} to compress with, or null to compress without one.
+     * @return The stored bytes.
+     */
+    public static byte @NotNull [] compress(byte @NotNull [] data, int threshold, @Nullable CompressionDictionary dictionary) {
+        if(data.length < threshold || data.length > MAX_DECOMPRESSED_LENGTH) return raw(data);
+
+        int headerLength = dictionary == null ? 5 : 9;
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        if(dictionary != null) deflater.setDictionary(dictionary.bytes());
+        deflater.setInput(data);
+        deflater.finish();
+
+        // Only worth storing compressed if it shrinks, so the output never needs to grow past the input.
+        byte[] output = new byte[headerLength + data.length];
+        int length = headerLength;
+        while(!deflater.finished() && length < output.length) {
+            length += deflater.deflate(output, length, output.length - length);
+        }
+        if(!deflater.finished()) return raw(data);
+
+        output[0] = (byte) (dictionary == null ? FORMAT_DEFLATE : FORMAT_DEFLATE_DICTIONARY);
+        int offset = 1;
+        if(dictionary != null) {
+            writeInt(output, offset, dictionary.getId());
+            offset += 4;
+        }
+        writeInt(output, offset, data.length);
+
+        return Arrays.copyOf(output, length);
+    }
+
+    /**
+     * Decompresses a stored value that was compressed without a {@link CompressionDictionary}.
+     * @param stored The stored bytes.
+     * @return The original value.
+     * @throws IllegalArgumentException If the stored bytes are corrupt, use an unknown format, or need a dictionary.
+     */
+    public static byte @NotNull [] decompress(byte @NotNull [] stored) {
+        return decompress(stored, null);
+    }
+
+    /**
+     * Decompresses a stored value.
+     * @param stored The stored bytes.
+     * @param dictionary The {@link CompressionDictionary} the value may have been compressed with, or null if none is used.
+     * @return The original value.
+     * @throws IllegalArgumentException If the stored bytes are corrupt, use an unknown format, or need a different dictionary.
+     */
+    public static byte @NotNull [] decompress(byte @NotNull [] stored, @Nullable CompressionDictionary dictionary) {
+        if(stored.length == 0) throw new IllegalArgumentException("The stored value is empty.");
+
+        int format = stored[0];
+        if(format == FORMAT_RAW) return Arrays.copyOfRange(stored, 1, stored.length);
+        if(format != FORMAT_DEFLATE && format != FORMAT_DEFLATE_DICTIONARY) throw new IllegalArgumentException("Unknown compression format " + format + ".");
+
+        int offset = 1;
+        if(format == FORMAT_DEFLATE_DICTIONARY) {
+            if(stored.length < 9) throw new IllegalArgumentException("The stored value is truncated.");
+
+            int dictionaryId = readInt(stored, offset);
+            if(dictionary == null || dictionary.getId() != dictionaryId) {
+                throw new IllegalArgumentException("The stored value was compressed with dictionary " + dictionaryId + ", which was not provided.");
+            }
+            offset += 4;
+        }
+
+        if(stored.length < offset + 4) throw new IllegalArgumentException("The stored value is truncated.");
+        int length = readInt(stored, offset);
+        offset += 4;
+        if(length < 0 || length > MAX_DECOMPRESSED_LENGTH) throw new IllegalArgumentException("The stored value has an invalid length of " + length + ".");
+
+        Inflater inflater = INFLATER.get();
+        inflater.reset();
+        if(format == FORMAT_DEFLATE_DICTIONARY) inflater.setDictionary(dictionary.bytes());
+        inflater.setInput(stored, offset, stored.length - offset);
+
+        byte[] data = new byte[length];
+        try {
+            int read = 0;
+            while(read < length) {
+                int inflated = inflater.inflate(data, read, length - read);
+                if(inflated == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) break;
+                read += inflated;
+            }
+
+            if(read != length) throw new IllegalArgumentException("The stored value is truncated.");
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("The stored value is corrupt.", e);
+        }
+
+        return data;
+    }
+
+    /**
+     * Compresses a {@link String} encoded as UTF-8 if it is at least {@link #DEFAULT_THRESHOLD} bytes.
+     * @param text The {@link String}.
+     * @return The stored bytes.
+     */
+    public static byte @NotNull [] compressString(@NotNull String text) {
+        return compress(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Compresses a {@link String} encoded as UTF-8 if it is at least the threshold.
+     * @param text The {@link String}.
+     * @param threshold The size in bytes below which the value is stored uncompressed.
+     * @param dictionary The {@link CompressionDictionary} to compress with, or null to compress without one.
+     * @return The stored bytes.
+     */
+    public static byte @NotNull [] compressString(@NotNull String text, int threshold, @Nullable CompressionDictionary dictionary) {
+        return compress(text.getBytes(StandardCharsets.UTF_8), threshold, dictionary);
+    }
+
+    /**
+     * Decompresses a stored {@link String}.
+     * @param stored The stored bytes.
+     * @param dictionary The {@link CompressionDictionary} the value may have been compressed with, or null if none is used.
+     * @return The {@link String}.
+     * @throws IllegalArgumentException If the stored bytes are corrupt, use an unknown format, or need a different dictionary.
+     */
+    public static @NotNull String decompressString(byte @NotNull [] stored, @Nullable CompressionDictionary dictionary) {
+        return new String(decompress(stored, dictionary), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decompresses stored json and deserializes it using {@link JsonCodec}.
+     * @param stored The stored bytes.
+     * @param type The {@link Type} to deserialize to, i.e., a {@link com.google.gson.reflect.TypeToken}'s type.
+     * @param dictionary The {@link CompressionDictionary} the value may have been compressed with, or null if none is used.
+     * @return The deserialized object.
+     * @param <T> The type to deserialize to.
+     * @throws IllegalArgumentException If the stored bytes are corrupt, use an unknown format, or need a different dictionary.
+     */
+    public static <T> @Nullable T decompressJson(byte @NotNull [] stored, @NotNull Type type, @Nullable CompressionDictionary dictionary) {
+        return JsonCodec.fromJson(decompressString(stored, dictionary), type);
+    }
+
+    /**
+     * Reads a {@link String} from a column that stores either compressed values or, for rows written before compression was enabled, plain text.
+     * @param resultSet The {@link ResultSet} positioned on a row.
+     * @param column The column label.
+     * @param dictionary The {@link CompressionDictionary} values may have been compressed with, or null if none is used.
+     * @return The {@link String}, or null if the column is SQL NULL.
+     * @throws SQLException If the column could not be read.
+     * @throws IllegalArgumentException If a stored value is corrupt, uses an unknown format, or needs a different dictionary.
+     */
+    public static @Nullable String readString(@NotNull ResultSet resultSet, @NotNull String column, @Nullable CompressionDictionary dictionary) throws SQLException {
+        Object value = resultSet.getObject(column);
+        if(value == null) return null;
+        if(value instanceof byte[] stored) return decompressString(stored, dictionary);
+
+        return value.toString();
+    }
+
+    /**
+     * Creates stored bytes for a value stored uncompressed.
+     * @param data The value.
+     * @return The format byte followed by the value.
+     */
+    private static byte @NotNull [] raw(byte @NotNull [] data) {
+        byte[] output = new byte[data.length + 1];
+        output[0] = FORMAT_RAW;
+        System.arraycopy(data, 0, output, 1, data.length);
+        return output;
+    }
+
+    /**
+     * Writes a big-endian int.
+     * @param bytes The bytes to write to.
+     * @param offset The offset to write at.
+     * @param value The value.
+     */
+    private static void writeInt(byte @NotNull [] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    /**
+     * Reads a big-endian int.
+     * @param bytes The bytes to read from.
+     * @param offset The offset to read at.
+     * @return The value.
+     */
+    private static int readInt(byte @NotNull [] bytes, int offset) {
+        return (bytes[offset] & 0xFF) << 24 | (bytes[offset + 1] & 0xFF) << 16 | (bytes[offset + 2] & 0xFF) << 8 | (bytes[offset + 3] & 0xFF);
+    }
+}
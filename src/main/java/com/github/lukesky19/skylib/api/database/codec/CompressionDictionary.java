@@ -0,0 +1,134 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.codec;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * A preset dictionary for {@link CompressionCodec}. Many small, similar values, i.e., json with the same keys in every row,
+ * compress far better when the compressor can refer to the repeated strings in a dictionary instead of repeating them in each value.
+ * The same dictionary must be used to decompress, so store it alongside the data (or in the plugin's jar) and never change a dictionary in use.
+ * Values compressed with a dictionary record its id, so decompressing with the wrong dictionary fails instead of returning corrupt data.
+ */
+public final class CompressionDictionary {
+    private final byte @NotNull [] bytes;
+    private final int id;
+
+    /**
+     * Constructor
+     * @param bytes The dictionary bytes. The most common strings should be at the end.
+     * @throws IllegalArgumentException If the dictionary is empty.
+     */
+    public CompressionDictionary(byte @NotNull [] bytes) {
+        if(bytes.length == 0) throw new IllegalArgumentException("The dictionary cannot be empty.");
+
+        this.bytes = bytes.clone();
+
+        CRC32 crc = new CRC32();
+        crc.update(this.bytes);
+        this.id = (int) crc.getValue();
+    }
+
+    /**
+     * Trains a dictionary from sample values by collecting the strings that repeat most across them.
+     * Samples are split into tokens at json delimiters, and tokens are ranked by how many bytes they would save. The most valuable tokens are placed last,
+     * as the compressor encodes matches closer to the data more cheaply.
+     * @param samples Sample values, i.e., the serialized values of a few hundred existing rows.
+     * @param maxSize The maximum size of the dictionary in bytes. Deflate only uses the last 32 KB.
+     * @return The trained {@link CompressionDictionary}.
+     * @throws IllegalArgumentException If no strings repeat across the samples.
+     */
+    public static @NotNull CompressionDictionary train(@NotNull Collection<byte @NotNull []> samples, int maxSize) {
+        Map<String, Integer> counts = new HashMap<>();
+        for(byte[] sample : samples) {
+            String text = new String(sample, StandardCharsets.ISO_8859_1);
+
+            // Count each token once per sample, so a token repeated within one large sample does not crowd out tokens shared by every sample.
+            Set<String> tokens = new HashSet<>();
+            int start = 0;
+            for(int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if(c == ',' || c == '{' || c == '}' || c == '[' || c == ']') {
+                    if(i + 1 - start >= 4) tokens.add(text.substring(start, i + 1));
+                    start = i + 1;
+                }
+            }
+            if(text.length() - start >= 4) tokens.add(text.substring(start));
+
+            tokens.forEach(token -> counts.merge(token, 1, Integer::sum));
+        }
+
+        List<Map.Entry<String, Integer>> ranked = new ArrayList<>();
+        for(Map.Entry<String, Integer> entry : counts.entrySet()) {
+            if(entry.getValue() > 1) ranked.add(entry);
+        }
+        ranked.sort(Comparator.comparingLong((Map.Entry<String, Integer> entry) -> (long) entry.getValue() * entry.getKey().length()).reversed());
+
+        List<String> selected = new ArrayList<>();
+        int size = 0;
+        for(Map.Entry<String, Integer> entry : ranked) {
+            int length = entry.getKey().length();
+            if(size + length > maxSize) continue;
+
+            selected.add(entry.getKey());
+            size += length;
+        }
+        if(selected.isEmpty()) throw new IllegalArgumentException("No strings repeat across the samples.");
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream(size);
+        for(int i = selected.size() - 1; i >= 0; i--) {
+            output.writeBytes(selected.get(i).getBytes(StandardCharsets.ISO_8859_1));
+        }
+
+        return new CompressionDictionary(output.toByteArray());
+    }
+
+    /**
+     * Get the id of the dictionary, which is the CRC32 checksum of its bytes.
+     * @return The id.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Get the dictionary bytes, i.e., to store the dictionary.
+     * @return A copy of the dictionary bytes.
+     */
+    public byte @NotNull [] getBytes() {
+        return bytes.clone();
+    }
+
+    /**
+     * Get the dictionary bytes without copying them.
+     * @return The dictionary bytes, which must not be modified.
+     */
+    byte @NotNull [] bytes() {
+        return bytes;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.codec;
+
+import com.google.gson.Gson;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Reader;
+import java.lang.reflect.Type;
+
+/**
+ * Provides a single shared, pre-configured {@link Gson} instance for converting values to and from json.
+ * {@link Gson} is thread-safe once created, so there is no need to create a new instance for every value.
+ */
+public final class JsonCodec {
+    private static final @NotNull Gson GSON = new Gson();
+
+    /**
+     * All methods in this class are static so this constructor will throw a runtime exception if used.
+     * @throws RuntimeException if the constructor is used.
+     */
+    public JsonCodec() {
+        throw new RuntimeException("This class cannot be instanced. Use the static references to methods instead.");
+    }
+
+    /**
+     * Get the shared {@link Gson} instance.
+     * @return The shared {@link Gson} instance.
+     */
+    public static @NotNull Gson getGson() {
+        return GSON;
+    }
+
+    /**
+     * Converts an object to a json {@link String}.
+     * @param object The object to convert.
+     * @return A json {@link String}.
+     */
+    public static @NotNull String toJson(@Nullable Object object) {
+        return GSON.toJson(object);
+    }
+
+    /**
+     * Writes an object as json directly to an {@link Appendable} (i.e., a {@link StringBuilder} or a Writer) without building an intermediate {@link String}.
+     * @param object The object to convert.
+     * @param appendable The {@link Appendable} to write to.
+     */
+    public static void writeJson(@Nullable Object object, @NotNull Appendable appendable) {
+        GSON.toJson(object, appendable);
+    }
+
+    /**
+     * Converts a json {@link String} to an object.
+     * @param json The json {@link String}.
+     * @param type The {@link Type} of the object, i.e., a TypeToken's type for generic types.
+     * @return The converted object.
+     * @param <T> The type of the object.
+     */
+    public static <T> @Nullable T fromJson(@NotNull String json, @NotNull Type type) {
+        return GSON.fromJson(json, type);
+    }
+
+    /**
+     * Converts json read from a {@link Reader} to an object without reading it into a {@link String} first.
+     * @param reader The {@link Reader} to read from.
+     * @param type The {@link Type} of the object, i.e., a TypeToken's type for generic types.
+     * @return The converted object.
+     * @param <T> The type of the object.
+     */
+    public static <T> @Nullable T fromJson(@NotNull Reader reader, @NotNull Type type) {
+        return GSON.fromJson(reader, type);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.columnar;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * A single column of a {@link ColumnarResult}. Values are stored in primitive arrays that grow as rows are read.
+ */
+public interface Column {
+    /**
+     * Get the name of the column in the {@link ResultSet}.
+     * @return The name of the column.
+     */
+    @NotNull String getName();
+
+    /**
+     * Get the number of rows in the column.
+     * @return The number of rows in the column.
+     */
+    int size();
+
+    /**
+     * Checks if the value at the provided row was SQL NULL.
+     * @param row The row index.
+     * @return true if the value was SQL NULL, otherwise false.
+     */
+    boolean isNull(int row);
+
+    /**
+     * Reads the value of this column from the current row of the {@link ResultSet} and appends it.
+     * @param resultSet The {@link ResultSet} positioned on a row.
+     * @param columnIndex The index of this column in the {@link ResultSet}.
+     * @throws SQLException If the value could not be read.
+     */
+    void read(@NotNull ResultSet resultSet, int columnIndex) throws SQLException;
+
+    /**
+     * Compares the values of two rows. SQL NULL values are ordered before all other values.
+     * @param rowA The index of the first row.
+     * @param rowB The index of the second row.
+     * @return A negative integer, zero, or a positive integer as the value at rowA is less than, equal to, or greater than the value at rowB.
+     */
+    int compare(int rowA, int rowB);
+
+    /**
+     * Creates a new column containing only the provided rows, in the order provided.
+     * @param rows The row indices to copy.
+     * @return A new {@link Column}.
+     */
+    @NotNull Column select(int @NotNull [] rows);
+}
@@ -0,0 +1,150 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.columnar;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A mapper that reads a {@link ResultSet} into a {@link ColumnarResult}.
+ * Declare the columns to read and then pass the reader as the mapper of a read transaction, i.e.,
+ * {@code queueManager.queueReadTransaction(sql, new ColumnarReader().uuidColumn("uuid").longColumn("kills"))}.
+ * A reader may be reused and shared between threads once its columns have been declared.
+ */
+public class ColumnarReader implements Function<ResultSet, ColumnarResult> {
+    private final @NotNull List<@NotNull ColumnDefinition> columnDefinitions = new ArrayList<>();
+    private int initialCapacity = 256;
+
+    /**
+     * Constructor
+     */
+    public ColumnarReader() {}
+
+    /**
+     * Sets the number of rows to allocate space for before any rows are read.
+     * @param initialCapacity The number of rows to allocate space for.
+     * @return This {@link ColumnarReader}.
+     */
+    public @NotNull ColumnarReader initialCapacity(int initialCapacity) {
+        this.initialCapacity = initialCapacity;
+        return this;
+    }
+
+    /**
+     * Reads a column into a {@link LongColumn}.
+     * @param name The name of the column in the {@link ResultSet}.
+     * @return This {@link ColumnarReader}.
+     */
+    public @NotNull ColumnarReader longColumn(@NotNull String name) {
+        columnDefinitions.add(new ColumnDefinition(name, LongColumn::new));
+        return this;
+    }
+
+    /**
+     * Reads a column into an {@link IntColumn}.
+     * @param name The name of the column in the {@link ResultSet}.
+     * @return This {@link ColumnarReader}.
+     */
+    public @NotNull ColumnarReader intColumn(@NotNull String name) {
+        columnDefinitions.add(new ColumnDefinition(name, IntColumn::new));
+        return this;
+    }
+
+    /**
+     * Reads a column into a {@link DoubleColumn}.
+     * @param name The name of the column in the {@link ResultSet}.
+     * @return This {@link ColumnarReader}.
+     */
+    public @NotNull ColumnarReader doubleColumn(@NotNull String name) {
+        columnDefinitions.add(new ColumnDefinition(name, DoubleColumn::new));
+        return this;
+    }
+
+    /**
+     * Reads a column into a {@link StringColumn}.
+     * @param name The name of the column in the {@link ResultSet}.
+     * @return This {@link ColumnarReader}.
+     */
+    public @NotNull ColumnarReader stringColumn(@NotNull String name) {
+        columnDefinitions.add(new ColumnDefinition(name, StringColumn::new));
+        return this;
+    }
+
+    /**
+     * Reads a column into a {@link UUIDColumn}.
+     * @param name The name of the column in the {@link ResultSet}.
+     * @return This {@link ColumnarReader}.
+     */
+    public @NotNull ColumnarReader uuidColumn(@NotNull String name) {
+        columnDefinitions.add(new ColumnDefinition(name, UUIDColumn::new));
+        return this;
+    }
+
+    /**
+     * Reads all remaining rows of the {@link ResultSet} into a {@link ColumnarResult}.
+     * @param resultSet The {@link ResultSet} to read.
+     * @return A {@link ColumnarResult}.
+     * @throws RuntimeException If a {@link SQLException} occurs while reading.
+     */
+    @Override
+    public @NotNull ColumnarResult apply(@NotNull ResultSet resultSet) {
+        List<Column> columns = new ArrayList<>(columnDefinitions.size());
+        int[] columnIndices = new int[columnDefinitions.size()];
+
+        try {
+            for(int i = 0; i < columnDefinitions.size(); i++) {
+                ColumnDefinition definition = columnDefinitions.get(i);
+                columns.add(definition.factory().apply(definition.name(), initialCapacity));
+                columnIndices[i] = resultSet.findColumn(definition.name());
+            }
+
+            int rowCount = 0;
+            while(resultSet.next()) {
+                for(int i = 0; i < columnIndices.length; i++) {
+                    columns.get(i).read(resultSet, columnIndices[i]);
+                }
+
+                rowCount++;
+            }
+
+            return new ColumnarResult(columns, rowCount);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * A column to read.
+     * @param name The name of the column in the {@link ResultSet}.
+     * @param factory The function that creates the {@link Column} from the name and initial capacity.
+     */
+    private record ColumnDefinition(
+            @NotNull String name,
+            @NotNull BiFunction<@NotNull String, @NotNull Integer, @NotNull Column> factory) {}
+}
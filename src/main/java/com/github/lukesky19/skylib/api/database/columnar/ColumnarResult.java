@@ -0,0 +1,321 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.columnar;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.function.DoublePredicate;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntPredicate;
+import java.util.function.LongPredicate;
+
+/**
+ * The result of a read stored column by column in primitive arrays instead of as a {@link List} of objects per row.
+ * Use a {@link ColumnarReader} as the mapper of a read transaction to create one.
+ * The sort, top-N, and filter methods return row indices so that no values need to be copied or boxed.
+ * Use {@link #select(int[])} to create a new {@link ColumnarResult} from the returned row indices.
+ */
+public class ColumnarResult {
+    private final @NotNull List<@NotNull Column> columns;
+    private final @NotNull Map<String, Column> columnsByName = new HashMap<>();
+    private final int rowCount;
+
+    /**
+     * Constructor
+     * @param columns The {@link List} of {@link Column}s. All columns must contain the same number of rows.
+     * @param rowCount The number of rows.
+     */
+    public ColumnarResult(@NotNull List<@NotNull Column> columns, int rowCount) {
+        this.columns = List.copyOf(columns);
+        this.rowCount = rowCount;
+
+        columns.forEach(column -> columnsByName.put(column.getName(), column));
+    }
+
+    /**
+     * Get the number of rows.
+     * @return The number of rows.
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Get the {@link Column}s in the order they were read.
+     * @return An unmodifiable {@link List} of {@link Column}s.
+     */
+    public @NotNull List<@NotNull Column> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Get a {@link Column} by name.
+     * @param name The name of the column.
+     * @return The {@link Column}.
+     * @throws IllegalArgumentException If there is no column with the provided name.
+     */
+    public @NotNull Column getColumn(@NotNull String name) {
+        Column column = columnsByName.get(name);
+        if(column == null) throw new IllegalArgumentException("No column named " + name + " exists.");
+
+        return column;
+    }
+
+    /**
+     * Get a {@link LongColumn} by name.
+     * @param name The name of the column.
+     * @return The {@link LongColumn}.
+     * @throws IllegalArgumentException If there is no {@link LongColumn} with the provided name.
+     */
+    public @NotNull LongColumn getLongColumn(@NotNull String name) {
+        return getColumn(name, LongColumn.class);
+    }
+
+    /**
+     * Get an {@link IntColumn} by name.
+     * @param name The name of the column.
+     * @return The {@link IntColumn}.
+     * @throws IllegalArgumentException If there is no {@link IntColumn} with the provided name.
+     */
+    public @NotNull IntColumn getIntColumn(@NotNull String name) {
+        return getColumn(name, IntColumn.class);
+    }
+
+    /**
+     * Get a {@link DoubleColumn} by name.
+     * @param name The name of the column.
+     * @return The {@link DoubleColumn}.
+     * @throws IllegalArgumentException If there is no {@link DoubleColumn} with the provided name.
+     */
+    public @NotNull DoubleColumn getDoubleColumn(@NotNull String name) {
+        return getColumn(name, DoubleColumn.class);
+    }
+
+    /**
+     * Get a {@link StringColumn} by name.
+     * @param name The name of the column.
+     * @return The {@link StringColumn}.
+     * @throws IllegalArgumentException If there is no {@link StringColumn} with the provided name.
+     */
+    public @NotNull StringColumn getStringColumn(@NotNull String name) {
+        return getColumn(name, StringColumn.class);
+    }
+
+    /**
+     * Get a {@link UUIDColumn} by name.
+     * @param name The name of the column.
+     * @return The {@link UUIDColumn}.
+     * @throws IllegalArgumentException If there is no {@link UUIDColumn} with the provided name.
+     */
+    public @NotNull UUIDColumn getUUIDColumn(@NotNull String name) {
+        return getColumn(name, UUIDColumn.class);
+    }
+
+    /**
+     * Get the row indices sorted by the values of a column. The sort is stable.
+     * @param name The name of the column to sort by.
+     * @param descending true to sort from largest to smallest, false to sort from smallest to largest.
+     * @return The sorted row indices.
+     */
+    public int @NotNull [] sort(@NotNull String name, boolean descending) {
+        IntBinaryOperator comparator = getComparator(name, descending);
+
+        int[] rows = new int[rowCount];
+        for(int row = 0; row < rowCount; row++) {
+            rows[row] = row;
+        }
+
+        mergeSort(rows, new int[rowCount], 0, rowCount, comparator);
+
+        return rows;
+    }
+
+    /**
+     * Get the row indices of the first N rows when sorted by the values of a column, without sorting every row.
+     * @param name The name of the column to sort by.
+     * @param limit The maximum number of rows to return.
+     * @param descending true to return the largest values, false to return the smallest values.
+     * @return The row indices of the first N rows, in sorted order.
+     */
+    public int @NotNull [] topN(@NotNull String name, int limit, boolean descending) {
+        IntBinaryOperator comparator = getComparator(name, descending);
+        int heapSize = Math.min(Math.max(0, limit), rowCount);
+        int[] heap = new int[heapSize];
+
+        // The heap keeps the last row of the current top N at the root so it can be replaced by a better row.
+        int size = 0;
+        for(int row = 0; row < rowCount; row++) {
+            if(size < heapSize) {
+                heap[size] = row;
+                siftUp(heap, size++, comparator);
+            } else if(heapSize > 0 && comparator.applyAsInt(row, heap[0]) < 0) {
+                heap[0] = row;
+                siftDown(heap, heapSize, comparator);
+            }
+        }
+
+        mergeSort(heap, new int[heapSize], 0, heapSize, comparator);
+
+        return heap;
+    }
+
+    /**
+     * Get the row indices where the value of a {@link LongColumn} matches the predicate.
+     * @param name The name of the column.
+     * @param predicate The {@link LongPredicate} to test the values with.
+     * @return The matching row indices in ascending order.
+     */
+    public int @NotNull [] filterLong(@NotNull String name, @NotNull LongPredicate predicate) {
+        LongColumn column = getLongColumn(name);
+        return filter(row -> predicate.test(column.get(row)));
+    }
+
+    /**
+     * Get the row indices where the value of an {@link IntColumn} matches the predicate.
+     * @param name The name of the column.
+     * @param predicate The {@link IntPredicate} to test the values with.
+     * @return The matching row indices in ascending order.
+     */
+    public int @NotNull [] filterInt(@NotNull String name, @NotNull IntPredicate predicate) {
+        IntColumn column = getIntColumn(name);
+        return filter(row -> predicate.test(column.get(row)));
+    }
+
+    /**
+     * Get the row indices where the value of a {@link DoubleColumn} matches the predicate.
+     * @param name The name of the column.
+     * @param predicate The {@link DoublePredicate} to test the values with.
+     * @return The matching row indices in ascending order.
+     */
+    public int @NotNull [] filterDouble(@NotNull String name, @NotNull DoublePredicate predicate) {
+        DoubleColumn column = getDoubleColumn(name);
+        return filter(row -> predicate.test(column.get(row)));
+    }
+
+    /**
+     * Get the row indices that match the predicate.
+     * @param rowPredicate The {@link IntPredicate} that is given each row index.
+     * @return The matching row indices in ascending order.
+     */
+    public int @NotNull [] filter(@NotNull IntPredicate rowPredicate) {
+        int[] rows = new int[rowCount];
+        int size = 0;
+        for(int row = 0; row < rowCount; row++) {
+            if(rowPredicate.test(row)) rows[size++] = row;
+        }
+
+        return Arrays.copyOf(rows, size);
+    }
+
+    /**
+     * Creates a new {@link ColumnarResult} that contains only the provided rows, in the order provided.
+     * @param rows The row indices to copy.
+     * @return A new {@link ColumnarResult}.
+     */
+    public @NotNull ColumnarResult select(int @NotNull [] rows) {
+        List<Column> selectedColumns = new ArrayList<>(columns.size());
+        columns.forEach(column -> selectedColumns.add(column.select(rows)));
+
+        return new ColumnarResult(selectedColumns, rows.length);
+    }
+
+    /**
+     * Get a {@link Column} by name and type.
+     * @param name The name of the column.
+     * @param type The {@link Class} of the column.
+     * @return The {@link Column}.
+     * @param <C> The type of the {@link Column}.
+     * @throws IllegalArgumentException If there is no column of the provided type with the provided name.
+     */
+    private <C extends Column> @NotNull C getColumn(@NotNull String name, @NotNull Class<C> type) {
+        Column column = getColumn(name);
+        if(!type.isInstance(column)) {
+            throw new IllegalArgumentException("The column " + name + " is a " + column.getClass().getSimpleName() + ", not a " + type.getSimpleName() + ".");
+        }
+
+        return type.cast(column);
+    }
+
+    /**
+     * Creates a comparator of row indices using the values of a column.
+     * @param name The name of the column.
+     * @param descending true to reverse the order.
+     * @return An {@link IntBinaryOperator} comparing two row indices.
+     */
+    private @NotNull IntBinaryOperator getComparator(@NotNull String name, boolean descending) {
+        Column column = getColumn(name);
+        return descending ? (rowA, rowB) -> column.compare(rowB, rowA) : column::compare;
+    }
+
+    private static void mergeSort(int @NotNull [] rows, int @NotNull [] buffer, int from, int to, @NotNull IntBinaryOperator comparator) {
+        if(to - from < 2) return;
+
+        int middle = (from + to) >>> 1;
+        mergeSort(rows, buffer, from, middle, comparator);
+        mergeSort(rows, buffer, middle, to, comparator);
+
+        // Already in order
+        if(comparator.applyAsInt(rows[middle - 1], rows[middle]) <= 0) return;
+
+        System.arraycopy(rows, from, buffer, from, to - from);
+        int left = from;
+        int right = middle;
+        for(int i = from; i < to; i++) {
+            if(right >= to || (left < middle && comparator.applyAsInt(buffer[left], buffer[right]) <= 0)) {
+                rows[i] = buffer[left++];
+            } else {
+                rows[i] = buffer[right++];
+            }
+        }
+    }
+
+    private static void siftUp(int @NotNull [] heap, int index, @NotNull IntBinaryOperator comparator) {
+        int row = heap[index];
+        while(index > 0) {
+            int parent = (index - 1) >>> 1;
+            if(comparator.applyAsInt(row, heap[parent]) <= 0) break;
+
+            heap[index] = heap[parent];
+            index = parent;
+        }
+
+        heap[index] = row;
+    }
+
+    private static void siftDown(int @NotNull [] heap, int size, @NotNull IntBinaryOperator comparator) {
+        int index = 0;
+        int row = heap[0];
+        while(true) {
+            int child = 2 * index + 1;
+            if(child >= size) break;
+            if(child + 1 < size && comparator.applyAsInt(heap[child + 1], heap[child]) > 0) child++;
+            if(comparator.applyAsInt(row, heap[child]) >= 0) break;
+
+            heap[index] = heap[child];
+            index = child;
+        }
+
+        heap[index] = row;
+    }
+}
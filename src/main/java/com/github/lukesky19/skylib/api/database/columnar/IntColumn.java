@@ -0,0 +1,117 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.columnar;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A {@link Column} that stores values as a int array. SQL NULL values are stored as 0.
+ */
+public class IntColumn implements Column {
+    private final @NotNull String name;
+    private final @NotNull BitSet nulls = new BitSet();
+    private int[] values;
+    private int size = 0;
+
+    /**
+     * Constructor
+     * @param name The name of the column in the {@link ResultSet}.
+     * @param initialCapacity The number of rows to allocate space for.
+     */
+    public IntColumn(@NotNull String name, int initialCapacity) {
+        this.name = name;
+        this.values = new int[Math.max(1, initialCapacity)];
+    }
+
+    @Override
+    public @NotNull String getName() {
+        return name;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isNull(int row) {
+        return nulls.get(row);
+    }
+
+    /**
+     * Get the value at the provided row.
+     * @param row The row index.
+     * @return The value.
+     */
+    public int get(int row) {
+        return values[row];
+    }
+
+    /**
+     * Get the backing array. Only the first {@link #size()} values are valid.
+     * @return The backing array.
+     */
+    public int @NotNull [] getValues() {
+        return values;
+    }
+
+    /**
+     * Appends a value to the column.
+     * @param value The value to append.
+     */
+    public void add(int value) {
+        if(size == values.length) values = Arrays.copyOf(values, size * 2);
+        values[size++] = value;
+    }
+
+    @Override
+    public void read(@NotNull ResultSet resultSet, int columnIndex) throws SQLException {
+        int value = resultSet.getInt(columnIndex);
+        if(resultSet.wasNull()) nulls.set(size);
+        add(value);
+    }
+
+    @Override
+    public int compare(int rowA, int rowB) {
+        int nullCompare = Boolean.compare(!nulls.get(rowA), !nulls.get(rowB));
+        if(nullCompare != 0) return nullCompare;
+
+        return Integer.compare(values[rowA], values[rowB]);
+    }
+
+    @Override
+    public @NotNull IntColumn select(int @NotNull [] rows) {
+        IntColumn column = new IntColumn(name, rows.length);
+        for(int row : rows) {
+            if(nulls.get(row)) column.nulls.set(column.size);
+            column.add(values[row]);
+        }
+
+        return column;
+    }
+}
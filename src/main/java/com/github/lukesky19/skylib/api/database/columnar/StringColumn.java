@@ -0,0 +1,146 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.columnar;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A {@link Column} that stores all values in a single char array with an offset per row, instead of a {@link String} object per row.
+ * A {@link String} is only created when a value is read with {@link #get(int)}.
+ */
+public class StringColumn implements Column {
+    private final @NotNull String name;
+    private final @NotNull BitSet nulls = new BitSet();
+    private char[] chars;
+    private int[] offsets;
+    private int size = 0;
+    private int length = 0;
+
+    /**
+     * Constructor
+     * @param name The name of the column in the {@link ResultSet}.
+     * @param initialCapacity The number of rows to allocate space for.
+     */
+    public StringColumn(@NotNull String name, int initialCapacity) {
+        this.name = name;
+        this.offsets = new int[Math.max(1, initialCapacity) + 1];
+        this.chars = new char[Math.max(16, initialCapacity * 16)];
+    }
+
+    @Override
+    public @NotNull String getName() {
+        return name;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isNull(int row) {
+        return nulls.get(row);
+    }
+
+    /**
+     * Get the value at the provided row.
+     * @param row The row index.
+     * @return The value, or null if the value was SQL NULL.
+     */
+    public @Nullable String get(int row) {
+        if(nulls.get(row)) return null;
+
+        return new String(chars, offsets[row], offsets[row + 1] - offsets[row]);
+    }
+
+    /**
+     * Checks if the value at the provided row equals the provided {@link String} without creating a new {@link String}.
+     * @param row The row index.
+     * @param value The {@link String} to compare to.
+     * @return true if the values are equal, otherwise false.
+     */
+    public boolean equals(int row, @NotNull String value) {
+        if(nulls.get(row)) return false;
+
+        int start = offsets[row];
+        int rowLength = offsets[row + 1] - start;
+        if(rowLength != value.length()) return false;
+
+        for(int i = 0; i < rowLength; i++) {
+            if(chars[start + i] != value.charAt(i)) return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Appends a value to the column.
+     * @param value The value to append, or null for SQL NULL.
+     */
+    public void add(@Nullable String value) {
+        if(size + 1 == offsets.length) offsets = Arrays.copyOf(offsets, offsets.length * 2);
+
+        if(value == null) {
+            nulls.set(size);
+        } else {
+            if(length + value.length() > chars.length) {
+                chars = Arrays.copyOf(chars, Math.max(chars.length * 2, length + value.length()));
+            }
+
+            value.getChars(0, value.length(), chars, length);
+            length += value.length();
+        }
+
+        size++;
+        offsets[size] = length;
+    }
+
+    @Override
+    public void read(@NotNull ResultSet resultSet, int columnIndex) throws SQLException {
+        add(resultSet.getString(columnIndex));
+    }
+
+    @Override
+    public int compare(int rowA, int rowB) {
+        int nullCompare = Boolean.compare(!nulls.get(rowA), !nulls.get(rowB));
+        if(nullCompare != 0) return nullCompare;
+
+        return Arrays.compare(chars, offsets[rowA], offsets[rowA + 1], chars, offsets[rowB], offsets[rowB + 1]);
+    }
+
+    @Override
+    public @NotNull StringColumn select(int @NotNull [] rows) {
+        StringColumn column = new StringColumn(name, rows.length);
+        for(int row : rows) {
+            column.add(get(row));
+        }
+
+        return column;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.columnar;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.UUID;
+
+/**
+ * A {@link Column} that stores {@link UUID}s as two long arrays, instead of a {@link UUID} object per row.
+ * Values are read as a {@link String}, which is how the {@link com.github.lukesky19.skylib.api.database.parameter.impl.UUIDParameter} stores them.
+ */
+public class UUIDColumn implements Column {
+    private final @NotNull String name;
+    private final @NotNull BitSet nulls = new BitSet();
+    private long[] mostSignificantBits;
+    private long[] leastSignificantBits;
+    private int size = 0;
+
+    /**
+     * Constructor
+     * @param name The name of the column in the {@link ResultSet}.
+     * @param initialCapacity The number of rows to allocate space for.
+     */
+    public UUIDColumn(@NotNull String name, int initialCapacity) {
+        this.name = name;
+        this.mostSignificantBits = new long[Math.max(1, initialCapacity)];
+        this.leastSignificantBits = new long[Math.max(1, initialCapacity)];
+    }
+
+    @Override
+    public @NotNull String getName() {
+        return name;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isNull(int row) {
+        return nulls.get(row);
+    }
+
+    /**
+     * Get the value at the provided row.
+     * @param row The row index.
+     * @return The {@link UUID}, or null if the value was SQL NULL.
+     */
+    public @Nullable UUID get(int row) {
+        if(nulls.get(row)) return null;
+
+        return new UUID(mostSignificantBits[row], leastSignificantBits[row]);
+    }
+
+    /**
+     * Checks if the value at the provided row equals the provided {@link UUID} without creating a new {@link UUID}.
+     * @param row The row index.
+     * @param uuid The {@link UUID} to compare to.
+     * @return true if the values are equal, otherwise false.
+     */
+    public boolean equals(int row, @NotNull UUID uuid) {
+        return !nulls.get(row)
+                && mostSignificantBits[row] == uuid.getMostSignificantBits()
+                && leastSignificantBits[row] == uuid.getLeastSignificantBits();
+    }
+
+    /**
+     * Finds the first row containing the provided {@link UUID}.
+     * @param uuid The {@link UUID} to find.
+     * @return The row index, or -1 if the {@link UUID} is not in the column.
+     */
+    public int indexOf(@NotNull UUID uuid) {
+        for(int row = 0; row < size; row++) {
+            if(equals(row, uuid)) return row;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Appends a value to the column.
+     * @param uuid The {@link UUID} to append, or null for SQL NULL.
+     */
+    public void add(@Nullable UUID uuid) {
+        if(size == mostSignificantBits.length) {
+            mostSignificantBits = Arrays.copyOf(mostSignificantBits, size * 2);
+            leastSignificantBits = Arrays.copyOf(leastSignificantBits, size * 2);
+        }
+
+        if(uuid == null) {
+            nulls.set(size);
+        } else {
+            mostSignificantBits[size] = uuid.getMostSignificantBits();
+            leastSignificantBits[size] = uuid.getLeastSignificantBits();
+        }
+
+        size++;
+    }
+
+    @Override
+    public void read(@NotNull ResultSet resultSet, int columnIndex) throws SQLException {
+        String value = resultSet.getString(columnIndex);
+        add(value == null ? null : UUID.fromString(value));
+    }
+
+    @Override
+    public int compare(int rowA, int rowB) {
+        int nullCompare = Boolean.compare(!nulls.get(rowA), !nulls.get(rowB));
+        if(nullCompare != 0) return nullCompare;
+
+        int compare = Long.compare(mostSignificantBits[rowA], mostSignificantBits[rowB]);
+        if(compare != 0) return compare;
+
+        return Long.compare(leastSignificantBits[rowA], leastSignificantBits[rowB]);
+    }
+
+    @Override
+    public @NotNull UUIDColumn select(int @NotNull [] rows) {
+        UUIDColumn column = new UUIDColumn(name, rows.length);
+        for(int row : rows) {
+            column.add(get(row));
+        }
+
+        return column;
+    }
+}
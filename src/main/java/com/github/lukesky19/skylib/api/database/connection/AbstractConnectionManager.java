@@ -22,6 +22,7 @@
  */
 package com.github.lukesky19.skylib.api.database.connection;
 
+import com.github.lukesky19.skylib.api.database.accounting.ResourceAccounting;
 import com.zaxxer.hikari.HikariDataSource;
 import org.bukkit.plugin.Plugin;
 import org.jetbrains.annotations.NotNull;
@@ -34,7 +35,9 @@ import java.sql.Statement;
  * This abstract class provides a default implementation to obtain connections to a database using HikariCP.
  */
 public abstract class AbstractConnectionManager {
+    private final @NotNull Plugin plugin;
     private final @NotNull HikariDataSource hikariDataSource;
+    private final @NotNull ThreadLocal<PinnedConnection> pinnedConnection = new ThreadLocal<>();
 
     /**
      * Constructor that takes a {@link Plugin}.
@@ -42,6 +45,8 @@ public abstract class AbstractConnectionManager {
      * @throws RuntimeException If the plugin's data folder failed to be created (if it doesn't already exist).
      */
     public AbstractConnectionManager(@NotNull Plugin plugin) {
+        this.plugin = plugin;
+
         // Ensure the plugin's data folder exists.
         if(!plugin.getDataFolder().exists()) {
             boolean result = plugin.getDataFolder().mkdirs();
@@ -59,10 +64,61 @@ public abstract class AbstractConnectionManager {
      * When auto commit is false, turning them on doesn't work when calling {@link Connection#commit()}.
      * So we temporarily turn on auto commit, turn on foreign keys, then turn auto commit off if necessary.
      * If auto commit is true, we just turn foreign keys on without changing the auto commit setting.
+     * If a connection is pinned to the current thread using {@link #pinConnection()}, that connection is returned instead.
      * @return A new {@link Connection} to access the database.
      * @throws RuntimeException If a new {@link Connection} is unable to be obtained.
      */
     public @NotNull Connection getConnection() {
+        PinnedConnection pinned = pinnedConnection.get();
+        if(pinned != null) {
+            Connection connection = pinned.checkout();
+            ResourceAccounting.markConnectionAcquired();
+
+            return connection;
+        }
+
+        Connection connection = openConnection();
+        ResourceAccounting.markConnectionAcquired();
+
+        return connection;
+    }
+
+    /**
+     * Pins a {@link Connection} to the current thread. Until {@link #unpinConnection()} is called, {@link #getConnection()} on this thread
+     * returns the same connection instead of borrowing one from the pool, and closing it only ends the current use.
+     * Prepared statements on the pinned connection are cached and reused. The connection is validated periodically and replaced if it fails.
+     * Intended for a thread that runs for the lifetime of the pool, such as the worker of a {@link com.github.lukesky19.skylib.api.database.queue.SingleThreadQueueManager}.
+     * The connection is opened on the first call to {@link #getConnection()}.
+     */
+    public void pinConnection() {
+        if(pinnedConnection.get() == null) pinnedConnection.set(new PinnedConnection(this::openConnection));
+    }
+
+    /**
+     * Closes the {@link Connection} pinned to the current thread, if any, and returns it to the pool.
+     */
+    public void unpinConnection() {
+        PinnedConnection pinned = pinnedConnection.get();
+        if(pinned != null) {
+            pinned.close();
+            pinnedConnection.remove();
+        }
+    }
+
+    /**
+     * Checks if a {@link Connection} is pinned to the current thread.
+     * @return true if a connection is pinned to the current thread.
+     */
+    public boolean isConnectionPinned() {
+        return pinnedConnection.get() != null;
+    }
+
+    /**
+     * Borrows a {@link Connection} from the pool and enables foreign keys on it.
+     * @return A new {@link Connection} to access the database.
+     * @throws RuntimeException If a new {@link Connection} is unable to be obtained.
+     */
+    private @NotNull Connection openConnection() {
         try {
             Connection connection = hikariDataSource.getConnection();
 
@@ -88,6 +144,30 @@ public abstract class AbstractConnectionManager {
         }
     }
 
+    /**
+     * Get the {@link Plugin} the connections belong to.
+     * @return The {@link Plugin}.
+     */
+    public @NotNull Plugin getPlugin() {
+        return plugin;
+    }
+
+    /**
+     * Get the minimum number of idle connections the pool keeps open.
+     * @return The minimum number of idle connections.
+     */
+    public int getMinimumIdle() {
+        return hikariDataSource.getMinimumIdle();
+    }
+
+    /**
+     * Get the {@link HikariDataSource} used to obtain connections, i.e., to read pool metrics.
+     * @return The {@link HikariDataSource}.
+     */
+    @NotNull HikariDataSource getHikariDataSource() {
+        return hikariDataSource;
+    }
+
     /**
      * Closes any active connections to the database.
      */
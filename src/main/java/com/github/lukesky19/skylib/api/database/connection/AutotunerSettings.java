@@ -0,0 +1,46 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.connection;
+
+/**
+ * The bounds and targets used by a {@link PoolAutotuner}.
+ * @param minPoolSize The minimum number of connections in the pool.
+ * @param maxPoolSize The maximum number of connections in the pool.
+ * @param sampleIntervalSeconds How often, in seconds, the pool and queue metrics are sampled and the pool size may be changed.
+ * @param targetWaitMillis The 95th percentile time in milliseconds tasks may wait in the queue before the pool is considered too small.
+ */
+public record AutotunerSettings(int minPoolSize, int maxPoolSize, long sampleIntervalSeconds, long targetWaitMillis) {
+    /**
+     * Constructor
+     * @param minPoolSize The minimum number of connections in the pool.
+     * @param maxPoolSize The maximum number of connections in the pool.
+     * @param sampleIntervalSeconds How often, in seconds, the pool and queue metrics are sampled and the pool size may be changed.
+     * @param targetWaitMillis The 95th percentile time in milliseconds tasks may wait in the queue before the pool is considered too small.
+     * @throws IllegalArgumentException If the pool sizes are less than 1 or the minimum is greater than the maximum, or if the interval is less than 1.
+     */
+    public AutotunerSettings {
+        if(minPoolSize < 1 || maxPoolSize < minPoolSize) throw new IllegalArgumentException("The pool sizes must be at least 1 and the minimum must not exceed the maximum.");
+        if(sampleIntervalSeconds < 1) throw new IllegalArgumentException("The sample interval must be at least 1 second.");
+        if(targetWaitMillis < 0) throw new IllegalArgumentException("The target wait time must not be negative.");
+    }
+}
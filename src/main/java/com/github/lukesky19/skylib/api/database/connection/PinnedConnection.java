@@ -0,0 +1,311 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.connection;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * A {@link Connection} kept open by a single thread for its lifetime, so the thread's tasks skip borrowing a connection from the pool
+ * and re-running the connection setup. Tasks receive a proxy whose {@link Connection#close()} rolls back any uncommitted work and
+ * keeps the connection open. Prepared statements are cached per sql and reused, with {@link PreparedStatement#close()} only clearing their parameters.
+ * The connection is validated periodically and after any error, replaced transparently if it is no longer valid,
+ * and returned to the pool after {@link #MAX_LIFETIME_NANOS} so the pool can still rotate it.
+ * If the pinned connection is still in use when another is requested, i.e., by a cursor held open across tasks, a connection is borrowed from the pool instead.
+ */
+final class PinnedConnection {
+    /**
+     * The maximum number of prepared statements cached. The least recently used statement is closed when the cache is full.
+     */
+    static final int STATEMENT_CACHE_SIZE = 64;
+    /**
+     * The time after which the connection is validated before its next use.
+     */
+    static final long VALIDATION_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(30);
+    /**
+     * The time after which the connection is returned to the pool and replaced.
+     */
+    static final long MAX_LIFETIME_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    private final @NotNull Supplier<@NotNull Connection> connectionSupplier;
+    private final @NotNull Map<String, PreparedStatement> statementCache = new LinkedHashMap<>(16, 0.75f, true);
+    private @Nullable Connection connection;
+    private boolean inUse = false;
+    private boolean defaultAutoCommit;
+    private long openedTime;
+    private long validatedTime;
+    private boolean suspect = false;
+
+    /**
+     * Constructor
+     * @param connectionSupplier The supplier of new, fully set up {@link Connection}s from the pool.
+     */
+    PinnedConnection(@NotNull Supplier<@NotNull Connection> connectionSupplier) {
+        this.connectionSupplier = connectionSupplier;
+    }
+
+    /**
+     * Gets the pinned {@link Connection} for a task, opening, validating or replacing it first if necessary.
+     * @return A proxy of the pinned {@link Connection}, or a connection from the pool if the pinned connection is in use.
+     * @throws RuntimeException If a new {@link Connection} is unable to be obtained.
+     */
+    @NotNull Connection checkout() {
+        if(inUse) return connectionSupplier.get();
+
+        long now = System.nanoTime();
+
+        if(connection != null && now - openedTime > MAX_LIFETIME_NANOS) {
+            close();
+        } else if(connection != null && (suspect || now - validatedTime > VALIDATION_INTERVAL_NANOS)) {
+            boolean valid;
+            try {
+                valid = connection.isValid(1);
+            } catch (SQLException e) {
+                valid = false;
+            }
+
+            if(valid) {
+                validatedTime = now;
+                suspect = false;
+            } else {
+                close();
+            }
+        }
+
+        if(connection == null) open(now);
+
+        Connection target = connection;
+        inUse = true;
+        return (Connection) Proxy.newProxyInstance(PinnedConnection.class.getClassLoader(), new Class<?>[] {Connection.class}, new ConnectionHandler(target));
+    }
+
+    /**
+     * Closes the cached statements and returns the connection to the pool. The next {@link #checkout()} opens a new connection.
+     */
+    void close() {
+        for(PreparedStatement statement : statementCache.values()) {
+            closeQuietly(statement);
+        }
+        statementCache.clear();
+
+        if(connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException ignored) {}
+        }
+
+        connection = null;
+        inUse = false;
+        suspect = false;
+    }
+
+    /**
+     * Opens a new connection from the pool.
+     * @param now The current time from {@link System#nanoTime()}.
+     * @throws RuntimeException If a new {@link Connection} is unable to be obtained.
+     */
+    private void open(long now) {
+        Connection opened = connectionSupplier.get();
+        try {
+            defaultAutoCommit = opened.getAutoCommit();
+        } catch (SQLException e) {
+            try {
+                opened.close();
+            } catch (SQLException ignored) {}
+
+            throw new RuntimeException(e);
+        }
+
+        connection = opened;
+        openedTime = now;
+        validatedTime = now;
+        suspect = false;
+    }
+
+    /**
+     * Ends a task's use of the connection, rolling back any uncommitted work and restoring the auto commit setting.
+     * @param target The connection the task used.
+     * @throws SQLException If the connection could not be reset, in which case it is replaced before its next use.
+     */
+    private void release(@NotNull Connection target) throws SQLException {
+        if(target != connection) return;
+
+        inUse = false;
+        try {
+            if(!target.getAutoCommit()) target.rollback();
+            if(target.getAutoCommit() != defaultAutoCommit) target.setAutoCommit(defaultAutoCommit);
+        } catch (SQLException e) {
+            suspect = true;
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the cached {@link PreparedStatement} for the sql, preparing and caching it if necessary.
+     * @param target The connection to prepare the statement on.
+     * @param sql The sql statement.
+     * @return A proxy of the cached {@link PreparedStatement}.
+     * @throws SQLException If the statement could not be prepared.
+     */
+    private @NotNull PreparedStatement prepare(@NotNull Connection target, @NotNull String sql) throws SQLException {
+        PreparedStatement statement = statementCache.get(sql);
+        if(statement == null || statement.isClosed()) {
+            statement = target.prepareStatement(sql);
+            statementCache.put(sql, statement);
+
+            if(statementCache.size() > STATEMENT_CACHE_SIZE) {
+                Iterator<PreparedStatement> iterator = statementCache.values().iterator();
+                closeQuietly(iterator.next());
+                iterator.remove();
+            }
+        }
+
+        return (PreparedStatement) Proxy.newProxyInstance(PinnedConnection.class.getClassLoader(), new Class<?>[] {PreparedStatement.class}, new StatementHandler(statement));
+    }
+
+    /**
+     * Invokes a method on the target, unwrapping exceptions and marking the connection as suspect if an {@link SQLException} is thrown.
+     * @param target The target object.
+     * @param method The {@link Method} to invoke.
+     * @param args The arguments.
+     * @return The result of the method.
+     * @throws Throwable The exception thrown by the method.
+     */
+    private @Nullable Object invoke(@NotNull Object target, @NotNull Method method, @Nullable Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            if(e.getCause() instanceof SQLException) suspect = true;
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Closes a statement, ignoring any exception.
+     * @param statement The {@link PreparedStatement} to close.
+     */
+    private static void closeQuietly(@NotNull PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ignored) {}
+    }
+
+    /**
+     * Handles calls on the proxy given to a task for the pinned {@link Connection}. Each checkout gets its own handler so closing it twice is harmless.
+     */
+    private final class ConnectionHandler implements InvocationHandler {
+        private final @NotNull Connection target;
+        private boolean released = false;
+
+        /**
+         * Constructor
+         * @param target The pinned {@link Connection}.
+         */
+        private ConnectionHandler(@NotNull Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch(method.getName()) {
+                case "close" -> {
+                    if(!released) {
+                        released = true;
+                        release(target);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    if(released) return true;
+                }
+                case "prepareStatement" -> {
+                    if(args != null && args.length == 1 && target == connection) return prepare(target, (String) args[0]);
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                default -> {}
+            }
+
+            return PinnedConnection.this.invoke(target, method, args);
+        }
+    }
+
+    /**
+     * Handles calls on the proxy given to tasks for a cached {@link PreparedStatement}.
+     */
+    private final class StatementHandler implements InvocationHandler {
+        private final @NotNull PreparedStatement target;
+
+        /**
+         * Constructor
+         * @param target The cached {@link PreparedStatement}.
+         */
+        private StatementHandler(@NotNull PreparedStatement target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch(method.getName()) {
+                case "close" -> {
+                    if(!target.isClosed()) {
+                        // An open result set would keep a read transaction open on the pinned connection.
+                        ResultSet resultSet = target.getResultSet();
+                        if(resultSet != null) resultSet.close();
+
+                        target.clearParameters();
+                        target.clearBatch();
+                    }
+                    return null;
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                default -> {}
+            }
+
+            return PinnedConnection.this.invoke(target, method, args);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.connection;
+
+import com.github.lukesky19.skylib.api.adventure.AdventureUtil;
+import com.github.lukesky19.skylib.api.database.accounting.ResourceAccounting;
+import com.github.lukesky19.skylib.api.database.queue.AbstractQueueManager;
+import com.github.lukesky19.skylib.api.database.queue.MultiThreadQueueManager;
+import com.github.lukesky19.skylib.api.database.queue.util.QueueMetrics;
+import com.github.lukesky19.skylib.internal.ThreadPoolManager;
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Locale;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adjusts the size of a Hikari connection pool (and the concurrency limit of a {@link MultiThreadQueueManager}) within configured bounds based on observed load.
+ * The shared worker threads are resized with the pool through {@link ThreadPoolManager#setWorkerDemand(Object, int)}, so a larger pool is not left waiting on too few threads.
+ * Every sample interval it reads the number of threads waiting for a connection from Hikari and the queue wait times and throughput from the queue's {@link QueueMetrics}.
+ * The pool grows by 1 connection while tasks wait longer than the target, and is shrunk again if growing lowered throughput (i.e., the disk is saturated).
+ * It shrinks by 1 connection when the connections are mostly idle. Each change is logged.
+ */
+public class PoolAutotuner {
+    // The fraction of the previous throughput below which a change is considered to have hurt throughput.
+    private static final double THROUGHPUT_TOLERANCE = 0.95;
+    // The number of samples to wait after reverting a change before growing again.
+    private static final int COOLDOWN_SAMPLES = 3;
+
+    private final @NotNull Plugin plugin;
+    private final @NotNull AbstractConnectionManager connectionManager;
+    private final @NotNull AbstractQueueManager queueManager;
+    private final @NotNull AutotunerSettings settings;
+    private @Nullable ScheduledFuture<?> sampleTask;
+    private @Nullable QueueMetrics.Snapshot lastSnapshot;
+    private double lastThroughput = 0;
+    private boolean lastChangeGrew = false;
+    private int cooldown = 0;
+
+    /**
+     * Constructor
+     * @param plugin The {@link Plugin} using the pool. Used for logging.
+     * @param connectionManager The {@link AbstractConnectionManager} whose pool will be tuned.
+     * @param queueManager The {@link AbstractQueueManager} whose metrics are sampled. If it is a {@link MultiThreadQueueManager}, its concurrency limit is kept equal to the pool size.
+     * @param settings The {@link AutotunerSettings}.
+     */
+    public PoolAutotuner(
+            @NotNull Plugin plugin,
+            @NotNull AbstractConnectionManager connectionManager,
+            @NotNull AbstractQueueManager queueManager,
+            @NotNull AutotunerSettings settings) {
+        this.plugin = plugin;
+        this.connectionManager = connectionManager;
+        this.queueManager = queueManager;
+        this.settings = settings;
+    }
+
+    /**
+     * Clamps the pool size to the configured bounds and starts sampling.
+     */
+    public synchronized void start() {
+        if(sampleTask != null) return;
+
+        int size = connectionManager.getHikariDataSource().getHikariConfigMXBean().getMaximumPoolSize();
+        applyPoolSize(Math.min(settings.maxPoolSize(), Math.max(settings.minPoolSize(), size)));
+
+        lastSnapshot = queueManager.getQueueMetrics().snapshot();
+        sampleTask = ThreadPoolManager.getThreadPoolExecutor().scheduleAtFixedRate(
+                ResourceAccounting.wrap(plugin.getName(), this::sample), settings.sampleIntervalSeconds(), settings.sampleIntervalSeconds(), TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops sampling. The pool keeps its current size, but the shared worker threads requested for it are released.
+     */
+    public synchronized void stop() {
+        if(sampleTask != null) {
+            sampleTask.cancel(false);
+            sampleTask = null;
+            ThreadPoolManager.setWorkerDemand(this, 0);
+        }
+    }
+
+    /**
+     * Samples the pool and queue metrics and changes the pool size if needed.
+     */
+    private synchronized void sample() {
+        try {
+            if(connectionManager.getHikariDataSource().isClosed()) {
+                stop();
+                return;
+            }
+
+            HikariPoolMXBean pool = connectionManager.getHikariDataSource().getHikariPoolMXBean();
+            if(pool == null || lastSnapshot == null) return;
+
+            QueueMetrics.Snapshot snapshot = queueManager.getQueueMetrics().snapshot();
+            QueueMetrics.Snapshot interval = snapshot.since(lastSnapshot);
+            lastSnapshot = snapshot;
+
+            long intervalNanos = TimeUnit.SECONDS.toNanos(settings.sampleIntervalSeconds());
+            double throughput = interval.tasks() / (double) settings.sampleIntervalSeconds();
+            // Little's law: the average number of connections busy running tasks during the interval.
+            double busyConnections = interval.totalRunNanos() / (double) intervalNanos;
+            long p95WaitNanos = interval.waitPercentileNanos(0.95);
+            int awaiting = pool.getThreadsAwaitingConnection();
+            boolean contended = awaiting > 0 || p95WaitNanos > TimeUnit.MILLISECONDS.toNanos(settings.targetWaitMillis());
+
+            int size = connectionManager.getHikariDataSource().getHikariConfigMXBean().getMaximumPoolSize();
+            int newSize = size;
+            String reason = null;
+
+            if(cooldown > 0) cooldown--;
+
+            if(interval.tasks() == 0 && awaiting == 0) {
+                // No load, so there is nothing to learn from this sample.
+                return;
+            } else if(lastChangeGrew && lastThroughput > 0 && throughput < lastThroughput * THROUGHPUT_TOLERANCE && size > settings.minPoolSize()) {
+                newSize = size - 1;
+                cooldown = COOLDOWN_SAMPLES;
+                reason = "throughput fell from " + format(lastThroughput) + " to " + format(throughput) + " tasks/s after growing";
+            } else if(contended && cooldown == 0 && size < settings.maxPoolSize()) {
+                newSize = size + 1;
+                reason = "p95 queue wait " + TimeUnit.NANOSECONDS.toMillis(p95WaitNanos) + "ms, " + awaiting + " threads awaiting a connection";
+            } else if(!contended && busyConnections < size - 1 && size > settings.minPoolSize()) {
+                newSize = size - 1;
+                reason = "on average only " + format(busyConnections) + " connections were busy";
+            }
+
+            lastChangeGrew = newSize > size;
+            lastThroughput = throughput;
+
+            if(newSize != size) {
+                applyPoolSize(newSize);
+                plugin.getComponentLogger().info(AdventureUtil.serialize("Database pool size changed from " + size + " to " + newSize + ": " + reason
+                        + " (" + format(throughput) + " tasks/s, mean run time " + TimeUnit.NANOSECONDS.toMillis(interval.meanRunNanos()) + "ms)."));
+            }
+        } catch (RuntimeException e) {
+            plugin.getComponentLogger().error(AdventureUtil.serialize("Failed to tune the database pool size: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Sets the maximum pool size, the concurrency limit of the queue and the number of shared worker threads requested for the pool.
+     * @param size The new pool size.
+     */
+    private void applyPoolSize(int size) {
+        HikariConfigMXBean config = connectionManager.getHikariDataSource().getHikariConfigMXBean();
+        if(config.getMinimumIdle() > size) config.setMinimumIdle(size);
+        config.setMaximumPoolSize(size);
+
+        if(queueManager instanceof MultiThreadQueueManager multiThreadQueueManager) {
+            multiThreadQueueManager.setConcurrencyLimit(size);
+            ThreadPoolManager.setWorkerDemand(this, size);
+        }
+    }
+
+    /**
+     * Formats a number with 1 decimal place for logging.
+     * @param value The number to format.
+     * @return The formatted number.
+     */
+    private static @NotNull String format(double value) {
+        return String.format(Locale.ROOT, "%.1f", value);
+    }
+}
@@ -0,0 +1,311 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.event;
+
+import com.github.lukesky19.skylib.api.adventure.AdventureUtil;
+import com.github.lukesky19.skylib.api.database.statement.SqlStatement;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * This class publishes {@link ChangeEvent}s for committed writes so that plugins caching another plugin's tables can invalidate precisely.
+ * Queue managers publish an event for every committed write while there are subscribers, even if its future was cancelled or timed out. The table and {@link ChangeOperation}
+ * are read from the sql statement, and the key is included when the writer provides one.
+ * Events are collected without locking and delivered once per tick on the main thread, with duplicate events within a tick coalesced.
+ * Write observers are instead given the events of every write as it is queued, so that indexes of a table never fall behind its rows. See {@link #addWriteObserver(Consumer)}.
+ */
+public class ChangeDispatcher {
+    private static final @NotNull String IDENTIFIER = "(\"(?:[^\"]|\"\")+\"|`[^`]+`|\\[[^]]+]|[\\w$]+)";
+    private static final @NotNull Pattern WRITE_PATTERN = Pattern.compile(
+            "^(?:\\s|--[^\\n]*(?:\\n|$)|/\\*.*?\\*/)*"
+                    + "(?:(INSERT|REPLACE)(?:\\s+OR\\s+(\\w+))?\\s+INTO|(UPDATE)(?:\\s+OR\\s+\\w+)?|(DELETE)\\s+FROM)\\s+"
+                    + IDENTIFIER + "(?:\\s*\\.\\s*" + IDENTIFIER + ")?",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final @NotNull Pattern DO_UPDATE_PATTERN = Pattern.compile("\\bDO\\s+UPDATE\\b", Pattern.CASE_INSENSITIVE);
+    private static final int MAX_CACHED_STATEMENTS = 1024;
+
+    private static final @NotNull ConcurrentLinkedQueue<ChangeEvent> pendingEvents = new ConcurrentLinkedQueue<>();
+    private static final @NotNull List<ChangeSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private static final @NotNull List<Consumer<List<ChangeEvent>>> writeObservers = new CopyOnWriteArrayList<>();
+    private static final @NotNull Map<String, Optional<TableChange>> parsedStatements = new ConcurrentHashMap<>();
+    private static final @NotNull AtomicBoolean scheduled = new AtomicBoolean(false);
+    private static volatile @Nullable Plugin plugin;
+
+    /**
+     * All methods in this class are static so this constructor will throw a runtime exception if used.
+     * @throws RuntimeException if the constructor is used.
+     */
+    public ChangeDispatcher() {
+        throw new RuntimeException("This class cannot be instanced. Use the static references to methods instead.");
+    }
+
+    /**
+     * Starts delivering events using the scheduler of the provided plugin. This is called by SkyLib when it is enabled.
+     * @param skyLib The {@link Plugin} that delivery tasks are registered to.
+     */
+    public static void initialize(@NotNull Plugin skyLib) {
+        plugin = skyLib;
+    }
+
+    /**
+     * Stops delivering events and removes every subscription. This is called by SkyLib when it is disabled.
+     */
+    public static void shutdown() {
+        plugin = null;
+        subscriptions.clear();
+        writeObservers.clear();
+        pendingEvents.clear();
+    }
+
+    /**
+     * Registers a listener that receives each tick's {@link ChangeEvent}s on the main thread.
+     * @param owner The {@link Plugin} registering the listener. The listener is removed once the plugin is disabled.
+     * @param tables The names of the tables to receive changes for, or null to receive changes for every table.
+     * @param listener The listener, which is only called when there are matching changes.
+     * @return The {@link ChangeSubscription}, which can be passed to {@link #unsubscribe(ChangeSubscription)}.
+     */
+    public static @NotNull ChangeSubscription subscribe(
+            @NotNull Plugin owner,
+            @Nullable Set<String> tables,
+            @NotNull Consumer<@NotNull List<@NotNull ChangeEvent>> listener) {
+        Set<String> normalizedTables = null;
+        if(tables != null) {
+            normalizedTables = new HashSet<>();
+            for(String table : tables) {
+                normalizedTables.add(table.toLowerCase(Locale.ROOT));
+            }
+        }
+
+        ChangeSubscription subscription = new ChangeSubscription(owner, normalizedTables == null ? null : Set.copyOf(normalizedTables), listener);
+        subscriptions.add(subscription);
+
+        return subscription;
+    }
+
+    /**
+     * Removes a listener.
+     * @param subscription The {@link ChangeSubscription} returned by {@link #subscribe(Plugin, Set, Consumer)}.
+     */
+    public static void unsubscribe(@NotNull ChangeSubscription subscription) {
+        subscriptions.remove(subscription);
+    }
+
+    /**
+     * Removes every listener registered by a plugin.
+     * @param owner The {@link Plugin}.
+     */
+    public static void unsubscribeAll(@NotNull Plugin owner) {
+        subscriptions.removeIf(subscription -> subscription.plugin().equals(owner));
+    }
+
+    /**
+     * Registers an observer that is given the {@link ChangeEvent}s of every write when it is queued, on the thread queuing it and before it can be executed.
+     * Unlike listeners, observers are also given writes that later fail, are cancelled, or change no rows, so only use them to keep
+     * conservative indexes up to date, i.e., the keys that might exist in a table, and not to react to committed changes.
+     * Observers must be fast and must not block, as they run on every thread that queues a write.
+     * @param observer The observer.
+     */
+    public static void addWriteObserver(@NotNull Consumer<@NotNull List<@NotNull ChangeEvent>> observer) {
+        writeObservers.add(observer);
+    }
+
+    /**
+     * Removes an observer.
+     * @param observer The observer passed to {@link #addWriteObserver(Consumer)}.
+     */
+    public static void removeWriteObserver(@NotNull Consumer<@NotNull List<@NotNull ChangeEvent>> observer) {
+        writeObservers.remove(observer);
+    }
+
+    /**
+     * Checks if any write observer is registered, so that queue managers can skip creating events when nobody is observing.
+     * @return true if any write observer is registered.
+     */
+    public static boolean hasWriteObservers() {
+        return !writeObservers.isEmpty();
+    }
+
+    /**
+     * Gives the {@link ChangeEvent}s of a write to every write observer. Call this before the write is queued.
+     * @param events The {@link ChangeEvent}s.
+     */
+    public static void observe(@NotNull List<@NotNull ChangeEvent> events) {
+        if(events.isEmpty()) return;
+
+        for(Consumer<List<ChangeEvent>> observer : writeObservers) {
+            try {
+                observer.accept(events);
+            } catch (RuntimeException ignored) {
+                // An observer must not stop the write from being queued.
+            }
+        }
+    }
+
+    /**
+     * Checks if any listener is registered, so that queue managers can skip creating events when nobody is listening.
+     * @return true if any listener is registered.
+     */
+    public static boolean hasSubscribers() {
+        return plugin != null && !subscriptions.isEmpty();
+    }
+
+    /**
+     * Publishes {@link ChangeEvent}s to be delivered on the next tick. Only call this once the changes are committed.
+     * @param events The {@link ChangeEvent}s.
+     */
+    public static void publish(@NotNull Collection<@NotNull ChangeEvent> events) {
+        if(events.isEmpty() || !hasSubscribers()) return;
+
+        pendingEvents.addAll(events);
+        schedule();
+    }
+
+    /**
+     * Creates the {@link ChangeEvent}s for the statements of a write. Statements that do not insert, update or delete rows are ignored.
+     * @param pluginName The name of the plugin making the change.
+     * @param statements The {@link SqlStatement}s of the write.
+     * @param key The key of the changed rows, or null if unknown.
+     * @return A {@link List} of distinct {@link ChangeEvent}s.
+     */
+    public static @NotNull List<@NotNull ChangeEvent> createEvents(@NotNull String pluginName, @NotNull List<@NotNull SqlStatement> statements, @Nullable Object key) {
+        Set<ChangeEvent> events = new LinkedHashSet<>();
+        for(SqlStatement statement : statements) {
+            parse(statement.sql()).ifPresent(change -> events.add(new ChangeEvent(change.table(), change.operation(), key, pluginName)));
+        }
+
+        return List.copyOf(events);
+    }
+
+    /**
+     * Reads the table and {@link ChangeOperation} of a sql statement. Results are cached, as the same statements are written repeatedly.
+     * @param sql The sql statement.
+     * @return An {@link Optional} containing the {@link TableChange}, or empty if the statement does not insert, update or delete rows.
+     */
+    private static @NotNull Optional<TableChange> parse(@NotNull String sql) {
+        Optional<TableChange> cached = parsedStatements.get(sql);
+        if(cached != null) return cached;
+
+        Optional<TableChange> change = Optional.empty();
+        Matcher matcher = WRITE_PATTERN.matcher(sql);
+        if(matcher.lookingAt()) {
+            String table = unquote(matcher.group(6) != null ? matcher.group(6) : matcher.group(5)).toLowerCase(Locale.ROOT);
+
+            ChangeOperation operation;
+            if(matcher.group(3) != null) {
+                operation = ChangeOperation.UPDATE;
+            } else if(matcher.group(4) != null) {
+                operation = ChangeOperation.DELETE;
+            } else if(matcher.group(1).equalsIgnoreCase("REPLACE")
+                    || "REPLACE".equalsIgnoreCase(matcher.group(2))
+                    || DO_UPDATE_PATTERN.matcher(sql).find()) {
+                operation = ChangeOperation.UPSERT;
+            } else {
+                operation = ChangeOperation.INSERT;
+            }
+
+            change = Optional.of(new TableChange(table, operation));
+        }
+
+        if(parsedStatements.size() >= MAX_CACHED_STATEMENTS) parsedStatements.clear();
+        parsedStatements.put(sql, change);
+
+        return change;
+    }
+
+    /**
+     * Removes the quotes from an identifier.
+     * @param identifier The identifier, which may be quoted with double quotes, backticks or square brackets.
+     * @return The unquoted identifier.
+     */
+    private static @NotNull String unquote(@NotNull String identifier) {
+        char first = identifier.charAt(0);
+        if(first == '"') return identifier.substring(1, identifier.length() - 1).replace("\"\"", "\"");
+        if(first == '`' || first == '[') return identifier.substring(1, identifier.length() - 1);
+
+        return identifier;
+    }
+
+    /**
+     * Schedules the pending events to be delivered on the next tick, unless a delivery is already scheduled.
+     */
+    private static void schedule() {
+        Plugin skyLib = plugin;
+        if(skyLib == null || !scheduled.compareAndSet(false, true)) return;
+
+        try {
+            skyLib.getServer().getScheduler().runTask(skyLib, ChangeDispatcher::dispatch);
+        } catch (RuntimeException e) {
+            // SkyLib is disabling, so the events can no longer be delivered.
+            scheduled.set(false);
+            pendingEvents.clear();
+        }
+    }
+
+    /**
+     * Delivers the pending events to each matching listener. Runs on the main thread.
+     */
+    private static void dispatch() {
+        // Cleared before draining so that events published during delivery schedule the next tick's delivery.
+        scheduled.set(false);
+
+        Set<ChangeEvent> batch = new LinkedHashSet<>();
+        ChangeEvent event;
+        while((event = pendingEvents.poll()) != null) {
+            batch.add(event);
+        }
+        if(batch.isEmpty()) return;
+
+        subscriptions.removeIf(subscription -> !subscription.plugin().isEnabled());
+
+        List<ChangeEvent> events = List.copyOf(batch);
+        for(ChangeSubscription subscription : subscriptions) {
+            List<ChangeEvent> matching = subscription.tables() == null
+                    ? events
+                    : events.stream().filter(change -> subscription.accepts(change.table())).toList();
+            if(matching.isEmpty()) continue;
+
+            try {
+                subscription.listener().accept(matching);
+            } catch (RuntimeException e) {
+                subscription.plugin().getComponentLogger().error(AdventureUtil.serialize("An exception occurred while handling database change events: " + e.getMessage()));
+            }
+        }
+    }
+
+    /**
+     * The table and {@link ChangeOperation} of a sql statement.
+     * @param table The lower-case name of the table.
+     * @param operation The {@link ChangeOperation}.
+     */
+    private record TableChange(@NotNull String table, @NotNull ChangeOperation operation) {}
+}
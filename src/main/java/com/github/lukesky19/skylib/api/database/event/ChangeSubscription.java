@@ -0,0 +1,48 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.event;
+
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * This record is a listener registered with {@link ChangeDispatcher#subscribe(Plugin, Set, Consumer)}.
+ * @param plugin The {@link Plugin} that registered the listener. The listener is removed once the plugin is disabled.
+ * @param tables The lower-case names of the tables to receive changes for, or null to receive changes for every table.
+ * @param listener The listener that receives each tick's {@link ChangeEvent}s on the main thread.
+ */
+public record ChangeSubscription(@NotNull Plugin plugin, @Nullable Set<String> tables, @NotNull Consumer<@NotNull List<@NotNull ChangeEvent>> listener) {
+    /**
+     * Checks if the listener receives changes to a table.
+     * @param table The lower-case name of the table.
+     * @return true if the listener receives changes to the table.
+     */
+    public boolean accepts(@NotNull String table) {
+        return tables == null || tables.contains(table);
+    }
+}
@@ -0,0 +1,333 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.leaderboard;
+
+import com.github.lukesky19.skylib.api.database.columnar.ColumnarReader;
+import com.github.lukesky19.skylib.api.database.columnar.ColumnarResult;
+import com.github.lukesky19.skylib.api.database.columnar.DoubleColumn;
+import com.github.lukesky19.skylib.api.database.columnar.UUIDColumn;
+import com.github.lukesky19.skylib.api.database.parameter.Parameter;
+import com.github.lukesky19.skylib.api.database.parameter.impl.DoubleParameter;
+import com.github.lukesky19.skylib.api.database.parameter.impl.UUIDParameter;
+import com.github.lukesky19.skylib.api.database.queue.QueueManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-memory leaderboard that is loaded once from the database and then kept up to date as scores are written.
+ * The rank of a player, the entry at a rank, and the top N entries are answered from memory in O(log n) (plus N) without a database round trip.
+ * Players with equal scores are ordered by their {@link UUID} so that every player has a unique rank.
+ * Writes for the same player are written to the database in the order they were made, even with a {@link com.github.lukesky19.skylib.api.database.queue.MultiThreadQueueManager}.
+ * All methods are safe to call from any thread, including the main thread. Reads may run concurrently with each other.
+ */
+public class Leaderboard {
+    private final @NotNull QueueManager queueManager;
+    private final @NotNull String loadSql;
+    private final @NotNull ColumnarReader reader;
+    private final @NotNull String uuidColumn;
+    private final @NotNull String scoreColumn;
+    private final @Nullable String upsertSql;
+    private final @Nullable String deleteSql;
+    private final @NotNull OrderStatisticTree tree;
+    private final @NotNull Map<UUID, Double> scores = new HashMap<>();
+    private final @NotNull ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final @NotNull Map<UUID, CompletableFuture<Integer>> pendingWrites = new ConcurrentHashMap<>();
+    private final @NotNull Set<UUID> changedDuringLoad = ConcurrentHashMap.newKeySet();
+    private volatile boolean loading = false;
+    private @Nullable CompletableFuture<Integer> loadFuture;
+
+    /**
+     * Constructor
+     * @param queueManager The {@link QueueManager} used to load the leaderboard and write score changes.
+     * @param loadSql The sql statement that selects every player's uuid and score, i.e., "SELECT uuid, kills FROM stats".
+     * @param uuidColumn The name of the column containing the player's uuid.
+     * @param scoreColumn The name of the column containing the player's score.
+     * @param upsertSql The sql statement used to write a score, with the uuid as the 1st parameter and the score as the 2nd parameter. Optional.
+     * @param deleteSql The sql statement used to delete a score, with the uuid as the only parameter. Optional.
+     * @param descending true if the highest score is ranked first, false if the lowest score is ranked first.
+     */
+    public Leaderboard(
+            @NotNull QueueManager queueManager,
+            @NotNull String loadSql,
+            @NotNull String uuidColumn,
+            @NotNull String scoreColumn,
+            @Nullable String upsertSql,
+            @Nullable String deleteSql,
+            boolean descending) {
+        this.queueManager = queueManager;
+        this.loadSql = loadSql;
+        this.uuidColumn = uuidColumn;
+        this.scoreColumn = scoreColumn;
+        this.upsertSql = upsertSql;
+        this.deleteSql = deleteSql;
+        this.tree = new OrderStatisticTree(descending);
+        this.reader = new ColumnarReader().uuidColumn(uuidColumn).doubleColumn(scoreColumn);
+    }
+
+    /**
+     * Loads every score from the database, replacing any scores in memory.
+     * Scores that are changed while the load is in progress, or whose write has not completed yet, are kept instead of being replaced with the loaded value.
+     * If a load is already in progress, its {@link CompletableFuture} is returned instead of starting another.
+     * @return A {@link CompletableFuture} containing the number of entries on the leaderboard once loaded.
+     */
+    public @NotNull CompletableFuture<Integer> load() {
+        lock.writeLock().lock();
+        try {
+            // Concurrent loads would share, and clear, the same set of scores changed during the load.
+            if(loadFuture != null) return loadFuture;
+
+            changedDuringLoad.clear();
+            loading = true;
+            // The load may read the database before these writes are committed.
+            changedDuringLoad.addAll(pendingWrites.keySet());
+
+            CompletableFuture<Integer> future = queueManager.queueReadTransaction(loadSql, reader).thenApply(result -> {
+                lock.writeLock().lock();
+                try {
+                    apply(result);
+                    return scores.size();
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }).whenComplete((size, throwable) -> {
+                lock.writeLock().lock();
+                try {
+                    loading = false;
+                    changedDuringLoad.clear();
+                    loadFuture = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            });
+
+            // The load may have already completed on this thread, i.e., if the queue rejected it.
+            if(!future.isDone()) loadFuture = future;
+            return future;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Sets a player's score in memory and queues it to be written to the database using the upsert sql statement (if one was provided).
+     * @param uuid The {@link UUID} of the player.
+     * @param score The player's new score.
+     * @return A {@link CompletableFuture} containing the number of rows updated. Completes with 0 if no upsert sql statement was provided.
+     */
+    public @NotNull CompletableFuture<Integer> setScore(@NotNull UUID uuid, double score) {
+        updateScore(uuid, score);
+
+        if(upsertSql == null) return CompletableFuture.completedFuture(0);
+
+        List<Parameter<?>> params = List.of(new UUIDParameter(uuid), new DoubleParameter(score));
+        return write(uuid, upsertSql, params);
+    }
+
+    /**
+     * Removes a player from the leaderboard in memory and queues the delete sql statement (if one was provided).
+     * @param uuid The {@link UUID} of the player.
+     * @return A {@link CompletableFuture} containing the number of rows updated. Completes with 0 if no delete sql statement was provided.
+     */
+    public @NotNull CompletableFuture<Integer> deleteScore(@NotNull UUID uuid) {
+        removeScore(uuid);
+
+        if(deleteSql == null) return CompletableFuture.completedFuture(0);
+
+        List<Parameter<?>> params = List.of(new UUIDParameter(uuid));
+        return write(uuid, deleteSql, params);
+    }
+
+    /**
+     * Sets a player's score in memory only. Use this if the score was already written to the database elsewhere.
+     * @param uuid The {@link UUID} of the player.
+     * @param score The player's new score.
+     */
+    public void updateScore(@NotNull UUID uuid, double score) {
+        lock.writeLock().lock();
+        try {
+            if(loading) changedDuringLoad.add(uuid);
+
+            Double oldScore = scores.put(uuid, score);
+            if(oldScore != null) tree.remove(oldScore, uuid);
+            tree.insert(score, uuid);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a player from the leaderboard in memory only.
+     * @param uuid The {@link UUID} of the player.
+     */
+    public void removeScore(@NotNull UUID uuid) {
+        lock.writeLock().lock();
+        try {
+            if(loading) changedDuringLoad.add(uuid);
+
+            Double oldScore = scores.remove(uuid);
+            if(oldScore != null) tree.remove(oldScore, uuid);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Get a player's score.
+     * @param uuid The {@link UUID} of the player.
+     * @return An {@link OptionalDouble} containing the player's score, or empty if the player is not on the leaderboard.
+     */
+    public @NotNull OptionalDouble getScore(@NotNull UUID uuid) {
+        lock.readLock().lock();
+        try {
+            Double score = scores.get(uuid);
+            return score == null ? OptionalDouble.empty() : OptionalDouble.of(score);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get a player's 1-based rank.
+     * @param uuid The {@link UUID} of the player.
+     * @return The player's rank, or -1 if the player is not on the leaderboard.
+     */
+    public int getRank(@NotNull UUID uuid) {
+        lock.readLock().lock();
+        try {
+            Double score = scores.get(uuid);
+            if(score == null) return -1;
+
+            return tree.rank(score, uuid) + 1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the entry at a 1-based rank.
+     * @param rank The rank.
+     * @return The {@link LeaderboardEntry}, or null if there is no entry at that rank.
+     */
+    public @Nullable LeaderboardEntry getEntry(int rank) {
+        List<LeaderboardEntry> entries = getRange(rank, 1);
+        return entries.isEmpty() ? null : entries.get(0);
+    }
+
+    /**
+     * Get the top entries of the leaderboard.
+     * @param limit The maximum number of entries to get.
+     * @return A {@link List} of {@link LeaderboardEntry}s in rank order.
+     */
+    public @NotNull List<@NotNull LeaderboardEntry> getTop(int limit) {
+        return getRange(1, limit);
+    }
+
+    /**
+     * Get the entries of the leaderboard starting at a 1-based rank, i.e., for a page of a GUI.
+     * @param fromRank The rank of the first entry.
+     * @param limit The maximum number of entries to get.
+     * @return A {@link List} of {@link LeaderboardEntry}s in rank order.
+     */
+    public @NotNull List<@NotNull LeaderboardEntry> getRange(int fromRank, int limit) {
+        if(fromRank < 1 || limit <= 0) return List.of();
+
+        lock.readLock().lock();
+        try {
+            List<LeaderboardEntry> entries = new ArrayList<>(Math.min(limit, tree.size()));
+            tree.visit(fromRank - 1, limit, node -> entries.add(new LeaderboardEntry(fromRank + entries.size(), node.uuid, node.score)));
+            return entries;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the number of players on the leaderboard.
+     * @return The number of players on the leaderboard.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return scores.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Queues a write for a player once the previous write for the same player has completed, so writes reach the database in order.
+     * @param uuid The {@link UUID} of the player being written.
+     * @param sql The sql statement.
+     * @param params The {@link Parameter}s of the sql statement.
+     * @return A {@link CompletableFuture} containing the number of rows updated.
+     */
+    private @NotNull CompletableFuture<Integer> write(@NotNull UUID uuid, @NotNull String sql, @NotNull List<Parameter<?>> params) {
+        CompletableFuture<Integer> future = pendingWrites.compute(uuid, (key, previous) -> previous == null
+                ? queueManager.queueWriteTransaction(sql, params, uuid)
+                : previous.handle((result, throwable) -> null).thenCompose(ignored -> queueManager.queueWriteTransaction(sql, params, uuid)));
+
+        // A load that started after the score was changed in memory may not have seen this write yet.
+        if(loading) changedDuringLoad.add(uuid);
+        future.whenComplete((result, throwable) -> pendingWrites.remove(uuid, future));
+
+        return future;
+    }
+
+    /**
+     * Replaces the scores in memory with the loaded scores, keeping any scores changed during the load.
+     * Must be called while holding the write lock.
+     * @param result The {@link ColumnarResult} containing the loaded scores.
+     */
+    private void apply(@NotNull ColumnarResult result) {
+        Map<UUID, Double> changedScores = new HashMap<>();
+        changedDuringLoad.forEach(uuid -> {
+            Double score = scores.get(uuid);
+            if(score != null) changedScores.put(uuid, score);
+        });
+
+        scores.clear();
+        tree.clear();
+
+        UUIDColumn uuids = result.getUUIDColumn(uuidColumn);
+        DoubleColumn loadedScores = result.getDoubleColumn(scoreColumn);
+        for(int row = 0; row < result.getRowCount(); row++) {
+            UUID uuid = uuids.get(row);
+            if(uuid == null || changedDuringLoad.contains(uuid)) continue;
+
+            double score = loadedScores.get(row);
+            Double duplicateScore = scores.put(uuid, score);
+            if(duplicateScore != null) tree.remove(duplicateScore, uuid);
+            tree.insert(score, uuid);
+        }
+
+        changedScores.forEach((uuid, score) -> {
+            scores.put(uuid, score);
+            tree.insert(score, uuid);
+        });
+    }
+}
@@ -0,0 +1,219 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.leaderboard;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * A treap where each node stores the size of its subtree, allowing the rank of a key and the key at a rank to be found in O(log n).
+ * Keys are ordered by score and then by {@link UUID} so that every key is unique.
+ * This class is not thread-safe. {@link Leaderboard} guards access to it.
+ */
+final class OrderStatisticTree {
+    private final boolean descending;
+    private @Nullable Node root;
+
+    /**
+     * Constructor
+     * @param descending true to order the highest score first, false to order the lowest score first.
+     */
+    OrderStatisticTree(boolean descending) {
+        this.descending = descending;
+    }
+
+    /**
+     * Get the number of keys in the tree.
+     * @return The number of keys in the tree.
+     */
+    int size() {
+        return size(root);
+    }
+
+    /**
+     * Removes all keys from the tree.
+     */
+    void clear() {
+        root = null;
+    }
+
+    /**
+     * Inserts a key. The key must not already be in the tree.
+     * @param score The score.
+     * @param uuid The {@link UUID}.
+     */
+    void insert(double score, @NotNull UUID uuid) {
+        Node node = new Node(score, uuid, ThreadLocalRandom.current().nextInt());
+        Node[] split = split(root, score, uuid);
+        root = merge(merge(split[0], node), split[1]);
+    }
+
+    /**
+     * Removes a key if it is in the tree.
+     * @param score The score.
+     * @param uuid The {@link UUID}.
+     */
+    void remove(double score, @NotNull UUID uuid) {
+        root = remove(root, score, uuid);
+    }
+
+    /**
+     * Get the number of keys ordered before the provided key.
+     * @param score The score.
+     * @param uuid The {@link UUID}.
+     * @return The 0-based rank of the key.
+     */
+    int rank(double score, @NotNull UUID uuid) {
+        int rank = 0;
+        Node node = root;
+        while(node != null) {
+            int compare = compare(score, uuid, node);
+            if(compare <= 0) {
+                if(compare == 0) return rank + size(node.left);
+                node = node.left;
+            } else {
+                rank += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+
+        return rank;
+    }
+
+    /**
+     * Visits the keys from the provided 0-based rank in order.
+     * @param fromRank The 0-based rank of the first key to visit.
+     * @param count The maximum number of keys to visit.
+     * @param consumer The {@link Consumer} given the nodes in order.
+     */
+    void visit(int fromRank, int count, @NotNull Consumer<@NotNull Node> consumer) {
+        visit(root, fromRank, count, consumer);
+    }
+
+    private int visit(@Nullable Node node, int skip, int count, @NotNull Consumer<@NotNull Node> consumer) {
+        if(node == null || count <= 0) return count;
+
+        int leftSize = size(node.left);
+        if(skip < leftSize) {
+            count = visit(node.left, skip, count, consumer);
+        }
+
+        if(count > 0 && skip <= leftSize) {
+            consumer.accept(node);
+            count--;
+        }
+
+        if(count > 0) {
+            count = visit(node.right, Math.max(0, skip - leftSize - 1), count, consumer);
+        }
+
+        return count;
+    }
+
+    private @Nullable Node remove(@Nullable Node node, double score, @NotNull UUID uuid) {
+        if(node == null) return null;
+
+        int compare = compare(score, uuid, node);
+        if(compare == 0) return merge(node.left, node.right);
+
+        if(compare < 0) {
+            node.left = remove(node.left, score, uuid);
+        } else {
+            node.right = remove(node.right, score, uuid);
+        }
+
+        node.update();
+        return node;
+    }
+
+    /**
+     * Splits a subtree into the keys ordered before the provided key and the keys ordered after it.
+     */
+    private @Nullable Node @NotNull [] split(@Nullable Node node, double score, @NotNull UUID uuid) {
+        if(node == null) return new Node[] {null, null};
+
+        if(compare(score, uuid, node) > 0) {
+            Node[] split = split(node.right, score, uuid);
+            node.right = split[0];
+            node.update();
+            return new Node[] {node, split[1]};
+        } else {
+            Node[] split = split(node.left, score, uuid);
+            node.left = split[1];
+            node.update();
+            return new Node[] {split[0], node};
+        }
+    }
+
+    private @Nullable Node merge(@Nullable Node left, @Nullable Node right) {
+        if(left == null) return right;
+        if(right == null) return left;
+
+        if(left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        } else {
+            right.left = merge(left, right.left);
+            right.update();
+            return right;
+        }
+    }
+
+    private int compare(double score, @NotNull UUID uuid, @NotNull Node node) {
+        int compare = descending ? Double.compare(node.score, score) : Double.compare(score, node.score);
+        if(compare != 0) return compare;
+
+        return uuid.compareTo(node.uuid);
+    }
+
+    private static int size(@Nullable Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * A node of the tree.
+     */
+    static final class Node {
+        final double score;
+        final @NotNull UUID uuid;
+        private final int priority;
+        private @Nullable Node left;
+        private @Nullable Node right;
+        private int size = 1;
+
+        private Node(double score, @NotNull UUID uuid, int priority) {
+            this.score = score;
+            this.uuid = uuid;
+            this.priority = priority;
+        }
+
+        private void update() {
+            size = 1 + OrderStatisticTree.size(left) + OrderStatisticTree.size(right);
+        }
+    }
+}
@@ -0,0 +1,408 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.maintenance;
+
+import com.github.lukesky19.skylib.api.adventure.AdventureUtil;
+import com.github.lukesky19.skylib.api.database.accounting.ResourceAccounting;
+import com.github.lukesky19.skylib.api.database.connection.AbstractConnectionManager;
+import com.github.lukesky19.skylib.api.database.event.ChangeDispatcher;
+import com.github.lukesky19.skylib.api.database.event.ChangeEvent;
+import com.github.lukesky19.skylib.api.database.event.ChangeSubscription;
+import com.github.lukesky19.skylib.api.database.queue.AbstractQueueManager;
+import com.github.lukesky19.skylib.api.database.queue.QueueState;
+import com.github.lukesky19.skylib.api.database.queue.util.QueueMetrics;
+import com.github.lukesky19.skylib.api.database.statement.SqlStatement;
+import com.github.lukesky19.skylib.internal.ThreadPoolManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs SQLite maintenance while the database queue is idle so that it never competes with interactive traffic.
+ * Every check interval it reads the queue's {@link QueueMetrics}. Once the queue has run no other tasks for the configured idle time,
+ * it runs ANALYZE on each table changed since it was last analyzed, PRAGMA optimize once per optimize interval,
+ * and PRAGMA incremental_vacuum in small steps if the database uses incremental auto vacuum.
+ * Each step is a single queued task with a row limit and a timeout, and the queue is checked again before the next step,
+ * so the window ends as soon as any other task is queued.
+ * The changed tables are collected from the writes of the connection manager's plugin using {@link ChangeDispatcher}.
+ */
+public class MaintenanceScheduler {
+    // The time to wait after a step before checking if the queue is still idle, so other tasks queued meanwhile are seen in the metrics.
+    private static final long STEP_PAUSE_MILLIS = 50;
+    // Restores SQLite's default of no analysis limit, so other ANALYZE statements run on the pooled connection are not limited.
+    private static final @NotNull String RESET_ANALYSIS_LIMIT = "PRAGMA analysis_limit = 0";
+    // The value of PRAGMA auto_vacuum when incremental vacuum is enabled.
+    private static final int AUTO_VACUUM_INCREMENTAL = 2;
+
+    private final @NotNull AbstractConnectionManager connectionManager;
+    private final @NotNull AbstractQueueManager queueManager;
+    private final @NotNull MaintenanceSettings settings;
+    private final @NotNull Set<String> changedTables = ConcurrentHashMap.newKeySet();
+    private final @NotNull AtomicLong ownTasksCompleted = new AtomicLong();
+    private @Nullable ScheduledFuture<?> checkTask;
+    private @Nullable ChangeSubscription subscription;
+    private @Nullable QueueMetrics.Snapshot lastSnapshot;
+    private long idleSince;
+    private long lastOptimize;
+    private boolean optimized = false;
+    private boolean vacuumPending = true;
+    private @Nullable Integer autoVacuumMode;
+    private boolean running = false;
+    private long windowStart;
+    private int analyzedTables;
+    private boolean windowOptimized;
+    private long vacuumedPages;
+
+    /**
+     * Constructor
+     * @param connectionManager The {@link AbstractConnectionManager} of the database. Its plugin is used for logging and to collect changed tables.
+     * @param queueManager The {@link AbstractQueueManager} whose metrics are checked and that runs the maintenance steps.
+     * @param settings The {@link MaintenanceSettings}.
+     */
+    public MaintenanceScheduler(
+            @NotNull AbstractConnectionManager connectionManager,
+            @NotNull AbstractQueueManager queueManager,
+            @NotNull MaintenanceSettings settings) {
+        this.connectionManager = connectionManager;
+        this.queueManager = queueManager;
+        this.settings = settings;
+    }
+
+    /**
+     * Starts collecting changed tables and checking for idle windows.
+     */
+    public synchronized void start() {
+        if(checkTask != null) return;
+
+        String pluginName = connectionManager.getPlugin().getName();
+        subscription = ChangeDispatcher.subscribe(connectionManager.getPlugin(), null, events -> {
+            for(ChangeEvent event : events) {
+                if(event.pluginName().equals(pluginName)) changedTables.add(event.table());
+            }
+        });
+
+        lastSnapshot = queueManager.getQueueMetrics().snapshot();
+        idleSince = System.nanoTime();
+        checkTask = ThreadPoolManager.getThreadPoolExecutor().scheduleAtFixedRate(
+                ResourceAccounting.wrap(pluginName, this::check), settings.checkIntervalSeconds(), settings.checkIntervalSeconds(), TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops checking for idle windows. A step that is already queued is allowed to finish, but no further steps are run.
+     */
+    public synchronized void stop() {
+        if(checkTask != null) {
+            checkTask.cancel(false);
+            checkTask = null;
+        }
+
+        if(subscription != null) {
+            ChangeDispatcher.unsubscribe(subscription);
+            subscription = null;
+        }
+    }
+
+    /**
+     * Get the tables that have changed since they were last analyzed.
+     * @return A copy of the table names.
+     */
+    public @NotNull Set<String> getChangedTables() {
+        return Set.copyOf(changedTables);
+    }
+
+    /**
+     * Checks if the queue is idle and starts a maintenance window once it has been idle long enough and there is work to do.
+     */
+    private synchronized void check() {
+        try {
+            if(running) return;
+
+            if(queueManager.getQueueState() != QueueState.RUNNING) {
+                stop();
+                return;
+            }
+
+            long now = System.nanoTime();
+            if(!sampleIdle()) {
+                idleSince = now;
+                return;
+            }
+
+            if(now - idleSince < TimeUnit.SECONDS.toNanos(settings.idleSeconds()) || !hasWork()) return;
+
+            running = true;
+            windowStart = now;
+            analyzedTables = 0;
+            windowOptimized = false;
+            vacuumedPages = 0;
+            runStep();
+        } catch (RuntimeException e) {
+            running = false;
+            connectionManager.getPlugin().getComponentLogger().error(AdventureUtil.serialize("Failed to check for idle database maintenance: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Reads the queue metrics since the last sample and checks if any task other than the maintenance steps ran or is waiting.
+     * @return true if the queue is idle.
+     */
+    private boolean sampleIdle() {
+        QueueMetrics.Snapshot snapshot = queueManager.getQueueMetrics().snapshot();
+        QueueMetrics.Snapshot interval = lastSnapshot == null ? snapshot : snapshot.since(lastSnapshot);
+        lastSnapshot = snapshot;
+
+        // A maintenance step's future can complete before its metrics are recorded, so any surplus is carried over to the next sample.
+        long ownTasks = ownTasksCompleted.getAndSet(0);
+        long otherTasks = interval.tasks() + interval.skippedTasks() - ownTasks;
+        if(otherTasks < 0) {
+            ownTasksCompleted.addAndGet(-otherTasks);
+            otherTasks = 0;
+        }
+
+        return otherTasks == 0 && queueManager.getSubmittedTaskCount() == 0 && !queueManager.isQueuePaused();
+    }
+
+    /**
+     * Checks if any maintenance is due.
+     * @return true if a table needs analyzing, PRAGMA optimize is due, or free pages may need vacuuming.
+     */
+    private boolean hasWork() {
+        return !changedTables.isEmpty() || isOptimizeDue() || vacuumPending;
+    }
+
+    /**
+     * Checks if the optimize interval has passed since PRAGMA optimize last ran.
+     * @return true if PRAGMA optimize is due.
+     */
+    private boolean isOptimizeDue() {
+        return !optimized || System.nanoTime() - lastOptimize >= TimeUnit.MINUTES.toNanos(settings.optimizeIntervalMinutes());
+    }
+
+    /**
+     * Runs the next maintenance step and then continues or ends the window.
+     */
+    private void runStep() {
+        nextStep().whenComplete((ran, throwable) -> {
+            synchronized(this) {
+                if(throwable != null) {
+                    connectionManager.getPlugin().getComponentLogger().error(AdventureUtil.serialize("Database maintenance failed: " + throwable.getMessage()));
+                    finishWindow(false);
+                } else if(ran) {
+                    ThreadPoolManager.getThreadPoolExecutor().schedule(
+                            ResourceAccounting.wrap(connectionManager.getPlugin().getName(), this::continueWindow), STEP_PAUSE_MILLIS, TimeUnit.MILLISECONDS);
+                } else {
+                    finishWindow(false);
+                }
+            }
+        });
+    }
+
+    /**
+     * Runs the next step if the scheduler is still started and the queue is still idle. Otherwise, ends the window so it yields to the other tasks.
+     */
+    private synchronized void continueWindow() {
+        try {
+            if(checkTask == null || queueManager.getQueueState() != QueueState.RUNNING) {
+                finishWindow(true);
+                return;
+            }
+
+            if(!sampleIdle()) {
+                idleSince = System.nanoTime();
+                finishWindow(true);
+                return;
+            }
+
+            runStep();
+        } catch (RuntimeException e) {
+            connectionManager.getPlugin().getComponentLogger().error(AdventureUtil.serialize("Database maintenance failed: " + e.getMessage()));
+            finishWindow(false);
+        }
+    }
+
+    /**
+     * Queues the next maintenance step. Changed tables are analyzed first, then PRAGMA optimize runs if due, then free pages are vacuumed.
+     * @return A {@link CompletableFuture} containing true if a step ran, or false if there is no work left.
+     */
+    private synchronized @NotNull CompletableFuture<Boolean> nextStep() {
+        Iterator<String> iterator = changedTables.iterator();
+        if(iterator.hasNext()) {
+            String table = iterator.next();
+            changedTables.remove(table);
+            return analyze(table);
+        }
+
+        if(isOptimizeDue()) return optimize();
+
+        if(vacuumPending) return vacuum();
+
+        return CompletableFuture.completedFuture(false);
+    }
+
+    /**
+     * Runs ANALYZE on a table, examining at most the configured number of rows per index.
+     * The analysis limit is set on the connection for the step and reset afterward, as it would otherwise stay set on the pooled connection.
+     * A table that fails to analyze (for example because it was dropped) is logged and skipped.
+     * @param table The name of the table.
+     * @return A {@link CompletableFuture} containing true.
+     */
+    private @NotNull CompletableFuture<Boolean> analyze(@NotNull String table) {
+        List<SqlStatement> statements = List.of(
+                new SqlStatement("PRAGMA analysis_limit = " + settings.analysisLimit()),
+                new SqlStatement("ANALYZE \"" + table.replace("\"", "\"\"") + "\""),
+                new SqlStatement(RESET_ANALYSIS_LIMIT));
+
+        return own(queueManager.queueStatementTransaction(statements)).handle((result, throwable) -> {
+            synchronized(this) {
+                if(throwable != null) {
+                    connectionManager.getPlugin().getComponentLogger().error(AdventureUtil.serialize("Failed to analyze table " + table + ": " + throwable.getMessage()));
+                } else {
+                    analyzedTables++;
+                }
+            }
+
+            return true;
+        });
+    }
+
+    /**
+     * Runs PRAGMA optimize, which analyzes the tables whose statistics are out of date. Also schedules a check for free pages.
+     * The analysis limit is set on the connection for the step and reset afterward.
+     * @return A {@link CompletableFuture} containing true.
+     */
+    private @NotNull CompletableFuture<Boolean> optimize() {
+        List<SqlStatement> statements = List.of(
+                new SqlStatement("PRAGMA analysis_limit = " + settings.analysisLimit()),
+                new SqlStatement("PRAGMA optimize"),
+                new SqlStatement(RESET_ANALYSIS_LIMIT));
+
+        return own(queueManager.queueStatementTransaction(statements)).thenApply(result -> {
+            synchronized(this) {
+                optimized = true;
+                lastOptimize = System.nanoTime();
+                windowOptimized = true;
+                vacuumPending = true;
+            }
+
+            return true;
+        });
+    }
+
+    /**
+     * Returns up to the configured number of free pages to the file system using PRAGMA incremental_vacuum.
+     * Does nothing if the database does not use incremental auto vacuum or has no free pages.
+     * @return A {@link CompletableFuture} containing true if pages were vacuumed.
+     */
+    private @NotNull CompletableFuture<Boolean> vacuum() {
+        CompletableFuture<Integer> modeFuture = autoVacuumMode != null
+                ? CompletableFuture.completedFuture(autoVacuumMode)
+                : own(queueManager.queueReadTransaction("PRAGMA auto_vacuum", MaintenanceScheduler::readInt));
+
+        return modeFuture.thenCompose(mode -> {
+            synchronized(this) {
+                if(autoVacuumMode == null && mode != AUTO_VACUUM_INCREMENTAL) {
+                    connectionManager.getPlugin().getComponentLogger().info(AdventureUtil.serialize("Incremental vacuum is disabled because the database does not use PRAGMA auto_vacuum = INCREMENTAL."));
+                }
+
+                autoVacuumMode = mode;
+                if(mode != AUTO_VACUUM_INCREMENTAL) {
+                    vacuumPending = false;
+                    return CompletableFuture.completedFuture(false);
+                }
+            }
+
+            return own(queueManager.queueReadTransaction("PRAGMA freelist_count", MaintenanceScheduler::readInt)).thenCompose(freePages -> {
+                if(freePages == 0) {
+                    synchronized(this) {
+                        vacuumPending = false;
+                    }
+
+                    return CompletableFuture.completedFuture(false);
+                }
+
+                int pages = Math.min(freePages, settings.vacuumPagesPerStep());
+                return own(queueManager.queueWriteTransaction("PRAGMA incremental_vacuum(" + pages + ")")).thenApply(result -> {
+                    synchronized(this) {
+                        vacuumedPages += pages;
+                    }
+
+                    return true;
+                });
+            });
+        });
+    }
+
+    /**
+     * Applies the step timeout to a queued maintenance task and counts it once it completes, so it is not mistaken for other traffic.
+     * @param future The {@link CompletableFuture} of the queued task.
+     * @return The {@link CompletableFuture}, which completes exceptionally if the step timed out.
+     * @param <T> The result of the task.
+     */
+    private <T> @NotNull CompletableFuture<T> own(@NotNull CompletableFuture<T> future) {
+        future.orTimeout(settings.stepTimeoutSeconds(), TimeUnit.SECONDS);
+        future.whenComplete((result, throwable) -> ownTasksCompleted.incrementAndGet());
+        return future;
+    }
+
+    /**
+     * Ends the current maintenance window and logs what was done.
+     * @param interrupted Whether the window ended because other tasks were queued.
+     */
+    private synchronized void finishWindow(boolean interrupted) {
+        if(!running) return;
+        running = false;
+
+        if(analyzedTables == 0 && !windowOptimized && vacuumedPages == 0) return;
+
+        StringBuilder message = new StringBuilder("Database maintenance ").append(interrupted ? "paused" : "finished")
+                .append(" after ").append(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - windowStart)).append("ms: ")
+                .append("analyzed ").append(analyzedTables).append(" tables, ");
+        if(windowOptimized) message.append("ran PRAGMA optimize, ");
+        message.append("vacuumed ").append(vacuumedPages).append(" pages.");
+
+        connectionManager.getPlugin().getComponentLogger().info(AdventureUtil.serialize(message.toString()));
+    }
+
+    /**
+     * Reads the integer in the first column of the first row of a PRAGMA result.
+     * @param resultSet The {@link ResultSet}.
+     * @return The integer, or 0 if there are no rows.
+     */
+    private static int readInt(@NotNull ResultSet resultSet) {
+        try(resultSet) {
+            return resultSet.next() ? resultSet.getInt(1) : 0;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
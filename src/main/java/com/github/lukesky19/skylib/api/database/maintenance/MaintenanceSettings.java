@@ -0,0 +1,59 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.maintenance;
+
+/**
+ * The intervals and limits used by a {@link MaintenanceScheduler}.
+ * @param checkIntervalSeconds How often, in seconds, the queue metrics are checked for an idle window.
+ * @param idleSeconds How long, in seconds, the queue must have run no tasks before maintenance starts.
+ * @param optimizeIntervalMinutes The minimum time, in minutes, between runs of PRAGMA optimize.
+ * @param analysisLimit The approximate number of rows ANALYZE examines in each index, or 0 to examine every row.
+ * @param vacuumPagesPerStep The number of free pages each incremental vacuum step returns to the file system.
+ * @param stepTimeoutSeconds The maximum time, in seconds, a single maintenance step may run before it is cancelled.
+ */
+public record MaintenanceSettings(
+        long checkIntervalSeconds,
+        long idleSeconds,
+        long optimizeIntervalMinutes,
+        int analysisLimit,
+        int vacuumPagesPerStep,
+        long stepTimeoutSeconds) {
+    /**
+     * Constructor
+     * @param checkIntervalSeconds How often, in seconds, the queue metrics are checked for an idle window.
+     * @param idleSeconds How long, in seconds, the queue must have run no tasks before maintenance starts.
+     * @param optimizeIntervalMinutes The minimum time, in minutes, between runs of PRAGMA optimize.
+     * @param analysisLimit The approximate number of rows ANALYZE examines in each index, or 0 to examine every row.
+     * @param vacuumPagesPerStep The number of free pages each incremental vacuum step returns to the file system.
+     * @param stepTimeoutSeconds The maximum time, in seconds, a single maintenance step may run before it is cancelled.
+     * @throws IllegalArgumentException If an interval, the vacuum step or the step timeout is less than 1, or if the idle time or analysis limit is negative.
+     */
+    public MaintenanceSettings {
+        if(checkIntervalSeconds < 1) throw new IllegalArgumentException("The check interval must be at least 1 second.");
+        if(idleSeconds < 0) throw new IllegalArgumentException("The idle time must not be negative.");
+        if(optimizeIntervalMinutes < 1) throw new IllegalArgumentException("The optimize interval must be at least 1 minute.");
+        if(analysisLimit < 0) throw new IllegalArgumentException("The analysis limit must not be negative.");
+        if(vacuumPagesPerStep < 1) throw new IllegalArgumentException("The vacuum step must be at least 1 page.");
+        if(stepTimeoutSeconds < 1) throw new IllegalArgumentException("The step timeout must be at least 1 second.");
+    }
+}
@@ -0,0 +1,368 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.mirror;
+
+import com.github.lukesky19.skylib.api.database.parameter.Parameter;
+import com.github.lukesky19.skylib.api.database.queue.QueueManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * An in-memory copy of a small table that is read often, i.e., per-player settings or flags.
+ * The table is loaded once, reads are answered from memory without a database round trip, and writes update memory immediately
+ * and are then queued to be written through to the database.
+ * Writes for the same key are written to the database in the order they were made, even with a {@link com.github.lukesky19.skylib.api.database.queue.MultiThreadQueueManager}.
+ * All methods are safe to call from any thread, including the main thread. Reads never block. Values should be immutable, i.e., records.
+ * Create one using {@link #builder(QueueManager, String, Function, Function)}.
+ * @param <K> The type of the key, i.e., the player's {@link java.util.UUID}.
+ * @param <V> The type of the value stored for each key.
+ */
+public class HotTableMirror<K, V> {
+    private final @NotNull QueueManager queueManager;
+    private final @NotNull String loadSql;
+    private final @NotNull Function<ResultSet, K> keyMapper;
+    private final @NotNull Function<ResultSet, V> valueMapper;
+    private final @Nullable String upsertSql;
+    private final @Nullable BiFunction<K, V, List<Parameter<?>>> upsertParams;
+    private final @Nullable String deleteSql;
+    private final @Nullable Function<K, List<Parameter<?>>> deleteParams;
+    private final @NotNull Map<K, V> values = new ConcurrentHashMap<>();
+    private final @NotNull Map<K, CompletableFuture<Integer>> pendingWrites = new ConcurrentHashMap<>();
+    private final @NotNull Set<K> changedDuringLoad = ConcurrentHashMap.newKeySet();
+    private final @NotNull Object loadLock = new Object();
+    private volatile boolean loading = false;
+    private volatile boolean loaded = false;
+    private @Nullable CompletableFuture<Integer> loadFuture;
+
+    /**
+     * Constructor
+     * @param builder The {@link Builder} to create the HotTableMirror from.
+     */
+    private HotTableMirror(@NotNull Builder<K, V> builder) {
+        this.queueManager = builder.queueManager;
+        this.loadSql = builder.loadSql;
+        this.keyMapper = builder.keyMapper;
+        this.valueMapper = builder.valueMapper;
+        this.upsertSql = builder.upsertSql;
+        this.upsertParams = builder.upsertParams;
+        this.deleteSql = builder.deleteSql;
+        this.deleteParams = builder.deleteParams;
+    }
+
+    /**
+     * Creates a {@link Builder} for a HotTableMirror.
+     * @param queueManager The {@link QueueManager} used to load the table and write changes.
+     * @param loadSql The sql statement that selects every row of the table, i.e., "SELECT uuid, flags FROM player_settings".
+     * @param keyMapper The function that maps the current row of the {@link ResultSet} to its key. It must not move the cursor.
+     * @param valueMapper The function that maps the current row of the {@link ResultSet} to its value. It must not move the cursor.
+     * @return A new {@link Builder}.
+     * @param <K> The type of the key.
+     * @param <V> The type of the value.
+     */
+    public static <K, V> @NotNull Builder<K, V> builder(
+            @NotNull QueueManager queueManager,
+            @NotNull String loadSql,
+            @NotNull Function<ResultSet, K> keyMapper,
+            @NotNull Function<ResultSet, V> valueMapper) {
+        return new Builder<>(queueManager, loadSql, keyMapper, valueMapper);
+    }
+
+    /**
+     * Loads every row from the database, replacing any values in memory.
+     * Keys that are changed while the load is in progress, or whose write has not completed yet, keep their value in memory instead of the loaded value.
+     * If a load is already in progress, its {@link CompletableFuture} is returned instead of starting another.
+     * @return A {@link CompletableFuture} containing the number of rows in memory once loaded.
+     */
+    public @NotNull CompletableFuture<Integer> load() {
+        synchronized(loadLock) {
+            // Concurrent loads would share, and clear, the same set of keys changed during the load.
+            if(loadFuture != null) return loadFuture;
+
+            changedDuringLoad.clear();
+            loading = true;
+            // The load may read the database before these writes are committed.
+            changedDuringLoad.addAll(pendingWrites.keySet());
+
+            CompletableFuture<Integer> future = queueManager.queueReadTransaction(loadSql, this::readRows).thenApply(rows -> {
+                synchronized(loadLock) {
+                    apply(rows);
+                    loaded = true;
+                    return values.size();
+                }
+            }).whenComplete((size, throwable) -> {
+                synchronized(loadLock) {
+                    loading = false;
+                    changedDuringLoad.clear();
+                    loadFuture = null;
+                }
+            });
+
+            // The load may have already completed on this thread, i.e., if the queue rejected it.
+            if(!future.isDone()) loadFuture = future;
+            return future;
+        }
+    }
+
+    /**
+     * Checks if the table has been loaded.
+     * @return true if {@link #load()} has completed at least once.
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Get the value for a key.
+     * @param key The key.
+     * @return The value, or null if there is no row for the key.
+     */
+    public @Nullable V get(@NotNull K key) {
+        return values.get(key);
+    }
+
+    /**
+     * Get the value for a key, or a default value if there is no row for the key.
+     * @param key The key.
+     * @param defaultValue The value to return if there is no row for the key.
+     * @return The value, or the default value.
+     */
+    public V getOrDefault(@NotNull K key, V defaultValue) {
+        return values.getOrDefault(key, defaultValue);
+    }
+
+    /**
+     * Checks if there is a row for a key.
+     * @param key The key.
+     * @return true if there is a row for the key.
+     */
+    public boolean contains(@NotNull K key) {
+        return values.containsKey(key);
+    }
+
+    /**
+     * Get the number of rows in memory.
+     * @return The number of rows.
+     */
+    public int size() {
+        return values.size();
+    }
+
+    /**
+     * Get every row in memory.
+     * @return An unmodifiable view of the rows, which reflects later changes.
+     */
+    public @NotNull Map<K, V> getAll() {
+        return Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * Sets the value for a key in memory and queues it to be written to the database using the upsert sql statement (if one was provided).
+     * @param key The key.
+     * @param value The new value.
+     * @return A {@link CompletableFuture} containing the number of rows updated. Completes with 0 if no upsert sql statement was provided.
+     */
+    public @NotNull CompletableFuture<Integer> put(@NotNull K key, @NotNull V value) {
+        putLocal(key, value);
+
+        if(upsertSql == null || upsertParams == null) return CompletableFuture.completedFuture(0);
+
+        List<Parameter<?>> params = upsertParams.apply(key, value);
+        return write(key, upsertSql, params);
+    }
+
+    /**
+     * Removes the row for a key in memory and queues the delete sql statement (if one was provided).
+     * @param key The key.
+     * @return A {@link CompletableFuture} containing the number of rows updated. Completes with 0 if no delete sql statement was provided.
+     */
+    public @NotNull CompletableFuture<Integer> remove(@NotNull K key) {
+        removeLocal(key);
+
+        if(deleteSql == null || deleteParams == null) return CompletableFuture.completedFuture(0);
+
+        List<Parameter<?>> params = deleteParams.apply(key);
+        return write(key, deleteSql, params);
+    }
+
+    /**
+     * Sets the value for a key in memory only. Use this if the row was already written to the database elsewhere.
+     * @param key The key.
+     * @param value The new value.
+     */
+    public void putLocal(@NotNull K key, @NotNull V value) {
+        synchronized(loadLock) {
+            if(loading) changedDuringLoad.add(key);
+            values.put(key, value);
+        }
+    }
+
+    /**
+     * Removes the row for a key in memory only.
+     * @param key The key.
+     */
+    public void removeLocal(@NotNull K key) {
+        synchronized(loadLock) {
+            if(loading) changedDuringLoad.add(key);
+            values.remove(key);
+        }
+    }
+
+    /**
+     * Get a {@link CompletableFuture} that completes once every write queued so far has been written.
+     * @return A {@link CompletableFuture} of type {@link Void}.
+     */
+    public @NotNull CompletableFuture<Void> flush() {
+        return CompletableFuture.allOf(pendingWrites.values().stream()
+                .map(future -> future.handle((result, throwable) -> null))
+                .toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * Queues a write for a key once the previous write for the same key has completed, so writes reach the database in order.
+     * @param key The key being written.
+     * @param sql The sql statement.
+     * @param params The {@link Parameter}s of the sql statement.
+     * @return A {@link CompletableFuture} containing the number of rows updated.
+     */
+    private @NotNull CompletableFuture<Integer> write(@NotNull K key, @NotNull String sql, @NotNull List<Parameter<?>> params) {
+        CompletableFuture<Integer> future = pendingWrites.compute(key, (k, previous) -> previous == null
+                ? queueManager.queueWriteTransaction(sql, params, key)
+                : previous.handle((result, throwable) -> null).thenCompose(ignored -> queueManager.queueWriteTransaction(sql, params, key)));
+
+        // A load that started after the value was changed in memory may not have seen this write yet.
+        if(loading) changedDuringLoad.add(key);
+        future.whenComplete((result, throwable) -> pendingWrites.remove(key, future));
+
+        return future;
+    }
+
+    /**
+     * Reads every row of the {@link ResultSet}.
+     * @param resultSet The {@link ResultSet} of the load sql statement.
+     * @return A {@link Map} of every key to its value.
+     * @throws RuntimeException If an {@link SQLException} occurs.
+     */
+    private @NotNull Map<K, V> readRows(@NotNull ResultSet resultSet) {
+        Map<K, V> rows = new HashMap<>();
+        try {
+            while(resultSet.next()) {
+                rows.put(keyMapper.apply(resultSet), valueMapper.apply(resultSet));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+
+        return rows;
+    }
+
+    /**
+     * Replaces the values in memory with the loaded rows, keeping keys that were changed during the load.
+     * Must be called while holding the load lock.
+     * @param rows The loaded rows.
+     */
+    private void apply(@NotNull Map<K, V> rows) {
+        values.keySet().removeIf(key -> !rows.containsKey(key) && !changedDuringLoad.contains(key));
+
+        rows.forEach((key, value) -> {
+            if(!changedDuringLoad.contains(key)) values.put(key, value);
+        });
+    }
+
+    /**
+     * Builds a {@link HotTableMirror}.
+     * @param <K> The type of the key.
+     * @param <V> The type of the value.
+     */
+    public static class Builder<K, V> {
+        private final @NotNull QueueManager queueManager;
+        private final @NotNull String loadSql;
+        private final @NotNull Function<ResultSet, K> keyMapper;
+        private final @NotNull Function<ResultSet, V> valueMapper;
+        private @Nullable String upsertSql;
+        private @Nullable BiFunction<K, V, List<Parameter<?>>> upsertParams;
+        private @Nullable String deleteSql;
+        private @Nullable Function<K, List<Parameter<?>>> deleteParams;
+
+        /**
+         * Constructor
+         * @param queueManager The {@link QueueManager} used to load the table and write changes.
+         * @param loadSql The sql statement that selects every row of the table.
+         * @param keyMapper The function that maps the current row of the {@link ResultSet} to its key.
+         * @param valueMapper The function that maps the current row of the {@link ResultSet} to its value.
+         */
+        private Builder(
+                @NotNull QueueManager queueManager,
+                @NotNull String loadSql,
+                @NotNull Function<ResultSet, K> keyMapper,
+                @NotNull Function<ResultSet, V> valueMapper) {
+            this.queueManager = queueManager;
+            this.loadSql = loadSql;
+            this.keyMapper = keyMapper;
+            this.valueMapper = valueMapper;
+        }
+
+        /**
+         * Sets the sql statement used to write a row when a value is put.
+         * @param sql The upsert sql statement, i.e., "INSERT INTO player_settings (uuid, flags) VALUES (?, ?) ON CONFLICT (uuid) DO UPDATE SET flags = excluded.flags".
+         * @param params The function that creates the {@link Parameter}s of the sql statement from the key and value.
+         * @return This Builder.
+         */
+        public @NotNull Builder<K, V> upsert(@NotNull String sql, @NotNull BiFunction<K, V, List<Parameter<?>>> params) {
+            this.upsertSql = sql;
+            this.upsertParams = params;
+            return this;
+        }
+
+        /**
+         * Sets the sql statement used to delete a row when a key is removed.
+         * @param sql The delete sql statement, i.e., "DELETE FROM player_settings WHERE uuid = ?".
+         * @param params The function that creates the {@link Parameter}s of the sql statement from the key.
+         * @return This Builder.
+         */
+        public @NotNull Builder<K, V> delete(@NotNull String sql, @NotNull Function<K, List<Parameter<?>>> params) {
+            this.deleteSql = sql;
+            this.deleteParams = params;
+            return this;
+        }
+
+        /**
+         * Builds the {@link HotTableMirror}. It is empty until {@link HotTableMirror#load()} is called.
+         * @return A new {@link HotTableMirror}.
+         */
+        public @NotNull HotTableMirror<K, V> build() {
+            return new HotTableMirror<>(this);
+        }
+    }
+}
@@ -0,0 +1,541 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.pagination;
+
+import com.github.lukesky19.skylib.api.database.event.ChangeDispatcher;
+import com.github.lukesky19.skylib.api.database.event.ChangeSubscription;
+import com.github.lukesky19.skylib.api.database.parameter.Parameter;
+import com.github.lukesky19.skylib.api.database.queue.QueueManager;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Pages through an ordered table using keyset ("seek") queries instead of LIMIT and OFFSET.
+ * Each page is read with a WHERE clause that starts after the last row of the previous page, so with an index on the ORDER BY columns
+ * every page costs an index seek, however deep it is. The last key of every loaded page is cached so that moving back and forth between
+ * pages never rescans. Jumping ahead to a page whose previous page was never loaded seeks from the nearest cached page and skips the rows
+ * in between once. The next page can be prefetched in the background so that it is ready when the player clicks next.
+ * The ORDER BY columns must not contain NULL values, and the last ORDER BY column must be unique (i.e., the primary key) so that the order is total.
+ * The cached keys and the prefetched page may become stale when the table changes; call {@link #invalidate()} or use {@link Builder#invalidateOnChange(Plugin)}.
+ * Create one using {@link #builder(QueueManager, String, Function)}.
+ * @param <T> The type of the mapped rows.
+ */
+public class KeysetPaginator<T> {
+    /**
+     * The direction of an ORDER BY column.
+     */
+    public enum Direction {
+        /**
+         * Smallest values first.
+         */
+        ASC,
+        /**
+         * Largest values first.
+         */
+        DESC
+    }
+
+    private final @NotNull QueueManager queueManager;
+    private final @NotNull Function<ResultSet, T> rowMapper;
+    private final @NotNull List<String> orderColumns;
+    private final @NotNull List<Direction> directions;
+    private final @NotNull List<Parameter<?>> filterParams;
+    private final int pageSize;
+    private final boolean prefetch;
+    private final @NotNull String firstPageSql;
+    private final @NotNull String pageSql;
+    private final @NotNull String firstBoundarySql;
+    private final @NotNull String boundarySql;
+    private final @NotNull String countSql;
+    private final @NotNull Map<Integer, List<Object>> boundaries = new ConcurrentHashMap<>();
+    private final @NotNull AtomicReference<Prefetch<T>> prefetchedPage = new AtomicReference<>();
+    private final @NotNull AtomicReference<CompletableFuture<Integer>> rowCount = new AtomicReference<>();
+    private final @NotNull AtomicInteger generation = new AtomicInteger();
+    private final @Nullable ChangeSubscription subscription;
+
+    /**
+     * Constructor
+     * @param builder The {@link Builder} to create the KeysetPaginator from.
+     */
+    private KeysetPaginator(@NotNull Builder<T> builder) {
+        queueManager = builder.queueManager;
+        rowMapper = builder.rowMapper;
+        orderColumns = List.copyOf(builder.orderColumns);
+        directions = List.copyOf(builder.directions);
+        filterParams = List.copyOf(builder.filterParams);
+        pageSize = builder.pageSize;
+        prefetch = builder.prefetch;
+
+        List<String> selectColumns = new ArrayList<>(builder.selectColumns);
+        if(!selectColumns.isEmpty()) {
+            // The key of each row is read from the result, so the ORDER BY columns must be selected.
+            for(String column : orderColumns) {
+                if(selectColumns.stream().noneMatch(selected -> selected.equalsIgnoreCase(column))) selectColumns.add(column);
+            }
+        }
+
+        String select = selectColumns.isEmpty() ? "*" : String.join(", ", selectColumns.stream().map(KeysetPaginator::quote).toList());
+        String keySelect = String.join(", ", orderColumns.stream().map(KeysetPaginator::quote).toList());
+        String from = " FROM " + quote(builder.table);
+        String filter = builder.filter == null ? null : "(" + builder.filter + ")";
+        String seek = createSeekCondition();
+        String orderBy = createOrderBy();
+
+        String firstWhere = filter == null ? "" : " WHERE " + filter;
+        String seekWhere = " WHERE " + (filter == null ? seek : filter + " AND " + seek);
+
+        firstPageSql = "SELECT " + select + from + firstWhere + orderBy + " LIMIT " + (pageSize + 1);
+        pageSql = "SELECT " + select + from + seekWhere + orderBy + " LIMIT " + (pageSize + 1);
+        firstBoundarySql = "SELECT " + keySelect + from + firstWhere + orderBy + " LIMIT 1 OFFSET ?";
+        boundarySql = "SELECT " + keySelect + from + seekWhere + orderBy + " LIMIT 1 OFFSET ?";
+        countSql = "SELECT COUNT(*)" + from + firstWhere;
+
+        subscription = builder.changeOwner == null ? null
+                : ChangeDispatcher.subscribe(builder.changeOwner, Set.of(builder.table), events -> invalidate());
+    }
+
+    /**
+     * Creates a {@link Builder} for a KeysetPaginator over the given table.
+     * @param queueManager The {@link QueueManager} to queue the page reads on.
+     * @param table The name of the table.
+     * @param rowMapper The function that maps the current row of the {@link ResultSet} to {@link T}. It must not move the cursor.
+     * @return A new {@link Builder}.
+     * @param <T> The type of the mapped rows.
+     */
+    public static <T> @NotNull Builder<T> builder(@NotNull QueueManager queueManager, @NotNull String table, @NotNull Function<ResultSet, T> rowMapper) {
+        return new Builder<>(queueManager, table, rowMapper);
+    }
+
+    /**
+     * Get the number of rows on each page.
+     * @return The page size.
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Loads a page. If prefetching is enabled and there is a next page, the next page is loaded in the background once this page has loaded.
+     * @param index The 0-based index of the page.
+     * @return A {@link CompletableFuture} containing the {@link Page}, which is empty if the page is past the end.
+     * @throws IllegalArgumentException If the index is negative.
+     */
+    public @NotNull CompletableFuture<Page<T>> getPage(int index) {
+        if(index < 0) throw new IllegalArgumentException("The page index cannot be negative.");
+
+        Prefetch<T> prefetched = prefetchedPage.get();
+        CompletableFuture<Page<T>> future;
+        if(prefetched != null && prefetched.index() == index && prefetched.generation() == generation.get()
+                && !prefetched.future().isCompletedExceptionally() && prefetchedPage.compareAndSet(prefetched, null)) {
+            future = prefetched.future();
+        } else {
+            future = loadPage(index);
+        }
+
+        if(prefetch) {
+            future.thenAccept(page -> {
+                if(!page.hasNext()) return;
+
+                int generationAtPrefetch = generation.get();
+                Prefetch<T> current = prefetchedPage.get();
+                if(current != null && current.index() == index + 1 && current.generation() == generationAtPrefetch) return;
+
+                prefetchedPage.set(new Prefetch<>(index + 1, generationAtPrefetch, loadPage(index + 1)));
+            });
+        }
+
+        return future;
+    }
+
+    /**
+     * Counts the pages. The count is cached until {@link #invalidate()} is called.
+     * Counting reads every row matching the filter, so call this once for a GUI rather than for every page.
+     * @return A {@link CompletableFuture} containing the number of pages, which is at least 1.
+     */
+    public @NotNull CompletableFuture<Integer> countPages() {
+        CompletableFuture<Integer> count = rowCount.get();
+        if(count == null || count.isCompletedExceptionally()) {
+            count = queueManager.queueReadTransaction(countSql, filterParams, resultSet -> {
+                try(resultSet) {
+                    return resultSet.next() ? resultSet.getInt(1) : 0;
+                } catch (SQLException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            rowCount.set(count);
+        }
+
+        return count.thenApply(rows -> Math.max(1, (rows + pageSize - 1) / pageSize));
+    }
+
+    /**
+     * Clears the cached page keys, the prefetched page and the page count so that the next reads see the current contents of the table.
+     * Reads that are in progress do not cache their results.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        boundaries.clear();
+        prefetchedPage.set(null);
+        rowCount.set(null);
+    }
+
+    /**
+     * Stops invalidating on changes if {@link Builder#invalidateOnChange(Plugin)} was used.
+     */
+    public void close() {
+        if(subscription != null) ChangeDispatcher.unsubscribe(subscription);
+    }
+
+    /**
+     * Loads a page by seeking after the last key of the previous page.
+     * @param index The 0-based index of the page.
+     * @return A {@link CompletableFuture} containing the {@link Page}.
+     */
+    private @NotNull CompletableFuture<Page<T>> loadPage(int index) {
+        int loadGeneration = generation.get();
+        CompletableFuture<List<Object>> afterKey = index == 0 ? CompletableFuture.completedFuture(null) : findKeyBefore(index, loadGeneration);
+
+        return afterKey.thenCompose(key -> {
+            if(index > 0 && key == null) return CompletableFuture.completedFuture(new Page<T>(index, List.of(), false));
+
+            String sql = key == null ? firstPageSql : pageSql;
+            return queueManager.queueReadTransaction(sql, createParams(key, null), resultSet -> readPage(resultSet, index)).thenApply(loadedPage -> {
+                if(loadedPage.lastKey() != null && generation.get() == loadGeneration) boundaries.put(index, loadedPage.lastKey());
+                return loadedPage.page();
+            });
+        });
+    }
+
+    /**
+     * Finds the key of the last row of the page before the given page. If it is not cached,
+     * it is read by seeking after the nearest cached page before it and skipping the rows in between.
+     * @param index The 0-based index of the page, which must be at least 1.
+     * @param loadGeneration The generation of the cache when the load started.
+     * @return A {@link CompletableFuture} containing the key, or null if the page is past the end.
+     */
+    private @NotNull CompletableFuture<List<Object>> findKeyBefore(int index, int loadGeneration) {
+        List<Object> cachedKey = boundaries.get(index - 1);
+        if(cachedKey != null) return CompletableFuture.completedFuture(cachedKey);
+
+        int nearestIndex = -1;
+        for(int cachedIndex : boundaries.keySet()) {
+            if(cachedIndex < index - 1 && cachedIndex > nearestIndex) nearestIndex = cachedIndex;
+        }
+
+        List<Object> nearestKey = nearestIndex == -1 ? null : boundaries.get(nearestIndex);
+        if(nearestKey == null) nearestIndex = -1;
+
+        long offset = (long) (index - 1 - nearestIndex) * pageSize - 1;
+        String sql = nearestKey == null ? firstBoundarySql : boundarySql;
+        return queueManager.queueReadTransaction(sql, createParams(nearestKey, offset), this::readKey).thenApply(key -> {
+            if(key != null && generation.get() == loadGeneration) boundaries.put(index - 1, key);
+            return key;
+        });
+    }
+
+    /**
+     * Reads up to one more row than the page size, mapping the rows of the page and reading the key of its last row.
+     * @param resultSet The {@link ResultSet}.
+     * @param index The 0-based index of the page.
+     * @return The {@link LoadedPage}.
+     */
+    private @NotNull LoadedPage<T> readPage(@NotNull ResultSet resultSet, int index) {
+        try(resultSet) {
+            List<T> items = new ArrayList<>(pageSize);
+            List<Object> lastKey = null;
+            boolean hasNext = false;
+
+            while(resultSet.next()) {
+                if(items.size() == pageSize) {
+                    hasNext = true;
+                    break;
+                }
+
+                items.add(rowMapper.apply(resultSet));
+                lastKey = readCurrentKey(resultSet);
+            }
+
+            return new LoadedPage<>(new Page<>(index, Collections.unmodifiableList(items), hasNext), lastKey);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Reads the key of the first row.
+     * @param resultSet The {@link ResultSet}.
+     * @return The key, or null if there are no rows.
+     */
+    private @Nullable List<Object> readKey(@NotNull ResultSet resultSet) {
+        try(resultSet) {
+            return resultSet.next() ? readCurrentKey(resultSet) : null;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Reads the values of the ORDER BY columns of the current row.
+     * @param resultSet The {@link ResultSet}.
+     * @return The key.
+     * @throws SQLException If a column could not be read.
+     */
+    private @NotNull List<Object> readCurrentKey(@NotNull ResultSet resultSet) throws SQLException {
+        List<Object> key = new ArrayList<>(orderColumns.size());
+        for(String column : orderColumns) {
+            key.add(resultSet.getObject(column));
+        }
+
+        return key;
+    }
+
+    /**
+     * Creates the parameters of a page or boundary query: the filter parameters, then the seek parameters, then the offset.
+     * @param key The key to seek after, or null to read from the start.
+     * @param offset The offset of a boundary query, or null for a page query.
+     * @return A {@link List} of {@link Parameter}s.
+     */
+    private @NotNull List<Parameter<?>> createParams(@Nullable List<Object> key, @Nullable Long offset) {
+        List<Parameter<?>> params = new ArrayList<>(filterParams);
+
+        if(key != null) {
+            if(isSingleDirection()) {
+                for(Object value : key) {
+                    params.add(() -> value);
+                }
+            } else {
+                // Matches the expanded condition created by createSeekCondition.
+                for(int i = 0; i < key.size(); i++) {
+                    for(int j = 0; j <= i; j++) {
+                        Object value = key.get(j);
+                        params.add(() -> value);
+                    }
+                }
+            }
+        }
+
+        if(offset != null) params.add(() -> offset);
+
+        return params;
+    }
+
+    /**
+     * Creates the condition that selects the rows after a key. If every column has the same direction, a row value comparison is used,
+     * which SQLite can answer with a single index seek. Otherwise, the condition is expanded to
+     * {@code (a > ?) OR (a = ? AND b < ?) OR ...}.
+     * @return The seek condition.
+     */
+    private @NotNull String createSeekCondition() {
+        if(isSingleDirection()) {
+            String operator = directions.get(0) == Direction.ASC ? " > " : " < ";
+            String columns = String.join(", ", orderColumns.stream().map(KeysetPaginator::quote).toList());
+            String placeholders = String.join(", ", Collections.nCopies(orderColumns.size(), "?"));
+
+            return orderColumns.size() == 1
+                    ? quote(orderColumns.get(0)) + operator + "?"
+                    : "(" + columns + ")" + operator + "(" + placeholders + ")";
+        }
+
+        List<String> terms = new ArrayList<>();
+        for(int i = 0; i < orderColumns.size(); i++) {
+            StringBuilder term = new StringBuilder("(");
+            for(int j = 0; j < i; j++) {
+                term.append(quote(orderColumns.get(j))).append(" = ? AND ");
+            }
+
+            term.append(quote(orderColumns.get(i))).append(directions.get(i) == Direction.ASC ? " > ?" : " < ?").append(")");
+            terms.add(term.toString());
+        }
+
+        return "(" + String.join(" OR ", terms) + ")";
+    }
+
+    /**
+     * Creates the ORDER BY clause.
+     * @return The ORDER BY clause, with a leading space.
+     */
+    private @NotNull String createOrderBy() {
+        List<String> terms = new ArrayList<>();
+        for(int i = 0; i < orderColumns.size(); i++) {
+            terms.add(quote(orderColumns.get(i)) + " " + directions.get(i).name());
+        }
+
+        return " ORDER BY " + String.join(", ", terms);
+    }
+
+    /**
+     * Checks if every ORDER BY column has the same direction.
+     * @return true if every column has the same direction.
+     */
+    private boolean isSingleDirection() {
+        return directions.stream().distinct().count() == 1;
+    }
+
+    /**
+     * Quotes an identifier using double quotes.
+     * @param identifier The identifier.
+     * @return The quoted identifier.
+     */
+    private static @NotNull String quote(@NotNull String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * A page and the key of its last row.
+     * @param page The {@link Page}.
+     * @param lastKey The key of the last row, or null if the page is empty.
+     * @param <T> The type of the mapped rows.
+     */
+    private record LoadedPage<T>(@NotNull Page<T> page, @Nullable List<Object> lastKey) {}
+
+    /**
+     * A page being loaded in the background.
+     * @param index The 0-based index of the page.
+     * @param generation The generation of the cache when the page started loading.
+     * @param future The {@link CompletableFuture} of the page.
+     * @param <T> The type of the mapped rows.
+     */
+    private record Prefetch<T>(int index, int generation, @NotNull CompletableFuture<Page<T>> future) {}
+
+    /**
+     * The builder for a {@link KeysetPaginator}.
+     * @param <T> The type of the mapped rows.
+     */
+    public static class Builder<T> {
+        private final @NotNull QueueManager queueManager;
+        private final @NotNull String table;
+        private final @NotNull Function<ResultSet, T> rowMapper;
+        private final @NotNull List<String> selectColumns = new ArrayList<>();
+        private final @NotNull List<String> orderColumns = new ArrayList<>();
+        private final @NotNull List<Direction> directions = new ArrayList<>();
+        private @Nullable String filter;
+        private @NotNull List<Parameter<?>> filterParams = List.of();
+        private int pageSize = 45;
+        private boolean prefetch = true;
+        private @Nullable Plugin changeOwner;
+
+        /**
+         * Constructor
+         * @param queueManager The {@link QueueManager} to queue the page reads on.
+         * @param table The name of the table.
+         * @param rowMapper The function that maps the current row of the {@link ResultSet} to {@link T}.
+         */
+        private Builder(@NotNull QueueManager queueManager, @NotNull String table, @NotNull Function<ResultSet, T> rowMapper) {
+            this.queueManager = queueManager;
+            this.table = table;
+            this.rowMapper = rowMapper;
+        }
+
+        /**
+         * Sets the columns to select. Every column is selected by default. The ORDER BY columns are always selected.
+         * @param columns The names of the columns.
+         * @return This {@link Builder}.
+         */
+        public @NotNull Builder<T> select(@NotNull String... columns) {
+            selectColumns.clear();
+            selectColumns.addAll(List.of(columns));
+            return this;
+        }
+
+        /**
+         * Adds a column to order the rows by. Add the columns in order of precedence; the last column must be unique.
+         * @param column The name of the column. It must not contain NULL values.
+         * @param direction The {@link Direction}.
+         * @return This {@link Builder}.
+         */
+        public @NotNull Builder<T> orderBy(@NotNull String column, @NotNull Direction direction) {
+            orderColumns.add(column);
+            directions.add(direction);
+            return this;
+        }
+
+        /**
+         * Only pages through the rows matching a condition.
+         * @param condition The sql condition, i.e., {@code world = ?}.
+         * @param params The {@link Parameter}s of the condition's placeholders.
+         * @return This {@link Builder}.
+         */
+        public @NotNull Builder<T> where(@NotNull String condition, @NotNull List<Parameter<?>> params) {
+            this.filter = condition;
+            this.filterParams = List.copyOf(params);
+            return this;
+        }
+
+        /**
+         * Sets the number of rows on each page. Defaults to 45, the size of a 5-row chest GUI.
+         * @param pageSize The page size.
+         * @return This {@link Builder}.
+         */
+        public @NotNull Builder<T> pageSize(int pageSize) {
+            this.pageSize = pageSize;
+            return this;
+        }
+
+        /**
+         * Sets whether the next page is loaded in the background after each page. Enabled by default.
+         * @param prefetch true to prefetch the next page.
+         * @return This {@link Builder}.
+         */
+        public @NotNull Builder<T> prefetch(boolean prefetch) {
+            this.prefetch = prefetch;
+            return this;
+        }
+
+        /**
+         * Invalidates the paginator whenever SkyLib publishes a change to the table. See {@link ChangeDispatcher}.
+         * Call {@link KeysetPaginator#close()} once the paginator is no longer used.
+         * @param owner The {@link Plugin} that owns the paginator. The subscription is removed once the plugin is disabled.
+         * @return This {@link Builder}.
+         */
+        public @NotNull Builder<T> invalidateOnChange(@NotNull Plugin owner) {
+            this.changeOwner = owner;
+            return this;
+        }
+
+        /**
+         * Creates the {@link KeysetPaginator}.
+         * @return A new {@link KeysetPaginator}.
+         * @throws IllegalStateException If no ORDER BY column was added or the page size is less than 1.
+         */
+        public @NotNull KeysetPaginator<T> build() {
+            if(orderColumns.isEmpty()) throw new IllegalStateException("At least one column to order by is required.");
+            if(pageSize < 1) throw new IllegalStateException("The page size must be at least 1.");
+
+            return new KeysetPaginator<>(this);
+        }
+    }
+}
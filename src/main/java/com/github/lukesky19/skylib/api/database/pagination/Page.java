@@ -0,0 +1,52 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.pagination;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * A page of rows loaded by a {@link KeysetPaginator}.
+ * @param index The 0-based index of the page.
+ * @param items The rows of the page, mapped by the paginator's row mapper. Empty if the page is past the end.
+ * @param hasNext true if there is at least one row after this page.
+ * @param <T> The type of the mapped rows.
+ */
+public record Page<T>(int index, @NotNull List<T> items, boolean hasNext) {
+    /**
+     * Checks if there is a page before this page.
+     * @return true if this is not the first page.
+     */
+    public boolean hasPrevious() {
+        return index > 0;
+    }
+
+    /**
+     * Checks if the page has no rows.
+     * @return true if the page has no rows.
+     */
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+}
@@ -0,0 +1,55 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.parameter.impl;
+
+import com.github.lukesky19.skylib.api.database.codec.BinaryCodec;
+import com.github.lukesky19.skylib.api.database.parameter.Parameter;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Takes a {@link List} and encodes it with the {@link BinaryCodec} for storage in a BLOB column.
+ * This is smaller and faster to create than a {@link ListParameter}. Use {@link BinaryCodec#decodeList(byte[])} to read it back.
+ */
+public class BinaryListParameter implements Parameter<byte[]> {
+    private final byte[] value;
+
+    /**
+     * Stores a {@link List} as bytes to later use to replace a parameter with.
+     * @param list The {@link List} to encode. See {@link com.github.lukesky19.skylib.api.database.codec.BinaryWriter#writeValue(Object)} for the supported types.
+     * @throws IllegalArgumentException if the {@link List} contains an unsupported type.
+     */
+    public BinaryListParameter(@NotNull List<?> list) {
+        value = BinaryCodec.encode(list);
+    }
+
+    /**
+     * Returns the bytes representing a {@link List} to replace a parameter with.
+     * @return The bytes representing a {@link List} to replace a parameter with.
+     */
+    @Override
+    public byte @NotNull [] getValue() {
+        return value;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.parameter.impl;
+
+import com.github.lukesky19.skylib.api.database.codec.CompressionCodec;
+import com.github.lukesky19.skylib.api.database.codec.CompressionDictionary;
+import com.github.lukesky19.skylib.api.database.codec.JsonCodec;
+import com.github.lukesky19.skylib.api.database.parameter.Parameter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Takes a {@link List} and converts it to json like a {@link ListParameter}, then compresses it with the {@link CompressionCodec} for storage in a BLOB column.
+ * Use {@link CompressionCodec#decompressJson(byte[], java.lang.reflect.Type, CompressionDictionary)} to read it back.
+ */
+public class CompressedListParameter implements Parameter<byte[]> {
+    private final byte[] value;
+
+    /**
+     * Stores a {@link List} as compressed json to later use to replace a parameter with.
+     * @param list The {@link List} to convert to json.
+     */
+    public CompressedListParameter(@NotNull List<?> list) {
+        this(list, null);
+    }
+
+    /**
+     * Stores a {@link List} as json compressed with a {@link CompressionDictionary} to later use to replace a parameter with.
+     * @param list The {@link List} to convert to json.
+     * @param dictionary The {@link CompressionDictionary} to compress with, or null to compress without one.
+     */
+    public CompressedListParameter(@NotNull List<?> list, @Nullable CompressionDictionary dictionary) {
+        value = CompressionCodec.compressString(JsonCodec.toJson(list), CompressionCodec.DEFAULT_THRESHOLD, dictionary);
+    }
+
+    /**
+     * Returns the compressed json representing a {@link List} to replace a parameter with.
+     * @return The compressed json representing a {@link List} to replace a parameter with.
+     */
+    @Override
+    public byte @NotNull [] getValue() {
+        return value;
+    }
+}
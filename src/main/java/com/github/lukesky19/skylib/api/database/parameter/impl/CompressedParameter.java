@@ -0,0 +1,73 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.parameter.impl;
+
+import com.github.lukesky19.skylib.api.database.codec.CompressionCodec;
+import com.github.lukesky19.skylib.api.database.codec.CompressionDictionary;
+import com.github.lukesky19.skylib.api.database.parameter.Parameter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Takes a {@link String} or bytes and compresses them with the {@link CompressionCodec} for storage in a BLOB column.
+ * Values below the threshold are stored uncompressed. Use {@link CompressionCodec#decompressString(byte[], CompressionDictionary)}
+ * or {@link CompressionCodec#readString(java.sql.ResultSet, String, CompressionDictionary)} to read it back.
+ */
+public class CompressedParameter implements Parameter<byte[]> {
+    private final byte[] value;
+
+    /**
+     * Stores a {@link String} compressed to later use to replace a parameter with.
+     * @param text The {@link String} to compress.
+     */
+    public CompressedParameter(@NotNull String text) {
+        value = CompressionCodec.compressString(text);
+    }
+
+    /**
+     * Stores a {@link String} compressed with a {@link CompressionDictionary} to later use to replace a parameter with.
+     * @param text The {@link String} to compress.
+     * @param dictionary The {@link CompressionDictionary} to compress with, or null to compress without one.
+     */
+    public CompressedParameter(@NotNull String text, @Nullable CompressionDictionary dictionary) {
+        value = CompressionCodec.compressString(text, CompressionCodec.DEFAULT_THRESHOLD, dictionary);
+    }
+
+    /**
+     * Stores bytes compressed to later use to replace a parameter with.
+     * @param data The bytes to compress.
+     * @param dictionary The {@link CompressionDictionary} to compress with, or null to compress without one.
+     */
+    public CompressedParameter(byte @NotNull [] data, @Nullable CompressionDictionary dictionary) {
+        value = CompressionCodec.compress(data, CompressionCodec.DEFAULT_THRESHOLD, dictionary);
+    }
+
+    /**
+     * Returns the compressed bytes to replace a parameter with.
+     * @return The compressed bytes to replace a parameter with.
+     */
+    @Override
+    public byte @NotNull [] getValue() {
+        return value;
+    }
+}
@@ -22,8 +22,8 @@
  */
 package com.github.lukesky19.skylib.api.database.parameter.impl;
 
+import com.github.lukesky19.skylib.api.database.codec.JsonCodec;
 import com.github.lukesky19.skylib.api.database.parameter.Parameter;
-import com.google.gson.Gson;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.List;
@@ -39,8 +39,7 @@ public class ListParameter implements Parameter<String> {
      * @param list The {@link List} to convert to a json {@link String}.
      */
     public ListParameter(@NotNull List<?> list) {
-        Gson gson = new Gson();
-        value = gson.toJson(list);
+        value = JsonCodec.toJson(list);
     }
 
     /**
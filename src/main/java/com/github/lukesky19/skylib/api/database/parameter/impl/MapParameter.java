@@ -22,8 +22,8 @@
  */
 package com.github.lukesky19.skylib.api.database.parameter.impl;
 
+import com.github.lukesky19.skylib.api.database.codec.JsonCodec;
 import com.github.lukesky19.skylib.api.database.parameter.Parameter;
-import com.google.gson.Gson;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Map;
@@ -39,8 +39,7 @@ public class MapParameter implements Parameter<String>  {
      * @param map The {@link Map} to convert to a json {@link String}.
      */
     public MapParameter(@NotNull Map<?, ?> map) {
-        Gson gson = new Gson();
-        value = gson.toJson(map);
+        value = JsonCodec.toJson(map);
     }
 
     /**
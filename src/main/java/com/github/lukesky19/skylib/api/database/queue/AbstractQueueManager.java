@@ -0,0 +1,1052 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.queue;
+
+import com.github.lukesky19.skylib.api.database.accounting.ResourceAccounting;
+import com.github.lukesky19.skylib.api.database.advisor.QueryShapeStats;
+import com.github.lukesky19.skylib.api.database.connection.AbstractConnectionManager;
+import com.github.lukesky19.skylib.api.database.event.ChangeDispatcher;
+import com.github.lukesky19.skylib.api.database.event.ChangeEvent;
+import com.github.lukesky19.skylib.api.database.parameter.Parameter;
+import com.github.lukesky19.skylib.api.database.queue.util.QueryCancellation;
+import com.github.lukesky19.skylib.api.database.queue.util.QueueMetrics;
+import com.github.lukesky19.skylib.api.database.queue.util.RowBuffer;
+import com.github.lukesky19.skylib.api.database.queue.util.RowPublisher;
+import com.github.lukesky19.skylib.api.database.queue.util.RunnableUtil;
+import com.github.lukesky19.skylib.api.database.queue.util.ShutdownReport;
+import com.github.lukesky19.skylib.api.database.queue.util.StatementJournal;
+import com.github.lukesky19.skylib.api.database.queue.util.Task;
+import com.github.lukesky19.skylib.api.database.queue.util.TaskSpillFile;
+import com.github.lukesky19.skylib.api.database.statement.SqlBinding;
+import com.github.lukesky19.skylib.api.database.statement.SqlStatement;
+import com.github.lukesky19.skylib.api.database.statement.SqlTemplate;
+import com.github.lukesky19.skylib.api.database.trace.TraceRecorder;
+import com.github.lukesky19.skylib.internal.ThreadPoolManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * This abstract class contains the logic shared by {@link SingleThreadQueueManager} and {@link MultiThreadQueueManager}.
+ * It tracks submitted tasks, holds tasks while the queue is paused, and shuts down the queue in order.
+ * Implementations only need to define how a task is handed to their executor.
+ */
+public abstract class AbstractQueueManager implements QueueManager {
+    private final @NotNull AbstractConnectionManager connectionManager;
+    private final @NotNull AtomicReference<QueueState> queueState = new AtomicReference<>(QueueState.RUNNING);
+    private final @NotNull Map<CompletableFuture<?>, TrackedTask> submittedTasks = new ConcurrentHashMap<>();
+    private final @NotNull List<@NotNull Task> backupTaskQueue = new ArrayList<>();
+    private final @NotNull AtomicInteger rejectedTasks = new AtomicInteger();
+    private final @NotNull QueueMetrics queueMetrics = new QueueMetrics();
+    private boolean pauseQueue = false;
+    private @Nullable CompletableFuture<ShutdownReport> shutdownFuture;
+    private @Nullable Path spillDirectory;
+    private int spillThreshold;
+    private @Nullable TaskSpillFile spillFile;
+    private volatile int queryTimeoutSeconds = 0;
+    private volatile @Nullable QueryShapeStats queryShapeStats;
+    private volatile @Nullable TraceRecorder traceRecorder;
+
+    /**
+     * Constructor that takes a class that extends {@link AbstractConnectionManager}.
+     * @param connectionManager A class that extends {@link AbstractConnectionManager} to use.
+     */
+    public AbstractQueueManager(@NotNull AbstractConnectionManager connectionManager) {
+        this.connectionManager = connectionManager;
+    }
+
+    /**
+     * Get the {@link AbstractConnectionManager} used to obtain connections to the database.
+     * @return The {@link AbstractConnectionManager}.
+     */
+    protected @NotNull AbstractConnectionManager getConnectionManager() {
+        return connectionManager;
+    }
+
+    /**
+     * Hands a task to the executor of the implementation.
+     * @param task The {@link Task} being executed. {@link Task#time()} and {@link Task#timeUnit()} contain the delay (if any).
+     * @param runnable The {@link Runnable} to pass to the executor. This should be used instead of {@link Task#runnable()}.
+     */
+    protected abstract void executeTask(@NotNull Task task, @NotNull Runnable runnable);
+
+    /**
+     * Called once all submitted tasks have finished or the shutdown deadline has been reached.
+     * Implementations that own their executor should shut it down here.
+     * @param remainingNanos The time in nanoseconds remaining until the shutdown deadline. May be 0 or negative.
+     */
+    protected void terminate(long remainingNanos) {}
+
+    /**
+     * Enables spilling tasks held while the queue is paused (i.e., during a backup) to memory-mapped files on disk.
+     * Once more than the threshold number of tasks are held, the {@link SqlStatement}s of any further write tasks are written to disk
+     * and only a small pointer to each task is kept on the heap. Spilled tasks are read back and executed in order when the queue is unpaused.
+     * Write tasks with parameter values that cannot be stored without loss (see {@link StatementJournal#isLossless(List)}) and read tasks are always held in memory.
+     * @param directory The directory to store the spill files in, or null to disable spilling. The files are deleted once the tasks have executed.
+     * @param threshold The number of held tasks after which tasks are spilled to disk.
+     */
+    public void setBackupSpill(@Nullable Path directory, int threshold) {
+        synchronized(backupTaskQueue) {
+            this.spillDirectory = directory;
+            this.spillThreshold = Math.max(0, threshold);
+        }
+    }
+
+    /**
+     * Get the {@link QueueMetrics} recording how long tasks waited before starting and how long they took to run.
+     * The wait time of a delayed task is measured from when its delay elapsed.
+     * @return The {@link QueueMetrics}.
+     */
+    public @NotNull QueueMetrics getQueueMetrics() {
+        return queueMetrics;
+    }
+
+    /**
+     * Sets the query timeout applied to every statement of tasks queued afterward, so a runaway query cannot hold a connection indefinitely.
+     * Per-task deadlines are set by the caller using {@link CompletableFuture#orTimeout(long, TimeUnit)} on the returned future.
+     * @param queryTimeoutSeconds The query timeout in seconds, or 0 for no timeout.
+     * @throws IllegalArgumentException If the timeout is negative.
+     */
+    public void setQueryTimeout(int queryTimeoutSeconds) {
+        if(queryTimeoutSeconds < 0) throw new IllegalArgumentException("The query timeout cannot be negative.");
+
+        this.queryTimeoutSeconds = queryTimeoutSeconds;
+    }
+
+    /**
+     * Get the query timeout applied to every statement.
+     * @return The query timeout in seconds, or 0 for no timeout.
+     */
+    public int getQueryTimeout() {
+        return queryTimeoutSeconds;
+    }
+
+    /**
+     * Sets the {@link QueryShapeStats} that the sql and run time of every task queued afterward is recorded to.
+     * The steps of a read publisher are not recorded individually. Its query is recorded once, with the total time its steps ran, when its cursor is closed.
+     * @param queryShapeStats The {@link QueryShapeStats}, or null to stop recording.
+     */
+    public void setQueryShapeStats(@Nullable QueryShapeStats queryShapeStats) {
+        this.queryShapeStats = queryShapeStats;
+    }
+
+    /**
+     * Get the {@link QueryShapeStats} that tasks are recorded to.
+     * @return The {@link QueryShapeStats}, or null if query shapes are not being recorded.
+     */
+    public @Nullable QueryShapeStats getQueryShapeStats() {
+        return queryShapeStats;
+    }
+
+    /**
+     * Sets the {@link TraceRecorder} that the timing, sql and parameter values of every task queued afterward is recorded to.
+     * Tasks that do not describe their statements, such as the steps of a read publisher, are not recorded.
+     * @param traceRecorder The {@link TraceRecorder}, or null to stop recording.
+     */
+    public void setTraceRecorder(@Nullable TraceRecorder traceRecorder) {
+        this.traceRecorder = traceRecorder;
+    }
+
+    /**
+     * Get the {@link TraceRecorder} that tasks are recorded to.
+     * @return The {@link TraceRecorder}, or null if tasks are not being traced.
+     */
+    public @Nullable TraceRecorder getTraceRecorder() {
+        return traceRecorder;
+    }
+
+    @Override
+    public @NotNull QueueState getQueueState() {
+        return queueState.get();
+    }
+
+    /**
+     * Checks if the queue is paused, in which case new tasks are held until it is resumed.
+     * @return true if the queue is paused.
+     */
+    public boolean isQueuePaused() {
+        synchronized(backupTaskQueue) {
+            return pauseQueue;
+        }
+    }
+
+    /**
+     * Get the number of tasks that have been submitted for execution and have not finished yet.
+     * Tasks held while the queue is paused are not included.
+     * @return The number of submitted tasks.
+     */
+    public int getSubmittedTaskCount() {
+        return submittedTasks.size();
+    }
+
+    /**
+     * Sets whether the queue is paused to the boolean provided. true will pause the queue, false will not.
+     * If the queue status is set from true -> false, the backup queue will have its tasks submitted for execution.
+     * @param status The status to set.
+     */
+    @Override
+    public void setQueueStatus(boolean status) {
+        synchronized(backupTaskQueue) {
+            if(this.pauseQueue && !status) {
+                processBackupQueue();
+            }
+
+            this.pauseQueue = status;
+        }
+    }
+
+    /**
+     * Takes any tasks submitted to the backup queue and submits them for execution.
+     * You should use {@link #setQueueStatus(boolean)} with the boolean false after this method completes.
+     */
+    @Override
+    public void processBackupQueue() {
+        synchronized(backupTaskQueue) {
+            List<@NotNull Task> backupQueue = new ArrayList<>(backupTaskQueue);
+            backupTaskQueue.clear();
+            sealSpillFile();
+
+            backupQueue.forEach(this::dispatchTask);
+        }
+    }
+
+    /**
+     * Get notified by a {@link CompletableFuture} of type {@link Void} when the queue is empty.
+     * The returned {@link CompletableFuture} completes normally even if some of the tasks complete exceptionally.
+     * You should use {@link #setQueueStatus(boolean)} with the boolean true to pause tasks being submitted for execution before calling this method.
+     * @return A {@link CompletableFuture} of type {@link Void}.
+     */
+    @Override
+    public @NotNull CompletableFuture<Void> waitForQueueEmpty() {
+        if(submittedTasks.isEmpty()) return CompletableFuture.completedFuture(null);
+
+        return waitForTasks(new ArrayList<>(submittedTasks.values()));
+    }
+
+    /**
+     * Shuts down the queue, giving submitted tasks 60 seconds to finish. Tasks that have not started by then are cancelled.
+     * @return A {@link CompletableFuture} of {@link Void} when the queue has finished shutting down.
+     */
+    @Override
+    public @NotNull CompletableFuture<Void> shutdownQueue() {
+        return shutdownQueue(60, TimeUnit.SECONDS, null).thenApply(report -> null);
+    }
+
+    /**
+     * Shuts down the queue in order:
+     * 1. Stop accepting new tasks. Any task submitted afterward completes exceptionally with a {@link RejectedExecutionException}.
+     * 2. Flush the tasks held in the backup queue. If the queue is still paused (i.e., a backup is in progress), they are cancelled instead.
+     * 3. Cancel delayed tasks that are not due yet, writing cancelled write tasks to the journal file (if provided), as they would otherwise hold up the shutdown until the deadline.
+     * 4. Wait until the deadline for the other submitted tasks to finish.
+     * 5. Cancel any tasks that have not started, writing cancelled write tasks to the journal file (if provided).
+     * Calling this method more than once returns the same {@link CompletableFuture}.
+     * @param timeout The maximum time to wait for submitted tasks to finish.
+     * @param timeUnit The {@link TimeUnit} of the timeout.
+     * @param journalPath The {@link Path} of the journal file to write cancelled write tasks to. Optional.
+     * @return A {@link CompletableFuture} containing a {@link ShutdownReport}. Completes exceptionally if the journal could not be written.
+     */
+    @Override
+    public @NotNull CompletableFuture<ShutdownReport> shutdownQueue(long timeout, @NotNull TimeUnit timeUnit, @Nullable Path journalPath) {
+        synchronized(backupTaskQueue) {
+            if(shutdownFuture != null) return shutdownFuture;
+
+            long startTime = System.nanoTime();
+            long deadline = startTime + timeUnit.toNanos(timeout);
+
+            // Stop accepting new tasks
+            queueState.set(QueueState.STOPPING);
+
+            // Flush any tasks held while the queue was paused
+            List<@NotNull Task> heldTasks = new ArrayList<>();
+            if(pauseQueue) {
+                heldTasks.addAll(backupTaskQueue);
+            } else {
+                backupTaskQueue.forEach(this::dispatchTask);
+            }
+            backupTaskQueue.clear();
+            sealSpillFile();
+
+            // Cancel delayed tasks that are not due yet rather than waiting for them
+            queueState.set(QueueState.DRAINING);
+            List<@NotNull List<@NotNull SqlStatement>> delayedJournal = new ArrayList<>();
+            List<@NotNull TrackedTask> drainingTasks = new ArrayList<>();
+            for(TrackedTask trackedTask : submittedTasks.values()) {
+                if(trackedTask.readyTime > startTime && trackedTask.claim()) {
+                    // Journal before cancelling, as cancelling a spilled task releases its entry in the spill file.
+                    addToJournal(trackedTask.task, delayedJournal);
+                    trackedTask.task.future().cancel(false);
+                    heldTasks.add(trackedTask.task);
+                } else {
+                    drainingTasks.add(trackedTask);
+                }
+            }
+
+            // Drain the submitted tasks until the deadline
+            shutdownFuture = waitForTasks(drainingTasks)
+                    .completeOnTimeout(null, Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)
+                    .thenApplyAsync(v -> finishShutdown(drainingTasks, heldTasks, delayedJournal, startTime, deadline, journalPath));
+
+            return shutdownFuture;
+        }
+    }
+
+    /**
+     * Cancels any tasks that did not start before the deadline, journals cancelled write tasks, and terminates the queue.
+     * @param drainingTasks The tasks that were submitted for execution when the queue started draining.
+     * @param heldTasks The tasks that were held in the backup queue and could not be flushed, and the delayed tasks that were cancelled before they were due.
+     * @param delayedJournal The journaled transactions of the delayed write tasks that were cancelled before they were due.
+     * @param startTime The time in nanoseconds the shutdown started.
+     * @param deadline The time in nanoseconds of the shutdown deadline.
+     * @param journalPath The {@link Path} of the journal file to write cancelled write tasks to. Optional.
+     * @return The {@link ShutdownReport}.
+     */
+    private @NotNull ShutdownReport finishShutdown(
+            @NotNull List<@NotNull TrackedTask> drainingTasks,
+            @NotNull List<@NotNull Task> heldTasks,
+            @NotNull List<@NotNull List<@NotNull SqlStatement>> delayedJournal,
+            long startTime,
+            long deadline,
+            @Nullable Path journalPath) {
+        int completed = 0;
+        int failed = 0;
+        int cancelled = 0;
+        int unfinished = 0;
+        List<@NotNull List<@NotNull SqlStatement>> journal = new ArrayList<>(delayedJournal);
+
+        for(Task task : heldTasks) {
+            // Journal before cancelling, as cancelling a spilled task releases its entry in the spill file.
+            // Delayed tasks were already journaled and cancelled.
+            if(!task.future().isDone()) addToJournal(task, journal);
+            task.future().cancel(false);
+            cancelled++;
+        }
+
+        for(TrackedTask trackedTask : drainingTasks) {
+            CompletableFuture<?> future = trackedTask.task.future();
+
+            if(trackedTask.claim()) {
+                // The task never started, so it is safe to cancel.
+                addToJournal(trackedTask.task, journal);
+                future.cancel(false);
+                cancelled++;
+            } else if(!future.isDone()) {
+                unfinished++;
+            } else if(future.isCancelled()) {
+                cancelled++;
+            } else if(future.isCompletedExceptionally()) {
+                failed++;
+            } else {
+                completed++;
+            }
+        }
+
+        try {
+            if(journalPath != null && !journal.isEmpty()) {
+                StatementJournal.write(journalPath, journal);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write the queue journal: " + e.getMessage(), e);
+        } finally {
+            terminate(deadline - System.nanoTime());
+            queueState.set(QueueState.TERMINATED);
+        }
+
+        return new ShutdownReport(
+                completed,
+                failed,
+                cancelled,
+                journalPath != null ? journal.size() : 0,
+                unfinished,
+                rejectedTasks.get(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+    }
+
+    /**
+     * Adds the {@link SqlStatement}s of a cancelled write task to the journal.
+     * @param task The cancelled {@link Task}.
+     * @param journal The {@link List} of transactions to write to the journal.
+     */
+    private void addToJournal(@NotNull Task task, @NotNull List<@NotNull List<@NotNull SqlStatement>> journal) {
+        if(task.write() && task.statements() != null) {
+            journal.add(task.statements().get());
+        }
+    }
+
+    /**
+     * Get a {@link CompletableFuture} that completes once all the provided tasks have completed, regardless of their outcome.
+     * @param tasks The tasks to wait for.
+     * @return A {@link CompletableFuture} of type {@link Void}.
+     */
+    private @NotNull CompletableFuture<Void> waitForTasks(@NotNull List<@NotNull TrackedTask> tasks) {
+        CompletableFuture<?>[] futures = new CompletableFuture[tasks.size()];
+        for(int i = 0; i < tasks.size(); i++) {
+            futures[i] = tasks.get(i).task.future().handle((result, throwable) -> null);
+        }
+
+        return CompletableFuture.allOf(futures);
+    }
+
+    /**
+     * Submits a {@link Task} for execution. If the queue is paused, the task is held in the backup queue until the queue is unpaused.
+     * If the queue is shutting down, the task's future is completed exceptionally with a {@link RejectedExecutionException}.
+     * @param task The {@link Task} to submit.
+     */
+    protected void submitTask(@NotNull Task task) {
+        submitTask(task, null);
+    }
+
+    /**
+     * Submits a {@link Task} for execution. If it is a write, its {@link ChangeEvent}s are given to the write observers before it is queued,
+     * and published once it commits if there are subscribers.
+     * @param task The {@link Task} to submit.
+     * @param changeKey The key of the rows the task changes, or null if unknown.
+     */
+    private void submitTask(@NotNull Task task, @Nullable Object changeKey) {
+        Supplier<List<SqlStatement>> statementsSupplier = task.statements();
+        List<ChangeEvent> publishedEvents = null;
+        boolean hasSubscribers = ChangeDispatcher.hasSubscribers();
+        if(task.write() && statementsSupplier != null && (hasSubscribers || ChangeDispatcher.hasWriteObservers())) {
+            // Created now, as statements of bindings cannot be read once the task completes and releases them.
+            List<ChangeEvent> events = ChangeDispatcher.createEvents(connectionManager.getPlugin().getName(), statementsSupplier.get(), changeKey);
+            // Observed before the task is queued, so an index of the table is never behind the rows the write adds.
+            ChangeDispatcher.observe(events);
+            if(hasSubscribers) publishedEvents = events;
+        }
+
+        QueryShapeStats shapeStats = queryShapeStats;
+        TraceRecorder recorder = traceRecorder;
+        // Read now for the same reason, and before a held task is spilled so the statements are not read back from disk.
+        List<SqlStatement> statements = (shapeStats != null || recorder != null) && statementsSupplier != null ? statementsSupplier.get() : null;
+
+        synchronized(backupTaskQueue) {
+            if(queueState.get() != QueueState.RUNNING) {
+                rejectedTasks.incrementAndGet();
+                task.future().completeExceptionally(new RejectedExecutionException("The queue is shutting down and is no longer accepting tasks."));
+                return;
+            }
+
+            if(pauseQueue) {
+                backupTaskQueue.add(instrumentTask(publishOnCommit(spillTask(task), publishedEvents), shapeStats, recorder, statements));
+            } else {
+                dispatchTask(instrumentTask(publishOnCommit(task, publishedEvents), shapeStats, recorder, statements));
+            }
+        }
+    }
+
+    /**
+     * Wraps the runnable of a write {@link Task} so that its {@link ChangeEvent}s are published if it commits.
+     * Whether it committed is checked on the thread that ran it rather than from its future, as a task whose future was cancelled or timed out may still commit.
+     * @param task The {@link Task}.
+     * @param events The {@link ChangeEvent}s to publish, or null if nobody is subscribed.
+     * @return The wrapped {@link Task}, or the provided task if there is nothing to publish.
+     */
+    private @NotNull Task publishOnCommit(@NotNull Task task, @Nullable List<ChangeEvent> events) {
+        if(events == null || events.isEmpty()) return task;
+
+        Runnable runnable = task.runnable();
+        CompletableFuture<?> future = task.future();
+        Runnable publishingRunnable = () -> {
+            try {
+                runnable.run();
+            } finally {
+                if(QueryCancellation.isCommitted()) {
+                    Object result = future.isDone() && !future.isCompletedExceptionally() ? future.getNow(null) : null;
+                    // A single statement that changed no rows did not change anything.
+                    if(!(result instanceof Integer rows && rows == 0)) ChangeDispatcher.publish(events);
+                }
+            }
+        };
+
+        return new Task(publishingRunnable, future, task.time(), task.timeUnit(), task.statements(), task.write(), task.singleResult(), task.release());
+    }
+
+    /**
+     * Wraps the runnable of a {@link Task} so that its run time is recorded to the {@link QueryShapeStats} and {@link TraceRecorder} once it finishes.
+     * @param task The {@link Task}.
+     * @param shapeStats The {@link QueryShapeStats}, or null if query shapes are not being recorded.
+     * @param recorder The {@link TraceRecorder}, or null if tasks are not being traced.
+     * @param statements The {@link SqlStatement}s the task executes, or null if unknown.
+     * @return The wrapped {@link Task}, or the provided task if nothing is recorded.
+     */
+    private @NotNull Task instrumentTask(
+            @NotNull Task task,
+            @Nullable QueryShapeStats shapeStats,
+            @Nullable TraceRecorder recorder,
+            @Nullable List<SqlStatement> statements) {
+        if(statements == null || (shapeStats == null && recorder == null)) return task;
+
+        List<String> sqlList = shapeStats != null ? statements.stream().map(SqlStatement::sql).toList() : null;
+        long delay = task.time() != null && task.timeUnit() != null ? task.timeUnit().toNanos(task.time()) : 0;
+        long readyTime = System.nanoTime() + delay;
+        Runnable runnable = task.runnable();
+        Runnable instrumentedRunnable = () -> {
+            long startTime = System.nanoTime();
+            try {
+                runnable.run();
+            } finally {
+                long runTime = System.nanoTime() - startTime;
+                if(shapeStats != null && sqlList != null) shapeStats.record(sqlList, runTime);
+                if(recorder != null) {
+                    boolean success = task.future().isDone() && !task.future().isCompletedExceptionally();
+                    recorder.record(readyTime, startTime - readyTime, runTime, task.write(), success, statements);
+                }
+            }
+        };
+
+        return new Task(instrumentedRunnable, task.future(), task.time(), task.timeUnit(), task.statements(), task.write(), task.singleResult(), task.release());
+    }
+
+    /**
+     * Writes the {@link SqlStatement}s of a held write task to the spill file if spilling is enabled and the threshold has been reached.
+     * Must be called while holding the lock on the backup queue.
+     * @param task The {@link Task} being held.
+     * @return A {@link Task} that reads its {@link SqlStatement}s back from the spill file when executed, or the provided task if it was not spilled.
+     */
+    private @NotNull Task spillTask(@NotNull Task task) {
+        Supplier<List<SqlStatement>> statementsSupplier = task.statements();
+        if(spillDirectory == null || backupTaskQueue.size() < spillThreshold || !task.write() || statementsSupplier == null) return task;
+
+        List<SqlStatement> statements = statementsSupplier.get();
+        if(!StatementJournal.isLossless(statements)) return task;
+
+        TaskSpillFile file = spillFile;
+        long pointer;
+        try {
+            if(file == null) {
+                file = new TaskSpillFile(spillDirectory, TaskSpillFile.DEFAULT_SEGMENT_SIZE);
+                spillFile = file;
+            }
+
+            pointer = file.append(statements);
+        } catch (IOException e) {
+            // Keep the task in memory if it could not be written to disk.
+            return task;
+        }
+
+        // The original runnable will never run and its statements were copied to the spill file, so anything it uses can be released now.
+        Runnable release = task.release();
+        if(release != null) release.run();
+
+        @SuppressWarnings("unchecked")
+        CompletableFuture<Object> future = (CompletableFuture<Object>) task.future();
+        boolean singleResult = task.singleResult();
+        TaskSpillFile spill = file;
+        future.whenComplete((result, throwable) -> spill.release());
+
+        Runnable runnable = () -> {
+            List<SqlStatement> spilledStatements;
+            try {
+                spilledStatements = spill.read(pointer);
+            } catch (IOException e) {
+                future.completeExceptionally(e);
+                return;
+            }
+
+            CompletableFuture<List<Integer>> rowsFuture = new CompletableFuture<>();
+            RunnableUtil.createRunnableForStatementExecution(connectionManager, spilledStatements, rowsFuture).run();
+            rowsFuture.whenComplete((rows, throwable) -> {
+                if(throwable != null) {
+                    future.completeExceptionally(throwable);
+                } else {
+                    future.complete(singleResult ? rows.get(0) : rows);
+                }
+            });
+        };
+
+        Supplier<List<SqlStatement>> spilledSupplier = () -> {
+            try {
+                return spill.read(pointer);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to read a spilled task: " + e.getMessage(), e);
+            }
+        };
+
+        return new Task(runnable, future, task.time(), task.timeUnit(), spilledSupplier, true, singleResult);
+    }
+
+    /**
+     * Stops tasks from being appended to the current spill file. It is deleted once all spilled tasks have completed.
+     * Must be called while holding the lock on the backup queue.
+     */
+    private void sealSpillFile() {
+        if(spillFile != null) {
+            spillFile.seal();
+            spillFile = null;
+        }
+    }
+
+    /**
+     * Tracks the {@link Task} and hands it to the executor of the implementation.
+     * @param task The {@link Task} to dispatch.
+     */
+    private void dispatchTask(@NotNull Task task) {
+        TrackedTask trackedTask = new TrackedTask(task, queueMetrics, connectionManager.getPlugin().getName(), queryTimeoutSeconds);
+        submittedTasks.put(task.future(), trackedTask);
+        task.future().whenComplete((result, throwable) -> submittedTasks.remove(task.future()));
+
+        executeTask(task, trackedTask::run);
+    }
+
+    /**
+     * Takes the provided sql and queues it to be executed.
+     * NOTE: If the queue is paused then the task will be submitted for execution
+     * after the queue is unpaused, which may result in additional delays.
+     * @param sql The sql statement to execute.
+     * @return A {@link CompletableFuture} containing the number of rows updated if completed successfully. May complete exceptionally.
+     */
+    @Override
+    public @NotNull CompletableFuture<Integer> queueWriteTransaction(@NotNull String sql) {
+        CompletableFuture<Integer> future = new CompletableFuture<>();
+
+        Runnable runnable = RunnableUtil.createRunnableForSingleSqlExecution(connectionManager, sql, future);
+
+        submitTask(new Task(runnable, future, null, null, () -> List.of(new SqlStatement(sql)), true, true));
+
+        return future;
+    }
+
+    /**
+     * Takes the provided sql and a {@link List} of {@link Parameter}s to replace in the sql statement, and then queues it to be executed.
+     * NOTE: If the queue is paused then the task will be submitted for execution
+     * after the queue is unpaused, which may result in additional delays.
+     * @param sql The sql statement to execute.
+     * @param params A {@link List} of {@link Parameter}s in the order the parameters are written in the sql statement.
+     * @return A {@link CompletableFuture} containing the number of rows updated if completed successfully. May complete exceptionally.
+     */
+    @Override
+    public @NotNull CompletableFuture<Integer> queueWriteTransaction(@NotNull String sql, @NotNull List<Parameter<?>> params) {
+        CompletableFuture<Integer> future = new CompletableFuture<>();
+
+        Runnable runnable = RunnableUtil.createRunnableForSingleSqlExecution(connectionManager, sql, params, future);
+
+        submitTask(new Task(runnable, future, null, null, () -> List.of(new SqlStatement(sql, params)), true, true));
+
+        return future;
+    }
+
+    /**
+     * Takes the provided sql and a {@link List} of {@link Parameter}s to replace in the sql statement, and then queues it to be executed.
+     * The {@link ChangeEvent} published once it commits carries the provided key.
+     * @param sql The sql statement to execute.
+     * @param params A {@link List} of {@link Parameter}s in the order the parameters are written in the sql statement.
+     * @param changeKey The key of the rows the statement changes, i.e., the player's {@link java.util.UUID}.
+     * @return A {@link CompletableFuture} containing the number of rows updated if completed successfully. May complete exceptionally.
+     */
+    @Override
+    public @NotNull CompletableFuture<Integer> queueWriteTransaction(@NotNull String sql, @NotNull List<Parameter<?>> params, @NotNull Object changeKey) {
+        CompletableFuture<Integer> future = new CompletableFuture<>();
+
+        Runnable runnable = RunnableUtil.createRunnableForSingleSqlExecution(connectionManager, sql, params, future);
+
+        submitTask(new Task(runnable, future, null, null, () -> List.of(new SqlStatement(sql, params)), true, true), changeKey);
+
+        return future;
+    }
+
+    /**
+     * Takes a {@link List} of {@link String} representing sql statements and queues them to be executed.
+     * NOTE: If the queue is paused then the task will be submitted for execution
+     * after the queue is unpaused, which may result in additional delays.
+     * @param sqlList The {@link List} of {@link String} representing sql statements.
+     * @return A {@link CompletableFuture} containing a {@link List} of the number of rows updated for each statement. May complete exceptionally.
+     */
+    @Override
+    public @NotNull CompletableFuture<List<Integer>> queueBulkWriteTransaction(@NotNull List<String> sqlList) {
+        CompletableFuture<List<Integer>> future = new CompletableFuture<>();
+
+        Runnable runnable = RunnableUtil.createRunnableForBatchSqlExecution(connectionManager, sqlList, future);
+
+        submitTask(new Task(runnable, future, null, null, () -> SqlStatement.fromSqlList(sqlList), true, false));
+
+        return future;
+    }
+
+    /**
+     * Takes a {@link Map} of sql statements mapped to a {@link List} of {@link Parameter}s to apply to the sql statement.
+     * NOTE: If the queue is paused then the task will be submitted for execution
+     * after the queue is unpaused, which may result in additional delays.
+     * @param sqlAndParamsMap The {@link Map} mapping sql statements to a {@link List} of {@link Parameter}s.
+     * @return A {@link CompletableFuture} containing a {@link List} of the number of rows updated for each statement. May complete exceptionally.
+     */
+    @Override
+    public @NotNull CompletableFuture<List<Integer>> queueBulkWriteTransaction(@NotNull Map<String, List<Parameter<?>>> sqlAndParamsMap) {
+        CompletableFuture<List<Integer>> future = new CompletableFuture<>();
+
+        Runnable runnable = RunnableUtil.createRunnableForBatchSqlExecution(connectionManager, sqlAndParamsMap, future);
+
+        submitTask(new Task(runnable, future, null, null, () -> SqlStatement.fromSqlAndParamsMap(sqlAndParamsMap), true, false));
+
+        return future;
+    }
+
+    /**
+     * Take the sql statement and execute for the number of parameter lists inside the list of parameter lists provided.
+     * NOTE: If the queue is paused then the task will be submitted for execution
+     * after the queue is unpaused, which may result in additional delays.
+     * @param sql The sql statement to execute.
+     * @param listOfParameterLists A {@link List} containing a {@link List} of {@link Parameter}s.
+     * @return A {@link CompletableFuture} containing a {@link List} of the number of rows updated for each statement. May complete exceptionally.
+     */
+    @Override
+    public @NotNull CompletableFuture<List<Integer>> queueBulkWriteTransaction(@NotNull String sql, @NotNull List<List<Parameter<?>>> listOfParameterLists) {
+        CompletableFuture<List<Integer>> future = new CompletableFuture<>();
+
+        Runnable runnable = RunnableUtil.createRunnableForBatchSqlExecution(connectionManager, sql, listOfParameterLists, future);
+
+        submitTask(new Task(runnable, future, null, null, () -> SqlStatement.fromParameterLists(sql, listOfParameterLists), true, false));
+
+        return future;
+    }
+
+    /**
+     * Takes a {@link List} of {@link SqlStatement}s and queues them to be executed in order as a single transaction.
+     * NOTE: If the queue is paused then the task will be submitted for execution
+     * after the queue is unpaused, which may result in additional delays.
+     * @param statements The {@link List} of {@link SqlStatement}s to execute.
+     * @return A {@link CompletableFuture} containing a {@link List} of the number of rows updated for each statement. May complete exceptionally.
+     */
+    @Override
+    public @NotNull CompletableFuture<List<Integer>> queueStatementTransaction(@NotNull List<SqlStatement> statements) {
+        CompletableFuture<List<Integer>> future = new CompletableFuture<>();
+
+        Runnable runnable = RunnableUtil.createRunnableForStatementExecution(connectionManager, statements, future);
+
+        submitTask(new Task(runnable, future, null, null, () -> statements, true, false));
+
+        return future;
+    }
+
+    /**
+     * Takes the sql and queues it to be executed, mapping the {@link ResultSet} using the mapper function provided.
+     * NOTE: If the queue is paused then the task will be submitted for execution
+     * after the queue is unpaused, which may result in additional delays.
+     * @param sql The sql statement to execute.
+     * @param mapper The mapper function that maps the {@link ResultSet} to a desired value.
+     * @return A {@link CompletableFuture} containing the desired value {@link T}. May complete exceptionally.
+     * @param <T> The desired value to return after the mapping function is applied.
+     */
+    @Override
+    public <T> @NotNull CompletableFuture<T> queueReadTransaction(@NotNull String sql, @NotNull Function<ResultSet, T> mapper) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+
+        Runnable runnable = RunnableUtil.createRunnableForSingleSqlExecution(connectionManager, sql, mapper, future);
+
+        submitTask(new Task(runnable, future, null, null, () -> List.of(new SqlStatement(sql)), false, false));
+
+        return future;
+    }
+
+    /**
+     * Takes the sql, sets the parameters, queues it to be executed, mapping the {@link ResultSet} using the mapper function provided.
+     * NOTE: If the queue is paused then the task will be submitted for execution
+     * after the queue is unpaused, which may result in additional delays.
+     * @param sql The sql statement to execute.
+     * @param params A {@link List} of {@link Parameter}s in the order the parameters are written in the sql statement.
+     * @param mapper The mapper function that maps the {@link ResultSet} to a desired value.
+     * @return A {@link CompletableFuture} containing the desired value {@link T}. May complete exceptionally.
+     * @param <T> The desired value to return after the mapping function is applied.
+     */
+    @Override
+    public <T> @NotNull CompletableFuture<T> queueReadTransaction(@NotNull String sql, @NotNull List<Parameter<?>> params, @NotNull Function<ResultSet, T> mapper) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+
+        Runnable runnable = RunnableUtil.createRunnableForSingleSqlExecution(connectionManager, sql, params, mapper, future);
+
+        submitTask(new Task(runnable, future, null, null, () -> List.of(new SqlStatement(sql, params)), false, false));
+
+        return future;
+    }
+
+    /**
+     * Takes the provided {@link SqlBinding} and queues its sql statement to be executed.
+     * The {@link SqlBinding} is released once the task has run or been skipped, never while it may still be in use.
+     * NOTE: If the queue is paused then the task will be submitted for execution
+     * after the queue is unpaused, which may result in additional delays.
+     * @param binding The {@link SqlBinding} containing the {@link SqlTemplate} and the values to bind.
+     * @return A {@link CompletableFuture} containing the number of rows updated if completed successfully. May complete exceptionally.
+     * @throws IllegalStateException If any parameter of the {@link SqlTemplate} has no value bound.
+     */
+    @Override
+    public @NotNull CompletableFuture<Integer> queueWriteTransaction(@NotNull SqlBinding binding) {
+        binding.validate();
+        CompletableFuture<Integer> future = new CompletableFuture<>();
+
+        Runnable runnable = RunnableUtil.createRunnableForBindingExecution(connectionManager, binding, future);
+
+        submitTask(new Task(runnable, future, null, null, () -> List.of(binding.toSqlStatement()), true, true, binding::release));
+
+        return future;
+    }
+
+    /**
+     * Takes the provided {@link List} of {@link SqlBinding}s and queues their sql statements to be executed in order as a single transaction.
+     * The {@link SqlBinding}s are released once the task has run or been skipped, never while they may still be in use.
+     * NOTE: If the queue is paused then the task will be submitted for execution
+     * after the queue is unpaused, which may result in additional delays.
+     * @param bindings The {@link List} of {@link SqlBinding}s to execute.
+     * @return A {@link CompletableFuture} containing a {@link List} of the number of rows updated for each statement. May complete exceptionally.
+     * @throws IllegalStateException If any parameter of a {@link SqlTemplate} has no value bound.
+     */
+    @Override
+    public @NotNull CompletableFuture<List<Integer>> queueBindingTransaction(@NotNull List<SqlBinding> bindings) {
+        bindings.forEach(SqlBinding::validate);
+        CompletableFuture<List<Integer>> future = new CompletableFuture<>();
+
+        Runnable runnable = RunnableUtil.createRunnableForBindingExecution(connectionManager, bindings, future);
+
+        submitTask(new Task(runnable, future, null, null, () -> bindings.stream().map(SqlBinding::toSqlStatement).toList(), true, false, () -> bindings.forEach(SqlBinding::release)));
+
+        return future;
+    }
+
+    /**
+     * Takes the provided {@link SqlBinding} and queues its sql statement to read from the database.
+     * The {@link SqlBinding} is released once the task has run or been skipped, never while it may still be in use.
+     * NOTE: If the queue is paused then the task will be submitted for execution
+     * after the queue is unpaused, which may result in additional delays.
+     * @param binding The {@link SqlBinding} containing the {@link SqlTemplate} and the values to bind.
+     * @param mapper The function that maps the {@link ResultSet} to the value {@link T}.
+     * @return A {@link CompletableFuture} containing the object {@link T}. May complete exceptionally.
+     * @param <T> The object that is created and returned when the mapper function is run.
+     * @throws IllegalStateException If any parameter of the {@link SqlTemplate} has no value bound.
+     */
+    @Override
+    public <T> @NotNull CompletableFuture<T> queueReadTransaction(@NotNull SqlBinding binding, @NotNull Function<ResultSet, T> mapper) {
+        binding.validate();
+        CompletableFuture<T> future = new CompletableFuture<>();
+
+        Runnable runnable = RunnableUtil.createRunnableForBindingExecution(connectionManager, binding, mapper, future);
+
+        submitTask(new Task(runnable, future, null, null, () -> List.of(binding.toSqlStatement()), false, false, binding::release));
+
+        return future;
+    }
+
+    /**
+     * Queues a sql statement to read from the database, copying the rows into a {@link RowBuffer} and mapping them on the mapper executor of {@link ThreadPoolManager}.
+     * @param sql The sql statement as a {@link String}.
+     * @param mapper The function to map the {@link RowBuffer} to the value {@link T}.
+     * @return A {@link CompletableFuture} containing the object {@link T}.
+     * @param <T> The object {@link T} created using the data from {@link RowBuffer}.
+     */
+    @Override
+    public <T> @NotNull CompletableFuture<T> queueBufferedReadTransaction(@NotNull String sql, @NotNull Function<RowBuffer, T> mapper) {
+        return queueBufferedReadTransaction(sql, List.of(), mapper);
+    }
+
+    /**
+     * Queues a sql statement to read from the database, copying the rows into a {@link RowBuffer} and mapping them on the mapper executor of {@link ThreadPoolManager}.
+     * @param sql The sql statement as a {@link String}.
+     * @param params A {@link List} of {@link Parameter} that are used to replace parameters in the sql statement.
+     * @param mapper The function to map the {@link RowBuffer} to the value {@link T}.
+     * @return A {@link CompletableFuture} containing the object {@link T}.
+     * @param <T> The object {@link T} created using the data from {@link RowBuffer}.
+     */
+    @Override
+    public <T> @NotNull CompletableFuture<T> queueBufferedReadTransaction(@NotNull String sql, @NotNull List<Parameter<?>> params, @NotNull Function<RowBuffer, T> mapper) {
+        CompletableFuture<RowBuffer> readFuture = queueReadTransaction(sql, params, RowBuffer::copyOf);
+        CompletableFuture<T> future = readFuture.thenApplyAsync(
+                ResourceAccounting.wrapContinuation(connectionManager.getPlugin().getName(), mapper), ThreadPoolManager.getMapperExecutor());
+
+        // The caller only holds the mapped future, so pass a cancel or timeout on to the read.
+        future.whenComplete((result, throwable) -> {
+            if(throwable != null) readFuture.completeExceptionally(throwable);
+        });
+
+        return future;
+    }
+
+    /**
+     * Creates a {@link RowPublisher} that executes a sql statement and publishes each row mapped to {@link T}.
+     * Each step of reading rows is submitted to this queue as its own {@link Task}.
+     * @param sql The sql statement as a {@link String}.
+     * @param rowMapper The function to map the current row of the {@link ResultSet} to the value {@link T}.
+     * @return A single-subscriber {@link Flow.Publisher} of the mapped rows.
+     * @param <T> The object {@link T} created using the data from each row.
+     */
+    @Override
+    public <T> @NotNull Flow.Publisher<T> queueReadPublisher(@NotNull String sql, @NotNull Function<ResultSet, T> rowMapper) {
+        return queueReadPublisher(sql, List.of(), rowMapper);
+    }
+
+    /**
+     * Creates a {@link RowPublisher} that executes a sql statement and publishes each row mapped to {@link T}.
+     * Each step of reading rows is submitted to this queue as its own {@link Task}.
+     * @param sql The sql statement as a {@link String}.
+     * @param params A {@link List} of {@link Parameter} that are used to replace parameters in the sql statement.
+     * @param rowMapper The function to map the current row of the {@link ResultSet} to the value {@link T}.
+     * @return A single-subscriber {@link Flow.Publisher} of the mapped rows.
+     * @param <T> The object {@link T} created using the data from each row.
+     */
+    @Override
+    public <T> @NotNull Flow.Publisher<T> queueReadPublisher(@NotNull String sql, @NotNull List<Parameter<?>> params, @NotNull Function<ResultSet, T> rowMapper) {
+        return new RowPublisher<>(connectionManager, new SqlStatement(sql, params), rowMapper, this::submitTask, createPublisherRecorder());
+    }
+
+    /**
+     * Creates a {@link RowPublisher} that executes the sql statement of a {@link SqlBinding} and publishes each row mapped to {@link T}.
+     * The {@link SqlBinding} is released once its values have been copied.
+     * @param binding The {@link SqlBinding} containing the {@link SqlTemplate} and the values to bind.
+     * @param rowMapper The function to map the current row of the {@link ResultSet} to the value {@link T}.
+     * @return A single-subscriber {@link Flow.Publisher} of the mapped rows.
+     * @param <T> The object {@link T} created using the data from each row.
+     * @throws IllegalStateException If any parameter of the {@link SqlTemplate} has no value bound.
+     */
+    @Override
+    public <T> @NotNull Flow.Publisher<T> queueReadPublisher(@NotNull SqlBinding binding, @NotNull Function<ResultSet, T> rowMapper) {
+        binding.validate();
+        SqlStatement sqlStatement = binding.toSqlStatement();
+        binding.release();
+
+        return new RowPublisher<>(connectionManager, sqlStatement, rowMapper, this::submitTask, createPublisherRecorder());
+    }
+
+    /**
+     * Creates the function that records a read publisher's query to the current {@link QueryShapeStats} once its cursor is closed.
+     * @return The function, or null if query shapes are not being recorded.
+     */
+    private @Nullable ObjLongConsumer<@NotNull SqlStatement> createPublisherRecorder() {
+        QueryShapeStats shapeStats = queryShapeStats;
+        if(shapeStats == null) return null;
+
+        return (sqlStatement, runNanos) -> shapeStats.record(sqlStatement.sql(), runNanos);
+    }
+
+    /**
+     * Wraps a submitted {@link Task} so that it only runs once, is skipped if its future was already completed
+     * (i.e., cancelled by the caller or during shutdown), and always completes its future.
+     */
+    private static final class TrackedTask {
+        private final @NotNull Task task;
+        private final @NotNull QueueMetrics queueMetrics;
+        private final @NotNull String pluginName;
+        private final int queryTimeoutSeconds;
+        private final @NotNull AtomicBoolean claimed = new AtomicBoolean(false);
+        private final long readyTime;
+
+        /**
+         * Constructor
+         * @param task The {@link Task} to track.
+         * @param queueMetrics The {@link QueueMetrics} to record the task's wait and run time to.
+         * @param pluginName The name of the plugin the task's resource usage is attributed to.
+         * @param queryTimeoutSeconds The query timeout in seconds applied to the task's statements, or 0 for no timeout.
+         */
+        private TrackedTask(@NotNull Task task, @NotNull QueueMetrics queueMetrics, @NotNull String pluginName, int queryTimeoutSeconds) {
+            this.task = task;
+            this.queueMetrics = queueMetrics;
+            this.pluginName = pluginName;
+            this.queryTimeoutSeconds = queryTimeoutSeconds;
+
+            long delay = task.time() != null && task.timeUnit() != null ? task.timeUnit().toNanos(task.time()) : 0;
+            this.readyTime = System.nanoTime() + delay;
+        }
+
+        /**
+         * Claims the task so that only one caller may run or cancel it.
+         * @return true if the task was claimed, false if it was already claimed or its future is already complete.
+         */
+        private boolean claim() {
+            return !task.future().isDone() && claimed.compareAndSet(false, true);
+        }
+
+        /**
+         * Runs the task if it can be claimed. A task whose future was cancelled or timed out before it started is skipped without obtaining a connection.
+         */
+        private void run() {
+            if(task.future().isDone()) {
+                if(claimed.compareAndSet(false, true)) {
+                    queueMetrics.recordSkipped();
+                    release();
+                }
+                return;
+            }
+
+            if(!claim()) return;
+
+            long startTime = System.nanoTime();
+            long startCpuTime = ResourceAccounting.getCurrentThreadCpuTime();
+            // Clear a connection mark left behind by code that obtained a connection outside a task.
+            ResourceAccounting.takeConnectionHoldTime();
+            QueryCancellation.Scope scope = QueryCancellation.open(task.future(), queryTimeoutSeconds);
+            try {
+                task.runnable().run();
+            } catch (RuntimeException e) {
+                task.future().completeExceptionally(e);
+            } finally {
+                scope.close();
+                // Released here rather than when the future completes, as a cancelled or timed out task may still be using them.
+                release();
+                if(scope.wasInterrupted()) queueMetrics.recordInterrupted();
+
+                long runTime = System.nanoTime() - startTime;
+                long cpuTime = startCpuTime == -1 ? 0 : ResourceAccounting.getCurrentThreadCpuTime() - startCpuTime;
+
+                queueMetrics.record(startTime - readyTime, runTime);
+                // Connections are closed before the task's runnable returns, so the time since the connection was obtained is the hold time.
+                ResourceAccounting.record(pluginName, cpuTime, runTime, getRowsAffected(), ResourceAccounting.takeConnectionHoldTime());
+            }
+        }
+
+        /**
+         * Releases the pooled objects used by the task, if any.
+         */
+        private void release() {
+            Runnable release = task.release();
+            if(release != null) release.run();
+        }
+
+        /**
+         * Get the number of rows affected by a completed write task.
+         * @return The number of rows affected, or 0 if the task is not a write task or did not complete successfully.
+         */
+        private long getRowsAffected() {
+            CompletableFuture<?> future = task.future();
+            if(!task.write() || !future.isDone() || future.isCompletedExceptionally()) return 0;
+
+            Object result = future.getNow(null);
+            if(result instanceof Integer rows) return Math.max(0, rows);
+
+            long rows = 0;
+            if(result instanceof List<?> list) {
+                for(Object element : list) {
+                    if(element instanceof Integer count) rows += Math.max(0, count);
+                }
+            }
+
+            return rows;
+        }
+    }
+}
@@ -24,202 +24,91 @@ package com.github.lukesky19.skylib.api.database.queue;
 
 import com.github.lukesky19.skylib.api.database.connection.AbstractConnectionManager;
 import com.github.lukesky19.skylib.api.database.queue.util.RunnableUtil;
+import com.github.lukesky19.skylib.api.database.statement.SqlStatement;
+import com.github.lukesky19.skylib.internal.FairScheduler;
 import com.github.lukesky19.skylib.internal.ThreadPoolManager;
+import com.github.lukesky19.skylib.internal.TimingWheel;
 import com.github.lukesky19.skylib.api.database.parameter.Parameter;
 import com.github.lukesky19.skylib.api.database.queue.util.Task;
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
 
 import java.sql.*;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 /**
  * This abstract class provides a default implementation to asynchronously read and write to a database using multiple threads.
- * The {@link #executorService} is shared across all {@link MultiThreadQueueManager}s.
+ * The executor is shared across all {@link MultiThreadQueueManager}s. Tasks are handed to it through the shared {@link FairScheduler},
+ * which gives each plugin its own queue so that one plugin with many tasks cannot delay the tasks of other plugins.
  * Make sure you properly design your database and tables to properly implement some form of optimistic locking to handle race condition issues.
  * You can use {@link SingleThreadQueueManager} to asynchronously read and write to a database in a synchronous manner.
+ * Delayed tasks are held in a shared {@link TimingWheel} rather than the executor's queue.
+ * Delays are rounded up to the next 50 milliseconds, and delayed tasks due on the same tick are handed to the {@link FairScheduler} together, each as its own task.
+ * The number of this queue's tasks running at once can be limited with {@link #setConcurrencyLimit(int)}. Tasks over the limit wait in this queue rather than occupying the shared threads.
  */
-public abstract class MultiThreadQueueManager implements QueueManager {
-    private final @NotNull AbstractConnectionManager connectionManager;
-    private final @NotNull ScheduledExecutorService executorService;
-    private final @NotNull List<CompletableFuture<?>> submittedTasksResults = new ArrayList<>();
-    private boolean pauseQueue = false;
-    private final @NotNull List<@NotNull Task> backupTaskQueue = new ArrayList<>();
+public abstract class MultiThreadQueueManager extends AbstractQueueManager {
+    private final @NotNull FairScheduler fairScheduler;
+    private final @NotNull String pluginName;
+    private final @NotNull TimingWheel timingWheel;
+    private final @NotNull Consumer<@NotNull List<TimingWheel.DueTask>> batchHandler;
+    private final @NotNull ConcurrentLinkedQueue<TimingWheel.DueTask> waitingTasks = new ConcurrentLinkedQueue<>();
+    private final @NotNull AtomicInteger runningTasks = new AtomicInteger();
+    private volatile int concurrencyLimit = Integer.MAX_VALUE;
 
     /**
      * Constructor that takes a class that extends {@link AbstractConnectionManager}.
      * @param connectionManager A class that extends {@link AbstractConnectionManager} to use.
      */
     public MultiThreadQueueManager(@NotNull AbstractConnectionManager connectionManager) {
-        this.connectionManager = connectionManager;
-        this.executorService = ThreadPoolManager.getThreadPoolExecutor();
+        super(connectionManager);
+        this.fairScheduler = ThreadPoolManager.getFairScheduler();
+        this.pluginName = connectionManager.getPlugin().getName();
+        this.timingWheel = ThreadPoolManager.getTimingWheel();
+        this.batchHandler = this::executeBatch;
     }
 
     /**
-     * Sets the {@link #pauseQueue} variable to the boolean provided. true will pause the queue, false will not.
-     * If the queue status is set from true -> false, the {@link #backupTaskQueue} will have its tasks submitted to the {@link #executorService}.
-     * @param status The status to set.
+     * Sets the maximum number of this queue's tasks that may run at once on the shared executor.
+     * Lowering the limit does not interrupt running tasks; it takes effect as they finish.
+     * @param concurrencyLimit The maximum number of tasks that may run at once. Values less than 1 are treated as 1.
      */
-    public void setQueueStatus(boolean status) {
-        if(this.pauseQueue && !status) {
-            processBackupQueue();
-        }
-
-        this.pauseQueue = status;
+    public void setConcurrencyLimit(int concurrencyLimit) {
+        this.concurrencyLimit = Math.max(1, concurrencyLimit);
+        startWaitingTasks();
     }
 
     /**
-     * Takes any tasks submitted to the {@link #backupTaskQueue} and submits them to the {@link #executorService}.
-     * You should use {@link #setQueueStatus(boolean)} with the boolean false after this method completes.
+     * Get the maximum number of this queue's tasks that may run at once.
+     * @return The concurrency limit. {@link Integer#MAX_VALUE} if unlimited, which is the default.
      */
-    public void processBackupQueue() {
-        List<@NotNull Task> backupQueue = new ArrayList<>(backupTaskQueue);
-        backupTaskQueue.clear();
-
-        backupQueue.forEach(task -> queueOrScheduleTask(task.runnable(), task.future(), task.time(), task.timeUnit()));
-    }
-
-    /**
-     * Get notified by a {@link CompletableFuture} of type {@link Void} when the queue is empty.
-     * You should use {@link #setQueueStatus(boolean)} with the boolean true to pause tasks being submitted to the {@link #executorService} before calling this method.
-     * @return A {@link CompletableFuture} of type {@link Void}.
-     */
-    public @NotNull CompletableFuture<Void> waitForQueueEmpty() {
-        if(submittedTasksResults.isEmpty()) return CompletableFuture.completedFuture(null);
-
-        return CompletableFuture.allOf(submittedTasksResults.toArray(new CompletableFuture[0]));
-    }
-
-    @Override
-    public @NotNull CompletableFuture<Void> shutdownQueue() {
-        return waitForQueueEmpty();
+    public int getConcurrencyLimit() {
+        return concurrencyLimit;
     }
 
     /**
-     * Takes the provided sql and queues it to be executed.
-     * NOTE: If the database is in backup ({@link #pauseQueue} is true) then the task will be submitted for execution
-     * after the backup is done ({@link #pauseQueue} is false), which may result in additional delays.
-     * @param sql The sql statement to execute.
-     * @return A {@link CompletableFuture} containing the number of rows updated if completed successfully. May complete exceptionally.
+     * Get the number of this queue's tasks that are running or have been handed to the executor.
+     * @return The number of running tasks.
      */
-    public @NotNull CompletableFuture<Integer> queueWriteTransaction(@NotNull String sql) {
-        CompletableFuture<Integer> future = new CompletableFuture<>();
-
-        Runnable runnable = RunnableUtil.createRunnableForSingleSqlExecution(connectionManager, sql, future);
-
-        if(pauseQueue) {
-            backupTaskQueue.add(new Task(runnable, future, null, null));
-        } else {
-            queueOrScheduleTask(runnable, future, null, null);
-        }
-
-        future.whenComplete((i, t) -> submittedTasksResults.remove(future));
-
-        return future;
+    public int getRunningCount() {
+        return runningTasks.get();
     }
 
     /**
-     * Takes the provided sql and a {@link List} of {@link Parameter}s to replace in the sql statement, and then queues it to be executed.
-     * NOTE: If the database is in backup ({@link #pauseQueue} is true) then the task will be submitted for execution
-     * after the backup is done ({@link #pauseQueue} is false), which may result in additional delays.
-     * @param sql The sql statement to execute.
-     * @param params A {@link List} of {@link Parameter}s in the order the parameters are written in the sql statement.
-     * @return A {@link CompletableFuture} containing the number of rows updated if completed successfully. May complete exceptionally.
+     * Get the number of this queue's tasks that are waiting because the concurrency limit has been reached.
+     * @return The number of waiting tasks.
      */
-    public @NotNull CompletableFuture<Integer> queueWriteTransaction(@NotNull String sql, @NotNull List<Parameter<?>> params) {
-        CompletableFuture<Integer> future = new CompletableFuture<>();
-
-        Runnable runnable = RunnableUtil.createRunnableForSingleSqlExecution(connectionManager, sql, params, future);
-
-        if(pauseQueue) {
-            backupTaskQueue.add(new Task(runnable, future, null, null));
-        } else {
-            queueOrScheduleTask(runnable, future, null, null);
-        }
-
-        future.whenComplete((i, t) -> submittedTasksResults.remove(future));
-
-        return future;
-    }
-
-    /**
-     * Takes a {@link List} of {@link String} representing sql statements and queues them to be executed.
-     * NOTE: If the database is in backup ({@link #pauseQueue} is true) then the task will be submitted for execution
-     * after the backup is done ({@link #pauseQueue} is false), which may result in additional delays.
-     * @param sqlList The {@link List} of {@link String} representing sql statements.
-     * @return A {@link CompletableFuture} containing a {@link List} of the number of rows updated for each statement. May complete exceptionally.
-     */
-    public @NotNull CompletableFuture<List<Integer>> queueBulkWriteTransaction(@NotNull List<String> sqlList) {
-        CompletableFuture<List<Integer>> future = new CompletableFuture<>();
-
-        Runnable runnable = RunnableUtil.createRunnableForBatchSqlExecution(connectionManager, sqlList, future);
-
-        if(pauseQueue) {
-            backupTaskQueue.add(new Task(runnable, future, null, null));
-        } else {
-            queueOrScheduleTask(runnable, future, null, null);
-        }
-
-        future.whenComplete((i, t) -> submittedTasksResults.remove(future));
-
-        return future;
-    }
-
-    /**
-     * Takes a {@link Map} of sql statements mapped to a {@link List} of {@link Parameter}s to apply to the sql statement.
-     * NOTE: If the database is in backup ({@link #pauseQueue} is true) then the task will be submitted for execution
-     * after the backup is done ({@link #pauseQueue} is false), which may result in additional delays.
-     * @param sqlAndParamsMap The {@link Map} mapping sql statements to a {@link List} of {@link Parameter}s.
-     * @return A {@link CompletableFuture} containing a {@link List} of the number of rows updated for each statement. May complete exceptionally.
-     */
-    public @NotNull CompletableFuture<List<Integer>> queueBulkWriteTransaction(@NotNull Map<String, List<Parameter<?>>> sqlAndParamsMap) {
-        CompletableFuture<List<Integer>> future = new CompletableFuture<>();
-
-        Runnable runnable = RunnableUtil.createRunnableForBatchSqlExecution(connectionManager, sqlAndParamsMap, future);
-
-        if(pauseQueue) {
-            backupTaskQueue.add(new Task(runnable, future, null, null));
-        } else {
-            queueOrScheduleTask(runnable, future, null, null);
-        }
-
-        future.whenComplete((i, t) -> submittedTasksResults.remove(future));
-
-        return future;
-    }
-
-    /**
-     * Take the sql statement and execute for the number of parameter lists inside the list of parameter lists provided.
-     * NOTE: If the database is in backup ({@link #pauseQueue} is true) then the task will be submitted for execution
-     * after the backup is done ({@link #pauseQueue} is false), which may result in additional delays.
-     * @param sql The sql statement to execute.
-     * @param listOfParameterLists A {@link List} containing a {@link List} of {@link Parameter}s.
-     * @return A {@link CompletableFuture} containing a {@link List} of the number of rows updated for each statement. May complete exceptionally.
-     */
-    public @NotNull CompletableFuture<List<Integer>> queueBulkWriteTransaction(@NotNull String sql, @NotNull List<List<Parameter<?>>> listOfParameterLists) {
-        CompletableFuture<List<Integer>> future = new CompletableFuture<>();
-
-        Runnable runnable = RunnableUtil.createRunnableForBatchSqlExecution(connectionManager, sql, listOfParameterLists, future);
-
-        if (pauseQueue) {
-            backupTaskQueue.add(new Task(runnable, future, null, null));
-        } else {
-            queueOrScheduleTask(runnable, future, null, null);
-        }
-
-        future.whenComplete((i, t) -> submittedTasksResults.remove(future));
-
-        return future;
+    public int getWaitingCount() {
+        return waitingTasks.size();
     }
 
     /**
      * Queues the provided sql and executes it after the provided delay.
-     * NOTE: If the queue is paused ({@link #pauseQueue} is true) then the task will be scheduled after the
-     * queue us unpaused ({@link #pauseQueue} is false) resulting in additional delays.
+     * NOTE: If the queue is paused then the task will be scheduled after the
+     * queue is unpaused, which may result in additional delays.
      * @param sql The sql statement to queue.
      * @param delay The delay before the sql statement should be executed.
      * @param timeUnit The {@link TimeUnit} of the delay.
@@ -228,23 +117,17 @@ public abstract class MultiThreadQueueManager implements QueueManager {
     public @NotNull CompletableFuture<Integer> scheduleWriteTransaction(@NotNull String sql, int delay, @NotNull TimeUnit timeUnit) {
         CompletableFuture<Integer> future = new CompletableFuture<>();
 
-        Runnable runnable = RunnableUtil.createRunnableForSingleSqlExecution(connectionManager, sql, future);
+        Runnable runnable = RunnableUtil.createRunnableForSingleSqlExecution(getConnectionManager(), sql, future);
 
-        if(pauseQueue) {
-            backupTaskQueue.add(new Task(runnable, future, delay, timeUnit));
-        } else {
-            queueOrScheduleTask(runnable, future, delay, timeUnit);
-        }
-
-        future.whenComplete((i, t) -> submittedTasksResults.remove(future));
+        submitTask(new Task(runnable, future, delay, timeUnit, () -> List.of(new SqlStatement(sql)), true, true));
 
         return future;
     }
 
     /**
      * Takes the provided sql and a {@link List} of {@link Parameter}s to replace in the sql statement, and then executes it after the provided delay.
-     * NOTE: If the queue is paused ({@link #pauseQueue} is true) then the task will be scheduled after the
-     * queue us unpaused ({@link #pauseQueue} is false) resulting in additional delays.
+     * NOTE: If the queue is paused then the task will be scheduled after the
+     * queue is unpaused, which may result in additional delays.
      * @param sql The sql statement to execute.
      * @param params A {@link List} of {@link Parameter}s in the order the parameters are written in the sql statement.
      * @param delay The delay before the sql statement should be executed.
@@ -254,23 +137,17 @@ public abstract class MultiThreadQueueManager implements QueueManager {
     public @NotNull CompletableFuture<Integer> scheduleWriteTransaction(@NotNull String sql, @NotNull List<Parameter<?>> params, int delay, @NotNull TimeUnit timeUnit) {
         CompletableFuture<Integer> future = new CompletableFuture<>();
 
-        Runnable runnable = RunnableUtil.createRunnableForSingleSqlExecution(connectionManager, sql, params, future);
-
-        if(pauseQueue) {
-            backupTaskQueue.add(new Task(runnable, future, delay, timeUnit));
-        } else {
-            queueOrScheduleTask(runnable, future, delay, timeUnit);
-        }
+        Runnable runnable = RunnableUtil.createRunnableForSingleSqlExecution(getConnectionManager(), sql, params, future);
 
-        future.whenComplete((i, t) -> submittedTasksResults.remove(future));
+        submitTask(new Task(runnable, future, delay, timeUnit, () -> List.of(new SqlStatement(sql, params)), true, true));
 
         return future;
     }
 
     /**
      * Takes a {@link List} of {@link String} representing sql statements and executes them after the provided delay.
-     * NOTE: If the queue is paused ({@link #pauseQueue} is true) then the task will be scheduled after the
-     * queue us unpaused ({@link #pauseQueue} is false) resulting in additional delays.
+     * NOTE: If the queue is paused then the task will be scheduled after the
+     * queue is unpaused, which may result in additional delays.
      * @param sqlList The {@link List} of {@link String} representing sql statements.
      * @param delay The delay before the sql statements should be executed.
      * @param timeUnit The {@link TimeUnit} of the delay.
@@ -279,23 +156,17 @@ public abstract class MultiThreadQueueManager implements QueueManager {
     public @NotNull CompletableFuture<List<Integer>> scheduleBulkWriteTransaction(@NotNull List<String> sqlList, int delay, @NotNull TimeUnit timeUnit) {
         CompletableFuture<List<Integer>> future = new CompletableFuture<>();
 
-        Runnable runnable = RunnableUtil.createRunnableForBatchSqlExecution(connectionManager, sqlList, future);
-
-        if(pauseQueue) {
-            backupTaskQueue.add(new Task(runnable, future, delay, timeUnit));
-        } else {
-            queueOrScheduleTask(runnable, future, delay, timeUnit);
-        }
+        Runnable runnable = RunnableUtil.createRunnableForBatchSqlExecution(getConnectionManager(), sqlList, future);
 
-        future.whenComplete((i, t) -> submittedTasksResults.remove(future));
+        submitTask(new Task(runnable, future, delay, timeUnit, () -> SqlStatement.fromSqlList(sqlList), true, false));
 
         return future;
     }
 
     /**
      * Takes a {@link Map} of sql statements mapped to a {@link List} of {@link Parameter}s to apply to the sql statement.
-     * NOTE: If the queue is paused ({@link #pauseQueue} is true) then the task will be scheduled after the
-     * queue us unpaused ({@link #pauseQueue} is false) resulting in additional delays.
+     * NOTE: If the queue is paused then the task will be scheduled after the
+     * queue is unpaused, which may result in additional delays.
      * @param sqlAndParamsMap The {@link Map} mapping sql statements to a {@link List} of {@link Parameter}s.
      * @param delay The delay before the sql statements should be executed.
      * @param timeUnit The {@link TimeUnit} of the delay.
@@ -304,23 +175,17 @@ public abstract class MultiThreadQueueManager implements QueueManager {
     public @NotNull CompletableFuture<List<Integer>> scheduleBulkWriteTransaction(@NotNull Map<String, List<Parameter<?>>> sqlAndParamsMap, int delay, @NotNull TimeUnit timeUnit) {
         CompletableFuture<List<Integer>> future = new CompletableFuture<>();
 
-        Runnable runnable = RunnableUtil.createRunnableForBatchSqlExecution(connectionManager, sqlAndParamsMap, future);
+        Runnable runnable = RunnableUtil.createRunnableForBatchSqlExecution(getConnectionManager(), sqlAndParamsMap, future);
 
-        if(pauseQueue) {
-            backupTaskQueue.add(new Task(runnable, future, delay, timeUnit));
-        } else {
-            queueOrScheduleTask(runnable, future, delay, timeUnit);
-        }
-
-        future.whenComplete((i, t) -> submittedTasksResults.remove(future));
+        submitTask(new Task(runnable, future, delay, timeUnit, () -> SqlStatement.fromSqlAndParamsMap(sqlAndParamsMap), true, false));
 
         return future;
     }
 
     /**
      * Take the sql statement and execute it for the number of parameter lists inside the list of parameter lists provided.
-     * NOTE: If the database is in backup ({@link #pauseQueue} is true) then the task will be submitted for execution
-     * after the backup is done ({@link #pauseQueue} is false), which may result in additional delays.
+     * NOTE: If the queue is paused then the task will be scheduled after the
+     * queue is unpaused, which may result in additional delays.
      * @param sql The sql statement to execute.
      * @param listOfParameterLists A {@link List} containing a {@link List} of {@link Parameter}s.
      * @param delay The delay before the sql statements should be executed.
@@ -330,141 +195,119 @@ public abstract class MultiThreadQueueManager implements QueueManager {
     public @NotNull CompletableFuture<List<Integer>> scheduleBulkWriteTransaction(@NotNull String sql, @NotNull List<List<Parameter<?>>> listOfParameterLists, int delay, @NotNull TimeUnit timeUnit) {
         CompletableFuture<List<Integer>> future = new CompletableFuture<>();
 
-        Runnable runnable = RunnableUtil.createRunnableForBatchSqlExecution(connectionManager, sql, listOfParameterLists, future);
+        Runnable runnable = RunnableUtil.createRunnableForBatchSqlExecution(getConnectionManager(), sql, listOfParameterLists, future);
 
-        if(pauseQueue) {
-            backupTaskQueue.add(new Task(runnable, future, delay, timeUnit));
-        } else {
-            queueOrScheduleTask(runnable, future, delay, timeUnit);
-        }
-
-        future.whenComplete((i, t) -> submittedTasksResults.remove(future));
+        submitTask(new Task(runnable, future, delay, timeUnit, () -> SqlStatement.fromParameterLists(sql, listOfParameterLists), true, false));
 
         return future;
     }
 
     /**
      * Takes the sql and queues it to be executed, mapping the {@link ResultSet} using the mapper function provided.
-     * NOTE: If the database is in backup ({@link #pauseQueue} is true) then the task will be submitted for execution
-     * after the backup is done ({@link #pauseQueue} is false), which may result in additional delays.
+     * NOTE: If the queue is paused then the task will be scheduled after the
+     * queue is unpaused, which may result in additional delays.
      * @param sql The sql statement to execute.
      * @param mapper The mapper function that maps the {@link ResultSet} to a desired value.
-     * @return A {@link CompletableFuture} containing the desired value {@link T}. May complete exceptionally.
+     * @param delay The delay before the sql statement should be executed.
+     * @param timeUnit The {@link TimeUnit} of the delay.
+     * @return A {@link CompletableFuture} containing the desired value {@link T}. May complete exceptionally. May complete exceptionally.
      * @param <T> The desired value to return after the mapping function is applied.
      */
-    public <T> @NotNull CompletableFuture<T> queueReadTransaction(@NotNull String sql, @NotNull Function<ResultSet, T> mapper) {
+    public <T> @NotNull CompletableFuture<T> scheduleReadTransaction(@NotNull String sql, @NotNull Function<ResultSet, T> mapper, int delay, @NotNull TimeUnit timeUnit) {
         CompletableFuture<T> future = new CompletableFuture<>();
 
-        Runnable runnable = RunnableUtil.createRunnableForSingleSqlExecution(connectionManager, sql, mapper, future);
+        Runnable runnable = RunnableUtil.createRunnableForSingleSqlExecution(getConnectionManager(), sql, mapper, future);
 
-        if(pauseQueue) {
-            backupTaskQueue.add(new Task(runnable, future, null, null));
-        } else {
-            queueOrScheduleTask(runnable, future, null, null);
-        }
-
-        future.whenComplete((i, t) -> submittedTasksResults.remove(future));
+        submitTask(new Task(runnable, future, delay, timeUnit, () -> List.of(new SqlStatement(sql)), false, false));
 
         return future;
     }
 
     /**
-     * Takes the sql, sets the parameters, queues it to be executed, mapping the {@link ResultSet} using the mapper function provided.
-     * NOTE: If the database is in backup ({@link #pauseQueue} is true) then the task will be submitted for execution
-     * after the backup is done ({@link #pauseQueue} is false), which may result in additional delays.
+     * Takes the sql and queues it to be executed, mapping the {@link ResultSet} using the mapper function provided.
+     * NOTE: If the queue is paused then the task will be scheduled after the
+     * queue is unpaused, which may result in additional delays.
      * @param sql The sql statement to execute.
      * @param params A {@link List} of {@link Parameter}s in the order the parameters are written in the sql statement.
      * @param mapper The mapper function that maps the {@link ResultSet} to a desired value.
+     * @param delay The delay before the sql statement should be executed.
+     * @param timeUnit The {@link TimeUnit} of the delay.
      * @return A {@link CompletableFuture} containing the desired value {@link T}. May complete exceptionally.
      * @param <T> The desired value to return after the mapping function is applied.
      */
-    public <T> @NotNull CompletableFuture<T> queueReadTransaction(@NotNull String sql, @NotNull List<Parameter<?>> params, @NotNull Function<ResultSet, T> mapper) {
+    public <T> @NotNull CompletableFuture<T> scheduleReadTransaction(@NotNull String sql, @NotNull List<Parameter<?>> params, @NotNull Function<ResultSet, T> mapper, int delay, @NotNull TimeUnit timeUnit) {
         CompletableFuture<T> future = new CompletableFuture<>();
 
-        Runnable runnable = RunnableUtil.createRunnableForSingleSqlExecution(connectionManager, sql, params, mapper, future);
-
-        if(pauseQueue) {
-            backupTaskQueue.add(new Task(runnable, future, null, null));
-        } else {
-            queueOrScheduleTask(runnable, future, null, null);
-        }
+        Runnable runnable = RunnableUtil.createRunnableForSingleSqlExecution(getConnectionManager(), sql, params, mapper, future);
 
-        future.whenComplete((i, t) -> {
-            submittedTasksResults.remove(future);
-        });
+        submitTask(new Task(runnable, future, delay, timeUnit, () -> List.of(new SqlStatement(sql, params)), false, false));
 
         return future;
     }
 
     /**
-     * Takes the sql and queues it to be executed, mapping the {@link ResultSet} using the mapper function provided.
-     * NOTE: If the queue is paused ({@link #pauseQueue} is true) then the task will be scheduled after the
-     * queue us unpaused ({@link #pauseQueue} is false) resulting in additional delays.
-     * @param sql The sql statement to execute.
-     * @param mapper The mapper function that maps the {@link ResultSet} to a desired value.
-     * @param delay The delay before the sql statement should be executed.
-     * @param timeUnit The {@link TimeUnit} of the delay.
-     * @return A {@link CompletableFuture} containing the desired value {@link T}. May complete exceptionally. May complete exceptionally.
-     * @param <T> The desired value to return after the mapping function is applied.
+     * Sends a task to the {@link #fairScheduler}. If the task has a delay, it is added to the {@link #timingWheel} instead.
+     * If the plugin's queue in the {@link #fairScheduler} is full when the task is submitted, the task's future is completed exceptionally with a {@link RejectedExecutionException}.
+     * This also applies to delayed tasks, so a plugin cannot get around its queue depth limit by delaying its tasks.
+     * The executor is shared, so it is not shut down when this queue shuts down.
+     * @param task The {@link Task} being executed.
+     * @param runnable The {@link Runnable} to pass to the {@link #fairScheduler}.
      */
-    public <T> @NotNull CompletableFuture<T> scheduleReadTransaction(@NotNull String sql, @NotNull Function<ResultSet, T> mapper, int delay, @NotNull TimeUnit timeUnit) {
-        CompletableFuture<T> future = new CompletableFuture<>();
-
-        Runnable runnable = RunnableUtil.createRunnableForSingleSqlExecution(connectionManager, sql, mapper, future);
-
-        if(pauseQueue) {
-            backupTaskQueue.add(new Task(runnable, future, delay, timeUnit));
+    @Override
+    protected void executeTask(@NotNull Task task, @NotNull Runnable runnable) {
+        if(fairScheduler.isFull(pluginName)) {
+            task.future().completeExceptionally(new RejectedExecutionException("The database queue of " + pluginName + " is full."));
+        } else if(task.time() != null && task.timeUnit() != null) {
+            timingWheel.schedule(runnable, task.future(), task.time(), task.timeUnit(), batchHandler);
         } else {
-            queueOrScheduleTask(runnable, future, delay, timeUnit);
+            waitingTasks.add(new TimingWheel.DueTask(runnable, task.future()));
+            startWaitingTasks();
         }
-
-        future.whenComplete((i, t) -> submittedTasksResults.remove(future));
-
-        return future;
     }
 
     /**
-     * Takes the sql and queues it to be executed, mapping the {@link ResultSet} using the mapper function provided.
-     * NOTE: If the database is in backup ({@link #pauseQueue} is true) then the task will be submitted for execution
-     * after the backup is done ({@link #pauseQueue} is false), which may result in additional delays.
-     * @param sql The sql statement to execute.
-     * @param params A {@link List} of {@link Parameter}s in the order the parameters are written in the sql statement.
-     * @param mapper The mapper function that maps the {@link ResultSet} to a desired value.
-     * @param delay The delay before the sql statement should be executed.
-     * @param timeUnit The {@link TimeUnit} of the delay.
-     * @return A {@link CompletableFuture} containing the desired value {@link T}. May complete exceptionally.
-     * @param <T> The desired value to return after the mapping function is applied.
+     * Executes the delayed tasks that are due on the same tick.
+     * Each is handed to the {@link #fairScheduler} as its own task, so they run in parallel and count individually towards the plugin's share and limits.
+     * @param dueTasks The {@link TimingWheel.DueTask}s that are due.
      */
-    public <T> @NotNull CompletableFuture<T> scheduleReadTransaction(@NotNull String sql, @NotNull List<Parameter<?>> params, @NotNull Function<ResultSet, T> mapper, int delay, @NotNull TimeUnit timeUnit) {
-        CompletableFuture<T> future = new CompletableFuture<>();
-
-        Runnable runnable = RunnableUtil.createRunnableForSingleSqlExecution(connectionManager, sql, params, mapper, future);
+    private void executeBatch(@NotNull List<TimingWheel.DueTask> dueTasks) {
+        waitingTasks.addAll(dueTasks);
+        startWaitingTasks();
+    }
 
-        if(pauseQueue) {
-            backupTaskQueue.add(new Task(runnable, future, delay, timeUnit));
-        } else {
-            queueOrScheduleTask(runnable, future, delay, timeUnit);
+    /**
+     * Submits waiting tasks to the {@link #fairScheduler} until the concurrency limit is reached or no tasks are waiting.
+     * If the executor rejects a task, its future is completed exceptionally and it no longer counts as running.
+     */
+    private void startWaitingTasks() {
+        while(!waitingTasks.isEmpty()) {
+            int running = runningTasks.get();
+            if(running >= concurrencyLimit) return;
+            if(!runningTasks.compareAndSet(running, running + 1)) continue;
+
+            TimingWheel.DueTask waitingTask = waitingTasks.poll();
+            if(waitingTask == null) {
+                runningTasks.decrementAndGet();
+                continue;
+            }
+
+            fairScheduler.execute(pluginName, () -> runAndRelease(waitingTask.runnable()), exception -> {
+                runningTasks.decrementAndGet();
+                waitingTask.future().completeExceptionally(exception);
+            });
         }
-
-        future.whenComplete((i, t) -> submittedTasksResults.remove(future));
-
-        return future;
     }
 
     /**
-     * Sends a task to the {@link #executorService}
-     * @param runnable The {@link Runnable} to pass to the {@link #executorService}.
-     * @param future The {@link CompletableFuture} that will hold the result of the task.
-     * @param time Used to schedule when the task should be executed. Optional.
-     * @param timeUnit Used to schedule when the task should be executed. Optional.
+     * Runs a task and then starts the next waiting task (if any).
+     * @param runnable The {@link Runnable} to run.
      */
-    private void queueOrScheduleTask(@NotNull Runnable runnable, @NotNull CompletableFuture<?> future, @Nullable Integer time, @Nullable TimeUnit timeUnit) {
-        if(time != null && timeUnit != null) {
-            executorService.schedule(runnable, time, timeUnit);
-        } else {
-            executorService.submit(runnable);
+    private void runAndRelease(@NotNull Runnable runnable) {
+        try {
+            runnable.run();
+        } finally {
+            runningTasks.decrementAndGet();
+            startWaitingTasks();
         }
-
-        submittedTasksResults.add(future);
     }
 }
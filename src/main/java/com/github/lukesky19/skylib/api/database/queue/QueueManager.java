@@ -23,16 +23,27 @@
 package com.github.lukesky19.skylib.api.database.queue;
 
 import com.github.lukesky19.skylib.api.database.parameter.Parameter;
+import com.github.lukesky19.skylib.api.database.queue.util.RowBuffer;
+import com.github.lukesky19.skylib.api.database.queue.util.ShutdownReport;
+import com.github.lukesky19.skylib.api.database.statement.SqlBinding;
+import com.github.lukesky19.skylib.api.database.statement.SqlStatement;
+import com.github.lukesky19.skylib.api.database.statement.SqlTemplate;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.nio.file.Path;
 import java.sql.ResultSet;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 /**
  * This interface is used to create different classes that manages queues for reading from and writing to a database.
+ * Cancelling a returned future, or letting it time out using {@link CompletableFuture#orTimeout(long, TimeUnit)}, skips the task if it has not started
+ * and cancels its running statement if it has.
  */
 public interface QueueManager {
     /**
@@ -58,6 +69,23 @@ public interface QueueManager {
      */
     @NotNull CompletableFuture<Void> shutdownQueue();
 
+    /**
+     * Used to shut down the queue in order. New tasks are rejected, tasks held while the queue was paused are flushed,
+     * and submitted tasks are given until the deadline to finish. Write tasks that have not started by the deadline are
+     * cancelled and written to the journal file (if provided) so they can be replayed later.
+     * @param timeout The maximum time to wait for submitted tasks to finish.
+     * @param timeUnit The {@link TimeUnit} of the timeout.
+     * @param journalPath The {@link Path} of the journal file to write cancelled write tasks to. Optional.
+     * @return A {@link CompletableFuture} containing a {@link ShutdownReport} when the shut-down of the queue is completed.
+     */
+    @NotNull CompletableFuture<ShutdownReport> shutdownQueue(long timeout, @NotNull TimeUnit timeUnit, @Nullable Path journalPath);
+
+    /**
+     * Get the current {@link QueueState} of the queue.
+     * @return The current {@link QueueState}.
+     */
+    @NotNull QueueState getQueueState();
+
     /**
      * Queue the sql statement to write to the database.
      * @param sql The sql statement as a {@link String}.
@@ -73,6 +101,17 @@ public interface QueueManager {
      */
     @NotNull CompletableFuture<Integer> queueWriteTransaction(@NotNull String sql, @NotNull List<Parameter<?>> params);
 
+    /**
+     * Queues a sql statement to write to the database, publishing the {@link com.github.lukesky19.skylib.api.database.event.ChangeEvent}
+     * with the provided key once it commits, so listeners can invalidate only the changed key.
+     * Other writes publish events without a key while there are listeners.
+     * @param sql The sql statement as a {@link String}.
+     * @param params A {@link List} of {@link Parameter} that are used to replace parameters in the sql statement.
+     * @param changeKey The key of the rows the statement changes, i.e., the player's {@link java.util.UUID}.
+     * @return A {@link CompletableFuture} containing the number of rows updated.
+     */
+    @NotNull CompletableFuture<Integer> queueWriteTransaction(@NotNull String sql, @NotNull List<Parameter<?>> params, @NotNull Object changeKey);
+
     /**
      * Queue a {@link List} of {@link String} containing the sql statements to write to the database.
      * @param sqlList The {@link List} of {@link String} containing the sql statements.
@@ -95,6 +134,42 @@ public interface QueueManager {
      */
     @NotNull CompletableFuture<@NotNull List<@NotNull Integer>> queueBulkWriteTransaction(@NotNull String sql, @NotNull List<List<Parameter<?>>> listOfParameterLists);
 
+    /**
+     * Queue a {@link List} of {@link SqlStatement}s to be executed in order as a single transaction.
+     * @param statements The {@link List} of {@link SqlStatement}s to execute.
+     * @return A {@link CompletableFuture} of type {@link List} where the {@link List} contains that contains the number of rows updated for each sql statement.
+     */
+    @NotNull CompletableFuture<@NotNull List<@NotNull Integer>> queueStatementTransaction(@NotNull List<SqlStatement> statements);
+
+    /**
+     * Queue the sql statement of a {@link SqlBinding} to write to the database.
+     * The {@link SqlBinding} belongs to the queue once queued and is released after it has executed.
+     * @param binding The {@link SqlBinding} containing the {@link SqlTemplate} and the values to bind.
+     * @return A {@link CompletableFuture} containing the number of rows updated.
+     * @throws IllegalStateException If any parameter of the {@link SqlTemplate} has no value bound.
+     */
+    @NotNull CompletableFuture<@NotNull Integer> queueWriteTransaction(@NotNull SqlBinding binding);
+
+    /**
+     * Queue the sql statements of a {@link List} of {@link SqlBinding}s to be executed in order as a single transaction.
+     * The {@link SqlBinding}s belong to the queue once queued and are released after they have executed.
+     * @param bindings The {@link List} of {@link SqlBinding}s to execute.
+     * @return A {@link CompletableFuture} of type {@link List} where the {@link List} contains that contains the number of rows updated for each sql statement.
+     * @throws IllegalStateException If any parameter of a {@link SqlTemplate} has no value bound.
+     */
+    @NotNull CompletableFuture<@NotNull List<@NotNull Integer>> queueBindingTransaction(@NotNull List<SqlBinding> bindings);
+
+    /**
+     * Queues the sql statement of a {@link SqlBinding} to read from the database.
+     * The {@link SqlBinding} belongs to the queue once queued and is released after it has executed.
+     * @param binding The {@link SqlBinding} containing the {@link SqlTemplate} and the values to bind.
+     * @param mapper The function to map the {@link ResultSet} to the value {@link T}.
+     * @return A {@link CompletableFuture} containing the object {@link T}.
+     * @param <T> The object {@link T} created using the data from {@link ResultSet}.
+     * @throws IllegalStateException If any parameter of the {@link SqlTemplate} has no value bound.
+     */
+    @NotNull <T> CompletableFuture<@NotNull T> queueReadTransaction(@NotNull SqlBinding binding, @NotNull Function<ResultSet, T> mapper);
+
     /**
      * Queues a sql statement to read from the database.
      * @param sql The sql statement as a {@link String}.
@@ -113,4 +188,59 @@ public interface QueueManager {
      * @param <T> The object {@link T} created using the data from {@link ResultSet}.
      */
     @NotNull <T> CompletableFuture<@NotNull T> queueReadTransaction(@NotNull String sql, @NotNull List<Parameter<?>> params, @NotNull Function<ResultSet, T> mapper);
+
+    /**
+     * Queues a sql statement to read from the database, copying the rows into a {@link RowBuffer} and releasing the connection before mapping.
+     * The mapper runs on a separate CPU pool, so heavy mapping, i.e., deserializing json or building items, never holds a connection.
+     * @param sql The sql statement as a {@link String}.
+     * @param mapper The function to map the {@link RowBuffer} to the value {@link T}.
+     * @return A {@link CompletableFuture} containing the object {@link T}. Cancelling it cancels the read if it has not finished.
+     * @param <T> The object {@link T} created using the data from {@link RowBuffer}.
+     */
+    @NotNull <T> CompletableFuture<@NotNull T> queueBufferedReadTransaction(@NotNull String sql, @NotNull Function<RowBuffer, T> mapper);
+
+    /**
+     * Queues a sql statement to read from the database, copying the rows into a {@link RowBuffer} and releasing the connection before mapping.
+     * The mapper runs on a separate CPU pool, so heavy mapping, i.e., deserializing json or building items, never holds a connection.
+     * @param sql The sql statement as a {@link String}.
+     * @param params A {@link List} of {@link Parameter} that are used to replace parameters in the sql statement.
+     * @param mapper The function to map the {@link RowBuffer} to the value {@link T}.
+     * @return A {@link CompletableFuture} containing the object {@link T}. Cancelling it cancels the read if it has not finished.
+     * @param <T> The object {@link T} created using the data from {@link RowBuffer}.
+     */
+    @NotNull <T> CompletableFuture<@NotNull T> queueBufferedReadTransaction(@NotNull String sql, @NotNull List<Parameter<?>> params, @NotNull Function<RowBuffer, T> mapper);
+
+    /**
+     * Creates a {@link Flow.Publisher} that executes a sql statement and publishes each row mapped to {@link T}.
+     * The query is executed when the subscriber first requests rows, and the cursor only advances as further rows are requested,
+     * so large result sets are never held in memory. The connection is released once all rows are published, on error, or on cancel.
+     * @param sql The sql statement as a {@link String}.
+     * @param rowMapper The function to map the current row of the {@link ResultSet} to the value {@link T}. It must not move the cursor.
+     * @return A single-subscriber {@link Flow.Publisher} of the mapped rows.
+     * @param <T> The object {@link T} created using the data from each row.
+     */
+    @NotNull <T> Flow.Publisher<T> queueReadPublisher(@NotNull String sql, @NotNull Function<ResultSet, T> rowMapper);
+
+    /**
+     * Creates a {@link Flow.Publisher} that executes a sql statement and publishes each row mapped to {@link T}.
+     * The query is executed when the subscriber first requests rows, and the cursor only advances as further rows are requested,
+     * so large result sets are never held in memory. The connection is released once all rows are published, on error, or on cancel.
+     * @param sql The sql statement as a {@link String}.
+     * @param params A {@link List} of {@link Parameter} that are used to replace parameters in the sql statement.
+     * @param rowMapper The function to map the current row of the {@link ResultSet} to the value {@link T}. It must not move the cursor.
+     * @return A single-subscriber {@link Flow.Publisher} of the mapped rows.
+     * @param <T> The object {@link T} created using the data from each row.
+     */
+    @NotNull <T> Flow.Publisher<T> queueReadPublisher(@NotNull String sql, @NotNull List<Parameter<?>> params, @NotNull Function<ResultSet, T> rowMapper);
+
+    /**
+     * Creates a {@link Flow.Publisher} that executes the sql statement of a {@link SqlBinding} and publishes each row mapped to {@link T}.
+     * The {@link SqlBinding} is released once its values have been copied, so it must not be used afterward.
+     * @param binding The {@link SqlBinding} containing the {@link SqlTemplate} and the values to bind.
+     * @param rowMapper The function to map the current row of the {@link ResultSet} to the value {@link T}. It must not move the cursor.
+     * @return A single-subscriber {@link Flow.Publisher} of the mapped rows.
+     * @param <T> The object {@link T} created using the data from each row.
+     * @throws IllegalStateException If any parameter of the {@link SqlTemplate} has no value bound.
+     */
+    @NotNull <T> Flow.Publisher<T> queueReadPublisher(@NotNull SqlBinding binding, @NotNull Function<ResultSet, T> rowMapper);
 }
@@ -0,0 +1,175 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.queue.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * This class lets running queries stop early when the future of their task is cancelled or times out,
+ * i.e., using {@link CompletableFuture#cancel(boolean)} or {@link CompletableFuture#orTimeout(long, java.util.concurrent.TimeUnit)}.
+ * Queue managers open a {@link Scope} on the thread running a task, and runnables pass each {@link Statement} they create to {@link #track(Statement)}.
+ * A tracked statement gets the queue's query timeout and is cancelled using {@link Statement#cancel()} if the task's future is cancelled while it runs.
+ * Runnables also call {@link #markCommitted()} once their changes are committed, as a task whose future was cancelled or timed out may still commit.
+ */
+public class QueryCancellation {
+    private static final @NotNull ThreadLocal<Scope> CURRENT_SCOPE = new ThreadLocal<>();
+
+    /**
+     * All methods in this class are static so this constructor will throw a runtime exception if used.
+     * @throws RuntimeException if the constructor is used.
+     */
+    public QueryCancellation() {
+        throw new RuntimeException("This class cannot be instanced. Use the static references to methods instead.");
+    }
+
+    /**
+     * Opens a {@link Scope} for a task about to run on the current thread.
+     * @param future The {@link CompletableFuture} of the task.
+     * @param queryTimeoutSeconds The query timeout in seconds applied to each tracked statement, or 0 for no timeout.
+     * @return The {@link Scope}, which must be closed on the same thread once the task has run.
+     */
+    public static @NotNull Scope open(@NotNull CompletableFuture<?> future, int queryTimeoutSeconds) {
+        Scope scope = new Scope(future, queryTimeoutSeconds);
+        CURRENT_SCOPE.set(scope);
+        future.whenComplete((result, throwable) -> scope.onComplete(throwable));
+
+        return scope;
+    }
+
+    /**
+     * Tracks a {@link Statement} created by the task running on the current thread. Does nothing if no {@link Scope} is open.
+     * @param statement The {@link Statement} about to be executed.
+     * @throws SQLException If the task's future was already cancelled or timed out, so the statement should not be executed.
+     */
+    public static void track(@NotNull Statement statement) throws SQLException {
+        Scope scope = CURRENT_SCOPE.get();
+        if(scope != null) scope.track(statement);
+    }
+
+    /**
+     * Records that the task running on the current thread committed its changes. Does nothing if no {@link Scope} is open.
+     */
+    public static void markCommitted() {
+        Scope scope = CURRENT_SCOPE.get();
+        if(scope != null) scope.committed = true;
+    }
+
+    /**
+     * Checks if the task running on the current thread committed its changes, even if its future was cancelled or timed out.
+     * @return true if the task committed, false if it did not or no {@link Scope} is open.
+     */
+    public static boolean isCommitted() {
+        Scope scope = CURRENT_SCOPE.get();
+        return scope != null && scope.committed;
+    }
+
+    /**
+     * Checks if a task's future was completed by a cancellation or timeout rather than by the task.
+     * @param throwable The {@link Throwable} the future completed with.
+     * @return true if the future was cancelled or timed out.
+     */
+    private static boolean isCancellation(@Nullable Throwable throwable) {
+        return throwable instanceof CancellationException || throwable instanceof TimeoutException;
+    }
+
+    /**
+     * The cancellation state of the task running on a thread.
+     */
+    public static final class Scope implements AutoCloseable {
+        private final @NotNull CompletableFuture<?> future;
+        private final int queryTimeoutSeconds;
+        private volatile @Nullable Statement currentStatement;
+        private volatile boolean closed = false;
+        private volatile boolean interrupted = false;
+        private volatile boolean committed = false;
+
+        /**
+         * Constructor
+         * @param future The {@link CompletableFuture} of the task.
+         * @param queryTimeoutSeconds The query timeout in seconds, or 0 for no timeout.
+         */
+        private Scope(@NotNull CompletableFuture<?> future, int queryTimeoutSeconds) {
+            this.future = future;
+            this.queryTimeoutSeconds = queryTimeoutSeconds;
+        }
+
+        /**
+         * Applies the query timeout to the {@link Statement} and makes it the statement cancelled if the future is cancelled.
+         * @param statement The {@link Statement} about to be executed.
+         * @throws SQLException If the future was already cancelled or timed out.
+         */
+        private void track(@NotNull Statement statement) throws SQLException {
+            if(queryTimeoutSeconds > 0) statement.setQueryTimeout(queryTimeoutSeconds);
+
+            currentStatement = statement;
+            // Checked after publishing the statement so a cancel that raced with it is not missed.
+            if(future.isDone() && future.isCompletedExceptionally()) {
+                interrupted = true;
+                throw new SQLException("The task was cancelled or timed out before its statement was executed.");
+            }
+        }
+
+        /**
+         * Cancels the current {@link Statement} if the future was cancelled or timed out while the task was running.
+         * @param throwable The {@link Throwable} the future completed with, or null if it completed normally.
+         */
+        private void onComplete(@Nullable Throwable throwable) {
+            if(closed || !isCancellation(throwable)) return;
+
+            Statement statement = currentStatement;
+            if(statement == null) return;
+
+            interrupted = true;
+            try {
+                statement.cancel();
+            } catch (SQLException ignored) {
+                // The statement already finished or was closed.
+            }
+        }
+
+        /**
+         * Checks if a statement of the task was cancelled or prevented from executing.
+         * @return true if the task was interrupted.
+         */
+        public boolean wasInterrupted() {
+            return interrupted;
+        }
+
+        /**
+         * Closes the scope. Statements tracked afterward on this thread are not affected.
+         */
+        @Override
+        public void close() {
+            closed = true;
+            currentStatement = null;
+            CURRENT_SCOPE.remove();
+        }
+    }
+}
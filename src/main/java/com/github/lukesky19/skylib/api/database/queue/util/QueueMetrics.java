@@ -0,0 +1,154 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.queue.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class records how long tasks wait in a queue before they start and how long they take to run.
+ * Wait times are also recorded in a histogram with power-of-two buckets so that percentiles can be estimated.
+ * Tasks skipped because their future was cancelled or timed out before they started, and tasks whose running statement was cancelled, are counted separately.
+ * Recording is lock-free and safe to call from any thread. Values are cumulative; use {@link Snapshot#since(Snapshot)} to get the values for an interval.
+ */
+public class QueueMetrics {
+    private static final int BUCKETS = 48;
+
+    private final @NotNull LongAdder tasks = new LongAdder();
+    private final @NotNull LongAdder waitNanos = new LongAdder();
+    private final @NotNull LongAdder runNanos = new LongAdder();
+    private final @NotNull LongAdder[] waitHistogram = new LongAdder[BUCKETS];
+    private final @NotNull LongAdder skippedTasks = new LongAdder();
+    private final @NotNull LongAdder interruptedTasks = new LongAdder();
+
+    /**
+     * Constructor
+     */
+    public QueueMetrics() {
+        for(int i = 0; i < BUCKETS; i++) {
+            waitHistogram[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records a task that has finished running.
+     * @param waitNanos The time in nanoseconds the task waited before it started.
+     * @param runNanos The time in nanoseconds the task took to run.
+     */
+    public void record(long waitNanos, long runNanos) {
+        long wait = Math.max(0, waitNanos);
+
+        tasks.increment();
+        this.waitNanos.add(wait);
+        this.runNanos.add(Math.max(0, runNanos));
+        waitHistogram[Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(wait))].increment();
+    }
+
+    /**
+     * Records a task that was skipped because its future was cancelled or timed out before it started.
+     */
+    public void recordSkipped() {
+        skippedTasks.increment();
+    }
+
+    /**
+     * Records a task whose running statement was cancelled because its future was cancelled or timed out.
+     */
+    public void recordInterrupted() {
+        interruptedTasks.increment();
+    }
+
+    /**
+     * Get a {@link Snapshot} of the values recorded so far.
+     * @return A {@link Snapshot}.
+     */
+    public @NotNull Snapshot snapshot() {
+        long[] histogram = new long[BUCKETS];
+        for(int i = 0; i < BUCKETS; i++) {
+            histogram[i] = waitHistogram[i].sum();
+        }
+
+        return new Snapshot(tasks.sum(), waitNanos.sum(), runNanos.sum(), histogram, skippedTasks.sum(), interruptedTasks.sum());
+    }
+
+    /**
+     * The values recorded by {@link QueueMetrics} at a point in time.
+     * @param tasks The number of tasks that finished running.
+     * @param totalWaitNanos The total time in nanoseconds the tasks waited before starting.
+     * @param totalRunNanos The total time in nanoseconds the tasks took to run.
+     * @param waitHistogram The number of tasks per wait time bucket, where bucket i contains wait times less than 2^i nanoseconds.
+     * @param skippedTasks The number of tasks skipped because their future was cancelled or timed out before they started.
+     * @param interruptedTasks The number of tasks whose running statement was cancelled.
+     */
+    public record Snapshot(long tasks, long totalWaitNanos, long totalRunNanos, long @NotNull [] waitHistogram, long skippedTasks, long interruptedTasks) {
+        /**
+         * Get the values recorded between a previous {@link Snapshot} and this one.
+         * @param previous The previous {@link Snapshot}.
+         * @return A {@link Snapshot} containing the difference.
+         */
+        public @NotNull Snapshot since(@NotNull Snapshot previous) {
+            long[] histogram = new long[waitHistogram.length];
+            for(int i = 0; i < histogram.length; i++) {
+                histogram[i] = waitHistogram[i] - previous.waitHistogram[i];
+            }
+
+            return new Snapshot(tasks - previous.tasks, totalWaitNanos - previous.totalWaitNanos, totalRunNanos - previous.totalRunNanos, histogram,
+                    skippedTasks - previous.skippedTasks, interruptedTasks - previous.interruptedTasks);
+        }
+
+        /**
+         * Get the mean time in nanoseconds tasks waited before starting.
+         * @return The mean wait time in nanoseconds, or 0 if no tasks were recorded.
+         */
+        public long meanWaitNanos() {
+            return tasks == 0 ? 0 : totalWaitNanos / tasks;
+        }
+
+        /**
+         * Get the mean time in nanoseconds tasks took to run.
+         * @return The mean run time in nanoseconds, or 0 if no tasks were recorded.
+         */
+        public long meanRunNanos() {
+            return tasks == 0 ? 0 : totalRunNanos / tasks;
+        }
+
+        /**
+         * Estimates a wait time percentile. The estimate is the upper bound of the histogram bucket containing the percentile, so it is within a factor of 2.
+         * @param percentile The percentile between 0 and 1, i.e., 0.95.
+         * @return The estimated wait time in nanoseconds, or 0 if no tasks were recorded.
+         */
+        public long waitPercentileNanos(double percentile) {
+            if(tasks <= 0) return 0;
+
+            long target = (long) Math.ceil(Math.min(1, Math.max(0, percentile)) * tasks);
+            long seen = 0;
+            for(int i = 0; i < waitHistogram.length; i++) {
+                seen += waitHistogram[i];
+                if(seen >= target) return i == 0 ? 0 : 1L << i;
+            }
+
+            return 1L << (waitHistogram.length - 1);
+        }
+    }
+}
@@ -0,0 +1,330 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.queue.util;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A copy of the rows of a {@link ResultSet} that can be read after the connection is closed.
+ * Rows are read using a cursor with getters similar to {@link ResultSet}: call {@link #next()} before reading each row.
+ * Column indexes start at 1 and column labels are case-insensitive, as with {@link ResultSet}.
+ * A RowBuffer is not thread-safe, but may be handed to another thread once it has been copied.
+ */
+public class RowBuffer {
+    private final @NotNull String[] labels;
+    private final @NotNull Map<String, Integer> labelIndexes;
+    private final @NotNull List<Object[]> rows;
+    private int cursor = -1;
+    private boolean lastWasNull = false;
+
+    /**
+     * Constructor
+     * @param labels The column labels.
+     * @param rows The rows, with one value per column.
+     */
+    private RowBuffer(@NotNull String[] labels, @NotNull List<Object[]> rows) {
+        this.labels = labels;
+        this.rows = rows;
+        this.labelIndexes = new HashMap<>();
+        for(int i = labels.length - 1; i >= 0; i--) {
+            labelIndexes.put(labels[i].toLowerCase(Locale.ROOT), i);
+        }
+    }
+
+    /**
+     * Copies every remaining row of a {@link ResultSet}. Can be used directly as a mapper, i.e., {@code RowBuffer::copyOf}.
+     * @param resultSet The {@link ResultSet} to copy.
+     * @return A new RowBuffer.
+     * @throws RuntimeException If an {@link SQLException} occurs.
+     */
+    public static @NotNull RowBuffer copyOf(@NotNull ResultSet resultSet) {
+        try {
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            int columnCount = metaData.getColumnCount();
+
+            String[] labels = new String[columnCount];
+            for(int i = 0; i < columnCount; i++) {
+                labels[i] = metaData.getColumnLabel(i + 1);
+            }
+
+            List<Object[]> rows = new ArrayList<>();
+            while(resultSet.next()) {
+                Object[] row = new Object[columnCount];
+                for(int i = 0; i < columnCount; i++) {
+                    row[i] = resultSet.getObject(i + 1);
+                }
+                rows.add(row);
+            }
+
+            return new RowBuffer(labels, rows);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Moves the cursor to the next row.
+     * @return true if the cursor is on a row, false if there are no more rows.
+     */
+    public boolean next() {
+        if(cursor < rows.size()) cursor++;
+        return cursor < rows.size();
+    }
+
+    /**
+     * Moves the cursor back to before the first row so the rows can be read again.
+     */
+    public void beforeFirst() {
+        cursor = -1;
+    }
+
+    /**
+     * Get the number of rows.
+     * @return The number of rows.
+     */
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    /**
+     * Get the number of columns.
+     * @return The number of columns.
+     */
+    public int getColumnCount() {
+        return labels.length;
+    }
+
+    /**
+     * Get the label of a column.
+     * @param column The 1-based column index.
+     * @return The column label.
+     */
+    public @NotNull String getColumnLabel(int column) {
+        return labels[column - 1];
+    }
+
+    /**
+     * Get the 1-based index of a column.
+     * @param label The column label.
+     * @return The column index.
+     * @throws IllegalArgumentException If there is no column with the label.
+     */
+    public int findColumn(@NotNull String label) {
+        Integer index = labelIndexes.get(label.toLowerCase(Locale.ROOT));
+        if(index == null) throw new IllegalArgumentException("There is no column labelled " + label + ".");
+
+        return index + 1;
+    }
+
+    /**
+     * Checks if the last value read was SQL NULL.
+     * @return true if the last value read was null.
+     */
+    public boolean wasNull() {
+        return lastWasNull;
+    }
+
+    /**
+     * Get the value of a column in the current row.
+     * @param column The 1-based column index.
+     * @return The value, or null if it is SQL NULL.
+     * @throws IllegalStateException If the cursor is not on a row.
+     */
+    public @Nullable Object getObject(int column) {
+        if(cursor < 0 || cursor >= rows.size()) throw new IllegalStateException("The cursor is not on a row.");
+
+        Object value = rows.get(cursor)[column - 1];
+        lastWasNull = value == null;
+        return value;
+    }
+
+    /**
+     * Get the value of a column in the current row.
+     * @param label The column label.
+     * @return The value, or null if it is SQL NULL.
+     * @throws IllegalStateException If the cursor is not on a row.
+     */
+    public @Nullable Object getObject(@NotNull String label) {
+        return getObject(findColumn(label));
+    }
+
+    /**
+     * Get the value of a column in the current row as a {@link String}.
+     * @param column The 1-based column index.
+     * @return The value, or null if it is SQL NULL.
+     */
+    public @Nullable String getString(int column) {
+        Object value = getObject(column);
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * Get the value of a column in the current row as a {@link String}.
+     * @param label The column label.
+     * @return The value, or null if it is SQL NULL.
+     */
+    public @Nullable String getString(@NotNull String label) {
+        return getString(findColumn(label));
+    }
+
+    /**
+     * Get the value of a column in the current row as a long.
+     * @param column The 1-based column index.
+     * @return The value, or 0 if it is SQL NULL.
+     */
+    public long getLong(int column) {
+        Object value = getObject(column);
+        if(value == null) return 0;
+        if(value instanceof Number number) return number.longValue();
+
+        return Long.parseLong(value.toString());
+    }
+
+    /**
+     * Get the value of a column in the current row as a long.
+     * @param label The column label.
+     * @return The value, or 0 if it is SQL NULL.
+     */
+    public long getLong(@NotNull String label) {
+        return getLong(findColumn(label));
+    }
+
+    /**
+     * Get the value of a column in the current row as an int.
+     * @param column The 1-based column index.
+     * @return The value, or 0 if it is SQL NULL.
+     */
+    public int getInt(int column) {
+        return (int) getLong(column);
+    }
+
+    /**
+     * Get the value of a column in the current row as an int.
+     * @param label The column label.
+     * @return The value, or 0 if it is SQL NULL.
+     */
+    public int getInt(@NotNull String label) {
+        return getInt(findColumn(label));
+    }
+
+    /**
+     * Get the value of a column in the current row as a double.
+     * @param column The 1-based column index.
+     * @return The value, or 0 if it is SQL NULL.
+     */
+    public double getDouble(int column) {
+        Object value = getObject(column);
+        if(value == null) return 0;
+        if(value instanceof Number number) return number.doubleValue();
+
+        return Double.parseDouble(value.toString());
+    }
+
+    /**
+     * Get the value of a column in the current row as a double.
+     * @param label The column label.
+     * @return The value, or 0 if it is SQL NULL.
+     */
+    public double getDouble(@NotNull String label) {
+        return getDouble(findColumn(label));
+    }
+
+    /**
+     * Get the value of a column in the current row as a boolean. Numbers other than 0 are true, as SQLite stores booleans as integers.
+     * @param column The 1-based column index.
+     * @return The value, or false if it is SQL NULL.
+     */
+    public boolean getBoolean(int column) {
+        Object value = getObject(column);
+        if(value == null) return false;
+        if(value instanceof Boolean bool) return bool;
+        if(value instanceof Number number) return number.longValue() != 0;
+
+        return Boolean.parseBoolean(value.toString());
+    }
+
+    /**
+     * Get the value of a column in the current row as a boolean.
+     * @param label The column label.
+     * @return The value, or false if it is SQL NULL.
+     */
+    public boolean getBoolean(@NotNull String label) {
+        return getBoolean(findColumn(label));
+    }
+
+    /**
+     * Get the value of a column in the current row as a byte array.
+     * @param column The 1-based column index.
+     * @return The value, or null if it is SQL NULL.
+     * @throws IllegalStateException If the value is not a byte array.
+     */
+    public byte @Nullable [] getBytes(int column) {
+        Object value = getObject(column);
+        if(value == null) return null;
+        if(value instanceof byte[] bytes) return bytes;
+
+        throw new IllegalStateException("The value of column " + column + " is not a byte array.");
+    }
+
+    /**
+     * Get the value of a column in the current row as a byte array.
+     * @param label The column label.
+     * @return The value, or null if it is SQL NULL.
+     * @throws IllegalStateException If the value is not a byte array.
+     */
+    public byte @Nullable [] getBytes(@NotNull String label) {
+        return getBytes(findColumn(label));
+    }
+
+    /**
+     * Get the value of a column in the current row as a {@link UUID}, for uuids stored as text.
+     * @param column The 1-based column index.
+     * @return The value, or null if it is SQL NULL.
+     * @throws IllegalArgumentException If the value is not a valid {@link UUID}.
+     */
+    public @Nullable UUID getUUID(int column) {
+        String value = getString(column);
+        return value == null ? null : UUID.fromString(value);
+    }
+
+    /**
+     * Get the value of a column in the current row as a {@link UUID}, for uuids stored as text.
+     * @param label The column label.
+     * @return The value, or null if it is SQL NULL.
+     * @throws IllegalArgumentException If the value is not a valid {@link UUID}.
+     */
+    public @Nullable UUID getUUID(@NotNull String label) {
+        return getUUID(findColumn(label));
+    }
+}
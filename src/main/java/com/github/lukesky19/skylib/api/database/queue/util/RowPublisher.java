@@ -0,0 +1,402 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.queue.util;
+
+import com.github.lukesky19.skylib.api.database.connection.AbstractConnectionManager;
+import com.github.lukesky19.skylib.api.database.parameter.Parameter;
+import com.github.lukesky19.skylib.api.database.statement.SqlStatement;
+import com.github.lukesky19.skylib.internal.ThreadPoolManager;
+import com.github.lukesky19.skylib.internal.TimingWheel;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * A {@link Flow.Publisher} that executes a read query and publishes each row mapped to {@link T}, advancing the cursor only as the subscriber requests rows.
+ * Rows are read in steps of at most {@link #MAX_ROWS_PER_STEP} rows, and each step is submitted to the queue as a separate task,
+ * so a slow subscriber never blocks a queue thread while it waits. The connection is held between steps and is closed
+ * once all rows have been published, an error occurs, or the subscription is cancelled.
+ * An open cursor holds a pooled connection and stops SQLite from checkpointing the WAL, so if the subscriber does not request more rows
+ * within {@link #IDLE_TIMEOUT_SECONDS} seconds, the cursor is closed and the subscriber is given a {@link TimeoutException} using {@link Flow.Subscriber#onError(Throwable)}.
+ * The idle timeout may signal the error on a scheduler thread rather than a queue thread.
+ * The publisher supports a single subscriber. Each subscription executes the query once.
+ * Steps are not recorded individually; an optional query recorder is given the query once, with the total time its steps ran, when the cursor is closed.
+ * @param <T> The type each row is mapped to.
+ */
+public class RowPublisher<T> implements Flow.Publisher<T> {
+    /**
+     * The maximum number of rows published by a single task before the next rows are read by another task.
+     */
+    public static final int MAX_ROWS_PER_STEP = 256;
+    /**
+     * The number of seconds the cursor may stay open without the subscriber requesting more rows before it is closed.
+     */
+    public static final int IDLE_TIMEOUT_SECONDS = 30;
+    /**
+     * The batch handler for idle checks. Each check only closes the cursor if it timed out, so it runs on the thread that advances the wheel.
+     */
+    private static final @NotNull Consumer<@NotNull List<TimingWheel.DueTask>> IDLE_CHECK_HANDLER = dueTasks -> dueTasks.forEach(dueTask -> dueTask.runnable().run());
+
+    private final @NotNull AbstractConnectionManager connectionManager;
+    private final @NotNull SqlStatement sqlStatement;
+    private final @NotNull Function<ResultSet, T> rowMapper;
+    private final @NotNull Consumer<@NotNull Task> taskSubmitter;
+    private final @Nullable ObjLongConsumer<@NotNull SqlStatement> queryRecorder;
+    private final @Nullable TimingWheel timingWheel;
+    private final @NotNull AtomicBoolean subscribed = new AtomicBoolean(false);
+
+    /**
+     * Constructor
+     * @param connectionManager The {@link AbstractConnectionManager} that manages {@link Connection}s to the database.
+     * @param sqlStatement The {@link SqlStatement} to execute.
+     * @param rowMapper The function that maps the current row of the {@link ResultSet} to {@link T}. It must not move the cursor.
+     * @param taskSubmitter The function that submits each step's {@link Task} to the queue.
+     */
+    public RowPublisher(
+            @NotNull AbstractConnectionManager connectionManager,
+            @NotNull SqlStatement sqlStatement,
+            @NotNull Function<ResultSet, T> rowMapper,
+            @NotNull Consumer<@NotNull Task> taskSubmitter) {
+        this(connectionManager, sqlStatement, rowMapper, taskSubmitter, null);
+    }
+
+    /**
+     * Constructor
+     * @param connectionManager The {@link AbstractConnectionManager} that manages {@link Connection}s to the database.
+     * @param sqlStatement The {@link SqlStatement} to execute.
+     * @param rowMapper The function that maps the current row of the {@link ResultSet} to {@link T}. It must not move the cursor.
+     * @param taskSubmitter The function that submits each step's {@link Task} to the queue.
+     * @param queryRecorder The function given the {@link SqlStatement} and the total time in nanoseconds its steps ran, once the cursor is closed.
+     *                      It is not called if the query was never executed. Optional.
+     */
+    public RowPublisher(
+            @NotNull AbstractConnectionManager connectionManager,
+            @NotNull SqlStatement sqlStatement,
+            @NotNull Function<ResultSet, T> rowMapper,
+            @NotNull Consumer<@NotNull Task> taskSubmitter,
+            @Nullable ObjLongConsumer<@NotNull SqlStatement> queryRecorder) {
+        this(connectionManager, sqlStatement, rowMapper, taskSubmitter, queryRecorder, ThreadPoolManager.getTimingWheel());
+    }
+
+    /**
+     * Constructor
+     * @param connectionManager The {@link AbstractConnectionManager} that manages {@link Connection}s to the database.
+     * @param sqlStatement The {@link SqlStatement} to execute.
+     * @param rowMapper The function that maps the current row of the {@link ResultSet} to {@link T}. It must not move the cursor.
+     * @param taskSubmitter The function that submits each step's {@link Task} to the queue.
+     * @param queryRecorder The function given the {@link SqlStatement} and the total time in nanoseconds its steps ran, once the cursor is closed.
+     *                      It is not called if the query was never executed. Optional.
+     * @param timingWheel The {@link TimingWheel} used to close the cursor once it has been idle for {@link #IDLE_TIMEOUT_SECONDS} seconds.
+     *                    If null, the cursor stays open until the subscriber requests the remaining rows or cancels.
+     */
+    public RowPublisher(
+            @NotNull AbstractConnectionManager connectionManager,
+            @NotNull SqlStatement sqlStatement,
+            @NotNull Function<ResultSet, T> rowMapper,
+            @NotNull Consumer<@NotNull Task> taskSubmitter,
+            @Nullable ObjLongConsumer<@NotNull SqlStatement> queryRecorder,
+            @Nullable TimingWheel timingWheel) {
+        this.connectionManager = connectionManager;
+        this.sqlStatement = sqlStatement;
+        this.rowMapper = rowMapper;
+        this.taskSubmitter = taskSubmitter;
+        this.queryRecorder = queryRecorder;
+        this.timingWheel = timingWheel;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        if(!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {}
+
+                @Override
+                public void cancel() {}
+            });
+            subscriber.onError(new IllegalStateException("This RowPublisher only supports a single subscriber."));
+            return;
+        }
+
+        subscriber.onSubscribe(new RowSubscription(subscriber));
+    }
+
+    /**
+     * The subscription of the subscriber, which owns the connection and cursor.
+     * Only one step runs at a time: {@link #active} is held by whichever thread is reading rows or closing the cursor.
+     */
+    private final class RowSubscription implements Flow.Subscription {
+        private final @NotNull Flow.Subscriber<? super T> subscriber;
+        private final @NotNull AtomicLong demand = new AtomicLong();
+        private final @NotNull AtomicBoolean active = new AtomicBoolean(false);
+        private final @NotNull AtomicLong requestCount = new AtomicLong();
+        private volatile boolean cancelled = false;
+        private volatile @Nullable Throwable pendingError;
+        private boolean terminated = false;
+        private long stepStartTime = 0;
+        private long runNanos = 0;
+        private @Nullable Connection connection;
+        private @Nullable PreparedStatement statement;
+        private @Nullable ResultSet resultSet;
+
+        /**
+         * Constructor
+         * @param subscriber The {@link Flow.Subscriber} to publish rows to.
+         */
+        private RowSubscription(@NotNull Flow.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if(n <= 0) {
+                pendingError = new IllegalArgumentException("The number of rows requested must be positive.");
+                cancelled = true;
+                if(active.compareAndSet(false, true)) stop();
+                return;
+            }
+
+            demand.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            // Counted before trying to take the cursor, so a pending idle check sees the subscriber is still active.
+            requestCount.incrementAndGet();
+            if(active.compareAndSet(false, true)) submitStep();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            // If no step is running, close the cursor now. Otherwise the running step closes it.
+            if(active.compareAndSet(false, true)) stop();
+        }
+
+        /**
+         * Submits a task to read the next rows. Must be called while holding {@link #active}.
+         */
+        private void submitStep() {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            future.whenComplete((result, throwable) -> {
+                // The task was cancelled or rejected before it ran, so this thread still holds the cursor.
+                if(throwable != null) fail(throwable);
+            });
+
+            // Steps do not describe their statements, so a query is not recorded or traced once per step.
+            taskSubmitter.accept(new Task(() -> {
+                step();
+                future.complete(null);
+            }, future, null, null, null, false, false));
+        }
+
+        /**
+         * Reads and publishes up to {@link #MAX_ROWS_PER_STEP} requested rows. Must be called while holding {@link #active}.
+         */
+        private void step() {
+            stepStartTime = System.nanoTime();
+            try {
+                if(cancelled) {
+                    stop();
+                    return;
+                }
+
+                ResultSet rows = open();
+                int published = 0;
+                while(published < MAX_ROWS_PER_STEP && demand.get() > 0 && !cancelled) {
+                    if(!rows.next()) {
+                        close();
+                        subscriber.onComplete();
+                        return;
+                    }
+
+                    T value = rowMapper.apply(rows);
+                    demand.decrementAndGet();
+                    published++;
+                    subscriber.onNext(value);
+                }
+
+                if(cancelled) {
+                    stop();
+                    return;
+                }
+            } catch (SQLException | RuntimeException e) {
+                fail(e);
+                return;
+            }
+
+            endStep();
+            release();
+        }
+
+        /**
+         * Releases {@link #active}, then closes the cursor or submits the next step if a cancel or request arrived while it was held.
+         * If the cursor is left open without demand, an idle check is scheduled. Must be called while holding {@link #active}.
+         */
+        private void release() {
+            long observedRequests = requestCount.get();
+            boolean open = !terminated && resultSet != null;
+
+            active.set(false);
+            // Re-check after releasing, as a request or cancel may have arrived while the cursor was held.
+            if((cancelled || demand.get() > 0) && active.compareAndSet(false, true)) {
+                if(cancelled) {
+                    stop();
+                } else {
+                    submitStep();
+                }
+            } else if(open) {
+                scheduleIdleCheck(observedRequests);
+            }
+        }
+
+        /**
+         * Schedules a check that closes the cursor if the subscriber has not requested more rows within {@link #IDLE_TIMEOUT_SECONDS} seconds.
+         * @param observedRequests The number of requests made when the cursor became idle.
+         */
+        private void scheduleIdleCheck(long observedRequests) {
+            if(timingWheel == null) return;
+
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            timingWheel.schedule(() -> {
+                try {
+                    checkIdle(observedRequests);
+                } catch (RuntimeException e) {
+                    // Thrown by the subscriber's onError, which must not stop the other idle checks.
+                }
+
+                future.complete(null);
+            }, future, IDLE_TIMEOUT_SECONDS, TimeUnit.SECONDS, IDLE_CHECK_HANDLER);
+        }
+
+        /**
+         * Closes the cursor and signals a {@link TimeoutException} if no request was made since it became idle.
+         * Does nothing if a step is running, as the cursor is then in use.
+         * @param observedRequests The number of requests made when the cursor became idle.
+         */
+        private void checkIdle(long observedRequests) {
+            if(requestCount.get() != observedRequests || !active.compareAndSet(false, true)) return;
+
+            if(requestCount.get() == observedRequests && !terminated) {
+                fail(new TimeoutException("No rows were requested within " + IDLE_TIMEOUT_SECONDS + " seconds, so the cursor was closed."));
+            } else {
+                release();
+            }
+        }
+
+        /**
+         * Opens the connection and executes the query if it has not been executed yet.
+         * @return The {@link ResultSet}.
+         * @throws SQLException If the query could not be executed.
+         */
+        private @NotNull ResultSet open() throws SQLException {
+            if(resultSet != null) return resultSet;
+
+            connection = connectionManager.getConnection();
+            statement = connection.prepareStatement(sqlStatement.sql());
+            statement.setFetchSize(MAX_ROWS_PER_STEP);
+
+            List<Parameter<?>> params = sqlStatement.params();
+            for(int i = 0; i < params.size(); i++) {
+                statement.setObject(i + 1, params.get(i).getValue());
+            }
+
+            resultSet = statement.executeQuery();
+            return resultSet;
+        }
+
+        /**
+         * Closes the cursor after a cancel, signalling the error of an invalid request if there was one.
+         */
+        private void stop() {
+            Throwable error = pendingError;
+            if(error != null) {
+                fail(error);
+            } else {
+                close();
+            }
+        }
+
+        /**
+         * Closes the cursor and signals the error to the subscriber.
+         * @param throwable The error.
+         */
+        private void fail(@NotNull Throwable throwable) {
+            boolean alreadyTerminated = terminated;
+            close();
+            if(!alreadyTerminated) subscriber.onError(throwable);
+        }
+
+        /**
+         * Adds the time since the running step started to the total run time. Must be called while holding {@link #active}.
+         */
+        private void endStep() {
+            if(stepStartTime == 0) return;
+
+            runNanos += System.nanoTime() - stepStartTime;
+            stepStartTime = 0;
+        }
+
+        /**
+         * Closes the result set, statement and connection, and records the query if it was executed. Further calls do nothing.
+         */
+        private void close() {
+            if(terminated) return;
+            terminated = true;
+
+            endStep();
+            if(queryRecorder != null && resultSet != null) {
+                try {
+                    queryRecorder.accept(sqlStatement, runNanos);
+                } catch (RuntimeException ignored) {
+                    // Recording must not prevent the cursor from being closed.
+                }
+            }
+
+            try {
+                if(resultSet != null) resultSet.close();
+                if(statement != null) statement.close();
+            } catch (SQLException ignored) {
+                // The connection is closed below, which also closes its statements.
+            } finally {
+                try {
+                    if(connection != null) connection.close();
+                } catch (SQLException ignored) {}
+
+                resultSet = null;
+                statement = null;
+                connection = null;
+            }
+        }
+    }
+}
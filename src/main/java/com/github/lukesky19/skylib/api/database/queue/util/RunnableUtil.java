@@ -25,6 +25,9 @@ package com.github.lukesky19.skylib.api.database.queue.util;
 import com.github.lukesky19.skylib.api.database.connection.AbstractConnectionManager;
 import com.github.lukesky19.skylib.api.database.parameter.Parameter;
 import com.github.lukesky19.skylib.api.database.queue.QueueManager;
+import com.github.lukesky19.skylib.api.database.statement.SqlBinding;
+import com.github.lukesky19.skylib.api.database.statement.SqlStatement;
+import com.github.lukesky19.skylib.api.database.statement.SqlTemplate;
 import org.jetbrains.annotations.NotNull;
 
 import java.sql.*;
@@ -61,9 +64,11 @@ public class RunnableUtil {
         return () -> {
             try(Connection connection = connectionManager.getConnection()) {
                 try(Statement statement = connection.createStatement()) {
+                    QueryCancellation.track(statement);
                     int rowsUpdated = statement.executeUpdate(sql);
 
                     if(!connection.getAutoCommit()) connection.commit();
+                    QueryCancellation.markCommitted();
 
                     future.complete(rowsUpdated);
                 } catch (SQLException e) {
@@ -100,6 +105,7 @@ public class RunnableUtil {
         return () -> {
             try(Connection connection = connectionManager.getConnection()) {
                 try(PreparedStatement statement = connection.prepareStatement(sql)) {
+                    QueryCancellation.track(statement);
                     for(int i = 0; i <= params.size() - 1; i++) {
                         Parameter<?> parameter = params.get(i);
                         try {
@@ -113,6 +119,7 @@ public class RunnableUtil {
                     int rowsUpdated = statement.executeUpdate();
 
                     if(!connection.getAutoCommit()) connection.commit();
+                    QueryCancellation.markCommitted();
 
                     future.complete(rowsUpdated);
                 } catch (SQLException e) {
@@ -150,6 +157,7 @@ public class RunnableUtil {
 
             try(Connection connection = connectionManager.getConnection()) {
                 try(Statement statement = connection.createStatement()) {
+                    QueryCancellation.track(statement);
                     sqlList.forEach(sql -> {
                         try {
                             updatedRows.add(statement.executeUpdate(sql));
@@ -166,6 +174,7 @@ public class RunnableUtil {
                     });
 
                     if(!connection.getAutoCommit()) connection.commit();
+                    QueryCancellation.markCommitted();
 
                     future.complete(updatedRows);
                 } catch (SQLException e) {
@@ -203,6 +212,7 @@ public class RunnableUtil {
             try(Connection connection = connectionManager.getConnection()) {
                 sqlAndParamsMap.forEach((sql, params) -> {
                     try(PreparedStatement statement = connection.prepareStatement(sql)) {
+                        QueryCancellation.track(statement);
                         for(int i = 0; i <= params.size() - 1; i++) {
                             Parameter<?> parameter = params.get(i);
                             try {
@@ -228,6 +238,7 @@ public class RunnableUtil {
 
                 try {
                     if(!connection.getAutoCommit()) connection.commit();
+                    QueryCancellation.markCommitted();
 
                     future.complete(updatedRows);
                 } catch (SQLException e) {
@@ -267,6 +278,7 @@ public class RunnableUtil {
             try(Connection connection = connectionManager.getConnection()) {
                 listOfParameterLists.forEach(parameterList -> {
                     try(PreparedStatement statement = connection.prepareStatement(sql)) {
+                        QueryCancellation.track(statement);
                         for(int i = 0; i <= parameterList.size() - 1; i++) {
                             Parameter<?> parameter = parameterList.get(i);
                             try {
@@ -291,6 +303,7 @@ public class RunnableUtil {
 
                     try {
                         if(!connection.getAutoCommit()) connection.commit();
+                        QueryCancellation.markCommitted();
 
                         future.complete(updatedRows);
                     } catch (SQLException e) {
@@ -310,6 +323,58 @@ public class RunnableUtil {
         };
     }
 
+    /**
+     * Creates the {@link Runnable} that executes the provided {@link SqlStatement}s in order as a single transaction.
+     * Statements that return rows, i.e., PRAGMAs that report their new value, are allowed and count as 0 rows updated.
+     * If any statement fails, the transaction is rolled back and the exception is returned using the provided {@link CompletableFuture}.
+     * @param connectionManager The {@link AbstractConnectionManager} that manages {@link Connection}s to the database.
+     * @param statements The {@link List} of {@link SqlStatement}s to execute.
+     * @param future A {@link CompletableFuture} that will be used to return a {@link List} containing the number of
+     * rows updated or the exception that occurred (if any).
+     * @return A {@link Runnable} that contains the task to run to execute the sql statements provided.
+     */
+    public static @NotNull Runnable createRunnableForStatementExecution(
+            @NotNull AbstractConnectionManager connectionManager,
+            @NotNull List<SqlStatement> statements,
+            @NotNull CompletableFuture<List<Integer>> future) {
+        return () -> {
+            List<Integer> updatedRows = new ArrayList<>(statements.size());
+
+            try(Connection connection = connectionManager.getConnection()) {
+                try {
+                    for(SqlStatement sqlStatement : statements) {
+                        try(PreparedStatement statement = connection.prepareStatement(sqlStatement.sql())) {
+                            QueryCancellation.track(statement);
+                            List<Parameter<?>> params = sqlStatement.params();
+                            for(int i = 0; i <= params.size() - 1; i++) {
+                                statement.setObject(i + 1, params.get(i).getValue());
+                            }
+
+                            // executeUpdate rejects statements that return rows, so execute is used instead.
+                            updatedRows.add(statement.execute() ? 0 : Math.max(0, statement.getUpdateCount()));
+                        }
+                    }
+
+                    if(!connection.getAutoCommit()) connection.commit();
+                    QueryCancellation.markCommitted();
+
+                    future.complete(updatedRows);
+                } catch (SQLException e) {
+                    try {
+                        if(!connection.getAutoCommit()) connection.rollback();
+                    } catch (SQLException ex) {
+                        future.completeExceptionally(ex);
+                        return;
+                    }
+
+                    future.completeExceptionally(e);
+                }
+            } catch (SQLException e) {
+                future.completeExceptionally(e);
+            }
+        };
+    }
+
     /**
      * Creates the {@link Runnable} that executes the provided sql statement as a {@link String} which returns {@link T}
      * or any exception that occurs using the provided {@link CompletableFuture}.
@@ -328,6 +393,7 @@ public class RunnableUtil {
         return () -> {
             try(Connection connection = connectionManager.getConnection()) {
                 try(Statement statement = connection.createStatement()) {
+                    QueryCancellation.track(statement);
                     ResultSet resultSet = statement.executeQuery(sql);
 
                     future.complete(mapper.apply(resultSet));
@@ -360,6 +426,7 @@ public class RunnableUtil {
         return () -> {
             try (Connection connection = connectionManager.getConnection()) {
                 try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                    QueryCancellation.track(statement);
                     for (int i = 0; i <= params.size() - 1; i++) {
                         Parameter<?> parameter = params.get(i);
                         try {
@@ -381,4 +448,139 @@ public class RunnableUtil {
             }
         };
     }
+
+    /**
+     * Creates the {@link Runnable} that executes the sql statement of a {@link SqlBinding} which returns the
+     * rows updated or any exceptions that occur using the provided {@link CompletableFuture}.
+     * @param connectionManager The {@link AbstractConnectionManager} that manages {@link Connection}s to the database.
+     * @param binding The {@link SqlBinding} containing the {@link SqlTemplate} and the values to bind.
+     * @param future A {@link CompletableFuture} that will be used to return the number of rows updated or the
+     * exception that occurred (if any).
+     * @return A {@link Runnable} that contains the task to run to execute the sql statement provided.
+     */
+    public static @NotNull Runnable createRunnableForBindingExecution(
+            @NotNull AbstractConnectionManager connectionManager,
+            @NotNull SqlBinding binding,
+            @NotNull CompletableFuture<Integer> future) {
+        return () -> {
+            try(Connection connection = connectionManager.getConnection()) {
+                try(PreparedStatement statement = connection.prepareStatement(binding.getTemplate().getSql())) {
+                    QueryCancellation.track(statement);
+                    binding.applyTo(statement);
+
+                    int rowsUpdated = statement.executeUpdate();
+
+                    if(!connection.getAutoCommit()) connection.commit();
+                    QueryCancellation.markCommitted();
+
+                    future.complete(rowsUpdated);
+                } catch (SQLException e) {
+                    try {
+                        if(!connection.getAutoCommit()) connection.rollback();
+                    } catch (SQLException ex) {
+                        future.completeExceptionally(ex);
+                        return;
+                    }
+
+                    future.completeExceptionally(e);
+                }
+            } catch (SQLException e) {
+                future.completeExceptionally(e);
+            }
+        };
+    }
+
+    /**
+     * Creates the {@link Runnable} that executes the sql statements of a {@link List} of {@link SqlBinding}s in order as a single transaction.
+     * Consecutive bindings of the same {@link SqlTemplate} reuse the same {@link PreparedStatement}.
+     * If the task is cancelled or times out before it commits, the transaction is rolled back.
+     * If any statement fails, the transaction is rolled back and the exception is returned using the provided {@link CompletableFuture}.
+     * @param connectionManager The {@link AbstractConnectionManager} that manages {@link Connection}s to the database.
+     * @param bindings The {@link List} of {@link SqlBinding}s to execute.
+     * @param future A {@link CompletableFuture} that will be used to return a {@link List} containing the number of
+     * rows updated or the exception that occurred (if any).
+     * @return A {@link Runnable} that contains the task to run to execute the sql statements provided.
+     */
+    public static @NotNull Runnable createRunnableForBindingExecution(
+            @NotNull AbstractConnectionManager connectionManager,
+            @NotNull List<SqlBinding> bindings,
+            @NotNull CompletableFuture<List<Integer>> future) {
+        return () -> {
+            List<Integer> updatedRows = new ArrayList<>(bindings.size());
+
+            try(Connection connection = connectionManager.getConnection()) {
+                PreparedStatement statement = null;
+                SqlTemplate statementTemplate = null;
+
+                try {
+                    for(SqlBinding binding : bindings) {
+                        if(binding.getTemplate() != statementTemplate) {
+                            if(statement != null) statement.close();
+
+                            statementTemplate = binding.getTemplate();
+                            statement = connection.prepareStatement(statementTemplate.getSql());
+                        }
+
+                        // Tracked before every binding, so a cancel or timeout stops the remaining statements even when the statement is reused.
+                        QueryCancellation.track(statement);
+                        binding.applyTo(statement);
+                        updatedRows.add(statement.executeUpdate());
+                    }
+
+                    // Roll back rather than commit if the task was cancelled or timed out while its statements ran.
+                    if(future.isDone()) throw new SQLException("The task was cancelled or timed out before it was committed.");
+                    if(!connection.getAutoCommit()) connection.commit();
+                    QueryCancellation.markCommitted();
+
+                    future.complete(updatedRows);
+                } catch (SQLException e) {
+                    try {
+                        if(!connection.getAutoCommit()) connection.rollback();
+                    } catch (SQLException ex) {
+                        future.completeExceptionally(ex);
+                        return;
+                    }
+
+                    future.completeExceptionally(e);
+                } finally {
+                    if(statement != null) statement.close();
+                }
+            } catch (SQLException e) {
+                future.completeExceptionally(e);
+            }
+        };
+    }
+
+    /**
+     * Creates the {@link Runnable} that executes the sql statement of a {@link SqlBinding} which returns {@link T}
+     * or any exception that occurs using the provided {@link CompletableFuture}.
+     * @param connectionManager The {@link AbstractConnectionManager} that manages {@link Connection}s to the database.
+     * @param binding The {@link SqlBinding} containing the {@link SqlTemplate} and the values to bind.
+     * @param mapper The function that maps the {@link ResultSet} to the value {@link T}.
+     * @param future A {@link CompletableFuture} that will be used to return {@link T} or the exception that occurred (if any).
+     * @return A {@link Runnable} that contains the task to run to execute the sql statement provided.
+     * @param <T> The object that is created and returned when the mapper function is run.
+     */
+    public static <T> @NotNull Runnable createRunnableForBindingExecution(
+            @NotNull AbstractConnectionManager connectionManager,
+            @NotNull SqlBinding binding,
+            @NotNull Function<ResultSet, T> mapper,
+            @NotNull CompletableFuture<T> future) {
+        return () -> {
+            try(Connection connection = connectionManager.getConnection()) {
+                try(PreparedStatement statement = connection.prepareStatement(binding.getTemplate().getSql())) {
+                    QueryCancellation.track(statement);
+                    binding.applyTo(statement);
+
+                    try(ResultSet resultSet = statement.executeQuery()) {
+                        future.complete(mapper.apply(resultSet));
+                    }
+                } catch (SQLException e) {
+                    future.completeExceptionally(e);
+                }
+            } catch (SQLException e) {
+                future.completeExceptionally(e);
+            }
+        };
+    }
 }
@@ -0,0 +1,59 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.queue.util;
+
+import com.github.lukesky19.skylib.api.database.queue.QueueManager;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * This record contains the outcome of shutting down a {@link QueueManager}.
+ * @param completed The number of tasks that completed successfully while the queue was draining.
+ * @param failed The number of tasks that completed exceptionally while the queue was draining.
+ * @param cancelled The number of tasks that were cancelled because they had not started before the deadline.
+ * @param journaled The number of cancelled write tasks that were written to the journal to be replayed later.
+ * @param unfinished The number of tasks that were still executing when the deadline was reached.
+ * @param rejected The number of tasks that were rejected because they were submitted after the shutdown started.
+ * @param durationMillis The time in milliseconds the shutdown took.
+ */
+public record ShutdownReport(
+        int completed,
+        int failed,
+        int cancelled,
+        int journaled,
+        int unfinished,
+        int rejected,
+        long durationMillis) {
+    /**
+     * Get a summary of the shutdown that is suitable for logging.
+     * @return A {@link String} summarizing the shutdown.
+     */
+    public @NotNull String getSummary() {
+        return "Completed: " + completed
+                + ", Failed: " + failed
+                + ", Cancelled: " + cancelled
+                + ", Journaled: " + journaled
+                + ", Unfinished: " + unfinished
+                + ", Rejected: " + rejected
+                + ", Took: " + durationMillis + "ms";
+    }
+}
@@ -0,0 +1,274 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.queue.util;
+
+import com.github.lukesky19.skylib.api.database.parameter.Parameter;
+import com.github.lukesky19.skylib.api.database.statement.SqlStatement;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class is used to write write-transactions that could not be executed to a journal file and to read them back so they can be replayed.
+ * Each entry in the journal is the {@link List} of {@link SqlStatement}s of one transaction.
+ * Parameter values of type {@link String}, {@link Integer}, {@link Long}, {@link Double}, {@link Boolean} and byte arrays are preserved.
+ * Any other parameter value is stored using {@link Object#toString()}.
+ */
+public class StatementJournal {
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INTEGER = 2;
+    private static final byte LONG = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte BYTES = 5;
+    private static final byte BOOLEAN = 6;
+    /**
+     * The largest length or count a journal entry may contain. A larger value can only come from a torn or corrupted write.
+     */
+    private static final int MAX_LENGTH = 64 * 1024 * 1024;
+
+    /**
+     * All methods in this class are static so this constructor will throw a runtime exception if used.
+     * @throws RuntimeException if the constructor is used.
+     */
+    public StatementJournal() {
+        throw new RuntimeException("This class cannot be instanced. Use the static references to methods instead.");
+    }
+
+    /**
+     * Appends the provided transactions to the journal file. The file and its parent directories will be created if they do not exist.
+     * @param journalPath The {@link Path} of the journal file.
+     * @param transactions A {@link List} of transactions, where each transaction is a {@link List} of {@link SqlStatement}s.
+     * @throws IOException If the journal could not be written.
+     */
+    public static void write(@NotNull Path journalPath, @NotNull List<@NotNull List<@NotNull SqlStatement>> transactions) throws IOException {
+        Path parent = journalPath.toAbsolutePath().getParent();
+        if(parent != null && !Files.exists(parent)) {
+            Files.createDirectories(parent);
+        }
+
+        // Encode everything first so a transaction that cannot be journaled does not leave a partial entry in the file.
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        DataOutputStream encodeOutput = new DataOutputStream(encoded);
+        for(List<SqlStatement> transaction : transactions) {
+            writeStatements(encodeOutput, transaction);
+        }
+        encodeOutput.flush();
+
+        try(OutputStream output = new BufferedOutputStream(
+                Files.newOutputStream(journalPath, StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+            encoded.writeTo(output);
+        }
+    }
+
+    /**
+     * Reads all transactions from the journal file. A partially written or corrupted entry at the end of the file is ignored.
+     * @param journalPath The {@link Path} of the journal file.
+     * @return A {@link List} of transactions, where each transaction is a {@link List} of {@link SqlStatement}s.
+     * @throws IOException If the journal could not be read.
+     */
+    public static @NotNull List<@NotNull List<@NotNull SqlStatement>> read(@NotNull Path journalPath) throws IOException {
+        List<List<SqlStatement>> transactions = new ArrayList<>();
+
+        try(DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(journalPath)))) {
+            while(true) {
+                try {
+                    transactions.add(readStatements(input));
+                } catch (EOFException e) {
+                    break;
+                }
+            }
+        }
+
+        return transactions;
+    }
+
+    /**
+     * Writes a {@link List} of {@link SqlStatement}s to the provided {@link DataOutput}.
+     * @param output The {@link DataOutput} to write to.
+     * @param statements The {@link List} of {@link SqlStatement}s to write.
+     * @throws IOException If the statements could not be written.
+     */
+    public static void writeStatements(@NotNull DataOutput output, @NotNull List<@NotNull SqlStatement> statements) throws IOException {
+        writeLength(output, statements.size());
+
+        for(SqlStatement statement : statements) {
+            writeString(output, statement.sql());
+
+            List<Parameter<?>> params = statement.params();
+            writeLength(output, params.size());
+            for(Parameter<?> parameter : params) {
+                writeValue(output, parameter.getValue());
+            }
+        }
+    }
+
+    /**
+     * Reads a {@link List} of {@link SqlStatement}s from the provided {@link DataInput}.
+     * @param input The {@link DataInput} to read from.
+     * @return A {@link List} of {@link SqlStatement}s.
+     * @throws EOFException If the input ended early or contains a length that could not have been written, meaning the entry is torn.
+     * @throws IOException If the statements could not be read.
+     */
+    public static @NotNull List<@NotNull SqlStatement> readStatements(@NotNull DataInput input) throws IOException {
+        int statementCount = readLength(input);
+        List<SqlStatement> statements = new ArrayList<>(statementCount);
+
+        for(int i = 0; i < statementCount; i++) {
+            String sql = readString(input);
+
+            int paramCount = readLength(input);
+            List<Parameter<?>> params = new ArrayList<>(paramCount);
+            for(int j = 0; j < paramCount; j++) {
+                Object value = readValue(input);
+                params.add(() -> value);
+            }
+
+            statements.add(new SqlStatement(sql, params));
+        }
+
+        return statements;
+    }
+
+    /**
+     * Checks if every parameter value of the provided {@link SqlStatement}s is a type that the journal preserves,
+     * meaning the statements read back from the journal bind exactly the same values.
+     * @param statements The {@link List} of {@link SqlStatement}s to check.
+     * @return true if all parameter values are preserved, false if any would be stored using {@link Object#toString()}.
+     */
+    public static boolean isLossless(@NotNull List<@NotNull SqlStatement> statements) {
+        for(SqlStatement statement : statements) {
+            for(Parameter<?> parameter : statement.params()) {
+                Object value = parameter.getValue();
+                if(value != null && !(value instanceof String || value instanceof Integer || value instanceof Long
+                        || value instanceof Double || value instanceof byte[] || value instanceof Boolean)) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Writes a parameter value with a tag describing its type.
+     * @param output The {@link DataOutput} to write to.
+     * @param value The value to write.
+     * @throws IOException If the value could not be written.
+     */
+    private static void writeValue(@NotNull DataOutput output, @Nullable Object value) throws IOException {
+        if(value == null) {
+            output.writeByte(NULL);
+        } else if(value instanceof String string) {
+            output.writeByte(STRING);
+            writeString(output, string);
+        } else if(value instanceof Integer integer) {
+            output.writeByte(INTEGER);
+            output.writeInt(integer);
+        } else if(value instanceof Long number) {
+            output.writeByte(LONG);
+            output.writeLong(number);
+        } else if(value instanceof Double number) {
+            output.writeByte(DOUBLE);
+            output.writeDouble(number);
+        } else if(value instanceof byte[] bytes) {
+            output.writeByte(BYTES);
+            writeLength(output, bytes.length);
+            output.write(bytes);
+        } else if(value instanceof Boolean bool) {
+            output.writeByte(BOOLEAN);
+            output.writeBoolean(bool);
+        } else {
+            output.writeByte(STRING);
+            writeString(output, value.toString());
+        }
+    }
+
+    /**
+     * Reads a parameter value written by {@link #writeValue(DataOutput, Object)}.
+     * @param input The {@link DataInput} to read from.
+     * @return The value read.
+     * @throws EOFException If the value has an unknown type, which means the entry is torn.
+     * @throws IOException If the value could not be read.
+     */
+    private static @Nullable Object readValue(@NotNull DataInput input) throws IOException {
+        byte type = input.readByte();
+        return switch(type) {
+            case NULL -> null;
+            case STRING -> readString(input);
+            case INTEGER -> input.readInt();
+            case LONG -> input.readLong();
+            case DOUBLE -> input.readDouble();
+            case BYTES -> {
+                byte[] bytes = new byte[readLength(input)];
+                input.readFully(bytes);
+                yield bytes;
+            }
+            case BOOLEAN -> input.readBoolean();
+            default -> throw new EOFException("Unknown parameter type " + type + " in journal entry.");
+        };
+    }
+
+    private static void writeString(@NotNull DataOutput output, @NotNull String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        writeLength(output, bytes.length);
+        output.write(bytes);
+    }
+
+    private static @NotNull String readString(@NotNull DataInput input) throws IOException {
+        byte[] bytes = new byte[readLength(input)];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a length or count, refusing values that {@link #readLength(DataInput)} would reject.
+     * @param output The {@link DataOutput} to write to.
+     * @param length The length or count to write.
+     * @throws IOException If the length is larger than the journal supports or could not be written.
+     */
+    private static void writeLength(@NotNull DataOutput output, int length) throws IOException {
+        if(length > MAX_LENGTH) throw new IOException("The length " + length + " is larger than the journal supports.");
+        output.writeInt(length);
+    }
+
+    /**
+     * Reads a length or count written by {@link #writeLength(DataOutput, int)}.
+     * @param input The {@link DataInput} to read from.
+     * @return The length or count.
+     * @throws EOFException If the length is negative or larger than could have been written, which means the entry is torn.
+     * @throws IOException If the length could not be read.
+     */
+    private static int readLength(@NotNull DataInput input) throws IOException {
+        int length = input.readInt();
+        if(length < 0 || length > MAX_LENGTH) throw new EOFException("Invalid length " + length + " in journal entry.");
+        return length;
+    }
+}
@@ -22,11 +22,15 @@
  */
 package com.github.lukesky19.skylib.api.database.queue.util;
 
+import com.github.lukesky19.skylib.api.database.statement.SqlBinding;
+import com.github.lukesky19.skylib.api.database.statement.SqlStatement;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * This record contains a task stored in the backup queue.
@@ -34,10 +38,56 @@ import java.util.concurrent.TimeUnit;
  * @param future The {@link CompletableFuture} that should contain the result.
  * @param time The delay until when the task should be executed.
  * @param timeUnit The {@link TimeUnit} of the delay time above.
+ * @param statements A {@link Supplier} of the {@link SqlStatement}s the task executes. Only evaluated when needed, i.e., when the task is journaled. Optional.
+ * @param write true if the task writes to the database, otherwise false.
+ * @param singleResult true if the future is completed with the {@link Integer} number of rows updated by a single statement,
+ *                     false if it is completed with a {@link List} or the result of a read.
+ * @param release A {@link Runnable} that releases pooled objects used by the runnable, i.e., {@link SqlBinding}s.
+ *                It is run on the thread that ran the task once the runnable has returned, or when the task is skipped without running,
+ *                and never while the runnable may still be using them. Optional.
  */
 public record Task(
         @NotNull Runnable runnable,
         @NotNull CompletableFuture<?> future,
         @Nullable Integer time,
-        @Nullable TimeUnit timeUnit) {
+        @Nullable TimeUnit timeUnit,
+        @Nullable Supplier<@NotNull List<@NotNull SqlStatement>> statements,
+        boolean write,
+        boolean singleResult,
+        @Nullable Runnable release) {
+    /**
+     * Constructor for a task that does not use any pooled objects.
+     * @param runnable The {@link Runnable} containing the task to execute.
+     * @param future The {@link CompletableFuture} that should contain the result.
+     * @param time The delay until when the task should be executed.
+     * @param timeUnit The {@link TimeUnit} of the delay time above.
+     * @param statements A {@link Supplier} of the {@link SqlStatement}s the task executes. Optional.
+     * @param write true if the task writes to the database, otherwise false.
+     * @param singleResult true if the future is completed with the {@link Integer} number of rows updated by a single statement.
+     */
+    public Task(
+            @NotNull Runnable runnable,
+            @NotNull CompletableFuture<?> future,
+            @Nullable Integer time,
+            @Nullable TimeUnit timeUnit,
+            @Nullable Supplier<@NotNull List<@NotNull SqlStatement>> statements,
+            boolean write,
+            boolean singleResult) {
+        this(runnable, future, time, timeUnit, statements, write, singleResult, null);
+    }
+
+    /**
+     * Constructor for a task that does not describe the {@link SqlStatement}s it executes.
+     * @param runnable The {@link Runnable} containing the task to execute.
+     * @param future The {@link CompletableFuture} that should contain the result.
+     * @param time The delay until when the task should be executed.
+     * @param timeUnit The {@link TimeUnit} of the delay time above.
+     */
+    public Task(
+            @NotNull Runnable runnable,
+            @NotNull CompletableFuture<?> future,
+            @Nullable Integer time,
+            @Nullable TimeUnit timeUnit) {
+        this(runnable, future, time, timeUnit, null, false, false, null);
+    }
 }
@@ -0,0 +1,201 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.queue.util;
+
+import com.github.lukesky19.skylib.api.database.statement.SqlStatement;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class stores the {@link SqlStatement}s of tasks held while the queue is paused in memory-mapped segment files,
+ * so that only a small pointer to each task needs to be kept on the heap.
+ * Entries may be appended and read by any thread. Entries are copied out of the segments under the same lock used to close them,
+ * so an entry being read is never lost to the last release closing the file.
+ * Once the file is sealed and every entry has been released, the segment files are deleted.
+ */
+public class TaskSpillFile {
+    /**
+     * The default size of a segment file in bytes.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 8 * 1024 * 1024;
+
+    private final @NotNull Path directory;
+    private final int segmentSize;
+    private final @NotNull List<@NotNull Segment> segments = new CopyOnWriteArrayList<>();
+    private final @NotNull ByteArrayOutputStream encodeBuffer = new ByteArrayOutputStream();
+    private final @NotNull DataOutputStream encodeOutput = new DataOutputStream(encodeBuffer);
+    private final @NotNull AtomicInteger pendingEntries = new AtomicInteger();
+    private volatile boolean sealed = false;
+    private volatile boolean closed = false;
+
+    /**
+     * Constructor
+     * @param directory The directory to create the segment files in. It will be created if it does not exist.
+     * @param segmentSize The size of each segment file in bytes. Entries larger than this get a segment of their own.
+     */
+    public TaskSpillFile(@NotNull Path directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Appends the {@link SqlStatement}s of a task.
+     * @param statements The {@link List} of {@link SqlStatement}s to append.
+     * @return A pointer to the entry to use with {@link #read(long)}.
+     * @throws IOException If the entry could not be written.
+     * @throws IllegalStateException If the file has been sealed.
+     */
+    public synchronized long append(@NotNull List<@NotNull SqlStatement> statements) throws IOException {
+        if(sealed) throw new IllegalStateException("The spill file has been sealed.");
+
+        encodeBuffer.reset();
+        StatementJournal.writeStatements(encodeOutput, statements);
+        encodeOutput.flush();
+        byte[] bytes = encodeBuffer.toByteArray();
+
+        int entrySize = bytes.length + Integer.BYTES;
+        Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if(segment == null || segment.position + entrySize > segment.buffer.capacity()) {
+            segment = createSegment(Math.max(segmentSize, entrySize));
+        }
+
+        int offset = segment.position;
+        segment.buffer.putInt(offset, bytes.length);
+        segment.buffer.put(offset + Integer.BYTES, bytes, 0, bytes.length);
+        segment.position += entrySize;
+
+        pendingEntries.incrementAndGet();
+        return ((long) (segments.size() - 1) << 32) | offset;
+    }
+
+    /**
+     * Reads the {@link SqlStatement}s of an entry.
+     * @param pointer The pointer returned by {@link #append(List)}.
+     * @return The {@link List} of {@link SqlStatement}s.
+     * @throws IOException If the entry could not be read or the file has been closed.
+     */
+    public @NotNull List<@NotNull SqlStatement> read(long pointer) throws IOException {
+        byte[] bytes;
+        synchronized(this) {
+            if(closed) throw new IOException("The spill file has been closed.");
+
+            MappedByteBuffer buffer = segments.get((int) (pointer >>> 32)).buffer;
+            int offset = (int) pointer;
+            bytes = new byte[buffer.getInt(offset)];
+            buffer.get(offset + Integer.BYTES, bytes);
+        }
+
+        // Decode outside the lock, as only the copy needs the segment to stay open.
+
+        return StatementJournal.readStatements(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    /**
+     * Marks an entry as no longer needed. The file is closed once it is sealed and every entry has been released.
+     */
+    public void release() {
+        if(pendingEntries.decrementAndGet() == 0 && sealed) close();
+    }
+
+    /**
+     * Stops any more entries from being appended. The file is closed once every entry has been released.
+     */
+    public synchronized void seal() {
+        sealed = true;
+        if(pendingEntries.get() == 0) close();
+    }
+
+    /**
+     * Get the number of entries that have not been released.
+     * @return The number of entries that have not been released.
+     */
+    public int getPendingCount() {
+        return pendingEntries.get();
+    }
+
+    /**
+     * Closes and deletes the segment files. Any entries that have not been read are lost.
+     */
+    public synchronized void close() {
+        if(closed) return;
+        closed = true;
+        sealed = true;
+
+        for(Segment segment : segments) {
+            try {
+                segment.channel.close();
+                // Some platforms refuse to delete a file while it is still mapped.
+                if(!segment.path.toFile().delete()) segment.path.toFile().deleteOnExit();
+            } catch (IOException ignored) {
+                segment.path.toFile().deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Creates and maps a new segment file.
+     * @param size The size of the segment in bytes.
+     * @return The new {@link Segment}.
+     * @throws IOException If the segment file could not be created.
+     */
+    private @NotNull Segment createSegment(int size) throws IOException {
+        Files.createDirectories(directory);
+        Path path = Files.createTempFile(directory, "queue-spill-", ".seg");
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            Segment segment = new Segment(path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+            segments.add(segment);
+            return segment;
+        } catch (IOException e) {
+            channel.close();
+            Files.deleteIfExists(path);
+            throw e;
+        }
+    }
+
+    /**
+     * A memory-mapped segment file.
+     */
+    private static final class Segment {
+        private final @NotNull Path path;
+        private final @NotNull FileChannel channel;
+        private final @NotNull MappedByteBuffer buffer;
+        private int position = 0;
+
+        private Segment(@NotNull Path path, @NotNull FileChannel channel, @NotNull MappedByteBuffer buffer) {
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+}
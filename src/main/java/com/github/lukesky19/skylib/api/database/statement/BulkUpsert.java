@@ -0,0 +1,418 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.statement;
+
+import com.github.lukesky19.skylib.api.database.parameter.Parameter;
+import com.github.lukesky19.skylib.api.database.queue.QueueManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Inserts many rows using multi-row {@code INSERT ... VALUES (...), (...)} statements, optionally with an {@code ON CONFLICT} clause.
+ * Rows are split into chunks so that no statement binds more parameters than SQLite allows,
+ * and the generated sql is cached per chunk size so that repeated saves reuse the same statements.
+ * Rows passed as a random access {@link List} are chunked lazily: each statement is a view over the rows, created when it is executed,
+ * so the rows are never copied. The list must not be modified until the transaction has completed.
+ * Rows passed as a {@link Stream}, {@link Iterator} or other {@link Iterable} can only be read once, so they are copied into chunks up front.
+ * A BulkUpsert is immutable and can be reused and shared between threads. Create one using {@link #builder(String)}.
+ */
+public class BulkUpsert {
+    /**
+     * The maximum number of bound parameters in a statement since SQLite 3.32.0.
+     */
+    public static final int SQLITE_MAX_PARAMETERS = 32766;
+    /**
+     * The maximum number of bound parameters in a statement before SQLite 3.32.0.
+     */
+    public static final int LEGACY_SQLITE_MAX_PARAMETERS = 999;
+
+    private final @NotNull String prefix;
+    private final @NotNull String rowPlaceholders;
+    private final @NotNull String conflictClause;
+    private final int columnCount;
+    private final int rowsPerStatement;
+    private final @NotNull Map<Integer, String> sqlCache = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor
+     * @param builder The {@link Builder} to create the BulkUpsert from.
+     */
+    private BulkUpsert(@NotNull Builder builder) {
+        columnCount = builder.columns.size();
+        rowsPerStatement = Math.max(1, Math.min(builder.maxParameters / columnCount, builder.maxRowsPerStatement));
+
+        List<String> quotedColumns = builder.columns.stream().map(BulkUpsert::quote).toList();
+        prefix = "INSERT INTO " + quote(builder.table) + " (" + String.join(", ", quotedColumns) + ") VALUES ";
+        rowPlaceholders = "(" + String.join(", ", Collections.nCopies(columnCount, "?")) + ")";
+
+        if(builder.conflictTarget.isEmpty()) {
+            conflictClause = "";
+        } else {
+            String target = " ON CONFLICT (" + String.join(", ", builder.conflictTarget.stream().map(BulkUpsert::quote).toList()) + ")";
+
+            List<String> updateColumns = builder.updateColumns != null
+                    ? builder.updateColumns
+                    : builder.columns.stream().filter(column -> !builder.conflictTarget.contains(column)).toList();
+
+            if(builder.doNothing || updateColumns.isEmpty()) {
+                conflictClause = target + " DO NOTHING";
+            } else {
+                conflictClause = target + " DO UPDATE SET " + String.join(", ", updateColumns.stream()
+                        .map(column -> quote(column) + " = excluded." + quote(column))
+                        .toList());
+            }
+        }
+    }
+
+    /**
+     * Creates a {@link Builder} for a BulkUpsert into the given table.
+     * @param table The name of the table to insert into.
+     * @return A new {@link Builder}.
+     */
+    public static @NotNull Builder builder(@NotNull String table) {
+        return new Builder(table);
+    }
+
+    /**
+     * Get the number of columns each row must contain.
+     * @return The number of columns.
+     */
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    /**
+     * Get the maximum number of rows inserted by a single statement.
+     * @return The maximum number of rows per statement.
+     */
+    public int getRowsPerStatement() {
+        return rowsPerStatement;
+    }
+
+    /**
+     * Get the sql statement that inserts the given number of rows. Generated statements are cached.
+     * @param rows The number of rows, between 1 and {@link #getRowsPerStatement()}.
+     * @return The sql statement.
+     * @throws IllegalArgumentException If the number of rows is out of range.
+     */
+    public @NotNull String getSql(int rows) {
+        if(rows < 1 || rows > rowsPerStatement) {
+            throw new IllegalArgumentException("The number of rows must be between 1 and " + rowsPerStatement + ".");
+        }
+
+        return sqlCache.computeIfAbsent(rows, count -> {
+            StringBuilder sql = new StringBuilder(prefix.length() + count * (rowPlaceholders.length() + 2) + conflictClause.length());
+            sql.append(prefix);
+            for(int i = 0; i < count; i++) {
+                if(i > 0) sql.append(", ");
+                sql.append(rowPlaceholders);
+            }
+
+            return sql.append(conflictClause).toString();
+        });
+    }
+
+    /**
+     * Splits the rows into chunked multi-row {@link SqlStatement}s. The rows are read once, so their {@link Parameter}s are copied into one list per chunk.
+     * @param rows The rows to insert. Each row is a {@link List} of {@link Parameter}s in column order.
+     * @return A {@link List} of {@link SqlStatement}s, which is empty if there are no rows.
+     * @throws IllegalArgumentException If a row does not contain exactly one value per column.
+     */
+    public @NotNull List<SqlStatement> toStatements(@NotNull Iterator<? extends List<Parameter<?>>> rows) {
+        List<SqlStatement> statements = new ArrayList<>();
+        List<Parameter<?>> params = new ArrayList<>(rowsPerStatement * columnCount);
+        int rowCount = 0;
+
+        while(rows.hasNext()) {
+            List<Parameter<?>> row = rows.next();
+            if(row.size() != columnCount) {
+                throw new IllegalArgumentException("Expected " + columnCount + " values per row but got " + row.size() + ".");
+            }
+
+            params.addAll(row);
+            rowCount++;
+
+            if(rowCount == rowsPerStatement) {
+                statements.add(new SqlStatement(getSql(rowCount), params));
+                params = new ArrayList<>(rowsPerStatement * columnCount);
+                rowCount = 0;
+            }
+        }
+
+        if(rowCount > 0) statements.add(new SqlStatement(getSql(rowCount), params));
+
+        return statements;
+    }
+
+    /**
+     * Splits the rows into chunked multi-row {@link SqlStatement}s.
+     * If the rows are a random access {@link List}, the returned statements are views over it that are created as they are read,
+     * and the list must not be modified while they are in use. Otherwise, the rows are copied into chunks up front.
+     * @param rows The rows to insert. Each row is a {@link List} of {@link Parameter}s in column order.
+     * @return A {@link List} of {@link SqlStatement}s, which is empty if there are no rows.
+     * @throws IllegalArgumentException If a row does not contain exactly one value per column.
+     */
+    public @NotNull List<SqlStatement> toStatements(@NotNull Iterable<? extends List<Parameter<?>>> rows) {
+        if(!(rows instanceof List<? extends List<Parameter<?>>> list) || !(rows instanceof RandomAccess)) return toStatements(rows.iterator());
+
+        for(List<Parameter<?>> row : list) {
+            if(row.size() != columnCount) {
+                throw new IllegalArgumentException("Expected " + columnCount + " values per row but got " + row.size() + ".");
+            }
+        }
+
+        return new ChunkedStatements(list);
+    }
+
+    /**
+     * Queues the rows to be inserted as one transaction.
+     * @param queueManager The {@link QueueManager} to queue the statements on.
+     * @param rows The rows to insert. Each row is a {@link List} of {@link Parameter}s in column order.
+     * @return A {@link CompletableFuture} containing the number of rows changed by each chunked statement.
+     * @throws IllegalArgumentException If a row does not contain exactly one value per column.
+     */
+    public @NotNull CompletableFuture<@NotNull List<@NotNull Integer>> execute(@NotNull QueueManager queueManager, @NotNull Stream<? extends List<Parameter<?>>> rows) {
+        return execute(queueManager, toStatements(rows.iterator()));
+    }
+
+    /**
+     * Queues the rows to be inserted as one transaction.
+     * If the rows are a random access {@link List}, it is read when the transaction runs and must not be modified until the returned future completes.
+     * @param queueManager The {@link QueueManager} to queue the statements on.
+     * @param rows The rows to insert. Each row is a {@link List} of {@link Parameter}s in column order.
+     * @return A {@link CompletableFuture} containing the number of rows changed by each chunked statement.
+     * @throws IllegalArgumentException If a row does not contain exactly one value per column.
+     */
+    public @NotNull CompletableFuture<@NotNull List<@NotNull Integer>> execute(@NotNull QueueManager queueManager, @NotNull Iterable<? extends List<Parameter<?>>> rows) {
+        return execute(queueManager, toStatements(rows));
+    }
+
+    /**
+     * Queues the chunked statements as one transaction, skipping the queue if there is nothing to insert.
+     * @param queueManager The {@link QueueManager} to queue the statements on.
+     * @param statements The chunked {@link SqlStatement}s.
+     * @return A {@link CompletableFuture} containing the number of rows changed by each statement.
+     */
+    private @NotNull CompletableFuture<@NotNull List<@NotNull Integer>> execute(@NotNull QueueManager queueManager, @NotNull List<SqlStatement> statements) {
+        if(statements.isEmpty()) return CompletableFuture.completedFuture(List.of());
+
+        return queueManager.queueStatementTransaction(statements);
+    }
+
+    /**
+     * The chunked statements of a random access {@link List} of rows. Each statement and its parameters are views over the rows.
+     */
+    private final class ChunkedStatements extends AbstractList<SqlStatement> implements RandomAccess {
+        private final @NotNull List<? extends List<Parameter<?>>> rows;
+
+        /**
+         * Constructor
+         * @param rows The rows to insert, which have already been checked to contain one value per column.
+         */
+        private ChunkedStatements(@NotNull List<? extends List<Parameter<?>>> rows) {
+            this.rows = rows;
+        }
+
+        /**
+         * Creates the statement of a chunk.
+         * @param index The index of the chunk.
+         * @return The {@link SqlStatement} inserting the rows of the chunk.
+         */
+        @Override
+        public @NotNull SqlStatement get(int index) {
+            int fromRow = index * rowsPerStatement;
+            if(index < 0 || fromRow >= rows.size()) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+
+            List<? extends List<Parameter<?>>> chunk = rows.subList(fromRow, Math.min(rows.size(), fromRow + rowsPerStatement));
+            return new SqlStatement(getSql(chunk.size()), new ChunkParameters(chunk));
+        }
+
+        /**
+         * Get the number of chunks.
+         * @return The number of chunks.
+         */
+        @Override
+        public int size() {
+            return (rows.size() + rowsPerStatement - 1) / rowsPerStatement;
+        }
+    }
+
+    /**
+     * The {@link Parameter}s of the rows of a chunk in statement order, as a view over the rows.
+     */
+    private final class ChunkParameters extends AbstractList<Parameter<?>> implements RandomAccess {
+        private final @NotNull List<? extends List<Parameter<?>>> chunk;
+
+        /**
+         * Constructor
+         * @param chunk The rows of the chunk.
+         */
+        private ChunkParameters(@NotNull List<? extends List<Parameter<?>>> chunk) {
+            this.chunk = chunk;
+        }
+
+        /**
+         * Get a parameter of the chunk.
+         * @param index The index of the parameter in the statement.
+         * @return The {@link Parameter}.
+         */
+        @Override
+        public @NotNull Parameter<?> get(int index) {
+            return chunk.get(index / columnCount).get(index % columnCount);
+        }
+
+        /**
+         * Get the number of parameters in the chunk.
+         * @return The number of parameters.
+         */
+        @Override
+        public int size() {
+            return chunk.size() * columnCount;
+        }
+    }
+
+    /**
+     * Quotes an identifier for use in a sql statement.
+     * @param identifier The identifier to quote.
+     * @return The quoted identifier.
+     */
+    private static @NotNull String quote(@NotNull String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * Builds a {@link BulkUpsert}.
+     */
+    public static class Builder {
+        private final @NotNull String table;
+        private @NotNull List<String> columns = List.of();
+        private @NotNull List<String> conflictTarget = List.of();
+        private @Nullable List<String> updateColumns;
+        private boolean doNothing = false;
+        private int maxParameters = SQLITE_MAX_PARAMETERS;
+        private int maxRowsPerStatement = Integer.MAX_VALUE;
+
+        /**
+         * Constructor
+         * @param table The name of the table to insert into.
+         */
+        private Builder(@NotNull String table) {
+            this.table = table;
+        }
+
+        /**
+         * Sets the columns to insert. Each row must contain one value per column, in this order.
+         * @param columns The names of the columns.
+         * @return This Builder.
+         */
+        public @NotNull Builder columns(@NotNull String... columns) {
+            this.columns = List.of(columns);
+            return this;
+        }
+
+        /**
+         * Sets the conflict target, i.e., the columns of the primary key or unique index.
+         * By default, conflicting rows update every inserted column that is not part of the conflict target.
+         * @param columns The names of the conflict target columns.
+         * @return This Builder.
+         */
+        public @NotNull Builder onConflict(@NotNull String... columns) {
+            this.conflictTarget = List.of(columns);
+            return this;
+        }
+
+        /**
+         * Sets the columns that are updated when a row conflicts, instead of every non-conflict column.
+         * @param columns The names of the columns to update.
+         * @return This Builder.
+         */
+        public @NotNull Builder update(@NotNull String... columns) {
+            this.updateColumns = List.of(columns);
+            return this;
+        }
+
+        /**
+         * Keeps the existing row when a row conflicts.
+         * @return This Builder.
+         */
+        public @NotNull Builder doNothing() {
+            this.doNothing = true;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of bound parameters per statement. Defaults to {@link #SQLITE_MAX_PARAMETERS}.
+         * Use {@link #LEGACY_SQLITE_MAX_PARAMETERS} for SQLite versions older than 3.32.0.
+         * @param maxParameters The maximum number of bound parameters.
+         * @return This Builder.
+         */
+        public @NotNull Builder maxParameters(int maxParameters) {
+            this.maxParameters = maxParameters;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of rows per statement, which keeps statements small when rows are narrow.
+         * @param maxRowsPerStatement The maximum number of rows.
+         * @return This Builder.
+         */
+        public @NotNull Builder maxRowsPerStatement(int maxRowsPerStatement) {
+            this.maxRowsPerStatement = maxRowsPerStatement;
+            return this;
+        }
+
+        /**
+         * Builds the {@link BulkUpsert}.
+         * @return A new {@link BulkUpsert}.
+         * @throws IllegalStateException If no columns were set, the conflict target or update columns are not inserted columns,
+         * or a single row would exceed the maximum number of parameters.
+         */
+        public @NotNull BulkUpsert build() {
+            if(columns.isEmpty()) throw new IllegalStateException("At least one column is required.");
+            if(maxRowsPerStatement < 1) throw new IllegalStateException("The maximum number of rows per statement must be at least 1.");
+            if(columns.size() > maxParameters) {
+                throw new IllegalStateException("A row of " + columns.size() + " columns exceeds the limit of " + maxParameters + " parameters.");
+            }
+
+            if(!columns.containsAll(conflictTarget)) throw new IllegalStateException("The conflict target must only contain inserted columns.");
+            if(updateColumns != null) {
+                if(conflictTarget.isEmpty()) throw new IllegalStateException("Update columns require a conflict target.");
+                if(!columns.containsAll(updateColumns)) throw new IllegalStateException("Update columns must only contain inserted columns.");
+            }
+            if(doNothing && conflictTarget.isEmpty()) throw new IllegalStateException("DO NOTHING requires a conflict target.");
+
+            return new BulkUpsert(this);
+        }
+    }
+}
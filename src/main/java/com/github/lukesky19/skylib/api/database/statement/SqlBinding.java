@@ -0,0 +1,175 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.statement;
+
+import com.github.lukesky19.skylib.api.database.parameter.Parameter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The values bound to the parameters of a {@link SqlTemplate}. Obtain one using {@link SqlTemplate#bind()}.
+ * Once a SqlBinding has been queued, it belongs to the queue and must not be used again; it is returned to the template's pool after it has executed.
+ * A SqlBinding is not thread-safe.
+ */
+public final class SqlBinding {
+    private static final Object UNBOUND = new Object();
+
+    private final @NotNull SqlTemplate template;
+    private final @NotNull Object @NotNull [] values;
+    private boolean released = false;
+
+    /**
+     * Constructor
+     * @param template The {@link SqlTemplate} the values are bound to.
+     */
+    SqlBinding(@NotNull SqlTemplate template) {
+        this.template = template;
+        this.values = new Object[template.getParameterCount()];
+        Arrays.fill(values, UNBOUND);
+    }
+
+    /**
+     * Get the {@link SqlTemplate} the values are bound to.
+     * @return The {@link SqlTemplate}.
+     */
+    public @NotNull SqlTemplate getTemplate() {
+        return template;
+    }
+
+    /**
+     * Binds a value to a named parameter. The value is passed to {@link PreparedStatement#setObject(int, Object)},
+     * except that a {@link Parameter} is bound as its value and a {@link UUID} is bound as a {@link String}, the same as a UUIDParameter.
+     * @param name The name of the parameter, without the leading ":".
+     * @param value The value to bind.
+     * @return This SqlBinding.
+     * @throws IllegalArgumentException If the template has no parameter with that name.
+     */
+    public @NotNull SqlBinding set(@NotNull String name, @Nullable Object value) {
+        return set(template.getParameterIndex(name), value);
+    }
+
+    /**
+     * Binds NULL to a named parameter.
+     * @param name The name of the parameter, without the leading ":".
+     * @return This SqlBinding.
+     * @throws IllegalArgumentException If the template has no parameter with that name.
+     */
+    public @NotNull SqlBinding setNull(@NotNull String name) {
+        return set(template.getParameterIndex(name), null);
+    }
+
+    /**
+     * Binds a value to a parameter by its index. See {@link SqlTemplate#getParameterNames()} for the order of the parameters.
+     * A {@link Parameter} is bound as its value and a {@link UUID} is bound as a {@link String}.
+     * @param index The index of the parameter.
+     * @param value The value to bind.
+     * @return This SqlBinding.
+     * @throws IndexOutOfBoundsException If the index is not a valid parameter index.
+     */
+    public @NotNull SqlBinding set(int index, @Nullable Object value) {
+        checkNotReleased();
+
+        if(value instanceof Parameter<?> parameter) value = parameter.getValue();
+        if(value instanceof UUID uuid) value = uuid.toString();
+
+        values[index] = value;
+        return this;
+    }
+
+    /**
+     * Checks that every parameter has a value bound to it.
+     * @throws IllegalStateException If any parameter has no value bound or the binding has been released.
+     */
+    public void validate() {
+        checkNotReleased();
+
+        List<String> unbound = null;
+        for(int i = 0; i < values.length; i++) {
+            if(values[i] == UNBOUND) {
+                if(unbound == null) unbound = new ArrayList<>();
+                unbound.add(":" + template.getParameterNames().get(i));
+            }
+        }
+
+        if(unbound != null) throw new IllegalStateException("No value bound for " + String.join(", ", unbound) + " in sql: " + template.getNamedSql());
+    }
+
+    /**
+     * Sets the bound values on a {@link PreparedStatement} created from {@link SqlTemplate#getSql()}.
+     * @param statement The {@link PreparedStatement}.
+     * @throws SQLException If a value could not be set.
+     */
+    public void applyTo(@NotNull PreparedStatement statement) throws SQLException {
+        for(int slot = 0; slot < template.getSlotCount(); slot++) {
+            statement.setObject(slot + 1, values[template.getSlotParameter(slot)]);
+        }
+    }
+
+    /**
+     * Creates a {@link SqlStatement} with a copy of the bound values, i.e., to write it to a journal.
+     * @return A {@link SqlStatement}.
+     */
+    public @NotNull SqlStatement toSqlStatement() {
+        List<Parameter<?>> params = new ArrayList<>(template.getSlotCount());
+        for(int slot = 0; slot < template.getSlotCount(); slot++) {
+            Object value = values[template.getSlotParameter(slot)];
+            params.add(() -> value);
+        }
+
+        return new SqlStatement(template.getSql(), params);
+    }
+
+    /**
+     * Clears the bound values and returns this SqlBinding to the template's pool. It must not be used afterward.
+     * Queue managers call this once a queued binding has executed.
+     */
+    public void release() {
+        if(released) return;
+
+        released = true;
+        Arrays.fill(values, UNBOUND);
+        template.returnToPool(this);
+    }
+
+    /**
+     * Marks a pooled SqlBinding as in use again.
+     */
+    void acquire() {
+        released = false;
+    }
+
+    /**
+     * Checks that this SqlBinding has not been released.
+     * @throws IllegalStateException If this SqlBinding has been released.
+     */
+    private void checkNotReleased() {
+        if(released) throw new IllegalStateException("This SqlBinding has been released and can no longer be used.");
+    }
+}
@@ -0,0 +1,81 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.statement;
+
+import com.github.lukesky19.skylib.api.database.parameter.Parameter;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This record contains a sql statement and the {@link Parameter}s used to replace the placeholders in the sql statement.
+ * @param sql The sql statement as a {@link String}.
+ * @param params A {@link List} of {@link Parameter}s in the order the parameters are written in the sql statement.
+ */
+public record SqlStatement(
+        @NotNull String sql,
+        @NotNull List<Parameter<?>> params) {
+    /**
+     * Constructor for a sql statement without any parameters.
+     * @param sql The sql statement as a {@link String}.
+     */
+    public SqlStatement(@NotNull String sql) {
+        this(sql, List.of());
+    }
+
+    /**
+     * Creates a {@link List} of {@link SqlStatement}s from a {@link List} of {@link String} containing sql statements.
+     * @param sqlList The {@link List} of {@link String} containing sql statements.
+     * @return A {@link List} of {@link SqlStatement}s.
+     */
+    public static @NotNull List<@NotNull SqlStatement> fromSqlList(@NotNull List<String> sqlList) {
+        List<SqlStatement> statements = new ArrayList<>(sqlList.size());
+        sqlList.forEach(sql -> statements.add(new SqlStatement(sql)));
+        return statements;
+    }
+
+    /**
+     * Creates a {@link List} of {@link SqlStatement}s from a {@link Map} that maps sql statements to a {@link List} of {@link Parameter}s.
+     * @param sqlAndParamsMap The {@link Map} mapping sql statements to a {@link List} of {@link Parameter}s.
+     * @return A {@link List} of {@link SqlStatement}s.
+     */
+    public static @NotNull List<@NotNull SqlStatement> fromSqlAndParamsMap(@NotNull Map<String, List<Parameter<?>>> sqlAndParamsMap) {
+        List<SqlStatement> statements = new ArrayList<>(sqlAndParamsMap.size());
+        sqlAndParamsMap.forEach((sql, params) -> statements.add(new SqlStatement(sql, params)));
+        return statements;
+    }
+
+    /**
+     * Creates a {@link List} of {@link SqlStatement}s that execute the same sql statement once for each {@link List} of {@link Parameter}s.
+     * @param sql The sql statement as a {@link String}.
+     * @param listOfParameterLists The {@link List} containing a {@link List} of {@link Parameter}s.
+     * @return A {@link List} of {@link SqlStatement}s.
+     */
+    public static @NotNull List<@NotNull SqlStatement> fromParameterLists(@NotNull String sql, @NotNull List<List<Parameter<?>>> listOfParameterLists) {
+        List<SqlStatement> statements = new ArrayList<>(listOfParameterLists.size());
+        listOfParameterLists.forEach(params -> statements.add(new SqlStatement(sql, params)));
+        return statements;
+    }
+}
@@ -0,0 +1,207 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.statement;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A sql statement with named placeholders (i.e., ":uuid") that is parsed once into a positional statement.
+ * Values are bound by name or by parameter index into a {@link SqlBinding} obtained from {@link #bind()}.
+ * Bindings are pooled: once a binding is queued, the queue returns it to the pool after it has executed.
+ * A name may be used more than once in the sql statement; the bound value is used for every occurrence.
+ * Placeholders inside string literals, quoted identifiers and comments are ignored. Positional "?" placeholders are not supported.
+ * A SqlTemplate is immutable and safe to share between threads, so it should be created once and stored, i.e., in a static final field.
+ */
+public final class SqlTemplate {
+    private static final int MAX_POOLED_BINDINGS = 64;
+
+    private final @NotNull String namedSql;
+    private final @NotNull String sql;
+    private final @NotNull List<String> parameterNames;
+    private final @NotNull Map<String, Integer> parameterIndexes;
+    private final int @NotNull [] slotParameters;
+    private final @NotNull ConcurrentLinkedQueue<SqlBinding> bindingPool = new ConcurrentLinkedQueue<>();
+    private final @NotNull AtomicInteger pooledBindings = new AtomicInteger();
+
+    /**
+     * Constructor
+     * @param namedSql The sql statement with named placeholders, i.e., "UPDATE players SET coins = :coins WHERE uuid = :uuid".
+     * @throws IllegalArgumentException If the sql statement contains a positional "?" placeholder.
+     */
+    public SqlTemplate(@NotNull String namedSql) {
+        this.namedSql = namedSql;
+
+        StringBuilder positionalSql = new StringBuilder(namedSql.length());
+        List<String> names = new ArrayList<>();
+        Map<String, Integer> indexes = new HashMap<>();
+        List<Integer> slots = new ArrayList<>();
+
+        int length = namedSql.length();
+        int i = 0;
+        while(i < length) {
+            char c = namedSql.charAt(i);
+
+            if(c == '\'' || c == '"' || c == '`' || c == '[') {
+                // Copy string literals and quoted identifiers as is.
+                char close = c == '[' ? ']' : c;
+                int end = namedSql.indexOf(close, i + 1);
+                end = end == -1 ? length : end + 1;
+                positionalSql.append(namedSql, i, end);
+                i = end;
+            } else if(c == '-' && i + 1 < length && namedSql.charAt(i + 1) == '-') {
+                int end = namedSql.indexOf('\n', i);
+                end = end == -1 ? length : end;
+                positionalSql.append(namedSql, i, end);
+                i = end;
+            } else if(c == '/' && i + 1 < length && namedSql.charAt(i + 1) == '*') {
+                int end = namedSql.indexOf("*/", i + 2);
+                end = end == -1 ? length : end + 2;
+                positionalSql.append(namedSql, i, end);
+                i = end;
+            } else if(c == '?') {
+                throw new IllegalArgumentException("SqlTemplate only supports named placeholders, but a \"?\" was found at index " + i + ".");
+            } else if(c == ':' && i + 1 < length && Character.isJavaIdentifierStart(namedSql.charAt(i + 1))) {
+                int end = i + 1;
+                while(end < length && Character.isJavaIdentifierPart(namedSql.charAt(end))) {
+                    end++;
+                }
+
+                String name = namedSql.substring(i + 1, end);
+                Integer index = indexes.get(name);
+                if(index == null) {
+                    index = names.size();
+                    names.add(name);
+                    indexes.put(name, index);
+                }
+
+                slots.add(index);
+                positionalSql.append('?');
+                i = end;
+            } else {
+                positionalSql.append(c);
+                i++;
+            }
+        }
+
+        this.sql = positionalSql.toString();
+        this.parameterNames = List.copyOf(names);
+        this.parameterIndexes = Map.copyOf(indexes);
+        this.slotParameters = slots.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Get the sql statement as it was written, with named placeholders.
+     * @return The sql statement with named placeholders.
+     */
+    public @NotNull String getNamedSql() {
+        return namedSql;
+    }
+
+    /**
+     * Get the positional sql statement, with every named placeholder replaced by "?".
+     * @return The positional sql statement.
+     */
+    public @NotNull String getSql() {
+        return sql;
+    }
+
+    /**
+     * Get the names of the parameters in the order they first appear. The position of a name in this list is its parameter index.
+     * @return An unmodifiable {@link List} of parameter names.
+     */
+    public @NotNull List<String> getParameterNames() {
+        return parameterNames;
+    }
+
+    /**
+     * Get the number of distinct parameters.
+     * @return The number of distinct parameters.
+     */
+    public int getParameterCount() {
+        return parameterNames.size();
+    }
+
+    /**
+     * Get the number of "?" placeholders in the positional sql statement.
+     * @return The number of placeholders.
+     */
+    public int getSlotCount() {
+        return slotParameters.length;
+    }
+
+    /**
+     * Get the index of a named parameter.
+     * @param name The name of the parameter, without the leading ":".
+     * @return The index of the parameter.
+     * @throws IllegalArgumentException If the sql statement has no parameter with that name.
+     */
+    public int getParameterIndex(@NotNull String name) {
+        Integer index = parameterIndexes.get(name);
+        if(index == null) throw new IllegalArgumentException("Unknown parameter \":" + name + "\" for sql: " + namedSql);
+
+        return index;
+    }
+
+    /**
+     * Get the index of the parameter whose value is bound to a "?" placeholder in the positional sql statement.
+     * @param slot The 0-based position of the "?" placeholder.
+     * @return The index of the parameter.
+     */
+    public int getSlotParameter(int slot) {
+        return slotParameters[slot];
+    }
+
+    /**
+     * Get a {@link SqlBinding} to bind values to, reusing a pooled one if available.
+     * @return An empty {@link SqlBinding}.
+     */
+    public @NotNull SqlBinding bind() {
+        SqlBinding binding = bindingPool.poll();
+        if(binding == null) return new SqlBinding(this);
+
+        pooledBindings.decrementAndGet();
+        binding.acquire();
+        return binding;
+    }
+
+    /**
+     * Returns a released {@link SqlBinding} to the pool.
+     * @param binding The {@link SqlBinding} to return.
+     */
+    void returnToPool(@NotNull SqlBinding binding) {
+        if(pooledBindings.incrementAndGet() <= MAX_POOLED_BINDINGS) {
+            bindingPool.add(binding);
+        } else {
+            pooledBindings.decrementAndGet();
+        }
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return namedSql;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.trace;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * The result of replaying a trace using a {@link TraceReplayer}.
+ * Latencies are measured from when each task was scheduled to be queued according to the trace until it completed,
+ * so time spent waiting because the database fell behind is included.
+ * @param tasks The number of tasks replayed.
+ * @param failedTasks The number of tasks that completed exceptionally.
+ * @param traceDurationMillis The time in milliseconds between the first and last task in the trace.
+ * @param durationMillis The time in milliseconds the replay took.
+ * @param tasksPerSecond The number of tasks completed per second during the replay.
+ * @param meanLatencyNanos The mean latency in nanoseconds.
+ * @param p50LatencyNanos The 50th percentile latency in nanoseconds.
+ * @param p95LatencyNanos The 95th percentile latency in nanoseconds.
+ * @param p99LatencyNanos The 99th percentile latency in nanoseconds.
+ * @param maxLatencyNanos The highest latency in nanoseconds.
+ * @param errors The distinct error messages of the failed tasks, limited to the first 20.
+ */
+public record ReplayReport(
+        int tasks,
+        int failedTasks,
+        long traceDurationMillis,
+        long durationMillis,
+        double tasksPerSecond,
+        long meanLatencyNanos,
+        long p50LatencyNanos,
+        long p95LatencyNanos,
+        long p99LatencyNanos,
+        long maxLatencyNanos,
+        @NotNull List<@NotNull String> errors) {}
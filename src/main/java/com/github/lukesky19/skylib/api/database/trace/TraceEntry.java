@@ -0,0 +1,45 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.trace;
+
+import com.github.lukesky19.skylib.api.database.statement.SqlStatement;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * A task captured by a {@link TraceRecorder}.
+ * @param readyOffsetNanos The time in nanoseconds from the start of the trace until the task was ready to run, i.e., when it was queued plus its delay.
+ * @param waitNanos The time in nanoseconds the task waited in the queue before it started.
+ * @param runNanos The time in nanoseconds the task took to run.
+ * @param write true if the task wrote to the database, false if it was a read.
+ * @param success true if the task completed successfully.
+ * @param statements The {@link SqlStatement}s the task executed, with their parameter values.
+ */
+public record TraceEntry(
+        long readyOffsetNanos,
+        long waitNanos,
+        long runNanos,
+        boolean write,
+        boolean success,
+        @NotNull List<@NotNull SqlStatement> statements) {}
@@ -0,0 +1,135 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.trace;
+
+import com.github.lukesky19.skylib.api.database.queue.util.StatementJournal;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads the {@link TraceEntry}s of a trace file written by a {@link TraceRecorder}, in the order they were written.
+ * A trace that was not closed properly, i.e., because the server crashed, is read up to the last complete entry.
+ */
+public class TraceReader implements AutoCloseable {
+    private final @NotNull DataInputStream input;
+    private final long startEpochMillis;
+    private boolean finished = false;
+
+    /**
+     * Constructor that opens the trace file and reads its header.
+     * @param tracePath The {@link Path} of the trace file.
+     * @throws IOException If the file could not be read or is not a trace file of a supported version.
+     */
+    public TraceReader(@NotNull Path tracePath) throws IOException {
+        this.input = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(tracePath))));
+
+        try {
+            if(input.readInt() != TraceRecorder.MAGIC) throw new IOException("The file is not a trace file: " + tracePath);
+
+            int version = input.readInt();
+            if(version != TraceRecorder.FORMAT_VERSION) throw new IOException("Unsupported trace file version " + version + ": " + tracePath);
+
+            this.startEpochMillis = input.readLong();
+        } catch (IOException e) {
+            input.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads every entry of a trace file.
+     * @param tracePath The {@link Path} of the trace file.
+     * @return A {@link List} of {@link TraceEntry}s, in the order they were written.
+     * @throws IOException If the file could not be read or is not a trace file of a supported version.
+     */
+    public static @NotNull List<@NotNull TraceEntry> readAll(@NotNull Path tracePath) throws IOException {
+        List<TraceEntry> entries = new ArrayList<>();
+        try(TraceReader reader = new TraceReader(tracePath)) {
+            TraceEntry entry;
+            while((entry = reader.next()) != null) {
+                entries.add(entry);
+            }
+        }
+
+        return entries;
+    }
+
+    /**
+     * Get the time the trace was started.
+     * @return The time in milliseconds since the epoch.
+     */
+    public long getStartEpochMillis() {
+        return startEpochMillis;
+    }
+
+    /**
+     * Reads the next entry.
+     * @return The next {@link TraceEntry}, or null if there are no more entries.
+     * @throws IOException If the entry could not be read.
+     */
+    public @Nullable TraceEntry next() throws IOException {
+        if(finished) return null;
+
+        try {
+            byte type = input.readByte();
+            if(type == TraceRecorder.END) {
+                finished = true;
+                return null;
+            }
+
+            if(type != TraceRecorder.ENTRY) throw new IOException("Unknown trace entry type " + type + ".");
+
+            long readyOffsetNanos = input.readLong();
+            long waitNanos = input.readLong();
+            long runNanos = input.readLong();
+            int flags = input.readUnsignedByte();
+
+            return new TraceEntry(readyOffsetNanos, waitNanos, runNanos,
+                    (flags & TraceRecorder.FLAG_WRITE) != 0, (flags & TraceRecorder.FLAG_SUCCESS) != 0,
+                    StatementJournal.readStatements(input));
+        } catch (EOFException e) {
+            // The trace was not closed, so the last entry may be incomplete.
+            finished = true;
+            return null;
+        }
+    }
+
+    /**
+     * Closes the trace file.
+     * @throws IOException If the file could not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+}
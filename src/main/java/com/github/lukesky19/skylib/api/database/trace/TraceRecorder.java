@@ -0,0 +1,203 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.trace;
+
+import com.github.lukesky19.skylib.api.database.queue.AbstractQueueManager;
+import com.github.lukesky19.skylib.api.database.queue.util.StatementJournal;
+import com.github.lukesky19.skylib.api.database.statement.SqlStatement;
+import com.github.lukesky19.skylib.internal.ThreadPoolManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Captures the timing, sql and parameter values of every task run by a queue into a trace file, so real traffic can be replayed using a {@link TraceReplayer}.
+ * Enable it using {@link AbstractQueueManager#setTraceRecorder(TraceRecorder)}. Recording only adds the task to an in-memory buffer;
+ * the buffer is written to the file once per second on a separate thread. If the buffer is full, tasks are dropped and counted rather than slowing the queue.
+ * The file is a GZIP compressed stream of entries whose statements are written using {@link StatementJournal#writeStatements(java.io.DataOutput, List)},
+ * so repeated sql costs little space. Parameter values are preserved as described in {@link StatementJournal}.
+ */
+public class TraceRecorder implements AutoCloseable {
+    /**
+     * The magic number at the start of every trace file.
+     */
+    public static final int MAGIC = 0x534B5452;
+    /**
+     * The version of the trace file format.
+     */
+    public static final int FORMAT_VERSION = 1;
+    // The maximum number of tasks held in memory before they are written.
+    private static final int MAX_PENDING_ENTRIES = 65536;
+    private static final long FLUSH_INTERVAL_MILLIS = 1000;
+    static final byte END = 0;
+    static final byte ENTRY = 1;
+    static final int FLAG_WRITE = 1;
+    static final int FLAG_SUCCESS = 2;
+
+    private final @NotNull DataOutputStream output;
+    private final long startTime;
+    private final @NotNull Queue<TraceEntry> pendingEntries = new ConcurrentLinkedQueue<>();
+    private final @NotNull AtomicInteger pendingCount = new AtomicInteger();
+    private final @NotNull LongAdder recordedEntries = new LongAdder();
+    private final @NotNull LongAdder droppedEntries = new LongAdder();
+    private @Nullable ScheduledFuture<?> flushTask;
+    private volatile boolean closed = false;
+    private @Nullable IOException writeError;
+
+    /**
+     * Constructor that creates the trace file, replacing it if it exists, and starts writing recorded tasks to it.
+     * The parent directories will be created if they do not exist.
+     * @param tracePath The {@link Path} of the trace file.
+     * @throws IOException If the trace file could not be created.
+     */
+    public TraceRecorder(@NotNull Path tracePath) throws IOException {
+        Path parent = tracePath.toAbsolutePath().getParent();
+        if(parent != null && !Files.exists(parent)) {
+            Files.createDirectories(parent);
+        }
+
+        this.output = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(tracePath))));
+        this.startTime = System.nanoTime();
+
+        try {
+            output.writeInt(MAGIC);
+            output.writeInt(FORMAT_VERSION);
+            output.writeLong(System.currentTimeMillis());
+        } catch (IOException e) {
+            output.close();
+            throw e;
+        }
+
+        flushTask = ThreadPoolManager.getThreadPoolExecutor().scheduleAtFixedRate(this::flush, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records a task that has finished running. Called by the queue manager; you should not need to call this.
+     * @param readyTime The {@link System#nanoTime()} at which the task was ready to run.
+     * @param waitNanos The time in nanoseconds the task waited in the queue before it started.
+     * @param runNanos The time in nanoseconds the task took to run.
+     * @param write true if the task wrote to the database, false if it was a read.
+     * @param success true if the task completed successfully.
+     * @param statements The {@link SqlStatement}s the task executed.
+     */
+    public void record(long readyTime, long waitNanos, long runNanos, boolean write, boolean success, @NotNull List<@NotNull SqlStatement> statements) {
+        if(closed) return;
+
+        if(pendingCount.incrementAndGet() > MAX_PENDING_ENTRIES) {
+            pendingCount.decrementAndGet();
+            droppedEntries.increment();
+            return;
+        }
+
+        pendingEntries.add(new TraceEntry(Math.max(0, readyTime - startTime), Math.max(0, waitNanos), Math.max(0, runNanos), write, success, statements));
+    }
+
+    /**
+     * Get the number of tasks written to the trace file.
+     * @return The number of tasks written.
+     */
+    public long getRecordedEntries() {
+        return recordedEntries.sum();
+    }
+
+    /**
+     * Get the number of tasks that were not recorded because the buffer was full or could not be written.
+     * @return The number of tasks dropped.
+     */
+    public long getDroppedEntries() {
+        return droppedEntries.sum();
+    }
+
+    /**
+     * Checks if the recorder has been closed.
+     * @return true if the recorder has been closed.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Stops recording, writes any buffered tasks and closes the trace file.
+     * Remember to remove the recorder from the queue manager using {@link AbstractQueueManager#setTraceRecorder(TraceRecorder)} with null.
+     * @throws IOException If the trace file could not be written or closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if(closed) return;
+        closed = true;
+
+        if(flushTask != null) {
+            flushTask.cancel(false);
+            flushTask = null;
+        }
+
+        flush();
+        try {
+            if(writeError == null) output.writeByte(END);
+        } finally {
+            output.close();
+        }
+
+        if(writeError != null) throw writeError;
+    }
+
+    /**
+     * Writes the buffered tasks to the trace file. Once a write has failed, further tasks are dropped.
+     */
+    private synchronized void flush() {
+        TraceEntry entry;
+        while((entry = pendingEntries.poll()) != null) {
+            pendingCount.decrementAndGet();
+            if(writeError != null) {
+                droppedEntries.increment();
+                continue;
+            }
+
+            try {
+                output.writeByte(ENTRY);
+                output.writeLong(entry.readyOffsetNanos());
+                output.writeLong(entry.waitNanos());
+                output.writeLong(entry.runNanos());
+                output.writeByte((entry.write() ? FLAG_WRITE : 0) | (entry.success() ? FLAG_SUCCESS : 0));
+                StatementJournal.writeStatements(output, entry.statements());
+                recordedEntries.increment();
+            } catch (IOException e) {
+                writeError = e;
+                droppedEntries.increment();
+            }
+        }
+    }
+}
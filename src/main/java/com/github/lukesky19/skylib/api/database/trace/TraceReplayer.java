@@ -0,0 +1,257 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.trace;
+
+import com.github.lukesky19.skylib.api.database.queue.MultiThreadQueueManager;
+import com.github.lukesky19.skylib.api.database.queue.QueueManager;
+import com.github.lukesky19.skylib.api.database.queue.SingleThreadQueueManager;
+import com.github.lukesky19.skylib.api.database.statement.SqlStatement;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a trace recorded by a {@link TraceRecorder} through a {@link QueueManager} to measure throughput and latency, i.e., to size hardware.
+ * Replay it against a copy of the database, as every write in the trace is executed again.
+ * The queue manager type is chosen by the queue manager passed in: a {@link SingleThreadQueueManager}, or a {@link MultiThreadQueueManager} with the concurrency to test.
+ * Tasks are queued at the times they were recorded, divided by the speed (i.e., 1 for real time and 10 for 10 times as fast), or as fast as possible with a speed of 0.
+ * The number of tasks in flight at once is limited, so a database that cannot keep up is measured rather than flooded.
+ * Write tasks are queued as a single transaction of their statements and reads read every row of their result.
+ */
+public class TraceReplayer {
+    // The maximum number of distinct error messages kept for the report.
+    private static final int MAX_ERRORS = 20;
+
+    private final @NotNull QueueManager queueManager;
+    private double speed = 1;
+    private int maxInFlight = 1024;
+
+    /**
+     * Constructor
+     * @param queueManager The {@link QueueManager} of a copy of the database to replay the trace against.
+     */
+    public TraceReplayer(@NotNull QueueManager queueManager) {
+        this.queueManager = queueManager;
+    }
+
+    /**
+     * Sets how much faster than recorded the trace is replayed.
+     * @param speed The speed, i.e., 1 for real time or 10 for 10 times as fast. 0 replays the trace as fast as possible.
+     * @return This {@link TraceReplayer}.
+     * @throws IllegalArgumentException If the speed is negative or not a number.
+     */
+    public @NotNull TraceReplayer setSpeed(double speed) {
+        if(!(speed >= 0) || Double.isInfinite(speed)) throw new IllegalArgumentException("The speed must be 0 or a positive number.");
+
+        this.speed = speed;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of tasks that may be queued and not completed at once.
+     * @param maxInFlight The maximum number of tasks in flight.
+     * @return This {@link TraceReplayer}.
+     * @throws IllegalArgumentException If the maximum is less than 1.
+     */
+    public @NotNull TraceReplayer setMaxInFlight(int maxInFlight) {
+        if(maxInFlight < 1) throw new IllegalArgumentException("The maximum number of tasks in flight must be at least 1.");
+
+        this.maxInFlight = maxInFlight;
+        return this;
+    }
+
+    /**
+     * Replays a trace file on a separate thread. The entries are read into memory and ordered by when they were ready to run,
+     * as the recorder writes them in the order they finished.
+     * @param tracePath The {@link Path} of the trace file.
+     * @return A {@link CompletableFuture} containing the {@link ReplayReport} once every task has completed.
+     */
+    public @NotNull CompletableFuture<ReplayReport> replay(@NotNull Path tracePath) {
+        ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "SkyLib-Trace-Replay");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        return CompletableFuture.supplyAsync(() -> {
+            List<TraceEntry> entries;
+            try {
+                entries = new ArrayList<>(TraceReader.readAll(tracePath));
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+
+            entries.sort(Comparator.comparingLong(TraceEntry::readyOffsetNanos));
+            return replay(entries);
+        }, executor).whenComplete((report, throwable) -> executor.shutdown());
+    }
+
+    /**
+     * Replays the entries on the current thread and waits for every task to complete.
+     * @param entries The {@link TraceEntry}s, ordered by when they were ready to run.
+     * @return The {@link ReplayReport}.
+     */
+    private @NotNull ReplayReport replay(@NotNull List<TraceEntry> entries) {
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        long[] latencies = new long[entries.size()];
+        AtomicInteger failedTasks = new AtomicInteger();
+        Set<String> errors = new LinkedHashSet<>();
+
+        long firstOffset = entries.isEmpty() ? 0 : entries.get(0).readyOffsetNanos();
+        long lastOffset = entries.isEmpty() ? 0 : entries.get(entries.size() - 1).readyOffsetNanos();
+        long startTime = System.nanoTime();
+        int submitted = 0;
+
+        try {
+            for(TraceEntry entry : entries) {
+                long scheduledTime;
+                if(speed == 0) {
+                    inFlight.acquire();
+                    scheduledTime = System.nanoTime();
+                } else {
+                    scheduledTime = startTime + (long) ((entry.readyOffsetNanos() - firstOffset) / speed);
+                    long delay;
+                    while((delay = scheduledTime - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(delay);
+                    }
+
+                    inFlight.acquire();
+                }
+
+                int index = submitted++;
+                submit(entry).whenComplete((result, throwable) -> {
+                    latencies[index] = System.nanoTime() - scheduledTime;
+                    if(throwable != null) {
+                        failedTasks.incrementAndGet();
+                        synchronized(errors) {
+                            if(errors.size() < MAX_ERRORS) errors.add(String.valueOf(throwable.getMessage()));
+                        }
+                    }
+
+                    inFlight.release();
+                });
+            }
+
+            // Every permit is free once every task has completed.
+            inFlight.acquire(maxInFlight);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        long duration = System.nanoTime() - startTime;
+        // Each task releases its permit after writing its latency, so every latency is visible once all permits were acquired.
+        long[] completed = Arrays.copyOf(latencies, submitted);
+        Arrays.sort(completed);
+
+        long total = 0;
+        for(long latency : completed) {
+            total += latency;
+        }
+
+        List<String> errorList;
+        synchronized(errors) {
+            errorList = List.copyOf(errors);
+        }
+
+        return new ReplayReport(
+                submitted,
+                failedTasks.get(),
+                TimeUnit.NANOSECONDS.toMillis(lastOffset - firstOffset),
+                TimeUnit.NANOSECONDS.toMillis(duration),
+                duration == 0 ? 0 : submitted / (duration / 1_000_000_000D),
+                completed.length == 0 ? 0 : total / completed.length,
+                percentile(completed, 0.5),
+                percentile(completed, 0.95),
+                percentile(completed, 0.99),
+                completed.length == 0 ? 0 : completed[completed.length - 1],
+                errorList);
+    }
+
+    /**
+     * Queues the statements of an entry. Reads with a single statement are queued as reads, everything else as a write transaction.
+     * @param entry The {@link TraceEntry}.
+     * @return The {@link CompletableFuture} of the queued task.
+     */
+    private @NotNull CompletableFuture<?> submit(@NotNull TraceEntry entry) {
+        List<SqlStatement> statements = entry.statements();
+        if(!entry.write() && statements.size() == 1) {
+            SqlStatement statement = statements.get(0);
+            return queueManager.queueReadTransaction(statement.sql(), statement.params(), TraceReplayer::readAllRows);
+        }
+
+        return queueManager.queueStatementTransaction(statements);
+    }
+
+    /**
+     * Reads every row of a result, so a replayed read costs as much as the original.
+     * @param resultSet The {@link ResultSet}.
+     * @return The number of rows read.
+     */
+    private static int readAllRows(@NotNull ResultSet resultSet) {
+        try(resultSet) {
+            int columns = resultSet.getMetaData().getColumnCount();
+            int rows = 0;
+            while(resultSet.next()) {
+                for(int i = 1; i <= columns; i++) {
+                    resultSet.getObject(i);
+                }
+
+                rows++;
+            }
+
+            return rows;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Get a percentile of sorted values.
+     * @param sorted The sorted values.
+     * @param percentile The percentile, between 0 and 1.
+     * @return The value at the percentile, or 0 if there are no values.
+     */
+    private static long percentile(long @NotNull [] sorted, double percentile) {
+        if(sorted.length == 0) return 0;
+
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
@@ -0,0 +1,127 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.database.warmup;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes what to warm up when the database is first opened: the hot sql statements to check on every pooled connection,
+ * and the hot tables and indexes to read so that their pages are cached.
+ */
+public class WarmupPlan {
+    private final @NotNull List<String> statements = new ArrayList<>();
+    private final @NotNull List<HotTable> tables = new ArrayList<>();
+
+    /**
+     * Constructor
+     */
+    public WarmupPlan() {}
+
+    /**
+     * Registers a sql statement to check on every pooled connection, i.e., the statements used to load player data on join.
+     * Compiling the statement loads the schema into the connection and reports invalid sql at startup. The compiled statement is not kept.
+     * @param sql The sql statement.
+     * @return This WarmupPlan.
+     */
+    public @NotNull WarmupPlan statement(@NotNull String sql) {
+        statements.add(sql);
+        return this;
+    }
+
+    /**
+     * Registers sql statements to check on every pooled connection.
+     * @param sqlList The sql statements.
+     * @return This WarmupPlan.
+     */
+    public @NotNull WarmupPlan statements(@NotNull List<String> sqlList) {
+        statements.addAll(sqlList);
+        return this;
+    }
+
+    /**
+     * Registers a table to read so that its pages are cached.
+     * @param table The name of the table.
+     * @return This WarmupPlan.
+     */
+    public @NotNull WarmupPlan table(@NotNull String table) {
+        tables.add(new HotTable(table, null));
+        return this;
+    }
+
+    /**
+     * Registers an index to read so that its pages are cached.
+     * @param table The name of the table the index belongs to.
+     * @param index The name of the index.
+     * @return This WarmupPlan.
+     */
+    public @NotNull WarmupPlan index(@NotNull String table, @NotNull String index) {
+        tables.add(new HotTable(table, index));
+        return this;
+    }
+
+    /**
+     * Get the registered sql statements.
+     * @return An unmodifiable {@link List} of sql statements.
+     */
+    public @NotNull List<String> getStatements() {
+        return Collections.unmodifiableList(statements);
+    }
+
+    /**
+     * Get the registered tables and indexes.
+     * @return An unmodifiable {@link List} of {@link HotTable}s.
+     */
+    public @NotNull List<HotTable> getTables() {
+        return Collections.unmodifiableList(tables);
+    }
+
+    /**
+     * A table or index to read when warming up.
+     * @param table The name of the table.
+     * @param index The name of the index to read, or null to read the table.
+     */
+    public record HotTable(@NotNull String table, @Nullable String index) {
+        /**
+         * Get the sql statement that reads every page of the table or index.
+         * @return The sql statement.
+         */
+        public @NotNull String toPrimeSql() {
+            String sql = "SELECT COUNT(*) FROM " + quote(table);
+            return index == null ? sql : sql + " INDEXED BY " + quote(index);
+        }
+
+        /**
+         * Quotes an identifier for use in a sql statement.
+         * @param identifier The identifier to quote.
+         * @return The quoted identifier.
+         */
+        private static @NotNull String quote(@NotNull String identifier) {
+            return "\"" + identifier.replace("\"", "\"\"") + "\"";
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.api.scheduler;
+
+import com.github.lukesky19.skylib.api.adventure.AdventureUtil;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An {@link Executor} that runs tasks on the server's main thread, batching all tasks submitted within a tick into a single scheduled task.
+ * This is intended to be used with the {@link java.util.concurrent.CompletableFuture}s returned by the database queues, i.e.,
+ * {@code future.thenAcceptAsync(result -> ..., mainThreadExecutor)}, instead of scheduling a new task for each completion.
+ * Each tick, tasks are run until the time budget is used up. Any remaining tasks carry over to the next tick.
+ * At least one task is run each tick, so a single slow task cannot stall the queue.
+ */
+public class MainThreadExecutor implements Executor {
+    private final @NotNull Plugin plugin;
+    private final long timeBudgetNanos;
+    private final @NotNull ConcurrentLinkedQueue<@NotNull Runnable> taskQueue = new ConcurrentLinkedQueue<>();
+    private final @NotNull AtomicBoolean scheduled = new AtomicBoolean(false);
+    private volatile boolean shutdown = false;
+
+    /**
+     * Constructor that uses a time budget of 5 milliseconds per tick.
+     * @param plugin The {@link Plugin} that the scheduled task is registered to.
+     */
+    public MainThreadExecutor(@NotNull Plugin plugin) {
+        this(plugin, 5, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Constructor
+     * @param plugin The {@link Plugin} that the scheduled task is registered to.
+     * @param timeBudget The maximum time to spend running tasks each tick.
+     * @param timeUnit The {@link TimeUnit} of the time budget.
+     */
+    public MainThreadExecutor(@NotNull Plugin plugin, long timeBudget, @NotNull TimeUnit timeUnit) {
+        this.plugin = plugin;
+        this.timeBudgetNanos = timeUnit.toNanos(timeBudget);
+    }
+
+    /**
+     * Queues a task to be run on the main thread. This method is safe to call from any thread.
+     * @param runnable The {@link Runnable} to run on the main thread.
+     * @throws RejectedExecutionException If {@link #shutdown()} has been called.
+     */
+    @Override
+    public void execute(@NotNull Runnable runnable) {
+        if(shutdown) throw new RejectedExecutionException("The MainThreadExecutor has been shut down.");
+
+        taskQueue.add(runnable);
+
+        if(scheduled.compareAndSet(false, true)) {
+            try {
+                plugin.getServer().getScheduler().runTaskTimer(plugin, this::drain, 0L, 1L);
+            } catch (RuntimeException e) {
+                scheduled.set(false);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Get the number of tasks waiting to be run.
+     * @return The number of tasks waiting to be run.
+     */
+    public int getPendingCount() {
+        return taskQueue.size();
+    }
+
+    /**
+     * Stops accepting new tasks. If called on the main thread, any remaining tasks are run immediately without a time budget.
+     * This should be called in your plugin's onDisable, as the scheduled task is cancelled when your plugin is disabled.
+     */
+    public void shutdown() {
+        shutdown = true;
+
+        if(plugin.getServer().isPrimaryThread()) {
+            Runnable runnable;
+            while((runnable = taskQueue.poll()) != null) {
+                run(runnable);
+            }
+        }
+    }
+
+    /**
+     * Runs queued tasks until the time budget for the tick is used up.
+     * The scheduled task is cancelled once no tasks are left.
+     * @param bukkitTask The {@link BukkitTask} running this method.
+     */
+    private void drain(@NotNull BukkitTask bukkitTask) {
+        long deadline = System.nanoTime() + timeBudgetNanos;
+
+        Runnable runnable;
+        while((runnable = taskQueue.poll()) != null) {
+            run(runnable);
+
+            if(System.nanoTime() - deadline >= 0) break;
+        }
+
+        if(taskQueue.isEmpty()) {
+            scheduled.set(false);
+
+            // A task may have been queued after the queue was checked. Keep running if no other task was scheduled for it.
+            if(taskQueue.isEmpty() || !scheduled.compareAndSet(false, true)) {
+                bukkitTask.cancel();
+            }
+        }
+    }
+
+    /**
+     * Runs a task, logging any exception so that it does not cancel the scheduled task.
+     * @param runnable The {@link Runnable} to run.
+     */
+    private void run(@NotNull Runnable runnable) {
+        try {
+            runnable.run();
+        } catch (RuntimeException e) {
+            plugin.getComponentLogger().error(AdventureUtil.serialize("An exception occurred while running a task on the main thread: " + e.getMessage()));
+        }
+    }
+}
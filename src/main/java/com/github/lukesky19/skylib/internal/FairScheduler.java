@@ -0,0 +1,242 @@
+package com.github.lukesky19.skylib.internal;
+
+import com.github.lukesky19.skylib.plugin.settings.PluginQuota;
+import com.github.lukesky19.skylib.plugin.settings.SchedulerSettings;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Shares an executor fairly between plugins using weighted fair queuing.
+ * Each plugin has its own queue. At most {@code maxRunning} tasks are handed to the executor at once, and whenever a slot frees up
+ * the next task is taken from the plugin with the lowest virtual start time, which advances by 1 / weight for every task it runs.
+ * A plugin with many waiting tasks therefore cannot delay other plugins' tasks by more than its share.
+ * Each plugin can also be limited in how many of its tasks run at once and how many may wait.
+ * If the executor rejects a task, the task is dropped and its rejection handler is called outside the scheduler's lock.
+ */
+public class FairScheduler {
+    private final @NotNull Executor executor;
+    private int maxRunning;
+    private final @Nullable SchedulerSettings settings;
+    private final @NotNull Map<String, Lane> lanes = new HashMap<>();
+    private int running = 0;
+    private double virtualTime = 0;
+
+    /**
+     * Constructor
+     * @param executor The {@link Executor} tasks are run on.
+     * @param maxRunning The maximum number of tasks handed to the executor at once, i.e., the number of threads it has.
+     * @param settings The {@link SchedulerSettings} containing each plugin's {@link PluginQuota}. Optional.
+     */
+    public FairScheduler(@NotNull Executor executor, int maxRunning, @Nullable SchedulerSettings settings) {
+        this.executor = executor;
+        this.maxRunning = Math.max(1, maxRunning);
+        this.settings = settings;
+    }
+
+    /**
+     * Sets the maximum number of tasks handed to the executor at once. Use this when the number of threads the executor has changes.
+     * Lowering it does not interrupt running tasks; it takes effect as they finish.
+     * @param maxRunning The maximum number of tasks handed to the executor at once. Values less than 1 are treated as 1.
+     */
+    public void setMaxRunning(int maxRunning) {
+        List<Runnable> rejections;
+        synchronized(this) {
+            this.maxRunning = Math.max(1, maxRunning);
+            rejections = dispatch();
+        }
+
+        rejections.forEach(Runnable::run);
+    }
+
+    /**
+     * Get the maximum number of tasks handed to the executor at once.
+     * @return The maximum number of running tasks.
+     */
+    public synchronized int getMaxRunning() {
+        return maxRunning;
+    }
+
+    /**
+     * Checks if a plugin's queue has reached its maximum depth.
+     * @param pluginName The name of the plugin.
+     * @return true if new tasks for the plugin should be rejected, otherwise false.
+     */
+    public synchronized boolean isFull(@NotNull String pluginName) {
+        Lane lane = getLane(pluginName);
+        return lane.queue.size() >= lane.maxQueueDepth;
+    }
+
+    /**
+     * Queues a task for a plugin. The queue depth limit is not checked, use {@link #isFull(String)} before accepting new work.
+     * @param pluginName The name of the plugin the task belongs to.
+     * @param runnable The {@link Runnable} to run.
+     * @param rejectionHandler The {@link Consumer} called instead of running the task if the executor rejects it, i.e., because it has been shut down.
+     *                         It may be called on this thread or on the thread of another task.
+     */
+    public void execute(@NotNull String pluginName, @NotNull Runnable runnable, @NotNull Consumer<@NotNull RejectedExecutionException> rejectionHandler) {
+        List<Runnable> rejections;
+        synchronized(this) {
+            Lane lane = getLane(pluginName);
+            if(lane.queue.isEmpty() && lane.running == 0) {
+                // A plugin that was idle starts at the current virtual time rather than catching up on the time it was idle.
+                lane.finishTime = Math.max(lane.finishTime, virtualTime);
+            }
+
+            lane.queue.add(new QueuedTask(runnable, rejectionHandler));
+            rejections = dispatch();
+        }
+
+        rejections.forEach(Runnable::run);
+    }
+
+    /**
+     * Get the number of a plugin's tasks that are waiting to run.
+     * @param pluginName The name of the plugin.
+     * @return The number of waiting tasks.
+     */
+    public synchronized int getQueuedCount(@NotNull String pluginName) {
+        Lane lane = lanes.get(pluginName);
+        return lane == null ? 0 : lane.queue.size();
+    }
+
+    /**
+     * Get the number of a plugin's tasks that are running.
+     * @param pluginName The name of the plugin.
+     * @return The number of running tasks.
+     */
+    public synchronized int getRunningCount(@NotNull String pluginName) {
+        Lane lane = lanes.get(pluginName);
+        return lane == null ? 0 : lane.running;
+    }
+
+    /**
+     * Hands tasks to the executor, in fair order, until the executor is saturated or no plugin has a task that may run.
+     * Tasks the executor rejects are dropped.
+     * Must be called while holding the lock.
+     * @return A {@link List} of {@link Runnable}s that call the rejection handlers of the dropped tasks. They must be run after releasing the lock.
+     */
+    private @NotNull List<@NotNull Runnable> dispatch() {
+        List<Runnable> rejections = new ArrayList<>();
+        while(running < maxRunning) {
+            Lane next = null;
+            for(Lane lane : lanes.values()) {
+                if(lane.queue.isEmpty() || lane.running >= lane.maxConcurrency) continue;
+                if(next == null || lane.finishTime < next.finishTime) next = lane;
+            }
+
+            if(next == null) break;
+
+            Lane lane = next;
+            QueuedTask task = lane.queue.poll();
+            virtualTime = Math.max(virtualTime, lane.finishTime);
+            lane.finishTime += 1.0 / lane.weight;
+            lane.running++;
+            running++;
+
+            try {
+                executor.execute(() -> run(lane, task.runnable));
+            } catch (RejectedExecutionException e) {
+                lane.running--;
+                running--;
+                rejections.add(() -> task.rejectionHandler.accept(e));
+            }
+        }
+
+        return rejections;
+    }
+
+    /**
+     * Runs a task and then dispatches the next task.
+     * @param lane The {@link Lane} the task belongs to.
+     * @param runnable The {@link Runnable} to run.
+     */
+    private void run(@NotNull Lane lane, @NotNull Runnable runnable) {
+        try {
+            runnable.run();
+        } finally {
+            List<Runnable> rejections;
+            synchronized(this) {
+                lane.running--;
+                running--;
+                rejections = dispatch();
+            }
+
+            rejections.forEach(Runnable::run);
+        }
+    }
+
+    /**
+     * Get the {@link Lane} of a plugin, creating it from the plugin's {@link PluginQuota} if it does not exist.
+     * Must be called while holding the lock.
+     * @param pluginName The name of the plugin.
+     * @return The {@link Lane}.
+     */
+    private @NotNull Lane getLane(@NotNull String pluginName) {
+        return lanes.computeIfAbsent(pluginName, name -> {
+            PluginQuota quota = null;
+            PluginQuota defaults = null;
+            if(settings != null) {
+                if(settings.plugins() != null) quota = settings.plugins().get(name);
+                defaults = settings.defaults();
+            }
+
+            return new Lane(
+                    getQuotaValue(quota, defaults, PluginQuota::weight, 1),
+                    getQuotaValue(quota, defaults, PluginQuota::maxConcurrency, Integer.MAX_VALUE),
+                    getQuotaValue(quota, defaults, PluginQuota::maxQueueDepth, Integer.MAX_VALUE));
+        });
+    }
+
+    /**
+     * Get a value of a plugin's {@link PluginQuota}, falling back to the default {@link PluginQuota} and then to the provided fallback.
+     * @param quota The plugin's {@link PluginQuota}, if configured.
+     * @param defaults The default {@link PluginQuota}, if configured.
+     * @param getter The function that gets the value from a {@link PluginQuota}.
+     * @param fallback The value to use if neither quota sets the value.
+     * @return The value.
+     */
+    private static int getQuotaValue(
+            @Nullable PluginQuota quota,
+            @Nullable PluginQuota defaults,
+            @NotNull Function<PluginQuota, Integer> getter,
+            int fallback) {
+        if(quota != null && getter.apply(quota) != null) return getter.apply(quota);
+        if(defaults != null && getter.apply(defaults) != null) return getter.apply(defaults);
+        return fallback;
+    }
+
+    /**
+     * A task waiting in a plugin's queue.
+     * @param runnable The {@link Runnable} to run.
+     * @param rejectionHandler The {@link Consumer} called if the executor rejects the task.
+     */
+    private record QueuedTask(@NotNull Runnable runnable, @NotNull Consumer<@NotNull RejectedExecutionException> rejectionHandler) {}
+
+    /**
+     * The queue and limits of a single plugin.
+     */
+    private static final class Lane {
+        private final @NotNull ArrayDeque<@NotNull QueuedTask> queue = new ArrayDeque<>();
+        private final int weight;
+        private final int maxConcurrency;
+        private final int maxQueueDepth;
+        private int running = 0;
+        private double finishTime = 0;
+
+        private Lane(int weight, int maxConcurrency, int maxQueueDepth) {
+            this.weight = weight;
+            this.maxConcurrency = maxConcurrency;
+            this.maxQueueDepth = maxQueueDepth;
+        }
+    }
+}
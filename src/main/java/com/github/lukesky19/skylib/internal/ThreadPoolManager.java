@@ -2,15 +2,26 @@ package com.github.lukesky19.skylib.internal;
 
 import com.github.lukesky19.skylib.api.database.queue.MultiThreadQueueManager;
 import com.github.lukesky19.skylib.plugin.settings.Settings;
+import net.kyori.adventure.text.logger.slf4j.ComponentLogger;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class manages the shared executor service for all {@link MultiThreadQueueManager} instances.
  */
 public class ThreadPoolManager {
+    private static final long TIMING_WHEEL_TICK_MILLIS = 50;
     private static ScheduledThreadPoolExecutor threadPoolExecutor;
+    private static TimingWheel timingWheel;
+    private static FairScheduler fairScheduler;
+    private static ThreadPoolExecutor mapperExecutor;
+    private static final Map<Object, Integer> workerDemands = new HashMap<>();
+    private static int configuredWorkers;
+    private static int maxWorkers;
 
     /**
      * All methods in this class are static so this constructor will throw a runtime exception if used.
@@ -23,12 +34,51 @@ public class ThreadPoolManager {
     /**
      * Initializes the {@link ScheduledThreadPoolExecutor} to use across all {@link MultiThreadQueueManager} instances.
      * @param settings The plugin's {@link Settings}.
+     * @param logger The plugin's {@link ComponentLogger}. Used to report delayed tasks that could not be handed off.
      */
-    public static void initializeThreadPool(@NotNull Settings settings) {
+    public static void initializeThreadPool(@NotNull Settings settings, @NotNull ComponentLogger logger) {
+        configuredWorkers = settings.corePoolSize();
+        maxWorkers = Math.max(settings.corePoolSize(), settings.maxPoolSize());
         threadPoolExecutor = new ScheduledThreadPoolExecutor(settings.corePoolSize());
         threadPoolExecutor.setMaximumPoolSize(settings.maxPoolSize());
         threadPoolExecutor.allowCoreThreadTimeOut(true);
         threadPoolExecutor.setKeepAliveTime(settings.timeoutTimeSeconds(), TimeUnit.SECONDS);
+
+        timingWheel = new TimingWheel(threadPoolExecutor, TIMING_WHEEL_TICK_MILLIS, TimeUnit.MILLISECONDS, logger);
+        timingWheel.start();
+
+        fairScheduler = new FairScheduler(threadPoolExecutor, settings.corePoolSize(), settings.scheduler());
+
+        // Mapping is CPU-bound, so leave half of the cores to the server.
+        int mapperThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger mapperThreadCount = new AtomicInteger();
+        mapperExecutor = new ThreadPoolExecutor(mapperThreads, mapperThreads, settings.timeoutTimeSeconds(), TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "SkyLib-Mapper-" + mapperThreadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        mapperExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Sets the number of worker threads an owner, i.e., a pool autotuner, needs to keep its connections busy.
+     * The executor's core size and the {@link FairScheduler}'s running limit are set to the total of all owners' demands,
+     * but never below the configured core pool size or above the configured max pool size.
+     * @param owner The object the demand belongs to.
+     * @param workers The number of worker threads needed, or 0 to remove the owner's demand.
+     */
+    public static synchronized void setWorkerDemand(@NotNull Object owner, int workers) {
+        if(workers > 0) {
+            workerDemands.put(owner, workers);
+        } else {
+            workerDemands.remove(owner);
+        }
+
+        int totalDemand = workerDemands.values().stream().mapToInt(Integer::intValue).sum();
+        int size = Math.min(maxWorkers, Math.max(configuredWorkers, totalDemand));
+
+        threadPoolExecutor.setCorePoolSize(size);
+        fairScheduler.setMaxRunning(size);
     }
 
     /**
@@ -39,12 +89,39 @@ public class ThreadPoolManager {
         return threadPoolExecutor;
     }
 
+    /**
+     * Gets the {@link TimingWheel} used to schedule delayed tasks for all {@link MultiThreadQueueManager} instances.
+     * The wheel advances every 50 milliseconds (1 server tick).
+     * @return A {@link TimingWheel}
+     */
+    public static @NotNull TimingWheel getTimingWheel() {
+        return timingWheel;
+    }
+
+    /**
+     * Gets the {@link FairScheduler} used to share the {@link ScheduledExecutorService} fairly between the plugins using {@link MultiThreadQueueManager}s.
+     * @return A {@link FairScheduler}
+     */
+    public static @NotNull FairScheduler getFairScheduler() {
+        return fairScheduler;
+    }
+
+    /**
+     * Gets the {@link Executor} used to map rows read by queue managers after their connection is released, so CPU-heavy mapping never holds a connection.
+     * @return An {@link Executor}
+     */
+    public static @NotNull Executor getMapperExecutor() {
+        return mapperExecutor;
+    }
+
     /**
      * Waits for the {@link ScheduledExecutorService} to finish any submitted tasks then shuts down.
      * Will forcefully shut down after 60 seconds.
      * @return A {@link CompletableFuture} of type {@link Void} once complete.
      */
     public static @NotNull CompletableFuture<Void> shutdownExecutorService() {
+        timingWheel.stop();
+
         return CompletableFuture.runAsync(() -> {
             try {
                 threadPoolExecutor.shutdown();
@@ -52,8 +129,15 @@ public class ThreadPoolManager {
                 if(!threadPoolExecutor.awaitTermination(60, TimeUnit.SECONDS)) {
                     threadPoolExecutor.shutdownNow();
                 }
+
+                // Rows read by the last tasks may still be mapping.
+                mapperExecutor.shutdown();
+                if(!mapperExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                    mapperExecutor.shutdownNow();
+                }
             } catch (InterruptedException e) {
                 threadPoolExecutor.shutdownNow();
+                mapperExecutor.shutdownNow();
                 Thread.currentThread().interrupt();
             }
         });
@@ -0,0 +1,276 @@
+package com.github.lukesky19.skylib.internal;
+
+import com.github.lukesky19.skylib.api.adventure.AdventureUtil;
+import net.kyori.adventure.text.logger.slf4j.ComponentLogger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * A hierarchical timing wheel used to schedule large numbers of delayed tasks without a heap entry and a wake-up per task.
+ * Tasks are bucketed by the tick they are due on. Each tick, all due tasks are grouped by their batch handler and
+ * handed to it as a single {@link List}, so many tasks due in the same tick only cause a single hand-off to their handler.
+ * Delays are rounded up to the next tick.
+ * If a handler throws, the futures of the tasks given to it are completed exceptionally. Tasks still in the wheel when it is stopped are cancelled.
+ * New tasks are added to a lock-free queue and only the ticking thread modifies the wheel itself.
+ */
+public class TimingWheel {
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+
+    private final @NotNull ScheduledExecutorService executorService;
+    private final @NotNull ComponentLogger logger;
+    private final long tickNanos;
+    private final long startTime = System.nanoTime();
+    private final @NotNull ConcurrentLinkedQueue<@NotNull Entry> pendingEntries = new ConcurrentLinkedQueue<>();
+    private final @NotNull List<@NotNull List<@NotNull List<@NotNull Entry>>> wheels = new ArrayList<>(LEVELS);
+    private final @NotNull List<@NotNull Entry> overflowEntries = new ArrayList<>();
+    private final @NotNull AtomicInteger size = new AtomicInteger();
+    private long currentTick = 0;
+    private @Nullable ScheduledFuture<?> tickTask;
+    private volatile boolean stopped = false;
+
+    /**
+     * Constructor
+     * @param executorService The {@link ScheduledExecutorService} used to advance the wheel.
+     * @param tickDuration The duration of a single tick.
+     * @param timeUnit The {@link TimeUnit} of the tick duration.
+     * @param logger The {@link ComponentLogger} used to report tasks that could not be handed off.
+     */
+    public TimingWheel(@NotNull ScheduledExecutorService executorService, long tickDuration, @NotNull TimeUnit timeUnit, @NotNull ComponentLogger logger) {
+        this.executorService = executorService;
+        this.logger = logger;
+        this.tickNanos = timeUnit.toNanos(tickDuration);
+
+        for(int level = 0; level < LEVELS; level++) {
+            List<List<Entry>> wheel = new ArrayList<>(WHEEL_SIZE);
+            for(int slot = 0; slot < WHEEL_SIZE; slot++) {
+                wheel.add(new ArrayList<>());
+            }
+
+            wheels.add(wheel);
+        }
+    }
+
+    /**
+     * Starts advancing the wheel once per tick.
+     */
+    public synchronized void start() {
+        if(tickTask != null || stopped) return;
+
+        tickTask = executorService.scheduleAtFixedRate(this::advance, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops advancing the wheel. Any tasks still in the wheel, or scheduled afterward, are not executed and their futures are cancelled.
+     */
+    public synchronized void stop() {
+        stopped = true;
+
+        if(tickTask != null) {
+            tickTask.cancel(false);
+            tickTask = null;
+        }
+
+        List<Entry> remainingEntries = new ArrayList<>(overflowEntries);
+        overflowEntries.clear();
+        for(List<List<Entry>> wheel : wheels) {
+            for(List<Entry> slot : wheel) {
+                remainingEntries.addAll(slot);
+                slot.clear();
+            }
+        }
+
+        size.addAndGet(-remainingEntries.size());
+        remainingEntries.forEach(entry -> entry.future.cancel(false));
+        cancelPendingEntries();
+    }
+
+    /**
+     * Get the number of tasks waiting in the wheel.
+     * @return The number of tasks waiting in the wheel.
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Schedules a task to be handed to the batch handler after the provided delay.
+     * @param runnable The {@link Runnable} to execute.
+     * @param future The {@link CompletableFuture} completed by the task. It is completed exceptionally if the task is never handed off.
+     * @param delay The delay before the task is due.
+     * @param timeUnit The {@link TimeUnit} of the delay.
+     * @param batchHandler The {@link Consumer} that is given all tasks sharing it that are due on the same tick.
+     *                     The same instance should be reused for tasks that can be batched together.
+     */
+    public void schedule(
+            @NotNull Runnable runnable,
+            @NotNull CompletableFuture<?> future,
+            long delay,
+            @NotNull TimeUnit timeUnit,
+            @NotNull Consumer<@NotNull List<@NotNull DueTask>> batchHandler) {
+        long elapsed = System.nanoTime() - startTime + timeUnit.toNanos(Math.max(0, delay));
+        long deadlineTick = (elapsed + tickNanos - 1) / tickNanos;
+
+        size.incrementAndGet();
+        pendingEntries.add(new Entry(runnable, future, deadlineTick, batchHandler));
+
+        // The wheel may have been stopped while the entry was being added.
+        if(stopped) cancelPendingEntries();
+    }
+
+    /**
+     * Cancels the futures of tasks that were scheduled but not yet added to the wheel.
+     */
+    private void cancelPendingEntries() {
+        Entry entry;
+        while((entry = pendingEntries.poll()) != null) {
+            size.decrementAndGet();
+            entry.future.cancel(false);
+        }
+    }
+
+    /**
+     * Advances the wheel to the current time, handing any due tasks to their batch handlers.
+     */
+    private synchronized void advance() {
+        if(stopped) return;
+
+        List<Entry> dueEntries = new ArrayList<>();
+        try {
+            long targetTick = (System.nanoTime() - startTime) / tickNanos;
+
+            if(size.get() == 0) {
+                // Nothing is scheduled, so the wheel can skip ahead without visiting each slot.
+                currentTick = Math.max(currentTick, targetTick);
+                return;
+            }
+
+            while(currentTick < targetTick) {
+                currentTick++;
+
+                // Cascade higher levels into lower levels when a lower level wraps around.
+                for(int level = LEVELS - 1; level >= 1; level--) {
+                    if((currentTick & ((1L << (WHEEL_BITS * level)) - 1)) == 0) {
+                        List<Entry> slot = wheels.get(level).get((int) ((currentTick >> (WHEEL_BITS * level)) & WHEEL_MASK));
+                        List<Entry> cascaded = new ArrayList<>(slot);
+                        slot.clear();
+                        cascaded.forEach(entry -> insert(entry, dueEntries));
+                    }
+                }
+
+                // Re-evaluate tasks beyond the range of the wheel each time the highest level wraps around.
+                if((currentTick & ((1L << (WHEEL_BITS * LEVELS)) - 1)) == 0 && !overflowEntries.isEmpty()) {
+                    List<Entry> overflow = new ArrayList<>(overflowEntries);
+                    overflowEntries.clear();
+                    overflow.forEach(entry -> insert(entry, dueEntries));
+                }
+
+                List<Entry> slot = wheels.get(0).get((int) (currentTick & WHEEL_MASK));
+                dueEntries.addAll(slot);
+                slot.clear();
+            }
+
+            // Add tasks scheduled since the last tick.
+            Entry entry;
+            while((entry = pendingEntries.poll()) != null) {
+                insert(entry, dueEntries);
+            }
+
+        } catch (RuntimeException e) {
+            // An exception would stop the wheel from ever advancing again, so it must not escape.
+            logger.error(AdventureUtil.serialize("Failed to advance the timing wheel: " + e.getMessage()));
+            // The due entries were removed from the wheel, so they no longer count towards its size.
+            size.addAndGet(-dueEntries.size());
+            failEntries(dueEntries, e);
+            return;
+        }
+
+        if(!dueEntries.isEmpty()) {
+            size.addAndGet(-dueEntries.size());
+            dispatch(dueEntries);
+        }
+    }
+
+    /**
+     * Inserts an entry into the level and slot matching its deadline, or into the due entries if it is already due.
+     * @param entry The {@link Entry} to insert.
+     * @param dueEntries The {@link List} of entries that are due on the current tick.
+     */
+    private void insert(@NotNull Entry entry, @NotNull List<@NotNull Entry> dueEntries) {
+        if(entry.deadlineTick <= currentTick) {
+            dueEntries.add(entry);
+            return;
+        }
+
+        for(int level = 0; level < LEVELS; level++) {
+            int higherBits = WHEEL_BITS * (level + 1);
+            if((entry.deadlineTick >> higherBits) == (currentTick >> higherBits)) {
+                wheels.get(level).get((int) ((entry.deadlineTick >> (WHEEL_BITS * level)) & WHEEL_MASK)).add(entry);
+                return;
+            }
+        }
+
+        overflowEntries.add(entry);
+    }
+
+    /**
+     * Groups the due entries by their batch handler and hands each group to its handler.
+     * If a handler throws, the futures of its group are completed exceptionally and the remaining groups are still handed off.
+     * @param dueEntries The {@link List} of entries that are due.
+     */
+    private void dispatch(@NotNull List<@NotNull Entry> dueEntries) {
+        Map<Consumer<List<DueTask>>, List<Entry>> batches = new IdentityHashMap<>();
+        for(Entry entry : dueEntries) {
+            batches.computeIfAbsent(entry.batchHandler, handler -> new ArrayList<>()).add(entry);
+        }
+
+        batches.forEach((handler, entries) -> {
+            try {
+                handler.accept(entries.stream().map(entry -> new DueTask(entry.runnable, entry.future)).toList());
+            } catch (RuntimeException e) {
+                logger.error(AdventureUtil.serialize("Failed to hand off " + entries.size() + " delayed task(s): " + e.getMessage()));
+                failEntries(entries, e);
+            }
+        });
+    }
+
+    /**
+     * Completes the futures of the provided entries exceptionally.
+     * @param entries The {@link List} of entries that could not be handed off.
+     * @param throwable The {@link Throwable} that prevented them from being handed off.
+     */
+    private void failEntries(@NotNull List<@NotNull Entry> entries, @NotNull Throwable throwable) {
+        entries.forEach(entry -> entry.future.completeExceptionally(throwable));
+    }
+
+    /**
+     * A task waiting in the wheel.
+     * @param runnable The {@link Runnable} to execute.
+     * @param future The {@link CompletableFuture} completed by the task.
+     * @param deadlineTick The tick the task is due on.
+     * @param batchHandler The {@link Consumer} to hand the task to when it is due.
+     */
+    private record Entry(
+            @NotNull Runnable runnable,
+            @NotNull CompletableFuture<?> future,
+            long deadlineTick,
+            @NotNull Consumer<@NotNull List<@NotNull DueTask>> batchHandler) {}
+
+    /**
+     * A task handed to its batch handler once it is due.
+     * @param runnable The {@link Runnable} to execute.
+     * @param future The {@link CompletableFuture} completed by the task.
+     */
+    public record DueTask(@NotNull Runnable runnable, @NotNull CompletableFuture<?> future) {}
+}
@@ -23,12 +23,15 @@
 package com.github.lukesky19.skylib.plugin;
 
 import com.github.lukesky19.skylib.api.adventure.AdventureUtil;
+import com.github.lukesky19.skylib.api.database.event.ChangeDispatcher;
 import com.github.lukesky19.skylib.internal.ThreadPoolManager;
+import com.github.lukesky19.skylib.plugin.command.SkyLibCommand;
 import com.github.lukesky19.skylib.plugin.listener.LoginListener;
 import com.github.lukesky19.skylib.api.version.VersionUtil;
 import com.github.lukesky19.skylib.plugin.settings.Settings;
 import com.github.lukesky19.skylib.plugin.settings.SettingsManager;
 import io.papermc.paper.ServerBuildInfo;
+import org.bukkit.command.PluginCommand;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.jetbrains.annotations.NotNull;
 
@@ -67,6 +70,14 @@ public final class SkyLib extends JavaPlugin {
         // Register Listener(s)
         this.getServer().getPluginManager().registerEvents(new LoginListener(), this);
 
+        // Register Command(s)
+        PluginCommand skyLibCommand = this.getCommand("skylib");
+        if(skyLibCommand != null) {
+            SkyLibCommand commandExecutor = new SkyLibCommand();
+            skyLibCommand.setExecutor(commandExecutor);
+            skyLibCommand.setTabCompleter(commandExecutor);
+        }
+
         // Load plugin settings and disable SkyLib if plugin settings fail to load.
         SettingsManager settingsManager = new SettingsManager(this);
         if(!settingsManager.loadSettings()) {
@@ -79,11 +90,15 @@ public final class SkyLib extends JavaPlugin {
         assert settings != null;
 
         // Initialize the ScheduledThreadPoolExecutor in ExecutorServiceManager
-        ThreadPoolManager.initializeThreadPool(settings);
+        ThreadPoolManager.initializeThreadPool(settings, this.getComponentLogger());
+
+        // Start delivering database change events
+        ChangeDispatcher.initialize(this);
     }
 
     @Override
     public void onDisable() {
+        ChangeDispatcher.shutdown();
         ThreadPoolManager.shutdownExecutorService();
     }
 }
@@ -0,0 +1,106 @@
+/*
+    SkyLib is a library that contains shared code for all of my plugins.
+    Copyright (c) 2024 lukeskywlker19
+
+    Permission is hereby granted, free of charge, to any person obtaining a copy
+    of this software and associated documentation files (the "Software"), to deal
+    in the Software without restriction, including without limitation the rights
+    to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+    copies of the Software, and to permit persons to whom the Software is
+    furnished to do so, subject to the following conditions:
+
+    The above copyright notice and this permission notice shall be included in all
+    copies or substantial portions of the Software.
+
+    THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+    IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+    FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+    AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+    LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+    OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+    SOFTWARE.
+ */
+package com.github.lukesky19.skylib.plugin.command;
+
+import com.github.lukesky19.skylib.api.adventure.AdventureUtil;
+import com.github.lukesky19.skylib.api.database.accounting.ResourceAccounting;
+import com.github.lukesky19.skylib.api.database.accounting.ResourceUsage;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabCompleter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Handles the /skylib command.
+ * /skylib top [1m|5m|15m] lists the plugins using the most database time over the window.
+ */
+public class SkyLibCommand implements CommandExecutor, TabCompleter {
+    private static final @NotNull List<String> WINDOWS = List.of("1m", "5m", "15m");
+    private static final int MAX_LINES = 10;
+
+    /**
+     * Constructor
+     */
+    public SkyLibCommand() {}
+
+    @Override
+    public boolean onCommand(@NotNull CommandSender sender, @NotNull Command command, @NotNull String label, @NotNull String @NotNull [] args) {
+        if(args.length == 0 || !args[0].equalsIgnoreCase("top")) {
+            sender.sendMessage(AdventureUtil.serialize("<red>Usage: /" + label + " top [1m|5m|15m]"));
+            return true;
+        }
+
+        if(!sender.hasPermission("skylib.command.top")) {
+            sender.sendMessage(AdventureUtil.serialize("<red>You do not have permission for this command."));
+            return true;
+        }
+
+        String window = args.length > 1 ? args[1].toLowerCase(Locale.ROOT) : "5m";
+        if(!WINDOWS.contains(window)) {
+            sender.sendMessage(AdventureUtil.serialize("<red>The window must be one of " + String.join(", ", WINDOWS) + "."));
+            return true;
+        }
+
+        long minutes = Long.parseLong(window.substring(0, window.length() - 1));
+        List<ResourceUsage> usages = ResourceAccounting.getUsage(minutes, TimeUnit.MINUTES);
+
+        sender.sendMessage(AdventureUtil.serialize("<yellow>Database usage by plugin over the last " + minutes + " minute(s):"));
+        if(usages.isEmpty()) {
+            sender.sendMessage(AdventureUtil.serialize("<gray>No database tasks have run."));
+            return true;
+        }
+
+        for(int i = 0; i < Math.min(MAX_LINES, usages.size()); i++) {
+            ResourceUsage usage = usages.get(i);
+            sender.sendMessage(AdventureUtil.serialize("<gray>" + (i + 1) + ". <white>" + usage.pluginName()
+                    + "<gray> - <white>" + usage.tasks() + "<gray> tasks, wall <white>" + formatNanos(usage.wallNanos())
+                    + "<gray>, cpu <white>" + formatNanos(usage.cpuNanos())
+                    + "<gray>, connection <white>" + formatNanos(usage.connectionHoldNanos())
+                    + "<gray>, rows <white>" + usage.rows()));
+        }
+
+        return true;
+    }
+
+    @Override
+    public @Nullable List<String> onTabComplete(@NotNull CommandSender sender, @NotNull Command command, @NotNull String label, @NotNull String @NotNull [] args) {
+        if(args.length == 1) return List.of("top");
+        if(args.length == 2 && args[0].equalsIgnoreCase("top")) return WINDOWS;
+        return List.of();
+    }
+
+    /**
+     * Formats a duration in nanoseconds as seconds with 2 decimal places.
+     * @param nanos The duration in nanoseconds.
+     * @return The formatted duration.
+     */
+    private static @NotNull String formatNanos(long nanos) {
+        return String.format(Locale.ROOT, "%.2fs", nanos / 1_000_000_000.0);
+    }
+}
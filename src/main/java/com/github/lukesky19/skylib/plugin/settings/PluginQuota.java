@@ -0,0 +1,16 @@
+package com.github.lukesky19.skylib.plugin.settings;
+
+import org.jetbrains.annotations.Nullable;
+import org.spongepowered.configurate.objectmapping.ConfigSerializable;
+
+/**
+ * The share of the thread pool a plugin receives.
+ * @param weight The plugin's share of the thread pool relative to other plugins with waiting tasks. Defaults to 1 if not set.
+ * @param maxConcurrency The maximum number of the plugin's tasks that may run at once. Unlimited if not set.
+ * @param maxQueueDepth The maximum number of the plugin's tasks that may wait to run. New tasks are rejected past this. Unlimited if not set.
+ */
+@ConfigSerializable
+public record PluginQuota(
+        @Nullable Integer weight,
+        @Nullable Integer maxConcurrency,
+        @Nullable Integer maxQueueDepth) {}
@@ -0,0 +1,16 @@
+package com.github.lukesky19.skylib.plugin.settings;
+
+import org.jetbrains.annotations.Nullable;
+import org.spongepowered.configurate.objectmapping.ConfigSerializable;
+
+import java.util.Map;
+
+/**
+ * The settings used to share the thread pool fairly between the plugins using SkyLib's database queue.
+ * @param defaults The {@link PluginQuota} used for any plugin that is not configured in plugins. Optional.
+ * @param plugins A {@link Map} of plugin names to the {@link PluginQuota} to use for that plugin. Optional.
+ */
+@ConfigSerializable
+public record SchedulerSettings(
+        @Nullable PluginQuota defaults,
+        @Nullable Map<String, PluginQuota> plugins) {}
@@ -1,5 +1,6 @@
 package com.github.lukesky19.skylib.plugin.settings;
 
+import org.jetbrains.annotations.Nullable;
 import org.spongepowered.configurate.objectmapping.ConfigSerializable;
 
 import java.util.concurrent.ScheduledThreadPoolExecutor;
@@ -9,9 +10,11 @@ import java.util.concurrent.ScheduledThreadPoolExecutor;
  * @param corePoolSize The core pool size to initialize the {@link ScheduledThreadPoolExecutor} with.
  * @param maxPoolSize The max pool size to initialize the {@link ScheduledThreadPoolExecutor} with.
  * @param timeoutTimeSeconds The time in seconds when a thread should be timed out.
+ * @param scheduler The {@link SchedulerSettings} used to share the {@link ScheduledThreadPoolExecutor} fairly between plugins. Optional.
  */
 @ConfigSerializable
 public record Settings(
         int corePoolSize,
         int maxPoolSize,
-        int timeoutTimeSeconds) {}
+        int timeoutTimeSeconds,
+        @Nullable SchedulerSettings scheduler) {}
@@ -34,6 +34,7 @@ import org.spongepowered.configurate.yaml.YamlConfigurationLoader;
 
 import java.io.File;
 import java.nio.file.Path;
+import java.util.Map;
 
 /**
  * This class manages SkyLib's {@link Settings}.
@@ -133,6 +134,43 @@ public class SettingsManager {
             return false;
         }
 
+        SchedulerSettings scheduler = settings.scheduler();
+        if(scheduler != null) {
+            if(scheduler.defaults() != null && !validateQuota(scheduler.defaults(), "defaults", logger)) return false;
+
+            if(scheduler.plugins() != null) {
+                for(Map.Entry<String, PluginQuota> entry : scheduler.plugins().entrySet()) {
+                    if(entry.getValue() != null && !validateQuota(entry.getValue(), entry.getKey(), logger)) return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Validates a {@link PluginQuota}.
+     * @param quota The {@link PluginQuota} to validate.
+     * @param name The name of the plugin the quota is for, used in error messages.
+     * @param logger The plugin's {@link ComponentLogger}.
+     * @return true if valid, otherwise false.
+     */
+    private boolean validateQuota(@NotNull PluginQuota quota, @NotNull String name, @NotNull ComponentLogger logger) {
+        if(quota.weight() != null && quota.weight() < 1) {
+            logger.error(AdventureUtil.serialize("The scheduler weight for " + name + " must be greater than or equal to 1."));
+            return false;
+        }
+
+        if(quota.maxConcurrency() != null && quota.maxConcurrency() < 1) {
+            logger.error(AdventureUtil.serialize("The scheduler max concurrency for " + name + " must be greater than or equal to 1."));
+            return false;
+        }
+
+        if(quota.maxQueueDepth() != null && quota.maxQueueDepth() < 1) {
+            logger.error(AdventureUtil.serialize("The scheduler max queue depth for " + name + " must be greater than or equal to 1."));
+            return false;
+        }
+
         return true;
     }
 }